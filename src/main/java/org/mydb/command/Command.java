@@ -1,6 +1,10 @@
 package org.mydb.command;
 
+import org.mydb.command.result.Result;
 import org.mydb.engine.Session;
+import org.mydb.engine.table.datatype.DataType;
+import org.mydb.engine.tx.DeadlockException;
+import org.mydb.engine.tx.Transaction;
 
 /**
  * Sql command
@@ -16,7 +20,150 @@ public class Command {
         this.prepared.setSession(session);
     }
 
+    public boolean isQuery() {
+        return prepared.isQuery();
+    }
+
+    /**
+     * Execute update, in auto-commit mode its transaction is committed or rolled back on failure.
+     * Otherwise only changes of failed statement are undone, but deadlock victim is rolled back
+     * to release locks other transactions wait for.
+     */
+    public int executeUpdate() {
+        session.startStatement();
+
+        if (!session.isAutoCommit()) {
+            Transaction transaction = session.getTransaction();
+            int savepoint = transaction.getUndoSize();
+
+            try {
+                return prepared.update();
+            } catch (DeadlockException e) {
+                session.rollback();
+                throw e;
+            } catch (RuntimeException e) {
+                transaction.rollbackTo(savepoint);
+                throw e;
+            }
+        }
+
+        int count;
+        try {
+            count = prepared.update();
+        } catch (RuntimeException e) {
+            session.rollback();
+            throw e;
+        }
+
+        session.commit();
+        return count;
+    }
+
+    /**
+     * Execute query, see {@link #executeQuery(int)}.
+     */
+    public Result executeQuery() {
+        return executeQuery(0);
+    }
+
+    /**
+     * Execute query. Rows are read from snapshot of transaction when result rows are read,
+     * so in auto-commit mode its transaction ends when result is closed or read to the end.
+     * @param maxRows max number of rows, 0 for no limit
+     */
+    public Result executeQuery(int maxRows) {
+        session.startStatement();
+
+        if (!session.isAutoCommit())
+            return prepared.query(maxRows);
+
+        Result result;
+        try {
+            result = prepared.query(maxRows);
+        } catch (RuntimeException e) {
+            session.rollback();
+            throw e;
+        }
+
+        return new AutoCommitResult(result, session);
+    }
+
+    public Prepared getPrepared() {
+        return prepared;
+    }
+
     public void cancel() {
         // todo cancel command
     }
+
+    /**
+     * Result of auto-commit query, ends transaction of session when rows are read or result is closed.
+     * Transaction is left running if session is not in auto-commit mode anymore.
+     */
+    private static class AutoCommitResult implements Result {
+        private final Result result;
+        private final Session session;
+        private boolean ended;
+
+        AutoCommitResult(Result result, Session session) {
+            this.result = result;
+            this.session = session;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return result.getColumnCount();
+        }
+
+        @Override
+        public String getColumnName(int index) {
+            return result.getColumnName(index);
+        }
+
+        @Override
+        public DataType getColumnType(int index) {
+            return result.getColumnType(index);
+        }
+
+        @Override
+        public boolean next() {
+            boolean next;
+            try {
+                next = result.next();
+            } catch (RuntimeException e) {
+                end(false);
+                throw e;
+            }
+
+            if (!next)
+                end(true);
+
+            return next;
+        }
+
+        @Override
+        public Object[] currentRow() {
+            return result.currentRow();
+        }
+
+        @Override
+        public void close() {
+            try {
+                result.close();
+            } finally {
+                end(true);
+            }
+        }
+
+        private void end(boolean commit) {
+            if (ended || !session.isAutoCommit())
+                return;
+
+            ended = true;
+            if (commit)
+                session.commit();
+            else
+                session.rollback();
+        }
+    }
 }
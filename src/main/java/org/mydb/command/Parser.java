@@ -1,17 +1,39 @@
 package org.mydb.command;
 
+import org.mydb.command.ddl.CreateIndexCommand;
 import org.mydb.command.ddl.CreateTableCommand;
+import org.mydb.command.dml.AnalyzeOperation;
+import org.mydb.command.dml.CheckpointOperation;
+import org.mydb.command.dml.DeleteOperation;
 import org.mydb.command.dml.InsertOperation;
+import org.mydb.command.dml.Join;
+import org.mydb.command.dml.JoinPlanner;
 import org.mydb.command.dml.NoOperation;
 import org.mydb.command.dml.SelectOperation;
+import org.mydb.command.dml.UpdateOperation;
+import org.mydb.command.expression.AggregateExpression;
+import org.mydb.command.expression.BetweenExpression;
+import org.mydb.command.expression.ColumnExpression;
+import org.mydb.command.expression.ComparisonExpression;
+import org.mydb.command.expression.Expression;
+import org.mydb.command.expression.InExpression;
+import org.mydb.command.expression.LogicalExpression;
+import org.mydb.command.expression.ParameterExpression;
+import org.mydb.command.expression.ValueExpression;
+import org.mydb.command.operator.SortOrder;
+import org.mydb.engine.Database;
 import org.mydb.engine.Session;
 import org.mydb.engine.table.Column;
 import org.mydb.engine.table.Table;
+import org.mydb.engine.table.TableIndex;
 import org.mydb.engine.table.datatype.DataType;
 import org.mydb.engine.table.datatype.WithPrecision;
 import org.mydb.engine.table.datatype.WithScale;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -19,6 +41,8 @@ import java.util.stream.Collectors;
  * SQL statement parser.
  */
 public class Parser {
+    /** One row table used to select expressions */
+    private static final String DUAL = "DUAL";
 
     /** Current session */
     private Session session;
@@ -26,6 +50,12 @@ public class Parser {
     /** Lexer used by parser */
     private Lexer lexer;
 
+    /** Parameters of statement being parsed */
+    private final List<ParameterExpression> parameters = new ArrayList<>();
+
+    /** Aggregates of select being parsed, <code>null</code> where aggregates are not expected */
+    private List<AggregateExpression> aggregates;
+
     Parser(Session session, Lexer lexer) {
         this.session = session;
         this.lexer = lexer;
@@ -39,6 +69,20 @@ public class Parser {
      * Parse statement to get prepared statement.
      */
     public Prepared parse() {
+        Prepared prepared = parseStatement();
+
+        // unparsed tokens would silently change statement meaning, i.e. misspelled WHERE
+        nextIf(Token.SEMICOLON);
+        if (lexer.getCurrentToken() != Token.END) {
+            throw new ParserException(String.format("unexpected token %s",
+                    lexer.getCurrentToken().getValue()));
+        }
+
+        prepared.setParameters(new ArrayList<>(parameters));
+        return prepared;
+    }
+
+    private Prepared parseStatement() {
         Prepared result = null;
 
         Token token = next();
@@ -50,6 +94,14 @@ public class Parser {
                     return parseInsert();
                 } else if (nextIf(Token.SELECT)) {
                     return parseSelect();
+                } else if (nextIf(Token.UPDATE)) {
+                    return parseUpdate();
+                } else if (nextIf(Token.DELETE)) {
+                    return parseDelete();
+                } else if (nextIf(Token.CHECKPOINT)) {
+                    return new CheckpointOperation(lexer.getOriginalSql());
+                } else if (nextIf(Token.ANALYZE)) {
+                    return parseAnalyze();
                 }
             case END:
                 return new NoOperation(lexer.getOriginalSql()); // no operation
@@ -66,15 +118,315 @@ public class Parser {
             return parseCreateTable();
         }
 
-        return null;
+        boolean unique = nextIf(Token.UNIQUE);
+        if (nextIf(Token.INDEX)) {
+            return parseCreateIndex(unique);
+        }
+
+        throw new ParserException("wrong syntax");
     }
 
     private Prepared parseInsert() {
-        return new InsertOperation(lexer.getOriginalSql());
+        InsertOperation insertOperation = new InsertOperation(lexer.getOriginalSql());
+
+        next(Token.INTO);
+        Table table = readTable();
+        insertOperation.setTable(table);
+
+        int[] columnIndexes;
+        if (nextIf(Token.OPEN_PAREN)) {
+            List<Integer> indexes = new ArrayList<>();
+            do {
+                Token<String> columnName = next(Token.TokenType.IDENTIFIER);
+                int index = table.getColumnIndex(columnName.getValue());
+
+                if (index < 0) {
+                    throw new ParserException(String.format("column not found: %s", columnName.getValue()));
+                }
+
+                indexes.add(index);
+            } while (nextIf(Token.COMA));
+
+            next(Token.CLOSE_PAREN);
+            columnIndexes = indexes.stream().mapToInt(Integer::intValue).toArray();
+        } else {
+            columnIndexes = new int[table.getColumns().size()];
+            for (int i = 0; i < columnIndexes.length; i++)
+                columnIndexes[i] = i;
+        }
+
+        insertOperation.setColumnIndexes(columnIndexes);
+
+        next(Token.VALUES);
+        do {
+            next(Token.OPEN_PAREN);
+
+            List<Expression> values = new ArrayList<>();
+            do {
+                values.add(readValue());
+            } while (nextIf(Token.COMA));
+
+            next(Token.CLOSE_PAREN);
+
+            if (values.size() != columnIndexes.length) {
+                throw new ParserException(String.format("expected %d values but got %d",
+                        columnIndexes.length, values.size()));
+            }
+
+            insertOperation.addRow(values.toArray(new Expression[0]));
+        } while (nextIf(Token.COMA));
+
+        return insertOperation;
     }
 
     private Prepared parseSelect() {
-        return new SelectOperation(lexer.getOriginalSql());
+        SelectOperation selectOperation = new SelectOperation(lexer.getOriginalSql());
+
+        List<Expression> expressions = new ArrayList<>();
+        boolean selectAll = false;
+
+        List<AggregateExpression> selectAggregates = new ArrayList<>();
+        aggregates = selectAggregates;
+
+        if (nextIf(Token.STAR)) {
+            selectAll = true;
+        } else {
+            do {
+                expressions.add(readExpression());
+            } while (nextIf(Token.COMA));
+        }
+
+        aggregates = null;
+
+        List<Table> tables = new ArrayList<>();
+        List<String> tableNames = new ArrayList<>();
+        List<Expression> conditions = new ArrayList<>();
+
+        if (nextIf(Token.FROM)) {
+            Token<String> tableName = lexer.getCurrentToken();
+            if (tableName.getTokenType() == Token.TokenType.IDENTIFIER && DUAL.equals(tableName.getValue())) {
+                next();
+            } else {
+                readTableReference(tables, tableNames);
+
+                while (true) {
+                    if (nextIf(Token.INNER)) {
+                        next(Token.JOIN);
+                    } else if (!nextIf(Token.JOIN)) {
+                        break;
+                    }
+
+                    readTableReference(tables, tableNames);
+                    next(Token.ON);
+                    conditions.add(readCondition());
+                }
+            }
+        }
+
+        if (nextIf(Token.WHERE)) {
+            conditions.add(readCondition());
+        }
+
+        List<ColumnExpression> groupBy = new ArrayList<>();
+        if (nextIf(Token.GROUP)) {
+            next(Token.BY);
+            do {
+                Expression expression = readExpression();
+                if (!(expression instanceof ColumnExpression)) {
+                    throw new ParserException("column expected in GROUP BY");
+                }
+
+                groupBy.add((ColumnExpression) expression);
+            } while (nextIf(Token.COMA));
+        }
+
+        List<Expression> orderExpressions = new ArrayList<>();
+        List<Boolean> descending = new ArrayList<>();
+        aggregates = selectAggregates;
+
+        if (nextIf(Token.ORDER)) {
+            next(Token.BY);
+            do {
+                orderExpressions.add(readExpression());
+
+                if (nextIf(Token.DESC)) {
+                    descending.add(true);
+                } else {
+                    nextIf(Token.ASC);
+                    descending.add(false);
+                }
+            } while (nextIf(Token.COMA));
+        }
+
+        aggregates = null;
+
+        if (nextIf(Token.LIMIT)) {
+            selectOperation.setLimit(readValue());
+        }
+
+        if (nextIf(Token.OFFSET)) {
+            selectOperation.setOffset(readValue());
+        }
+
+        // columns of table with alias or of joined tables are named by table name or alias
+        Table table = null;
+        if (tables.size() == 1 && tables.get(0).getName().equals(tableNames.get(0))) {
+            table = tables.get(0);
+        } else if (!tables.isEmpty()) {
+            table = JoinPlanner.newJoinedTable(tables, tableNames);
+        }
+
+        if (selectAll) {
+            if (table == null) {
+                throw new ParserException("table expected for select *");
+            }
+
+            for (Column column : table.getColumns()) {
+                expressions.add(new ColumnExpression(column.getName()));
+            }
+        }
+
+        List<Expression> joinConditions = new ArrayList<>();
+        TableIndex[] lookups = new TableIndex[tables.size()];
+
+        if (tables.size() > 1) {
+            for (Expression condition : conditions) {
+                splitAnd(condition, joinConditions);
+            }
+
+            // expressions are bound to columns of tables in join order, select * keeps FROM order
+            JoinPlanner planner = new JoinPlanner(tables, tableNames, joinConditions);
+            int[] order = planner.plan();
+
+            if (order != null) {
+                List<Table> orderedTables = new ArrayList<>();
+                List<String> orderedNames = new ArrayList<>();
+                for (int i = 0; i < order.length; i++) {
+                    orderedTables.add(tables.get(order[i]));
+                    orderedNames.add(tableNames.get(order[i]));
+                    lookups[i] = planner.getLookup(order[i]);
+                }
+
+                tables = orderedTables;
+                tableNames = orderedNames;
+                table = JoinPlanner.newJoinedTable(tables, tableNames);
+            }
+        }
+
+        for (Expression expression : expressions) {
+            if (expression instanceof ColumnExpression)
+                ((ColumnExpression) expression).bind(table);
+        }
+
+        for (int i = 0; i < orderExpressions.size(); i++) {
+            Expression expression = orderExpressions.get(i);
+
+            // number is position in select list
+            if (expression instanceof ValueExpression && expression.getValue(null) instanceof Integer) {
+                int position = (Integer) expression.getValue(null);
+                if (position < 1 || position > expressions.size()) {
+                    throw new ParserException(String.format("ORDER BY position %d is not in select list", position));
+                }
+
+                orderExpressions.set(i, expressions.get(position - 1));
+            } else if (expression instanceof ColumnExpression) {
+                ((ColumnExpression) expression).bind(table);
+            }
+        }
+
+        List<Expression> columnsRead = new ArrayList<>();
+
+        if (!groupBy.isEmpty() || !selectAggregates.isEmpty()) {
+            // select list and ORDER BY read aggregated rows
+            List<AggregateExpression> computed = planAggregation(selectOperation, table, groupBy, selectAggregates);
+            checkGrouped(expressions, groupBy);
+            checkGrouped(orderExpressions, groupBy);
+
+            columnsRead.addAll(groupBy);
+            for (AggregateExpression aggregate : computed) {
+                if (aggregate.getArgument() != null)
+                    columnsRead.add(aggregate.getArgument());
+            }
+        } else {
+            columnsRead.addAll(expressions);
+            columnsRead.addAll(orderExpressions);
+        }
+
+        if (!orderExpressions.isEmpty()) {
+            selectOperation.setOrder(new SortOrder(orderExpressions, descending));
+        }
+
+        if (tables.size() > 1) {
+            selectOperation.setJoins(planJoins(tables, tableNames, table, columnsRead, joinConditions, lookups));
+        } else {
+            selectOperation.setTable(tables.isEmpty() ? null : tables.get(0));
+
+            if (!conditions.isEmpty()) {
+                Expression condition = conditions.get(0);
+                condition.bind(table);
+                selectOperation.setCondition(condition);
+            }
+        }
+
+        selectOperation.setExpressions(expressions);
+
+        return selectOperation;
+    }
+
+    private Prepared parseUpdate() {
+        UpdateOperation updateOperation = new UpdateOperation(lexer.getOriginalSql());
+
+        Table table = readTable();
+        updateOperation.setTable(table);
+
+        next(Token.SET);
+        do {
+            Token<String> columnName = next(Token.TokenType.IDENTIFIER);
+            int index = table.getColumnIndex(columnName.getValue());
+
+            if (index < 0) {
+                throw new ParserException(String.format("column not found: %s", columnName.getValue()));
+            }
+
+            next(Token.EQUALS);
+            Expression value = readExpression();
+            value.bind(table);
+            updateOperation.addAssignment(index, value);
+        } while (nextIf(Token.COMA));
+
+        if (nextIf(Token.WHERE)) {
+            Expression condition = readCondition();
+            condition.bind(table);
+            updateOperation.setCondition(condition);
+        }
+
+        return updateOperation;
+    }
+
+    private Prepared parseDelete() {
+        DeleteOperation deleteOperation = new DeleteOperation(lexer.getOriginalSql());
+
+        next(Token.FROM);
+        Table table = readTable();
+        deleteOperation.setTable(table);
+
+        if (nextIf(Token.WHERE)) {
+            Expression condition = readCondition();
+            condition.bind(table);
+            deleteOperation.setCondition(condition);
+        }
+
+        return deleteOperation;
+    }
+
+    private Prepared parseAnalyze() {
+        AnalyzeOperation analyzeOperation = new AnalyzeOperation(lexer.getOriginalSql());
+
+        if (lexer.getCurrentToken().getTokenType() == Token.TokenType.IDENTIFIER) {
+            analyzeOperation.setTable(readTable());
+        }
+
+        return analyzeOperation;
     }
 
     private Prepared parseCreateTable() {
@@ -88,15 +440,67 @@ public class Parser {
 
         if (nextIf(Token.OPEN_PAREN)) {
             do {
-                parseColumnDefinition(table);
+                if (nextIf(Token.PRIMARY)) {
+                    next(Token.KEY);
+                    next(Token.OPEN_PAREN);
+                    Token<String> columnName = next(Token.TokenType.IDENTIFIER);
+                    next(Token.CLOSE_PAREN);
+
+                    table.setPrimaryKey(columnName.getValue());
+                } else {
+                    parseColumnDefinition(table);
+                }
             } while (nextIf(Token.COMA));
 
             next(Token.CLOSE_PAREN);
         }
 
+        if (nextIf(Token.STORAGE)) {
+            next(Token.COLUMNAR);
+            table.setColumnar(true);
+        }
+
         return createTableCommand;
     }
 
+    private Prepared parseCreateIndex(boolean unique) {
+        Token<String> indexName = next(Token.TokenType.IDENTIFIER);
+        CreateIndexCommand createIndexCommand = new CreateIndexCommand(lexer.getOriginalSql());
+        createIndexCommand.setIndexName(indexName.getValue());
+        createIndexCommand.setUnique(unique);
+
+        next(Token.ON);
+        Table table = readTable();
+        createIndexCommand.setTable(table);
+
+        next(Token.OPEN_PAREN);
+        List<Integer> indexes = new ArrayList<>();
+        do {
+            Token<String> columnName = next(Token.TokenType.IDENTIFIER);
+            int index = table.getColumnIndex(columnName.getValue());
+
+            if (index < 0) {
+                throw new ParserException(String.format("column not found: %s", columnName.getValue()));
+            }
+
+            if (indexes.contains(index)) {
+                throw new ParserException(String.format("duplicate index column: %s", columnName.getValue()));
+            }
+
+            indexes.add(index);
+        } while (nextIf(Token.COMA));
+        next(Token.CLOSE_PAREN);
+
+        createIndexCommand.setColumnIndexes(indexes.stream().mapToInt(Integer::intValue).toArray());
+
+        if (nextIf(Token.USING)) {
+            next(Token.HASH);
+            createIndexCommand.setHash(true);
+        }
+
+        return createIndexCommand;
+    }
+
     private void parseColumnDefinition(Table table) {
         Column.ColumnBuilder columnBuilder = new Column.ColumnBuilder();
 
@@ -128,7 +532,423 @@ public class Parser {
             }
         }
 
-        table.addColumn(columnBuilder.build());
+        Column column = columnBuilder.build();
+        table.addColumn(column);
+
+        if (nextIf(Token.PRIMARY)) {
+            next(Token.KEY);
+            table.setPrimaryKey(column.getName());
+        }
+    }
+
+    // expressions ====================================================================================================
+    /**
+     * Read condition: comparisons and BETWEEN combined with AND, OR and parentheses, AND binds stronger.
+     */
+    private Expression readCondition() {
+        Expression condition = readAnd();
+
+        while (nextIf(Token.OR)) {
+            condition = new LogicalExpression(LogicalExpression.Type.OR, condition, readAnd());
+        }
+
+        return condition;
+    }
+
+    private Expression readAnd() {
+        Expression condition = readComparison();
+
+        while (nextIf(Token.AND)) {
+            condition = new LogicalExpression(LogicalExpression.Type.AND, condition, readComparison());
+        }
+
+        return condition;
+    }
+
+    private Expression readComparison() {
+        if (nextIf(Token.OPEN_PAREN)) {
+            Expression condition = readCondition();
+            next(Token.CLOSE_PAREN);
+            return condition;
+        }
+
+        Expression left = readExpression();
+
+        if (nextIf(Token.BETWEEN)) {
+            Expression low = readExpression();
+            next(Token.AND);
+            return new BetweenExpression(left, low, readExpression());
+        }
+
+        if (nextIf(Token.IN)) {
+            List<Expression> values = new ArrayList<>();
+            next(Token.OPEN_PAREN);
+            do {
+                values.add(readExpression());
+            } while (nextIf(Token.COMA));
+            next(Token.CLOSE_PAREN);
+
+            return new InExpression(left, values);
+        }
+
+        Token token = next(Token.EQUALS, Token.NOT_EQUALS, Token.LESS, Token.LESS_EQUALS,
+                Token.MORE, Token.MORE_EQUALS);
+
+        ComparisonExpression.Type type;
+        if (token == Token.EQUALS) {
+            type = ComparisonExpression.Type.EQUALS;
+        } else if (token == Token.NOT_EQUALS) {
+            type = ComparisonExpression.Type.NOT_EQUALS;
+        } else if (token == Token.LESS) {
+            type = ComparisonExpression.Type.LESS;
+        } else if (token == Token.LESS_EQUALS) {
+            type = ComparisonExpression.Type.LESS_EQUALS;
+        } else if (token == Token.MORE) {
+            type = ComparisonExpression.Type.MORE;
+        } else {
+            type = ComparisonExpression.Type.MORE_EQUALS;
+        }
+
+        return new ComparisonExpression(type, left, readExpression());
+    }
+
+    private Expression readExpression() {
+        Token token = lexer.getCurrentToken();
+
+        if (token.getTokenType() == Token.TokenType.IDENTIFIER) {
+            next();
+
+            if (nextIf(Token.OPEN_PAREN)) {
+                return readAggregate((String) token.getValue());
+            }
+
+            if (nextIf(Token.DOT)) {
+                Token<String> columnName = next(Token.TokenType.IDENTIFIER);
+                return new ColumnExpression((String) token.getValue(), columnName.getValue());
+            }
+
+            return new ColumnExpression((String) token.getValue());
+        }
+
+        return readValue();
+    }
+
+    /**
+     * Read aggregate function after opening parenthesis: COUNT(*) or function of column.
+     */
+    private Expression readAggregate(String name) {
+        AggregateExpression.Type type = AggregateExpression.getType(name);
+        if (type == null) {
+            throw new ParserException(String.format("unknown function: %s", name));
+        }
+
+        List<AggregateExpression> selectAggregates = aggregates;
+        if (selectAggregates == null) {
+            throw new ParserException(String.format("aggregate function not expected: %s", name));
+        }
+
+        ColumnExpression argument = null;
+        if (type != AggregateExpression.Type.COUNT || !nextIf(Token.STAR)) {
+            // aggregate of aggregate is not expected
+            aggregates = null;
+            Expression expression = readExpression();
+            aggregates = selectAggregates;
+
+            if (!(expression instanceof ColumnExpression)) {
+                throw new ParserException(String.format("column expected in %s", name));
+            }
+
+            argument = (ColumnExpression) expression;
+        }
+
+        next(Token.CLOSE_PAREN);
+
+        AggregateExpression aggregate = new AggregateExpression(type, argument);
+        selectAggregates.add(aggregate);
+        return aggregate;
+    }
+
+    /**
+     * Read literal value: number, string, NULL or parameter.
+     */
+    private Expression readValue() {
+        if (nextIf(Token.NULL)) {
+            return new ValueExpression(null);
+        }
+
+        if (nextIf(Token.QUESTION)) {
+            ParameterExpression parameter = new ParameterExpression(parameters.size() + 1);
+            parameters.add(parameter);
+            return parameter;
+        }
+
+        boolean negate = nextIf(Token.MINUS);
+        Token token = next(Token.TokenType.VALUE);
+        Object value = token.getValue();
+
+        if (negate) {
+            if (value instanceof Integer) {
+                value = -((Integer) value);
+            } else if (value instanceof Double) {
+                value = -((Double) value);
+            } else {
+                throw new ParserException(String.format("number expected after '-' but got %s", value));
+            }
+        }
+
+        return new ValueExpression(value);
+    }
+
+    private Table readTable() {
+        Token<String> tableName = next(Token.TokenType.IDENTIFIER);
+        Database database = session.getDatabase();
+        Table table = database == null ? null : database.getTable(tableName.getValue());
+
+        if (table == null) {
+            throw new ParserException(String.format("table not found: %s", tableName.getValue()));
+        }
+
+        return table;
+    }
+
+    /**
+     * Read table name and optional alias.
+     */
+    private void readTableReference(List<Table> tables, List<String> tableNames) {
+        Table table = readTable();
+        String tableName = table.getName();
+
+        Token token = lexer.getCurrentToken();
+        if (token.getTokenType() == Token.TokenType.IDENTIFIER) {
+            next();
+            tableName = (String) token.getValue();
+        }
+
+        if (tableNames.contains(tableName)) {
+            throw new ParserException(String.format("duplicate table name: %s", tableName));
+        }
+
+        tables.add(table);
+        tableNames.add(tableName);
+    }
+
+    /**
+     * Bind group columns and aggregates, aggregates with the same name are computed once. Values of aggregates
+     * follow values of table columns in aggregated rows.
+     * @return aggregates computed
+     */
+    private static List<AggregateExpression> planAggregation(SelectOperation selectOperation, Table table,
+                                                             List<ColumnExpression> groupBy,
+                                                             List<AggregateExpression> aggregates) {
+        int[] groupColumns = new int[groupBy.size()];
+        for (int i = 0; i < groupColumns.length; i++) {
+            groupBy.get(i).bind(table);
+            groupColumns[i] = groupBy.get(i).getColumnIndex();
+        }
+
+        int columnCount = table == null ? 0 : table.getColumns().size();
+        List<AggregateExpression> computed = new ArrayList<>();
+
+        for (AggregateExpression aggregate : aggregates) {
+            aggregate.bind(table);
+
+            AggregateExpression same = computed.stream()
+                    .filter(other -> other.getName().equals(aggregate.getName()))
+                    .findFirst().orElse(null);
+
+            if (same != null) {
+                aggregate.setIndex(same.getIndex());
+            } else {
+                aggregate.setIndex(columnCount + computed.size());
+                computed.add(aggregate);
+            }
+        }
+
+        selectOperation.setGroupColumns(groupColumns);
+        selectOperation.setAggregates(computed);
+        return computed;
+    }
+
+    /**
+     * @throws ParserException if column read by expression is not group column
+     */
+    private static void checkGrouped(List<Expression> expressions, List<ColumnExpression> groupBy) {
+        for (Expression expression : expressions) {
+            if (!(expression instanceof ColumnExpression))
+                continue;
+
+            int columnIndex = ((ColumnExpression) expression).getColumnIndex();
+            if (groupBy.stream().noneMatch(column -> column.getColumnIndex() == columnIndex)) {
+                throw new ParserException(String.format("column %s must be in GROUP BY", expression.getName()));
+            }
+        }
+    }
+
+    /**
+     * Plan inner join of tables in join order. ON and WHERE conditions are split into conditions
+     * combined by AND: condition on columns of one table is checked when table is read, so it may use
+     * index of table, other conditions are checked when the last table they use is joined.
+     * Columns of joined table and previous table compared by = are the join key.
+     * @param tables tables in join order, see {@link JoinPlanner}
+     * @param joined table with columns of all tables, see {@link JoinPlanner#newJoinedTable(List, List)}
+     * @param expressions select list and ORDER BY expressions bound to joined table
+     * @param parts ON and WHERE conditions split by AND
+     * @param lookups index rows of table are looked up in by key, <code>null</code> to join table by hash join
+     * @throws ParserException if table has no join key
+     */
+    private List<Join> planJoins(List<Table> tables, List<String> tableNames, Table joined,
+                                 List<Expression> expressions, List<Expression> parts, TableIndex[] lookups) {
+        int[] offsets = new int[tables.size() + 1];
+        for (int i = 0; i < tables.size(); i++)
+            offsets[i + 1] = offsets[i] + tables.get(i).getColumns().size();
+
+        List<List<Expression>> tableConditions = new ArrayList<>();
+        List<List<Expression>> joinConditions = new ArrayList<>();
+        for (int i = 0; i < tables.size(); i++) {
+            tableConditions.add(new ArrayList<>());
+            joinConditions.add(new ArrayList<>());
+        }
+
+        BitSet columnsRead = new BitSet();
+        for (Expression expression : expressions)
+            expression.collectColumns(columnsRead);
+
+        for (Expression part : parts) {
+            part.bind(joined);
+
+            BitSet columns = new BitSet();
+            part.collectColumns(columns);
+            columnsRead.or(columns);
+
+            int first = columns.isEmpty() ? 0 : getTableOf(offsets, columns.nextSetBit(0));
+            int last = columns.isEmpty() ? 0 : getTableOf(offsets, columns.length() - 1);
+
+            if (first == last) {
+                part.bind(JoinPlanner.newJoinedTable(tables.subList(first, first + 1),
+                        tableNames.subList(first, first + 1)));
+                tableConditions.get(first).add(part);
+            } else {
+                joinConditions.get(last).add(part);
+            }
+        }
+
+        List<Join> joins = new ArrayList<>();
+        for (int i = 0; i < tables.size(); i++) {
+            Table table = tables.get(i);
+
+            SelectOperation select = new SelectOperation(lexer.getOriginalSql());
+            select.setTable(table);
+
+            List<Expression> columns = new ArrayList<>();
+            for (int column = columnsRead.nextSetBit(offsets[i]); column >= 0 && column < offsets[i + 1];
+                 column = columnsRead.nextSetBit(column + 1)) {
+                ColumnExpression columnExpression = new ColumnExpression(
+                        table.getColumns().get(column - offsets[i]).getName());
+                columnExpression.bind(table);
+                columns.add(columnExpression);
+            }
+
+            select.setExpressions(columns);
+            select.setCondition(combineAnd(tableConditions.get(i)));
+
+            if (i == 0) {
+                joins.add(new Join(select, -1, -1, combineAnd(joinConditions.get(i)), null));
+                continue;
+            }
+
+            TableIndex lookup = lookups[i];
+            ComparisonExpression key = findJoinKey(joinConditions.get(i), offsets[i],
+                    lookup == null ? -1 : offsets[i] + lookup.getColumnIndexes()[0]);
+            if (key == null) {
+                throw new ParserException(String.format("join condition comparing columns by = expected for table %s",
+                        tableNames.get(i)));
+            }
+
+            // key is compared by join
+            joinConditions.get(i).remove(key);
+
+            int leftColumn = ((ColumnExpression) key.getLeft()).getColumnIndex();
+            int rightColumn = ((ColumnExpression) key.getRight()).getColumnIndex();
+            if (leftColumn >= offsets[i]) {
+                int swap = leftColumn;
+                leftColumn = rightColumn;
+                rightColumn = swap;
+            }
+
+            if (lookup != null && lookup.getColumnIndexes()[0] != rightColumn - offsets[i])
+                lookup = null;
+
+            joins.add(new Join(select, leftColumn, rightColumn - offsets[i], combineAnd(joinConditions.get(i)),
+                    lookup));
+        }
+
+        return joins;
+    }
+
+    /**
+     * @param lookupColumn column of joined table compared by preferred key, -1 if any key is fine
+     * @return comparison by = of column of joined table with column of the same type of previous table,
+     * <code>null</code> if there is none
+     */
+    private static ComparisonExpression findJoinKey(List<Expression> conditions, int offset, int lookupColumn) {
+        ComparisonExpression found = null;
+
+        for (Expression condition : conditions) {
+            if (!(condition instanceof ComparisonExpression))
+                continue;
+
+            ComparisonExpression comparison = (ComparisonExpression) condition;
+            if (comparison.getType() != ComparisonExpression.Type.EQUALS
+                    || !(comparison.getLeft() instanceof ColumnExpression)
+                    || !(comparison.getRight() instanceof ColumnExpression)) {
+                continue;
+            }
+
+            ColumnExpression left = (ColumnExpression) comparison.getLeft();
+            ColumnExpression right = (ColumnExpression) comparison.getRight();
+
+            if ((left.getColumnIndex() < offset) != (right.getColumnIndex() < offset)
+                    && left.getDataType().getClass() == right.getDataType().getClass()) {
+                if (left.getColumnIndex() == lookupColumn || right.getColumnIndex() == lookupColumn)
+                    return comparison;
+
+                if (found == null)
+                    found = comparison;
+            }
+        }
+
+        return found;
+    }
+
+    private static int getTableOf(int[] offsets, int column) {
+        int table = 0;
+        while (offsets[table + 1] <= column)
+            table++;
+
+        return table;
+    }
+
+    private static void splitAnd(Expression condition, List<Expression> parts) {
+        if (condition instanceof LogicalExpression
+                && ((LogicalExpression) condition).getType() == LogicalExpression.Type.AND) {
+            splitAnd(((LogicalExpression) condition).getLeft(), parts);
+            splitAnd(((LogicalExpression) condition).getRight(), parts);
+        } else {
+            parts.add(condition);
+        }
+    }
+
+    /**
+     * @return conditions combined by AND, <code>null</code> if there are none
+     */
+    private static Expression combineAnd(List<Expression> conditions) {
+        Expression combined = null;
+        for (Expression condition : conditions) {
+            combined = combined == null ? condition
+                    : new LogicalExpression(LogicalExpression.Type.AND, combined, condition);
+        }
+
+        return combined;
     }
 
     // low level parser commands ======================================================================================
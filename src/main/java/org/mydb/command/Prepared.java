@@ -1,7 +1,12 @@
 package org.mydb.command;
 
+import org.mydb.DbException;
+import org.mydb.command.expression.ParameterExpression;
+import org.mydb.command.result.Result;
 import org.mydb.engine.Session;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -14,6 +19,9 @@ public abstract class Prepared {
     /** optional session - prepared statement can be detached */
     protected Optional<Session> session = Optional.empty();
 
+    /** Parameters in order of appearance */
+    private List<ParameterExpression> parameters = Collections.emptyList();
+
     public Prepared(String originalSql) {
         this.originalSql = originalSql;
     }
@@ -26,7 +34,45 @@ public abstract class Prepared {
         this.session = Optional.of(session);
     }
 
+    public List<ParameterExpression> getParameters() {
+        return parameters;
+    }
+
+    public void setParameters(List<ParameterExpression> parameters) {
+        this.parameters = parameters;
+    }
+
     public String getOriginalSql() {
         return originalSql;
     }
+
+    /**
+     * @return <code>true</code> if statement returns result set
+     */
+    public boolean isQuery() {
+        return false;
+    }
+
+    /**
+     * Execute DDL or DML statement.
+     * @return update count
+     */
+    public int update() {
+        throw new DbException(String.format("not an update statement: %s", originalSql));
+    }
+
+    /**
+     * Execute query.
+     */
+    public Result query() {
+        throw new DbException(String.format("not a query: %s", originalSql));
+    }
+
+    /**
+     * Execute query which returns first rows only, query which can't stop early returns all rows.
+     * @param maxRows max number of rows, 0 for no limit
+     */
+    public Result query(int maxRows) {
+        return query();
+    }
 }
@@ -32,16 +32,41 @@ class Token<T> {
     static final Token COLUMN_EQUALS = new Token(TokenType.SPECIAL, ":=");
 
     // keywords
+    static final Token ANALYZE = new Token(TokenType.KEYWORD, "ANALYZE");
+    static final Token AND = new Token(TokenType.KEYWORD, "AND");
+    static final Token ASC = new Token(TokenType.KEYWORD, "ASC");
+    static final Token BETWEEN = new Token(TokenType.KEYWORD, "BETWEEN");
+    static final Token BY = new Token(TokenType.KEYWORD, "BY");
+    static final Token CHECKPOINT = new Token(TokenType.KEYWORD, "CHECKPOINT");
+    static final Token COLUMNAR = new Token(TokenType.KEYWORD, "COLUMNAR");
     static final Token CREATE = new Token(TokenType.KEYWORD, "CREATE");
+    static final Token DELETE = new Token(TokenType.KEYWORD, "DELETE");
+    static final Token DESC = new Token(TokenType.KEYWORD, "DESC");
     static final Token FROM = new Token(TokenType.KEYWORD, "FROM");
+    static final Token GROUP = new Token(TokenType.KEYWORD, "GROUP");
+    static final Token HASH = new Token(TokenType.KEYWORD, "HASH");
+    static final Token IN = new Token(TokenType.KEYWORD, "IN");
     static final Token INDEX = new Token(TokenType.KEYWORD, "INDEX");
+    static final Token INNER = new Token(TokenType.KEYWORD, "INNER");
     static final Token INSERT = new Token(TokenType.KEYWORD, "INSERT");
     static final Token INTO = new Token(TokenType.KEYWORD, "INTO");
+    static final Token JOIN = new Token(TokenType.KEYWORD, "JOIN");
     static final Token KEY = new Token(TokenType.KEYWORD, "KEY");
+    static final Token LIMIT = new Token(TokenType.KEYWORD, "LIMIT");
     static final Token NOT = new Token(TokenType.KEYWORD, "NOT");
+    static final Token NULL = new Token(TokenType.KEYWORD, "NULL");
+    static final Token OFFSET = new Token(TokenType.KEYWORD, "OFFSET");
+    static final Token ON = new Token(TokenType.KEYWORD, "ON");
+    static final Token OR = new Token(TokenType.KEYWORD, "OR");
+    static final Token ORDER = new Token(TokenType.KEYWORD, "ORDER");
     static final Token PRIMARY = new Token(TokenType.KEYWORD, "PRIMARY");
     static final Token SELECT = new Token(TokenType.KEYWORD, "SELECT");
+    static final Token SET = new Token(TokenType.KEYWORD, "SET");
+    static final Token STORAGE = new Token(TokenType.KEYWORD, "STORAGE");
     static final Token TABLE = new Token(TokenType.KEYWORD, "TABLE");
+    static final Token UNIQUE = new Token(TokenType.KEYWORD, "UNIQUE");
+    static final Token UPDATE = new Token(TokenType.KEYWORD, "UPDATE");
+    static final Token USING = new Token(TokenType.KEYWORD, "USING");
     static final Token VALUES = new Token(TokenType.KEYWORD, "VALUES");
     static final Token WHERE = new Token(TokenType.KEYWORD, "WHERE");
     static final Token NUMBER = new Token(TokenType.KEYWORD, "NUMBER");
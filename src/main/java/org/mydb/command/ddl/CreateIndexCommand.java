@@ -0,0 +1,68 @@
+package org.mydb.command.ddl;
+
+import org.mydb.command.Prepared;
+import org.mydb.engine.table.Table;
+
+/**
+ * CREATE [UNIQUE] INDEX name ON table (column, ...) [USING HASH]
+ */
+public class CreateIndexCommand extends Prepared {
+    private String indexName;
+    private Table table;
+
+    /** Indexes of table columns in index order */
+    private int[] columnIndexes;
+
+    private boolean unique;
+    private boolean hash;
+
+    public CreateIndexCommand(String originalSql) {
+        super(originalSql);
+    }
+
+    public String getIndexName() {
+        return indexName;
+    }
+
+    public void setIndexName(String indexName) {
+        this.indexName = indexName;
+    }
+
+    public Table getTable() {
+        return table;
+    }
+
+    public void setTable(Table table) {
+        this.table = table;
+    }
+
+    public int[] getColumnIndexes() {
+        return columnIndexes;
+    }
+
+    public void setColumnIndexes(int[] columnIndexes) {
+        this.columnIndexes = columnIndexes;
+    }
+
+    public boolean isUnique() {
+        return unique;
+    }
+
+    public void setUnique(boolean unique) {
+        this.unique = unique;
+    }
+
+    public boolean isHash() {
+        return hash;
+    }
+
+    public void setHash(boolean hash) {
+        this.hash = hash;
+    }
+
+    @Override
+    public int update() {
+        getSession().getDatabase().createIndex(this, originalSql);
+        return 0;
+    }
+}
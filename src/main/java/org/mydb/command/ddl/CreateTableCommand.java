@@ -17,4 +17,10 @@ public class CreateTableCommand extends Prepared {
     public void setTable(Table table) {
         this.table = table;
     }
+
+    @Override
+    public int update() {
+        getSession().getDatabase().createTable(table, originalSql);
+        return 0;
+    }
 }
@@ -0,0 +1,39 @@
+package org.mydb.command.dml;
+
+import org.mydb.command.Prepared;
+import org.mydb.engine.table.Table;
+import org.mydb.engine.table.TableStatistics;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ANALYZE [table]: read rows of table, or of all tables, to collect statistics planner estimates rows by,
+ * see {@link TableStatistics}. Statements prepared before use statistics they were planned with.
+ */
+public class AnalyzeOperation extends Prepared {
+    /** Table analyzed, <code>null</code> to analyze all tables */
+    private Table table;
+
+    public AnalyzeOperation(String originalSql) {
+        super(originalSql);
+    }
+
+    public Table getTable() {
+        return table;
+    }
+
+    public void setTable(Table table) {
+        this.table = table;
+    }
+
+    @Override
+    public int update() {
+        List<Table> tables = table != null ? Collections.singletonList(table) : getSession().getDatabase().getTables();
+
+        for (Table analyzed : tables)
+            analyzed.setStatistics(TableStatistics.collect(analyzed, getSession().getSnapshot()));
+
+        return 0;
+    }
+}
@@ -0,0 +1,18 @@
+package org.mydb.command.dml;
+
+import org.mydb.command.Prepared;
+
+/**
+ * CHECKPOINT: write changed pages and catalog, so log before checkpoint is not replayed on open.
+ */
+public class CheckpointOperation extends Prepared {
+    public CheckpointOperation(String originalSql) {
+        super(originalSql);
+    }
+
+    @Override
+    public int update() {
+        getSession().getDatabase().checkpoint();
+        return 0;
+    }
+}
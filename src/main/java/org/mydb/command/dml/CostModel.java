@@ -0,0 +1,252 @@
+package org.mydb.command.dml;
+
+import org.mydb.command.expression.BetweenExpression;
+import org.mydb.command.expression.ColumnExpression;
+import org.mydb.command.expression.ComparisonExpression;
+import org.mydb.command.expression.Expression;
+import org.mydb.command.expression.InExpression;
+import org.mydb.command.expression.LogicalExpression;
+import org.mydb.command.expression.ValueExpression;
+import org.mydb.engine.table.Column;
+import org.mydb.engine.table.Table;
+import org.mydb.engine.table.TableException;
+import org.mydb.engine.table.TableIndex;
+import org.mydb.engine.table.TableStatistics;
+import org.mydb.engine.table.datatype.WithLongValue;
+
+/**
+ * Estimates of rows read by selects and their cost, by statistics of table if it is analyzed,
+ * see {@link TableStatistics}, otherwise by default fractions. Cost is in units of row read by scan.
+ * Only constant values are estimated, parameters are assumed to match default fraction of rows.
+ */
+class CostModel {
+    /** Cost of row read by scan */
+    static final double SCAN_ROW_COST = 1;
+
+    /** Cost of row read by index, row is read from its page which may be read for every row */
+    static final double INDEX_ROW_COST = 4;
+
+    /** Cost of looking up key in index */
+    static final double INDEX_LOOKUP_COST = 8;
+
+    /** Cost of row put into hash table and of row looking up matches in it */
+    static final double HASH_BUILD_COST = 2;
+    static final double HASH_PROBE_COST = 1;
+
+    /** Row count of table which is not analyzed */
+    static final long DEFAULT_ROW_COUNT = 1000;
+
+    /** Fraction of rows which column is equal to value, of table which is not analyzed */
+    static final double DEFAULT_EQUALS_FRACTION = 0.1;
+
+    /** Fraction of rows in range or matching condition which is not estimated */
+    static final double DEFAULT_FRACTION = 1.0 / 3;
+
+    private CostModel() {
+    }
+
+    /**
+     * @return row count of table, estimated if table is not analyzed
+     */
+    static double getRowCount(Table table) {
+        TableStatistics statistics = table.getStatistics();
+        return statistics == null ? DEFAULT_ROW_COUNT : statistics.getRowCount();
+    }
+
+    /**
+     * @return number of distinct values of column, every value is assumed to be distinct if table is
+     * not analyzed
+     */
+    static double getDistinctCount(Table table, int column) {
+        TableStatistics statistics = table.getStatistics();
+        return statistics == null ? DEFAULT_ROW_COUNT : Math.max(1, statistics.getDistinctCount(column));
+    }
+
+    /**
+     * @return fraction of rows of table which column is equal to value
+     */
+    static double getEqualsFraction(Table table, int column) {
+        TableStatistics statistics = table.getStatistics();
+        return statistics == null ? DEFAULT_EQUALS_FRACTION : statistics.getEqualsFraction(column);
+    }
+
+    /**
+     * @param low inclusive lower bound value, <code>null</code> if not bounded
+     * @param high inclusive upper bound value, <code>null</code> if not bounded
+     * @return fraction of rows of table which column is in range
+     */
+    static double getRangeFraction(Table table, int column, Object low, Object high) {
+        if (low != null && low.equals(high))
+            return getEqualsFraction(table, column);
+
+        TableStatistics statistics = table.getStatistics();
+        Column tableColumn = table.getColumns().get(column);
+        if (statistics == null || !(tableColumn.getDataType() instanceof WithLongValue))
+            return DEFAULT_FRACTION;
+
+        WithLongValue dataType = (WithLongValue) tableColumn.getDataType();
+        Long from;
+        Long to;
+        try {
+            from = low == null ? null : dataType.toLong(tableColumn.getDataType().convert(low, tableColumn),
+                    tableColumn);
+            to = high == null ? null : dataType.toLong(tableColumn.getDataType().convert(high, tableColumn),
+                    tableColumn);
+        } catch (TableException e) {
+            return DEFAULT_FRACTION;
+        }
+
+        if ((low != null && from == null) || (high != null && to == null))
+            return DEFAULT_FRACTION;
+
+        double fraction = statistics.getRangeFraction(column, from, to);
+        return fraction < 0 ? DEFAULT_FRACTION : fraction;
+    }
+
+    /**
+     * Estimate fraction of rows matching condition: conditions combined by AND are assumed to be independent,
+     * column compared with constant is estimated by statistics of column.
+     * @param condition condition bound to columns of table, <code>null</code> if all rows match
+     */
+    static double getSelectivity(Table table, Expression condition) {
+        if (condition == null)
+            return 1;
+
+        if (condition instanceof LogicalExpression) {
+            LogicalExpression logical = (LogicalExpression) condition;
+            double left = getSelectivity(table, logical.getLeft());
+            double right = getSelectivity(table, logical.getRight());
+            return logical.getType() == LogicalExpression.Type.AND ? left * right : left + right - left * right;
+        }
+
+        if (condition instanceof ComparisonExpression) {
+            ComparisonExpression comparison = (ComparisonExpression) condition;
+            ComparisonExpression.Type type = comparison.getType();
+            Expression column = comparison.getLeft();
+            Expression value = comparison.getRight();
+
+            if (!(column instanceof ColumnExpression)) {
+                type = type.swap();
+                column = comparison.getRight();
+                value = comparison.getLeft();
+            }
+
+            if (!(column instanceof ColumnExpression) || value instanceof ColumnExpression)
+                return DEFAULT_FRACTION;
+
+            int columnIndex = ((ColumnExpression) column).getColumnIndex();
+            Object constant = value instanceof ValueExpression ? value.getValue(null) : null;
+
+            switch (type) {
+                case EQUALS:
+                    return getEqualsFraction(table, columnIndex);
+                case NOT_EQUALS:
+                    return 1 - getEqualsFraction(table, columnIndex);
+                case MORE:
+                case MORE_EQUALS:
+                    return constant == null ? DEFAULT_FRACTION : getRangeFraction(table, columnIndex, constant, null);
+                case LESS:
+                case LESS_EQUALS:
+                    return constant == null ? DEFAULT_FRACTION : getRangeFraction(table, columnIndex, null, constant);
+            }
+        }
+
+        if (condition instanceof BetweenExpression) {
+            BetweenExpression between = (BetweenExpression) condition;
+            if (between.getValue() instanceof ColumnExpression && between.getLow() instanceof ValueExpression
+                    && between.getHigh() instanceof ValueExpression) {
+                return getRangeFraction(table, ((ColumnExpression) between.getValue()).getColumnIndex(),
+                        between.getLow().getValue(null), between.getHigh().getValue(null));
+            }
+        }
+
+        if (condition instanceof InExpression) {
+            InExpression in = (InExpression) condition;
+            if (in.getValue() instanceof ColumnExpression) {
+                int columnIndex = ((ColumnExpression) in.getValue()).getColumnIndex();
+                return Math.min(1, in.getValues().size() * getEqualsFraction(table, columnIndex));
+            }
+        }
+
+        return DEFAULT_FRACTION;
+    }
+
+    /**
+     * Cost of reading rows of table by index: cost of index lookups and of rows read.
+     * @param lookups number of keys or key ranges looked up
+     * @param fraction fraction of rows read
+     */
+    static double getIndexCost(Table table, double lookups, double fraction) {
+        return lookups * INDEX_LOOKUP_COST + fraction * getRowCount(table) * INDEX_ROW_COST;
+    }
+
+    /**
+     * @return cost of full scan of table
+     */
+    static double getScanCost(Table table) {
+        return getRowCount(table) * SCAN_ROW_COST;
+    }
+
+    /**
+     * Cost of reading rows of table which match condition: the cheapest of full scan and key range of index
+     * which first column condition compares with constant. Hash index looks up keys only, so it is considered
+     * for = and IN conditions only. Condition is checked for rows read anyway.
+     * @param condition condition bound to columns of table, <code>null</code> if all rows are read
+     */
+    static double getAccessCost(Table table, Expression condition) {
+        double cost = getScanCost(table);
+        if (condition == null)
+            return cost;
+
+        for (TableIndex index : table.getIndexes()) {
+            int column = index.getColumnIndexes()[0];
+            if (index.isHash() && index.getColumnIndexes().length > 1)
+                continue;
+
+            double fraction = getColumnSelectivity(table, condition, column, index.isHash());
+            if (fraction < 1)
+                cost = Math.min(cost, getIndexCost(table, 1, fraction));
+        }
+
+        return cost;
+    }
+
+    // internal ==============================================================================
+    /**
+     * @param equality <code>true</code> to count = and IN conditions only, i.e. for hash index
+     * @return fraction of rows matching conditions on column combined with condition by AND, 1 if there are none
+     */
+    private static double getColumnSelectivity(Table table, Expression condition, int column, boolean equality) {
+        if (condition instanceof LogicalExpression) {
+            LogicalExpression logical = (LogicalExpression) condition;
+            if (logical.getType() == LogicalExpression.Type.AND) {
+                return Math.min(getColumnSelectivity(table, logical.getLeft(), column, equality),
+                        getColumnSelectivity(table, logical.getRight(), column, equality));
+            }
+
+            return 1;
+        }
+
+        if (condition instanceof ComparisonExpression) {
+            ComparisonExpression comparison = (ComparisonExpression) condition;
+            if (comparison.getType() == ComparisonExpression.Type.NOT_EQUALS
+                    || (equality && comparison.getType() != ComparisonExpression.Type.EQUALS)
+                    || !(isColumn(comparison.getLeft(), column) || isColumn(comparison.getRight(), column))
+                    || (comparison.getLeft() instanceof ColumnExpression
+                    && comparison.getRight() instanceof ColumnExpression)) {
+                return 1;
+            }
+        } else if (condition instanceof BetweenExpression) {
+            if (equality || !isColumn(((BetweenExpression) condition).getValue(), column))
+                return 1;
+        } else if (!(condition instanceof InExpression) || !isColumn(((InExpression) condition).getValue(), column)) {
+            return 1;
+        }
+
+        return getSelectivity(table, condition);
+    }
+
+    private static boolean isColumn(Expression expression, int column) {
+        return expression instanceof ColumnExpression && ((ColumnExpression) expression).getColumnIndex() == column;
+    }
+}
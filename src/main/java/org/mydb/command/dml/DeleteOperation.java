@@ -0,0 +1,56 @@
+package org.mydb.command.dml;
+
+import org.mydb.command.Prepared;
+import org.mydb.command.expression.Expression;
+import org.mydb.engine.Session;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.Table;
+import org.mydb.engine.tx.Transaction;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Delete rows of one table matching condition. Rows are found like by select, then every row
+ * is marked deleted by transaction, see {@link Table#delete(Transaction, long)}.
+ */
+public class DeleteOperation extends Prepared {
+    /** Finds rows to delete, no columns are selected */
+    private final SelectOperation select;
+
+    public DeleteOperation(String originalSql) {
+        super(originalSql);
+        this.select = new SelectOperation(originalSql);
+        this.select.setExpressions(Collections.emptyList());
+    }
+
+    public Table getTable() {
+        return select.getTable();
+    }
+
+    public void setTable(Table table) {
+        select.setTable(table);
+    }
+
+    public Expression getCondition() {
+        return select.getCondition();
+    }
+
+    public void setCondition(Expression condition) {
+        select.setCondition(condition);
+    }
+
+    @Override
+    public int update() {
+        Session session = getSession();
+        List<Row> rows = select.findMatchingRows(session.getSnapshot());
+
+        int count = 0;
+        for (Row row : rows) {
+            if (getTable().delete(session.getTransaction(), row.getKey()))
+                count++;
+        }
+
+        return count;
+    }
+}
@@ -1,9 +1,63 @@
 package org.mydb.command.dml;
 
 import org.mydb.command.Prepared;
+import org.mydb.command.expression.Expression;
+import org.mydb.engine.table.Column;
+import org.mydb.engine.table.Table;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class InsertOperation extends Prepared {
+    private Table table;
+
+    /** Indexes of table columns values are assigned to */
+    private int[] columnIndexes;
+
+    /** Rows of values in order of <code>columnIndexes</code> */
+    private final List<Expression[]> rows = new ArrayList<>();
+
     public InsertOperation(String originalSql) {
         super(originalSql);
     }
+
+    public Table getTable() {
+        return table;
+    }
+
+    public void setTable(Table table) {
+        this.table = table;
+    }
+
+    public void setColumnIndexes(int[] columnIndexes) {
+        this.columnIndexes = columnIndexes;
+    }
+
+    public void addRow(Expression[] row) {
+        rows.add(row);
+    }
+
+    public List<Expression[]> getRows() {
+        return rows;
+    }
+
+    @Override
+    public int update() {
+        List<Column> columns = table.getColumns();
+
+        for (Expression[] row : rows) {
+            Object[] values = new Object[columns.size()];
+
+            for (int i = 0; i < columnIndexes.length; i++) {
+                Object value = row[i].getValue(null);
+                Column column = columns.get(columnIndexes[i]);
+
+                values[columnIndexes[i]] = value == null ? null : column.getDataType().convert(value, column);
+            }
+
+            table.insert(getSession().getTransaction(), values);
+        }
+
+        return rows.size();
+    }
 }
@@ -0,0 +1,63 @@
+package org.mydb.command.dml;
+
+import org.mydb.command.expression.CompiledCondition;
+import org.mydb.command.expression.Expression;
+import org.mydb.engine.table.TableIndex;
+
+/**
+ * Table of select joined to rows of tables before it. Rows of table are read by select of the table,
+ * which checks conditions on columns of the table only, then they are joined to rows of previous tables
+ * with equal key column values. Conditions on columns of the table and previous tables are checked
+ * for joined rows.
+ * <p>
+ * Rows of table are joined by hash join, or if table has index which first column is the key, they may be
+ * looked up by key of every joined row (index nested loop join), see {@link JoinPlanner}.
+ */
+public class Join {
+    /** Reads rows of table */
+    private final SelectOperation select;
+
+    /** Index of key column in rows of previous tables, -1 for the first table */
+    private final int leftKey;
+
+    /** Index of key column in rows of table, -1 for the first table */
+    private final int rightKey;
+
+    /** Condition on joined rows, <code>null</code> if there is none */
+    private final CompiledCondition condition;
+
+    /** Index of table rows are looked up by key in, <code>null</code> if table is joined by hash join */
+    private final TableIndex lookup;
+
+    /**
+     * @param condition condition bound to columns of joined rows or <code>null</code>
+     * @param lookup index which first column is the key, <code>null</code> to join rows by hash join
+     */
+    public Join(SelectOperation select, int leftKey, int rightKey, Expression condition, TableIndex lookup) {
+        this.select = select;
+        this.leftKey = leftKey;
+        this.rightKey = rightKey;
+        this.condition = condition == null ? null : new CompiledCondition(condition);
+        this.lookup = lookup;
+    }
+
+    public SelectOperation getSelect() {
+        return select;
+    }
+
+    public int getLeftKey() {
+        return leftKey;
+    }
+
+    public int getRightKey() {
+        return rightKey;
+    }
+
+    public CompiledCondition getCondition() {
+        return condition;
+    }
+
+    public TableIndex getLookup() {
+        return lookup;
+    }
+}
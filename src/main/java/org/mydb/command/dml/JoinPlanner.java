@@ -0,0 +1,358 @@
+package org.mydb.command.dml;
+
+import org.mydb.command.expression.ColumnExpression;
+import org.mydb.command.expression.ComparisonExpression;
+import org.mydb.command.expression.Expression;
+import org.mydb.command.expression.LogicalExpression;
+import org.mydb.engine.table.Column;
+import org.mydb.engine.table.Table;
+import org.mydb.engine.table.TableIndex;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Choose join order and join method of inner join by estimated cost, see {@link CostModel}. Tables are joined
+ * one by one to joined rows of previous tables (left-deep join), every table has to be joined by key: column
+ * compared by = with column of previous table. Rows joined are estimated by row counts of tables, fractions
+ * of rows matching conditions on one table and numbers of distinct key values. Table is joined by hash join,
+ * or by index lookup for every joined row if it has index which first column is the key and joined rows
+ * are few, see {@link Join}.
+ * <p>
+ * Order of up to {@link #MAX_ORDERED_TABLES} tables is found by dynamic programming: the cheapest join of every
+ * set of tables is extended by every table joined to it. Tables of larger joins are added greedily,
+ * the cheapest join first. Tables are joined in FROM order by hash join if none of them is analyzed,
+ * so they are joined the way query is written without statistics.
+ */
+public class JoinPlanner {
+    /** Tables of larger joins are ordered greedily */
+    static final int MAX_ORDERED_TABLES = 8;
+
+    private final List<Table> tables;
+
+    /** Conditions on columns of one table combined by AND, bound to columns of table, by table */
+    private final List<Expression> tableConditions = new ArrayList<>();
+
+    /** Columns of two tables compared by = */
+    private final List<JoinKey> keys = new ArrayList<>();
+
+    /** Index of table rows are looked up in by the cheapest join, by table */
+    private final TableIndex[] lookups;
+
+    /**
+     * @param tables tables in FROM order
+     * @param tableNames table names or aliases
+     * @param conditions conditions combined by AND, they are bound to columns of tables
+     */
+    public JoinPlanner(List<Table> tables, List<String> tableNames, List<Expression> conditions) {
+        this.tables = tables;
+        this.lookups = new TableIndex[tables.size()];
+
+        int[] offsets = new int[tables.size() + 1];
+        for (int i = 0; i < tables.size(); i++)
+            offsets[i + 1] = offsets[i] + tables.get(i).getColumns().size();
+
+        List<List<Expression>> parts = new ArrayList<>();
+        for (int i = 0; i < tables.size(); i++)
+            parts.add(new ArrayList<>());
+
+        Table joined = newJoinedTable(tables, tableNames);
+        for (Expression condition : conditions) {
+            condition.bind(joined);
+
+            BitSet columns = new BitSet();
+            condition.collectColumns(columns);
+
+            int first = columns.isEmpty() ? 0 : getTableOf(offsets, columns.nextSetBit(0));
+            int last = columns.isEmpty() ? 0 : getTableOf(offsets, columns.length() - 1);
+
+            if (first == last) {
+                condition.bind(newJoinedTable(tables.subList(first, first + 1), tableNames.subList(first, first + 1)));
+                parts.get(first).add(condition);
+            } else if (isJoinKey(condition)) {
+                ComparisonExpression key = (ComparisonExpression) condition;
+                int left = ((ColumnExpression) key.getLeft()).getColumnIndex();
+                int right = ((ColumnExpression) key.getRight()).getColumnIndex();
+                int leftTable = getTableOf(offsets, left);
+                int rightTable = getTableOf(offsets, right);
+
+                keys.add(new JoinKey(leftTable, left - offsets[leftTable], rightTable, right - offsets[rightTable]));
+            }
+        }
+
+        for (List<Expression> tableParts : parts) {
+            Expression combined = null;
+            for (Expression part : tableParts) {
+                combined = combined == null ? part
+                        : new LogicalExpression(LogicalExpression.Type.AND, combined, part);
+            }
+
+            tableConditions.add(combined);
+        }
+    }
+
+    /**
+     * Table expressions are bound to when columns are named by table name or alias. It has columns
+     * of all tables in order, named <code>TABLE.COLUMN</code>, it is not stored.
+     */
+    public static Table newJoinedTable(List<Table> tables, List<String> tableNames) {
+        Table joined = new Table();
+
+        for (int i = 0; i < tables.size(); i++) {
+            for (Column column : tables.get(i).getColumns()) {
+                Column joinedColumn = new Column(tableNames.get(i) + "." + column.getName(), column.getDataType());
+                joinedColumn.setPrecision(column.getPrecision());
+                joinedColumn.setScale(column.getScale());
+                joined.addColumn(joinedColumn);
+            }
+        }
+
+        return joined;
+    }
+
+    /**
+     * @return indexes of tables in join order, <code>null</code> if tables are joined in FROM order by hash join:
+     * no table is analyzed or tables can't be joined by keys
+     */
+    public int[] plan() {
+        if (tables.size() >= Long.SIZE || tables.stream().allMatch(table -> table.getStatistics() == null))
+            return null;
+
+        Plan best = tables.size() <= MAX_ORDERED_TABLES ? planOrdered() : planGreedy();
+        if (best == null)
+            return null;
+
+        System.arraycopy(best.lookups, 0, lookups, 0, lookups.length);
+        return best.order;
+    }
+
+    /**
+     * @return index of table rows are looked up in by key, <code>null</code> if table is joined by hash join
+     */
+    public TableIndex getLookup(int table) {
+        return lookups[table];
+    }
+
+    // internal ==============================================================================
+    /**
+     * @return the cheapest join of all tables found by dynamic programming over sets of tables
+     */
+    private Plan planOrdered() {
+        Plan[] plans = new Plan[1 << tables.size()];
+        for (int table = 0; table < tables.size(); table++)
+            plans[1 << table] = newPlan(table);
+
+        for (int set = 1; set < plans.length; set++) {
+            if (plans[set] == null)
+                continue;
+
+            for (int table = 0; table < tables.size(); table++) {
+                if ((set & (1 << table)) != 0)
+                    continue;
+
+                Plan plan = join(plans[set], table);
+                int joined = set | (1 << table);
+                if (plan != null && (plans[joined] == null || plan.cost < plans[joined].cost))
+                    plans[joined] = plan;
+            }
+        }
+
+        return plans[plans.length - 1];
+    }
+
+    /**
+     * @return the cheapest join found by adding the cheapest table joined next, starting from every table
+     */
+    private Plan planGreedy() {
+        Plan best = null;
+
+        for (int first = 0; first < tables.size(); first++) {
+            Plan plan = newPlan(first);
+
+            while (plan != null && plan.order.length < tables.size()) {
+                Plan next = null;
+                for (int table = 0; table < tables.size(); table++) {
+                    if ((plan.tables & (1L << table)) != 0)
+                        continue;
+
+                    Plan joined = join(plan, table);
+                    if (joined != null && (next == null || joined.cost < next.cost))
+                        next = joined;
+                }
+
+                plan = next;
+            }
+
+            if (plan != null && (best == null || plan.cost < best.cost))
+                best = plan;
+        }
+
+        return best;
+    }
+
+    /**
+     * @return plan reading rows of one table
+     */
+    private Plan newPlan(int table) {
+        Plan plan = new Plan(1L << table, new int[] {table}, getRows(table),
+                CostModel.getAccessCost(tables.get(table), tableConditions.get(table)));
+        plan.lookups = new TableIndex[tables.size()];
+        return plan;
+    }
+
+    /**
+     * Join table to joined rows of plan by the cheaper of hash join and index lookups.
+     * @return plan of join, <code>null</code> if table has no key to join it by
+     */
+    private Plan join(Plan plan, int table) {
+        Table joinedTable = tables.get(table);
+        double tableRows = getRows(table);
+
+        double rows = plan.rows * tableRows;
+        boolean joined = false;
+
+        for (JoinKey key : keys) {
+            int column = key.getColumn(table, plan.tables);
+            if (column < 0)
+                continue;
+
+            rows /= Math.max(CostModel.getDistinctCount(joinedTable, column),
+                    CostModel.getDistinctCount(tables.get(key.getOther(table)), key.getOtherColumn(table)));
+            joined = true;
+        }
+
+        if (!joined)
+            return null;
+
+        // smaller input is put into hash table
+        double cost = CostModel.getAccessCost(joinedTable, tableConditions.get(table))
+                + Math.min(plan.rows, tableRows) * CostModel.HASH_BUILD_COST
+                + Math.max(plan.rows, tableRows) * CostModel.HASH_PROBE_COST;
+        TableIndex lookup = null;
+
+        for (JoinKey key : keys) {
+            int column = key.getColumn(table, plan.tables);
+            if (column < 0)
+                continue;
+
+            // every row of key is read, conditions on table are checked for rows read
+            double keyRows = CostModel.getRowCount(joinedTable) / CostModel.getDistinctCount(joinedTable, column);
+            double lookupCost = plan.rows * (CostModel.INDEX_LOOKUP_COST + keyRows * CostModel.INDEX_ROW_COST);
+
+            for (TableIndex index : joinedTable.getIndexes()) {
+                if (index.getColumnIndexes()[0] != column || (index.isHash() && index.getColumnIndexes().length > 1))
+                    continue;
+
+                if (lookupCost < cost) {
+                    cost = lookupCost;
+                    lookup = index;
+                }
+            }
+        }
+
+        int[] order = new int[plan.order.length + 1];
+        System.arraycopy(plan.order, 0, order, 0, plan.order.length);
+        order[plan.order.length] = table;
+
+        Plan join = new Plan(plan.tables | (1L << table), order, Math.max(1, rows), plan.cost + cost);
+        join.lookups = plan.lookups.clone();
+        join.lookups[table] = lookup;
+        return join;
+    }
+
+    /**
+     * @return estimated rows of table matching conditions on table
+     */
+    private double getRows(int table) {
+        return Math.max(1, CostModel.getRowCount(tables.get(table))
+                * CostModel.getSelectivity(tables.get(table), tableConditions.get(table)));
+    }
+
+    /**
+     * @return <code>true</code> if condition compares columns of the same type by =
+     */
+    private static boolean isJoinKey(Expression condition) {
+        if (!(condition instanceof ComparisonExpression))
+            return false;
+
+        ComparisonExpression comparison = (ComparisonExpression) condition;
+        return comparison.getType() == ComparisonExpression.Type.EQUALS
+                && comparison.getLeft() instanceof ColumnExpression
+                && comparison.getRight() instanceof ColumnExpression
+                && comparison.getLeft().getDataType().getClass() == comparison.getRight().getDataType().getClass();
+    }
+
+    private static int getTableOf(int[] offsets, int column) {
+        int table = 0;
+        while (offsets[table + 1] <= column)
+            table++;
+
+        return table;
+    }
+
+    /**
+     * Join of set of tables in order.
+     */
+    private static final class Plan {
+        /** Bits of tables joined */
+        final long tables;
+
+        /** Tables in join order */
+        final int[] order;
+
+        /** Estimated rows joined */
+        final double rows;
+
+        final double cost;
+
+        /** Index of table rows are looked up in, by table */
+        TableIndex[] lookups;
+
+        Plan(long tables, int[] order, double rows, double cost) {
+            this.tables = tables;
+            this.order = order;
+            this.rows = rows;
+            this.cost = cost;
+        }
+    }
+
+    /**
+     * Column of table compared by = with column of other table.
+     */
+    private static final class JoinKey {
+        final int leftTable;
+        final int leftColumn;
+        final int rightTable;
+        final int rightColumn;
+
+        JoinKey(int leftTable, int leftColumn, int rightTable, int rightColumn) {
+            this.leftTable = leftTable;
+            this.leftColumn = leftColumn;
+            this.rightTable = rightTable;
+            this.rightColumn = rightColumn;
+        }
+
+        /**
+         * @param joined bits of tables joined before table
+         * @return column of table if key joins it to one of joined tables, otherwise -1
+         */
+        int getColumn(int table, long joined) {
+            if (table == leftTable && (joined & (1L << rightTable)) != 0)
+                return leftColumn;
+
+            if (table == rightTable && (joined & (1L << leftTable)) != 0)
+                return rightColumn;
+
+            return -1;
+        }
+
+        int getOther(int table) {
+            return table == leftTable ? rightTable : leftTable;
+        }
+
+        int getOtherColumn(int table) {
+            return table == leftTable ? rightColumn : leftColumn;
+        }
+    }
+}
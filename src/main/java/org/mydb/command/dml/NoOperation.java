@@ -6,4 +6,9 @@ public class NoOperation extends Prepared {
     public NoOperation(String originalSql) {
         super(originalSql);
     }
+
+    @Override
+    public int update() {
+        return 0;
+    }
 }
@@ -1,9 +1,865 @@
 package org.mydb.command.dml;
 
+import org.mydb.DbException;
 import org.mydb.command.Prepared;
+import org.mydb.command.expression.AggregateExpression;
+import org.mydb.command.expression.BetweenExpression;
+import org.mydb.command.expression.ColumnExpression;
+import org.mydb.command.expression.ComparisonExpression;
+import org.mydb.command.expression.CompiledCondition;
+import org.mydb.command.expression.Expression;
+import org.mydb.command.expression.InExpression;
+import org.mydb.command.expression.LogicalExpression;
+import org.mydb.command.expression.ParameterExpression;
+import org.mydb.command.expression.ValueExpression;
+import org.mydb.command.operator.BatchFilterOperator;
+import org.mydb.command.operator.BatchOperator;
+import org.mydb.command.operator.BatchScanOperator;
+import org.mydb.command.operator.FilterOperator;
+import org.mydb.command.operator.HashAggregateOperator;
+import org.mydb.command.operator.HashJoinOperator;
+import org.mydb.command.operator.LimitOperator;
+import org.mydb.command.operator.NestedLoopJoinOperator;
+import org.mydb.command.operator.ParallelAggregateOperator;
+import org.mydb.command.operator.ParallelScanOperator;
+import org.mydb.command.operator.Operator;
+import org.mydb.command.operator.QueryMemory;
+import org.mydb.command.operator.ProjectOperator;
+import org.mydb.command.operator.ScanOperator;
+import org.mydb.command.operator.SortOperator;
+import org.mydb.command.operator.SortOrder;
+import org.mydb.command.operator.TopNOperator;
+import org.mydb.command.operator.UnbatchOperator;
+import org.mydb.command.result.OperatorResult;
+import org.mydb.command.result.Result;
+import org.mydb.engine.Database;
+import org.mydb.engine.table.Column;
+import org.mydb.engine.table.Record;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.Table;
+import org.mydb.engine.table.TableException;
+import org.mydb.engine.table.TableIndex;
+import org.mydb.engine.table.datatype.Number;
+import org.mydb.engine.table.datatype.Varchar;
+import org.mydb.engine.tx.Snapshot;
+import org.mydb.util.Bytes;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Select from one table.
+ * Condition on the first column of index (=, &lt;, &gt;, BETWEEN etc, possibly combined with other conditions
+ * by AND) is used to read key range from index instead of full scan. Hash index is used when every
+ * index column is compared by = or IN, and is preferred then. Range is found when query runs,
+ * so parameter values are known, and whole condition is checked for every row read anyway.
+ * Rows are read from snapshot of session, see {@link Snapshot}.
+ * <p>
+ * Query is compiled into tree of operators: scan, filter, project and limit, see {@link Operator}.
+ * Rows are read from table when result rows are read. Session in vectorized mode reads table
+ * in batches, filters and aggregates them by column vectors, see {@link BatchOperator}. Condition checked for
+ * every row is compiled to bytecode once it is evaluated for many rows, see {@link CompiledCondition},
+ * and compiled class is kept by statement, so later executions use it.
+ * <p>
+ * Tables of inner join are read by selects of single tables, see {@link Join}, and joined in order
+ * by hash join, see {@link HashJoinOperator}, or by index lookups, see {@link NestedLoopJoinOperator}.
+ * Join order and join method of analyzed tables are chosen by cost, see {@link JoinPlanner}, and index
+ * which reads many rows of analyzed table is not used, as full scan is cheaper then.
+ * <p>
+ * Rows are sorted by ORDER BY before select list is computed, see {@link SortOperator}. Hash join and sort
+ * share memory of query, rows which do not fit into it are written to temporary files. With LIMIT, only
+ * the first rows are kept while rows are read, see {@link TopNOperator}, and if index of table reads rows
+ * in ORDER BY order, rows are read by index and not sorted, so table is read up to the last row passed.
+ * <p>
+ * Rows are aggregated by GROUP BY columns before they are sorted, see {@link HashAggregateOperator};
+ * select list and ORDER BY read aggregated rows then. Memory of the last query of session is kept by
+ * session, so memory query held at peak is known.
+ * <p>
+ * Table read by full scan is read in parallel by morsels of pages when session has parallelism,
+ * see {@link ParallelScanOperator}: threads filter rows, compute select list if rows are not sorted, and
+ * aggregate rows into groups of their own, which are merged then, see {@link ParallelAggregateOperator}.
+ * Threads are shared by sessions of database, so queries of all sessions run on at most max parallelism
+ * threads besides session threads.
+ */
 public class SelectOperation extends Prepared {
+    /** Table to select from, <code>null</code> to select one row (DUAL) */
+    private Table table;
+
+    /** Select list */
+    private List<Expression> expressions;
+
+    /** Where condition, <code>null</code> to select all rows */
+    private Expression condition;
+
+    /** Where condition checked for every row read, compiled when it gets hot */
+    private CompiledCondition compiledCondition;
+
+    /** Joined tables in join order, <code>null</code> if select reads one table */
+    private List<Join> joins;
+
+    /** ORDER BY, <code>null</code> if rows are not sorted */
+    private SortOrder order;
+
+    /** GROUP BY column indexes, <code>null</code> if rows are not aggregated */
+    private int[] groupColumns;
+
+    /** Aggregates computed, <code>null</code> if rows are not aggregated */
+    private List<AggregateExpression> aggregates;
+
+    /** LIMIT and OFFSET, <code>null</code> if not limited or no rows are skipped */
+    private Expression limit;
+    private Expression offset;
+
     public SelectOperation(String originalSql) {
         super(originalSql);
     }
+
+    public Table getTable() {
+        return table;
+    }
+
+    public void setTable(Table table) {
+        this.table = table;
+    }
+
+    public List<Expression> getExpressions() {
+        return expressions;
+    }
+
+    public void setExpressions(List<Expression> expressions) {
+        this.expressions = expressions;
+    }
+
+    public Expression getCondition() {
+        return condition;
+    }
+
+    public void setCondition(Expression condition) {
+        this.condition = condition;
+        this.compiledCondition = condition == null ? null : new CompiledCondition(condition);
+    }
+
+    public List<Join> getJoins() {
+        return joins;
+    }
+
+    /**
+     * @param joins joined tables, select list and condition are bound to columns of joined rows
+     */
+    public void setJoins(List<Join> joins) {
+        this.joins = joins;
+    }
+
+    public SortOrder getOrder() {
+        return order;
+    }
+
+    /**
+     * @param order ORDER BY bound to columns of table or joined rows
+     */
+    public void setOrder(SortOrder order) {
+        this.order = order;
+    }
+
+    public int[] getGroupColumns() {
+        return groupColumns;
+    }
+
+    /**
+     * @param groupColumns indexes of GROUP BY columns, empty if all rows are one group
+     */
+    public void setGroupColumns(int[] groupColumns) {
+        this.groupColumns = groupColumns;
+    }
+
+    public List<AggregateExpression> getAggregates() {
+        return aggregates;
+    }
+
+    /**
+     * @param aggregates aggregates computed, their values follow values of columns in aggregated rows
+     */
+    public void setAggregates(List<AggregateExpression> aggregates) {
+        this.aggregates = aggregates;
+    }
+
+    public Expression getLimit() {
+        return limit;
+    }
+
+    /**
+     * @param limit max number of rows, constant or parameter
+     */
+    public void setLimit(Expression limit) {
+        this.limit = limit;
+    }
+
+    public Expression getOffset() {
+        return offset;
+    }
+
+    /**
+     * @param offset number of rows skipped, constant or parameter
+     */
+    public void setOffset(Expression offset) {
+        this.offset = offset;
+    }
+
+    @Override
+    public boolean isQuery() {
+        return true;
+    }
+
+    @Override
+    public Result query() {
+        return query(0);
+    }
+
+    @Override
+    public Result query(int maxRows) {
+        QueryMemory memory = new QueryMemory(getSession().getQueryMemory());
+        getSession().setLastQueryMemory(memory);
+
+        long rowsSkipped = offset == null ? 0 : getRowCount(offset, "OFFSET");
+        long rowsLimit = limit == null ? Long.MAX_VALUE : getRowCount(limit, "LIMIT");
+        if (maxRows > 0)
+            rowsLimit = Math.min(rowsLimit, maxRows);
+
+        boolean limited = rowsLimit < Long.MAX_VALUE;
+        TableIndex orderIndex = limited ? findOrderIndex() : null;
+
+        int parallelism = getParallelism();
+        int morselCount = parallelism > 1 && table != null && joins == null && orderIndex == null && isFullScan()
+                ? ParallelScanOperator.getMorselCount(table.getPageCount()) : 0;
+
+        Operator operator;
+        boolean aggregated = false;
+        boolean projected = false;
+
+        if (joins != null) {
+            operator = filter(newJoin(getSession().getSnapshot(), memory));
+        } else if (table == null) {
+            operator = newDualScan();
+        } else if (morselCount > 1) {
+            Snapshot snapshot = getSession().getSnapshot();
+            ForkJoinPool pool = getSession().getDatabase().getQueryPool();
+
+            if (aggregates != null && getSession().isVectorized()) {
+                operator = ParallelAggregateOperator.ofBatches(morselCount,
+                        morsel -> newBatchScan(getMorselRecords(snapshot, morsel)),
+                        pool, parallelism, table.getColumns(), groupColumns, aggregates, memory);
+                aggregated = true;
+            } else if (aggregates != null) {
+                operator = new ParallelAggregateOperator(morselCount, morsel -> newMorselScan(snapshot, morsel),
+                        pool, parallelism, table.getColumns(), groupColumns, aggregates, memory);
+                aggregated = true;
+            } else if (order == null) {
+                // select list is computed by threads too
+                operator = new ParallelScanOperator(morselCount,
+                        morsel -> new ProjectOperator(newMorselScan(snapshot, morsel), expressions),
+                        pool, parallelism);
+                projected = true;
+            } else {
+                operator = new ParallelScanOperator(morselCount, morsel -> newMorselScan(snapshot, morsel),
+                        pool, parallelism);
+            }
+        } else if (getSession().isVectorized() && aggregates != null) {
+            // groups are aggregated from column vectors of batches
+            operator = new HashAggregateOperator(newBatchScan(getSession().getSnapshot(), orderIndex),
+                    table.getColumns(), groupColumns, aggregates, memory);
+            aggregated = true;
+        } else if (getSession().isVectorized()) {
+            operator = new UnbatchOperator(newBatchScan(getSession().getSnapshot(), orderIndex));
+        } else {
+            operator = filter(newScan(getSession().getSnapshot(), orderIndex));
+        }
+
+        List<Column> columns = getRowColumns();
+        if (aggregates != null) {
+            if (!aggregated)
+                operator = new HashAggregateOperator(operator, columns, groupColumns, aggregates, memory);
+
+            columns = HashAggregateOperator.getColumns(columns, aggregates);
+        }
+
+        if (order != null && orderIndex == null) {
+            if (limited && rowsSkipped <= TopNOperator.MAX_ROWS && rowsLimit <= TopNOperator.MAX_ROWS - rowsSkipped)
+                operator = new TopNOperator(operator, order, rowsSkipped + rowsLimit, memory);
+            else
+                operator = new SortOperator(operator, columns, order, memory);
+        }
+
+        if (!projected)
+            operator = new ProjectOperator(operator, expressions);
+
+        if (limited || rowsSkipped > 0)
+            operator = new LimitOperator(operator, rowsSkipped, rowsLimit);
+
+        return new OperatorResult(expressions, operator);
+    }
+
+    /**
+     * Find rows of table matching condition, i.e. rows to change. All rows are read before
+     * any of them is changed, so new versions of changed rows are never read again.
+     * @param snapshot snapshot of rows read
+     */
+    List<Row> findMatchingRows(Snapshot snapshot) {
+        List<Row> matching = new ArrayList<>();
+
+        try (Operator operator = filter(newScan(snapshot, null))) {
+            operator.open();
+
+            Row row;
+            while ((row = operator.next()) != null)
+                matching.add(row);
+        }
+
+        return matching;
+    }
+
+    // internal ==============================================================================
+    /**
+     * @param orderIndex index to read rows in order by, <code>null</code> if order does not matter
+     */
+    private Operator newScan(Snapshot snapshot, TableIndex orderIndex) {
+        return new ScanOperator(() -> table.toRows(findRecords(snapshot, orderIndex)));
+    }
+
+    private BatchOperator newBatchScan(Snapshot snapshot, TableIndex orderIndex) {
+        return newBatchScan(() -> findRecords(snapshot, orderIndex));
+    }
+
+    private BatchOperator newBatchScan(Supplier<Iterator<Record>> records) {
+        BatchOperator operator = new BatchScanOperator(records, table.getCodec(), table.getColumns(),
+                getColumnsRead());
+        if (condition != null)
+            operator = new BatchFilterOperator(operator, condition);
+
+        return operator;
+    }
+
+    /**
+     * Scan pages of morsel of table and filter rows read, in batches if session is vectorized.
+     * @param morsel index of morsel, see {@link ParallelScanOperator}
+     */
+    private Operator newMorselScan(Snapshot snapshot, int morsel) {
+        Supplier<Iterator<Record>> records = getMorselRecords(snapshot, morsel);
+
+        return getSession().isVectorized() ? new UnbatchOperator(newBatchScan(records))
+                : filter(new ScanOperator(() -> table.toRows(records.get())));
+    }
+
+    /**
+     * @param morsel index of morsel, see {@link ParallelScanOperator}
+     * @return records of pages of morsel
+     */
+    private Supplier<Iterator<Record>> getMorselRecords(Snapshot snapshot, int morsel) {
+        int fromPage = morsel * ParallelScanOperator.MORSEL_PAGES;
+        return () -> table.scanRecords(snapshot, getColumnsRead(), fromPage,
+                fromPage + ParallelScanOperator.MORSEL_PAGES);
+    }
+
+    /**
+     * @return number of threads query reads table with, 1 if session or database runs query in one thread
+     */
+    private int getParallelism() {
+        Database database = getSession().getDatabase();
+        return database == null ? 1 : Math.min(getSession().getParallelism(), database.getMaxParallelism());
+    }
+
+    /**
+     * Join rows of tables in order, every table is joined to joined rows of previous tables.
+     */
+    private Operator newJoin(Snapshot snapshot, QueryMemory memory) {
+        Operator operator = null;
+        List<Column> columns = new ArrayList<>();
+
+        for (Join join : joins) {
+            SelectOperation select = join.getSelect();
+            List<Column> tableColumns = select.getTable().getColumns();
+
+            if (operator == null) {
+                operator = select.filter(select.newScan(snapshot, null));
+            } else if (join.getLookup() != null) {
+                operator = new NestedLoopJoinOperator(operator, join.getLeftKey(),
+                        key -> select.newLookup(snapshot, join.getLookup(), key), join.getRightKey());
+            } else {
+                operator = new HashJoinOperator(operator, new ArrayList<>(columns), join.getLeftKey(),
+                        select.filter(select.newScan(snapshot, null)), tableColumns, join.getRightKey(), memory);
+            }
+
+            columns.addAll(tableColumns);
+
+            if (join.getCondition() != null)
+                operator = new FilterOperator(operator, join.getCondition());
+        }
+
+        return operator;
+    }
+
+    /**
+     * Read rows which first index column is equal to key and filter them, rows of key which can't be
+     * converted to column type never match.
+     */
+    private Operator newLookup(Snapshot snapshot, TableIndex index, Object key) {
+        Column column = index.getColumns().get(0);
+
+        byte[] prefix;
+        try {
+            prefix = index.getPrefix(column.getDataType().convert(key, column));
+        } catch (TableException e) {
+            return new ScanOperator(Collections::emptyIterator);
+        }
+
+        return filter(new ScanOperator(() -> table.find(snapshot, index.getIndex(), prefix, prefix)));
+    }
+
+    /**
+     * @return columns of rows selected before select list is computed
+     */
+    private List<Column> getRowColumns() {
+        if (joins == null)
+            return table == null ? Collections.emptyList() : table.getColumns();
+
+        List<Column> columns = new ArrayList<>();
+        for (Join join : joins)
+            columns.addAll(join.getSelect().getTable().getColumns());
+
+        return columns;
+    }
+
+    /**
+     * Scan of one row without columns, condition is still checked.
+     */
+    private Operator newDualScan() {
+        return filter(new ScanOperator(() -> Collections.singletonList(new Row(0, new Object[0])).iterator()));
+    }
+
+    private Operator filter(Operator input) {
+        return compiledCondition == null ? input : new FilterOperator(input, compiledCondition);
+    }
+
+    /**
+     * @return row count of LIMIT or OFFSET
+     * @throws DbException if value is not a non-negative integer
+     */
+    private static long getRowCount(Expression expression, String clause) {
+        Object value = expression.getValue(null);
+
+        Long count = Number.toUnscaled(value, 0);
+        if (count == null || count < 0)
+            throw new DbException(String.format("%s must be non-negative integer: %s", clause, value));
+
+        return count;
+    }
+
+    /**
+     * Index reads rows in ORDER BY order if ORDER BY columns are the first index columns in ascending order:
+     * index has NULL values too, before other values. Index which keys condition looks up is preferred,
+     * it reads fewer rows, so no index is returned then.
+     * @return index which reads rows in ORDER BY order, <code>null</code> if rows have to be sorted
+     */
+    private TableIndex findOrderIndex() {
+        if (order == null || table == null || joins != null || aggregates != null)
+            return null;
+
+        TableIndex orderIndex = null;
+        Expression[] orderExpressions = order.getExpressions();
+
+        for (TableIndex index : table.getIndexes()) {
+            if (index.isHash()) {
+                if (condition != null && findKeys(index) != null)
+                    return null;
+
+                continue;
+            }
+
+            int[] columnIndexes = index.getColumnIndexes();
+            if (orderIndex != null || columnIndexes.length < orderExpressions.length)
+                continue;
+
+            boolean ordered = true;
+            for (int i = 0; i < orderExpressions.length && ordered; i++)
+                ordered = !order.isDescending(i) && isColumn(orderExpressions[i], columnIndexes[i]);
+
+            if (ordered)
+                orderIndex = index;
+        }
+
+        return orderIndex;
+    }
+
+    /**
+     * Look up keys in hash index or read key range of index if condition restricts the first index column,
+     * otherwise scan table, see {@link #findIndexLookup()}.
+     * @param orderIndex index to read rows in order by, <code>null</code> if order does not matter
+     */
+    private Iterator<Record> findRecords(Snapshot snapshot, TableIndex orderIndex) {
+        if (orderIndex != null)
+            return findInOrder(snapshot, orderIndex);
+
+        IndexLookup lookup = findIndexLookup();
+        if (lookup == null)
+            return scan(snapshot);
+
+        if (lookup.keys != null) {
+            List<Record> records = new ArrayList<>();
+            for (byte[] key : lookup.keys)
+                table.findRecords(snapshot, lookup.index.getIndex(), key, key).forEachRemaining(records::add);
+
+            return records.iterator();
+        }
+
+        Iterator<Record> records = find(snapshot, lookup.index, lookup.range);
+        return records != null ? records : scan(snapshot);
+    }
+
+    /**
+     * Index is assumed to be used even if condition value can't be converted to column type.
+     * @return <code>true</code> if rows are read by full scan, see {@link #findRecords(Snapshot, TableIndex)}
+     */
+    private boolean isFullScan() {
+        return findIndexLookup() == null;
+    }
+
+    /**
+     * Find keys to look up in hash index or key range of index if condition restricts the first index column.
+     * Index with both bounds is preferred, primary key index is checked first. If table is analyzed and index
+     * reads so many rows that full scan is cheaper, table is scanned, see {@link CostModel}.
+     * @return index and keys or key range, {@link IndexLookup#NO_ROWS} if condition is never true,
+     * <code>null</code> to scan table
+     */
+    private IndexLookup findIndexLookup() {
+        if (condition == null)
+            return null;
+
+        for (TableIndex index : table.getIndexes()) {
+            if (!index.isHash())
+                continue;
+
+            List<byte[]> keys = findKeys(index);
+            if (keys != null) {
+                double fraction = keys.size();
+                for (int column : index.getColumnIndexes())
+                    fraction *= CostModel.getEqualsFraction(table, column);
+
+                return isScanCheaper(keys.size(), fraction) ? null : new IndexLookup(index, keys, null);
+            }
+        }
+
+        TableIndex bestIndex = null;
+        Object[] bestRange = null;
+
+        for (TableIndex index : table.getIndexes()) {
+            if (index.isHash())
+                continue;
+
+            Object[] range = new Object[2];
+            if (!findRange(condition, index.getColumnIndexes()[0], range))
+                return IndexLookup.NO_ROWS;
+
+            if (range[0] == null && range[1] == null)
+                continue;
+
+            if (bestRange == null || (range[0] != null && range[1] != null
+                    && (bestRange[0] == null || bestRange[1] == null))) {
+                bestIndex = index;
+                bestRange = range;
+            }
+        }
+
+        if (bestIndex == null || isScanCheaper(1, CostModel.getRangeFraction(table,
+                bestIndex.getColumnIndexes()[0], bestRange[0], bestRange[1]))) {
+            return null;
+        }
+
+        return new IndexLookup(bestIndex, null, bestRange);
+    }
+
+    /**
+     * @param lookups number of keys or key ranges looked up
+     * @param fraction estimated fraction of rows index reads
+     * @return <code>true</code> if table is analyzed and full scan costs less than reading rows by index
+     */
+    private boolean isScanCheaper(double lookups, double fraction) {
+        return table.getStatistics() != null
+                && CostModel.getScanCost(table) < CostModel.getIndexCost(table, lookups, fraction);
+    }
+
+    /**
+     * Read rows by index in index order, only key range if condition restricts the first index column.
+     */
+    private Iterator<Record> findInOrder(Snapshot snapshot, TableIndex index) {
+        Object[] range = new Object[2];
+        if (condition != null && !findRange(condition, index.getColumnIndexes()[0], range))
+            return Collections.emptyIterator();
+
+        Iterator<Record> records = find(snapshot, index, range);
+        return records != null ? records : table.findRecords(snapshot, index.getIndex(), null, null);
+    }
+
+    /**
+     * Read rows by index with the first index column in range.
+     * @param range lower and upper bound values, <code>null</code> if not bounded
+     * @return records of rows or <code>null</code> if bound can't be converted to column type
+     */
+    private Iterator<Record> find(Snapshot snapshot, TableIndex index, Object[] range) {
+        Column column = index.getColumns().get(0);
+
+        byte[] from;
+        byte[] to;
+        try {
+            from = range[0] == null ? null : index.getPrefix(column.getDataType().convert(range[0], column));
+            to = range[1] == null ? null : index.getPrefix(column.getDataType().convert(range[1], column));
+        } catch (TableException e) {
+            // value can't be converted to column type, rows are compared by value then
+            return null;
+        }
+
+        return table.findRecords(snapshot, index.getIndex(), from, to);
+    }
+
+    /**
+     * Find column bounds in condition and conditions combined with it by AND.
+     * Bounds are inclusive, strict comparisons are checked by condition.
+     * @param range lower and upper bound values, set if not set yet
+     * @return <code>false</code> if column is compared with NULL, so condition is never true
+     */
+    private boolean findRange(Expression expression, int columnIndex, Object[] range) {
+        if (expression instanceof LogicalExpression) {
+            LogicalExpression logical = (LogicalExpression) expression;
+            if (logical.getType() == LogicalExpression.Type.AND) {
+                return findRange(logical.getLeft(), columnIndex, range)
+                        && findRange(logical.getRight(), columnIndex, range);
+            }
+        } else if (expression instanceof BetweenExpression) {
+            BetweenExpression between = (BetweenExpression) expression;
+            if (isColumn(between.getValue(), columnIndex) && isConstant(between.getLow())
+                    && isConstant(between.getHigh())) {
+                return setBound(range, 0, between.getLow()) && setBound(range, 1, between.getHigh());
+            }
+        } else if (expression instanceof ComparisonExpression) {
+            ComparisonExpression comparison = (ComparisonExpression) expression;
+            ComparisonExpression.Type type = comparison.getType();
+            Expression value = comparison.getRight();
+
+            if (isColumn(comparison.getRight(), columnIndex) && isConstant(comparison.getLeft())) {
+                type = type.swap();
+                value = comparison.getLeft();
+            } else if (!isColumn(comparison.getLeft(), columnIndex) || !isConstant(comparison.getRight())) {
+                return true;
+            }
+
+            switch (type) {
+                case EQUALS:
+                    return setBound(range, 0, value) && setBound(range, 1, value);
+                case MORE:
+                case MORE_EQUALS:
+                    return setBound(range, 0, value);
+                case LESS:
+                case LESS_EQUALS:
+                    return setBound(range, 1, value);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Scan table reading columns of select list and condition only. If condition compares VARCHAR column
+     * by = or IN with strings, strings are passed to table store, so it may skip other rows.
+     * Other values are not passed, they may be equal to column values of other type.
+     */
+    private Iterator<Record> scan(Snapshot snapshot) {
+        BitSet columns = getColumnsRead();
+        if (condition == null)
+            return table.scanRecords(snapshot, columns);
+
+        for (int columnIndex = columns.nextSetBit(0); columnIndex >= 0;
+             columnIndex = columns.nextSetBit(columnIndex + 1)) {
+            Column column = table.getColumns().get(columnIndex);
+            if (!(column.getDataType() instanceof Varchar))
+                continue;
+
+            List<Object> values = findValues(condition, columnIndex);
+            if (values == null || !values.stream().allMatch(value -> value instanceof String))
+                continue;
+
+            List<Object> converted = new ArrayList<>();
+            try {
+                for (Object value : values)
+                    converted.add(column.getDataType().convert(value, column));
+            } catch (TableException e) {
+                // value can't be converted to column type, rows are compared by value then
+                continue;
+            }
+
+            return table.scanRecords(snapshot, columns, columnIndex, converted);
+        }
+
+        return table.scanRecords(snapshot, columns);
+    }
+
+    /**
+     * @return indexes of columns read by select list, condition and ORDER BY, or by GROUP BY and aggregates
+     */
+    private BitSet getColumnsRead() {
+        BitSet columns = new BitSet();
+
+        if (aggregates != null) {
+            for (int column : groupColumns)
+                columns.set(column);
+
+            for (AggregateExpression aggregate : aggregates) {
+                if (aggregate.getArgument() != null)
+                    aggregate.getArgument().collectColumns(columns);
+            }
+        } else {
+            for (Expression expression : expressions)
+                expression.collectColumns(columns);
+
+            if (order != null) {
+                for (Expression expression : order.getExpressions())
+                    expression.collectColumns(columns);
+            }
+        }
+
+        if (condition != null)
+            condition.collectColumns(columns);
+
+        return columns;
+    }
+
+    /**
+     * Keys to look up in hash index: every index column is compared by = or IN with constants.
+     * @return distinct keys, empty if condition is never true, <code>null</code> if index can't be used
+     */
+    private List<byte[]> findKeys(TableIndex index) {
+        List<List<Object>> columnValues = new ArrayList<>();
+        for (int columnIndex : index.getColumnIndexes()) {
+            List<Object> values = findValues(condition, columnIndex);
+            if (values == null)
+                return null;
+
+            columnValues.add(values);
+        }
+
+        Set<byte[]> keys = new TreeSet<>(Bytes::compare);
+        try {
+            addKeys(index, columnValues, new Object[columnValues.size()], 0, keys);
+        } catch (TableException e) {
+            // value can't be converted to column type, rows are compared by value then
+            return null;
+        }
+
+        return new ArrayList<>(keys);
+    }
+
+    /**
+     * Add keys of all combinations of column values, starting from column.
+     */
+    private static void addKeys(TableIndex index, List<List<Object>> columnValues, Object[] key, int column,
+                                Set<byte[]> keys) {
+        if (column == key.length) {
+            keys.add(index.getPrefix(key));
+            return;
+        }
+
+        Column indexColumn = index.getColumns().get(column);
+        for (Object value : columnValues.get(column)) {
+            key[column] = indexColumn.getDataType().convert(value, indexColumn);
+            addKeys(index, columnValues, key, column + 1, keys);
+        }
+    }
+
+    /**
+     * Find values column is equal to in condition and conditions combined with it by AND.
+     * @return values except NULL, <code>null</code> if column is not compared by = or IN
+     */
+    private List<Object> findValues(Expression expression, int columnIndex) {
+        if (expression instanceof LogicalExpression) {
+            LogicalExpression logical = (LogicalExpression) expression;
+            if (logical.getType() == LogicalExpression.Type.AND) {
+                List<Object> values = findValues(logical.getLeft(), columnIndex);
+                return values != null ? values : findValues(logical.getRight(), columnIndex);
+            }
+        } else if (expression instanceof ComparisonExpression) {
+            ComparisonExpression comparison = (ComparisonExpression) expression;
+            if (comparison.getType() == ComparisonExpression.Type.EQUALS) {
+                if (isColumn(comparison.getLeft(), columnIndex) && isConstant(comparison.getRight()))
+                    return constantValues(Collections.singletonList(comparison.getRight()));
+
+                if (isColumn(comparison.getRight(), columnIndex) && isConstant(comparison.getLeft()))
+                    return constantValues(Collections.singletonList(comparison.getLeft()));
+            }
+        } else if (expression instanceof InExpression) {
+            InExpression in = (InExpression) expression;
+            if (isColumn(in.getValue(), columnIndex)
+                    && in.getValues().stream().allMatch(SelectOperation::isConstant)) {
+                return constantValues(in.getValues());
+            }
+        }
+
+        return null;
+    }
+
+    private static List<Object> constantValues(List<Expression> expressions) {
+        List<Object> values = new ArrayList<>();
+        for (Expression expression : expressions) {
+            Object value = expression.getValue(null);
+            if (value != null)
+                values.add(value);
+        }
+
+        return values;
+    }
+
+    private boolean setBound(Object[] range, int bound, Expression expression) {
+        Object value = expression.getValue(null);
+        if (value == null)
+            return false;
+
+        if (range[bound] == null)
+            range[bound] = value;
+
+        return true;
+    }
+
+    private static boolean isColumn(Expression expression, int columnIndex) {
+        return expression instanceof ColumnExpression
+                && ((ColumnExpression) expression).getColumnIndex() == columnIndex;
+    }
+
+    private static boolean isConstant(Expression expression) {
+        return expression instanceof ValueExpression || expression instanceof ParameterExpression;
+    }
+
+    /**
+     * Rows read by index: keys looked up in hash index or key range of the first index column.
+     */
+    private static final class IndexLookup {
+        /** Condition is never true, no rows are read */
+        static final IndexLookup NO_ROWS = new IndexLookup(null, Collections.emptyList(), null);
+
+        final TableIndex index;
+
+        /** Keys looked up in hash index, <code>null</code> if key range is read */
+        final List<byte[]> keys;
+
+        /** Lower and upper bound values of key range, <code>null</code> if not bounded */
+        final Object[] range;
+
+        IndexLookup(TableIndex index, List<byte[]> keys, Object[] range) {
+            this.index = index;
+            this.keys = keys;
+            this.range = range;
+        }
+    }
 }
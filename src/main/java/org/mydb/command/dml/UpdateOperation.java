@@ -0,0 +1,89 @@
+package org.mydb.command.dml;
+
+import org.mydb.command.Prepared;
+import org.mydb.command.expression.ColumnExpression;
+import org.mydb.command.expression.Expression;
+import org.mydb.engine.Session;
+import org.mydb.engine.table.Column;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.Table;
+import org.mydb.engine.tx.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Update rows of one table matching condition. Rows are found like by select with all columns,
+ * then new version of every row is written, see {@link Table#update(Transaction, long, Object[])}.
+ */
+public class UpdateOperation extends Prepared {
+    /** Finds rows to update with values of all columns */
+    private final SelectOperation select;
+
+    /** Indexes of table columns values are assigned to */
+    private final List<Integer> columnIndexes = new ArrayList<>();
+
+    /** New values in order of <code>columnIndexes</code>, evaluated for every row */
+    private final List<Expression> values = new ArrayList<>();
+
+    public UpdateOperation(String originalSql) {
+        super(originalSql);
+        this.select = new SelectOperation(originalSql);
+    }
+
+    public Table getTable() {
+        return select.getTable();
+    }
+
+    public void setTable(Table table) {
+        select.setTable(table);
+
+        List<Expression> expressions = new ArrayList<>();
+        for (Column column : table.getColumns()) {
+            ColumnExpression expression = new ColumnExpression(column.getName());
+            expression.bind(table);
+            expressions.add(expression);
+        }
+
+        select.setExpressions(expressions);
+    }
+
+    public Expression getCondition() {
+        return select.getCondition();
+    }
+
+    public void setCondition(Expression condition) {
+        select.setCondition(condition);
+    }
+
+    /**
+     * Assign value of expression to column.
+     */
+    public void addAssignment(int columnIndex, Expression value) {
+        columnIndexes.add(columnIndex);
+        values.add(value);
+    }
+
+    @Override
+    public int update() {
+        Session session = getSession();
+        Table table = getTable();
+        List<Column> columns = table.getColumns();
+
+        List<Row> rows = select.findMatchingRows(session.getSnapshot());
+        for (Row row : rows) {
+            Object[] newValues = row.getValues().clone();
+
+            for (int i = 0; i < columnIndexes.size(); i++) {
+                Object value = values.get(i).getValue(row);
+                Column column = columns.get(columnIndexes.get(i));
+
+                newValues[columnIndexes.get(i)] = value == null ? null : column.getDataType().convert(value, column);
+            }
+
+            table.update(session.getTransaction(), row.getKey(), newValues);
+        }
+
+        return rows.size();
+    }
+}
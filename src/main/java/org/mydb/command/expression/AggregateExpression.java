@@ -0,0 +1,121 @@
+package org.mydb.command.expression;
+
+import org.mydb.command.ParserException;
+import org.mydb.engine.table.Column;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.Table;
+import org.mydb.engine.table.datatype.DataType;
+import org.mydb.engine.table.datatype.Number;
+import org.mydb.engine.table.datatype.NumberSum;
+import org.mydb.engine.table.datatype.WithPrecision;
+
+import java.util.BitSet;
+
+/**
+ * Aggregate function of column: COUNT, SUM, MIN, MAX or AVG, or COUNT(*).
+ * Values are aggregated by aggregate operator, which puts them into aggregated row after values of columns,
+ * so expression reads value of aggregated row, see {@link org.mydb.command.operator.HashAggregateOperator}.
+ */
+public class AggregateExpression extends Expression {
+    public enum Type {
+        COUNT, SUM, MIN, MAX, AVG
+    }
+
+    private final Type type;
+
+    /** Column aggregated, <code>null</code> for COUNT(*) */
+    private final ColumnExpression argument;
+
+    /** Index of value in aggregated row */
+    private int index = -1;
+
+    /**
+     * @param argument column aggregated, <code>null</code> for COUNT(*)
+     */
+    public AggregateExpression(Type type, ColumnExpression argument) {
+        this.type = type;
+        this.argument = argument;
+    }
+
+    /**
+     * @return type of function with name, <code>null</code> if name is not aggregate function
+     */
+    public static Type getType(String name) {
+        for (Type type : Type.values()) {
+            if (type.name().equalsIgnoreCase(name))
+                return type;
+        }
+
+        return null;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public ColumnExpression getArgument() {
+        return argument;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @param index index of value in aggregated row
+     */
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    /**
+     * Bind column aggregated to table column.
+     * @throws ParserException if SUM or AVG aggregates column which is not a number
+     */
+    @Override
+    public void bind(Table table) {
+        if (argument == null)
+            return;
+
+        argument.bind(table);
+
+        if ((type == Type.SUM || type == Type.AVG) && !(argument.getDataType() instanceof Number)) {
+            throw new ParserException(String.format("number column expected for %s", getName()));
+        }
+    }
+
+    /**
+     * @return column of value in aggregated row
+     */
+    public Column getColumn() {
+        if (type == Type.MIN || type == Type.MAX)
+            return argument.getColumn();
+
+        // the most precision NUMBER has, values are kept as longs
+        DataType number = DataType.getDataType("number");
+        Column column = new Column(getName(), number);
+        column.setPrecision(((WithPrecision) number).maxPrecision());
+        column.setScale(type == Type.COUNT ? 0 : argument.getColumn().getScale() + (type == Type.AVG ? NumberSum.AVERAGE_SCALE : 0));
+        return column;
+    }
+
+    @Override
+    public void collectColumns(BitSet columns) {
+        columns.set(index);
+    }
+
+    @Override
+    public Object getValue(Row row) {
+        return row.getValue(index);
+    }
+
+    @Override
+    public DataType getDataType() {
+        return type == Type.MIN || type == Type.MAX ? argument.getDataType() : DataType.getDataType("number");
+    }
+
+    @Override
+    public String getName() {
+        return type + "(" + (argument == null ? "*" : argument.getName()) + ")";
+    }
+}
@@ -0,0 +1,89 @@
+package org.mydb.command.expression;
+
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.Table;
+import org.mydb.engine.table.datatype.DataType;
+
+import java.util.BitSet;
+
+/**
+ * <code>value BETWEEN low AND high</code>, bounds are inclusive.
+ */
+public class BetweenExpression extends Expression {
+    private final Expression value;
+    private final Expression low;
+    private final Expression high;
+
+    /** Bounds compared with NUMBER or DATE column as longs, <code>null</code> if values are compared as objects */
+    private LongConstant longLow;
+    private LongConstant longHigh;
+
+    public BetweenExpression(Expression value, Expression low, Expression high) {
+        this.value = value;
+        this.low = low;
+        this.high = high;
+    }
+
+    public Expression getValue() {
+        return value;
+    }
+
+    public Expression getLow() {
+        return low;
+    }
+
+    public Expression getHigh() {
+        return high;
+    }
+
+    @Override
+    public Object getValue(Row row) {
+        if (row != null && longLow != null && longHigh != null) {
+            Long lowLong = longLow.getLong();
+            Long highLong = longHigh.getLong();
+
+            if (lowLong != null && highLong != null) {
+                if (row.isNull(longLow.getColumnIndex()))
+                    return null;
+
+                return longLow.compare(row, lowLong) >= 0 && longHigh.compare(row, highLong) <= 0;
+            }
+        }
+
+        Object v = value.getValue(row);
+        Object lowValue = low.getValue(row);
+        Object highValue = high.getValue(row);
+
+        if (v == null || lowValue == null || highValue == null)
+            return null;
+
+        return ComparisonExpression.compare(v, lowValue) >= 0 && ComparisonExpression.compare(v, highValue) <= 0;
+    }
+
+    @Override
+    public DataType getDataType() {
+        return null;
+    }
+
+    @Override
+    public String getName() {
+        return value.getName() + " BETWEEN " + low.getName() + " AND " + high.getName();
+    }
+
+    @Override
+    public void bind(Table table) {
+        value.bind(table);
+        low.bind(table);
+        high.bind(table);
+
+        longLow = LongConstant.of(value, low);
+        longHigh = LongConstant.of(value, high);
+    }
+
+    @Override
+    public void collectColumns(BitSet columns) {
+        value.collectColumns(columns);
+        low.collectColumns(columns);
+        high.collectColumns(columns);
+    }
+}
@@ -0,0 +1,104 @@
+package org.mydb.command.expression;
+
+import org.mydb.command.ParserException;
+import org.mydb.engine.table.Column;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.Table;
+import org.mydb.engine.table.datatype.DataType;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Table column reference.
+ * Column is referenced by name when parsed and bound to table column when table is known.
+ * Columns of joined tables are named by table name or alias and column name, i.e. <code>T.ID</code>,
+ * column name alone references column of the only joined table which has it.
+ */
+public class ColumnExpression extends Expression {
+    /** Table name or alias, <code>null</code> if column name is not qualified */
+    private final String tableName;
+    private final String columnName;
+    private Column column;
+    private int columnIndex = -1;
+
+    public ColumnExpression(String columnName) {
+        this(null, columnName);
+    }
+
+    public ColumnExpression(String tableName, String columnName) {
+        this.tableName = tableName;
+        this.columnName = columnName;
+    }
+
+    /**
+     * Bind column name to table column.
+     */
+    @Override
+    public void bind(Table table) {
+        columnIndex = table == null ? -1 : findColumn(table);
+
+        if (columnIndex < 0) {
+            throw new ParserException(String.format("column not found: %s", getName()));
+        }
+
+        column = table.getColumns().get(columnIndex);
+    }
+
+    public Column getColumn() {
+        return column;
+    }
+
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    @Override
+    public void collectColumns(BitSet columns) {
+        columns.set(columnIndex);
+    }
+
+    @Override
+    public Object getValue(Row row) {
+        return row.getValue(columnIndex);
+    }
+
+    @Override
+    public DataType getDataType() {
+        return column == null ? null : column.getDataType();
+    }
+
+    @Override
+    public String getName() {
+        return tableName == null ? columnName : tableName + "." + columnName;
+    }
+
+    // internal ==============================================================================
+    /**
+     * @return column index or -1 if table has no such column
+     * @throws ParserException if column name is not qualified and more joined tables have it
+     */
+    private int findColumn(Table table) {
+        if (tableName != null) {
+            int index = table.getColumnIndex(tableName + "." + columnName);
+            return index < 0 && tableName.equals(table.getName()) ? table.getColumnIndex(columnName) : index;
+        }
+
+        int index = table.getColumnIndex(columnName);
+        if (index >= 0)
+            return index;
+
+        List<Column> columns = table.getColumns();
+        for (int i = 0; i < columns.size(); i++) {
+            if (!columns.get(i).getName().endsWith("." + columnName))
+                continue;
+
+            if (index >= 0)
+                throw new ParserException(String.format("ambiguous column: %s", columnName));
+
+            index = i;
+        }
+
+        return index;
+    }
+}
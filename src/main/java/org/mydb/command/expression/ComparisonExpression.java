@@ -0,0 +1,174 @@
+package org.mydb.command.expression;
+
+import org.mydb.DbException;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.Table;
+import org.mydb.engine.table.datatype.DataType;
+import org.mydb.engine.table.datatype.Date;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.BitSet;
+
+/**
+ * Comparison of two values: =, !=, &lt;, &lt;=, &gt;, &gt;=.
+ * Result is <code>null</code> if any value is NULL.
+ */
+public class ComparisonExpression extends Expression {
+    public enum Type {
+        EQUALS("="),
+        NOT_EQUALS("!="),
+        LESS("<"),
+        LESS_EQUALS("<="),
+        MORE(">"),
+        MORE_EQUALS(">=");
+
+        private final String sql;
+
+        Type(String sql) {
+            this.sql = sql;
+        }
+
+        /**
+         * @return type of comparison with operands swapped, i.e. <code>&gt;</code> for <code>&lt;</code>
+         */
+        public Type swap() {
+            switch (this) {
+                case LESS: return MORE;
+                case LESS_EQUALS: return MORE_EQUALS;
+                case MORE: return LESS;
+                case MORE_EQUALS: return LESS_EQUALS;
+                default: return this;
+            }
+        }
+
+        boolean test(int result) {
+            switch (this) {
+                case EQUALS: return result == 0;
+                case NOT_EQUALS: return result != 0;
+                case LESS: return result < 0;
+                case LESS_EQUALS: return result <= 0;
+                case MORE: return result > 0;
+                default: return result >= 0;
+            }
+        }
+    }
+
+    private final Type type;
+    private final Expression left;
+    private final Expression right;
+
+    /** Column compared with constant as longs, <code>null</code> if values are compared as objects */
+    private LongConstant longConstant;
+
+    /** Type of comparison of column with constant, operands are swapped if column is right */
+    private Type longType;
+
+    public ComparisonExpression(Type type, Expression left, Expression right) {
+        this.type = type;
+        this.left = left;
+        this.right = right;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Expression getLeft() {
+        return left;
+    }
+
+    public Expression getRight() {
+        return right;
+    }
+
+    @Override
+    public Object getValue(Row row) {
+        if (row != null && longConstant != null) {
+            Long constantLong = longConstant.getLong();
+
+            if (constantLong != null) {
+                if (row.isNull(longConstant.getColumnIndex()))
+                    return null;
+
+                return longType.test(longConstant.compare(row, constantLong));
+            }
+        }
+
+        Object leftValue = left.getValue(row);
+        Object rightValue = right.getValue(row);
+
+        if (leftValue == null || rightValue == null)
+            return null;
+
+        return type.test(compare(leftValue, rightValue));
+    }
+
+    @Override
+    public DataType getDataType() {
+        return null;
+    }
+
+    @Override
+    public String getName() {
+        return left.getName() + " " + type.sql + " " + right.getName();
+    }
+
+    @Override
+    public void bind(Table table) {
+        left.bind(table);
+        right.bind(table);
+
+        longConstant = LongConstant.of(left, right);
+        longType = type;
+
+        if (longConstant == null) {
+            longConstant = LongConstant.of(right, left);
+            longType = type.swap();
+        }
+    }
+
+    @Override
+    public void collectColumns(BitSet columns) {
+        left.collectColumns(columns);
+        right.collectColumns(columns);
+    }
+
+    /**
+     * Compare not null values. Numbers are compared by value, value compared with date is converted to date.
+     */
+    public static int compare(Object left, Object right) {
+        if (isDate(left) || isDate(right))
+            return Long.compare(toEpochDay(left), toEpochDay(right));
+
+        if (left instanceof java.lang.Number || right instanceof java.lang.Number)
+            return toDecimal(left).compareTo(toDecimal(right));
+
+        return left.toString().compareTo(right.toString());
+    }
+
+    // internal ==============================================================================
+    private static BigDecimal toDecimal(Object value) {
+        if (value instanceof BigDecimal)
+            return (BigDecimal) value;
+
+        try {
+            return new BigDecimal(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new DbException(String.format("invalid number: %s", value), e);
+        }
+    }
+
+    private static boolean isDate(Object value) {
+        return value instanceof LocalDate || value instanceof java.util.Date;
+    }
+
+    private static long toEpochDay(Object value) {
+        LocalDate date = Date.toLocalDate(value);
+        if (date == null) {
+            throw new DbException(String.format("invalid date: %s", value));
+        }
+
+        return date.toEpochDay();
+    }
+}
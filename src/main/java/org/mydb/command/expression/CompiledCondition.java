@@ -0,0 +1,121 @@
+package org.mydb.command.expression;
+
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.Table;
+import org.mydb.engine.table.datatype.DataType;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Condition which is interpreted until it gets hot, then evaluated by class generated for it,
+ * see {@link ExpressionCompiler}. It is kept by parsed statement, so executions of the statement
+ * reuse generated class.
+ * <p>
+ * Class compiled for other condition of the same shape is taken when the first row is evaluated.
+ * Otherwise condition is compiled by background thread when it gets hot and generated class is used
+ * from the row after it is ready, query thread does not wait for compiler.
+ * <p>
+ * Threads reading morsels of table evaluate one condition at once: rows are counted atomically,
+ * so compilation is requested once, and generated predicate keeps no state of evaluation.
+ */
+public class CompiledCondition extends Expression {
+    /** Number of rows condition is interpreted for before it is compiled */
+    static final int COMPILE_THRESHOLD = 10000;
+
+    private final Expression condition;
+
+    /** Generated predicate, <code>null</code> if condition is interpreted */
+    private volatile CompiledPredicate predicate;
+
+    /** Number of rows interpreted, compilation is requested once when threshold is reached */
+    private final AtomicInteger evaluations = new AtomicInteger();
+
+    /**
+     * @param condition bound condition
+     */
+    public CompiledCondition(Expression condition) {
+        this.condition = condition;
+    }
+
+    public Expression getCondition() {
+        return condition;
+    }
+
+    /**
+     * @return <code>true</code> if condition is evaluated by generated class
+     */
+    public boolean isCompiled() {
+        return predicate != null;
+    }
+
+    /**
+     * Compile condition now instead of waiting until it is hot.
+     * @return <code>true</code> if condition is evaluated by generated class
+     */
+    public boolean compile() {
+        evaluations.set(COMPILE_THRESHOLD);
+
+        if (predicate == null)
+            predicate = ExpressionCompiler.compile(condition);
+
+        return predicate != null;
+    }
+
+    @Override
+    public Object getValue(Row row) {
+        CompiledPredicate compiled = predicate;
+        if (compiled == null && row != null)
+            compiled = countEvaluation();
+
+        if (compiled == null || row == null)
+            return condition.getValue(row);
+
+        int result = compiled.test(row);
+        return result < 0 ? null : result == 1;
+    }
+
+    /**
+     * Count row interpreted: take class of condition shape on the first row, request compilation when hot.
+     * @return predicate to evaluate row with, <code>null</code> to interpret it
+     */
+    private CompiledPredicate countEvaluation() {
+        if (evaluations.get() >= COMPILE_THRESHOLD)
+            return null;
+
+        int count = evaluations.getAndIncrement();
+
+        if (count == 0) {
+            CompiledPredicate cached = ExpressionCompiler.getCompiled(condition);
+            if (cached != null)
+                predicate = cached;
+
+            return cached;
+        }
+
+        if (count + 1 == COMPILE_THRESHOLD)
+            ExpressionCompiler.compileInBackground(condition, compiled -> predicate = compiled);
+
+        return null;
+    }
+
+    @Override
+    public DataType getDataType() {
+        return condition.getDataType();
+    }
+
+    @Override
+    public String getName() {
+        return condition.getName();
+    }
+
+    @Override
+    public void bind(Table table) {
+        condition.bind(table);
+    }
+
+    @Override
+    public void collectColumns(BitSet columns) {
+        condition.collectColumns(columns);
+    }
+}
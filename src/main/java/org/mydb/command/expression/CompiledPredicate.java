@@ -0,0 +1,50 @@
+package org.mydb.command.expression;
+
+import org.mydb.engine.table.Row;
+
+/**
+ * Base class of conditions compiled to bytecode by {@link ExpressionCompiler}.
+ * Generated code evaluates condition with sql three-valued logic as int: 1 TRUE, 0 FALSE, -1 NULL.
+ * Parts of condition which are not compiled are evaluated by their expressions.
+ * <p>
+ * Predicate keeps no state of evaluation, constants are loaded into locals of generated methods,
+ * so threads reading morsels of table share one predicate.
+ */
+public abstract class CompiledPredicate {
+    /** Parts of condition evaluated by interpreter */
+    private final Expression[] expressions;
+
+    /** Constants compared with columns as longs */
+    private final LongConstant[] constants;
+
+    protected CompiledPredicate(Expression[] expressions, Object[] constants) {
+        this.expressions = expressions;
+        this.constants = new LongConstant[constants.length];
+
+        for (int i = 0; i < constants.length; i++)
+            this.constants[i] = (LongConstant) constants[i];
+    }
+
+    /**
+     * Evaluate condition for row.
+     * @return 1 if condition is TRUE, 0 if it is FALSE, -1 if it is NULL
+     */
+    public abstract int test(Row row);
+
+    /**
+     * Convert constant to long of column, parameter value may change between executions.
+     * @return long of constant, <code>null</code> if constant is NULL or has no exact long,
+     * comparison is interpreted then
+     */
+    protected final Long load(int constant) {
+        return constants[constant].getLong();
+    }
+
+    /**
+     * Evaluate part of condition by interpreter.
+     */
+    protected final int interpret(int expression, Row row) {
+        Object value = expressions[expression].getValue(row);
+        return value == null ? -1 : (Boolean) value ? 1 : 0;
+    }
+}
@@ -0,0 +1,41 @@
+package org.mydb.command.expression;
+
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.Table;
+import org.mydb.engine.table.datatype.DataType;
+
+import java.util.BitSet;
+
+/**
+ * Sql expression evaluated against table row.
+ */
+public abstract class Expression {
+    /**
+     * Evaluate expression.
+     * @param row current row, <code>null</code> if expression does not depend on table
+     * @return value or <code>null</code> for sql NULL
+     */
+    public abstract Object getValue(Row row);
+
+    /**
+     * @return value data type, <code>null</code> if not known
+     */
+    public abstract DataType getDataType();
+
+    /**
+     * @return name used as result column label
+     */
+    public abstract String getName();
+
+    /**
+     * Bind column references to table columns.
+     */
+    public void bind(Table table) {
+    }
+
+    /**
+     * Add indexes of table columns expression reads.
+     */
+    public void collectColumns(BitSet columns) {
+    }
+}
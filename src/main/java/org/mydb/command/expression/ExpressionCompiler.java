@@ -0,0 +1,395 @@
+package org.mydb.command.expression;
+
+import org.mydb.server.web.logger.Logger;
+import org.mydb.util.cache.LRUCache;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Compile condition to bytecode: Java source of {@link CompiledPredicate} subclass is generated and compiled
+ * by compiler of JDK in memory, so no bytecode library is needed.
+ * <p>
+ * Comparisons and BETWEEN of NUMBER or DATE column with constants become comparisons of longs read from
+ * row record, AND and OR become branches. Every other part of condition is evaluated by its expression.
+ * Condition is not compiled if it has no comparison of longs or if JDK compiler is not available
+ * (runtime without compiler), it is interpreted then.
+ * <p>
+ * Generated source has no constant values: constants and interpreted parts are slots passed to constructor.
+ * So classes are cached by source, conditions of the same shape with other constants share one class.
+ * Hot conditions are compiled by background thread, query thread keeps interpreting meanwhile.
+ */
+final class ExpressionCompiler {
+    /** Package of generated classes */
+    private static final String PACKAGE = "org.mydb.command.expression.generated";
+
+    private static final Logger LOG = Logger.forClass(ExpressionCompiler.class);
+
+    private static final AtomicInteger CLASS_ID = new AtomicInteger();
+
+    /** Max number of generated classes kept */
+    private static final int CACHE_SIZE = 256;
+
+    /** Constructors of generated classes by source of condition shape */
+    private static final LRUCache<String, Constructor<?>> CLASSES = new LRUCache<>(CACHE_SIZE);
+
+    /** Compiles hot conditions, so query threads never wait for compiler */
+    private static final ExecutorService BACKGROUND = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mydb compiler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** File manager of compiler, reused by compilations, guarded by class lock */
+    private static StandardJavaFileManager standardManager;
+
+    /** Parts of condition interpreted by generated class */
+    private final List<Expression> expressions = new ArrayList<>();
+
+    /** Constants compared as longs by generated class */
+    private final List<LongConstant> constants = new ArrayList<>();
+
+    /** Methods evaluating condition nodes */
+    private final StringBuilder methods = new StringBuilder();
+
+    private int methodCount;
+
+    /** Method evaluating condition */
+    private int root;
+
+    private ExpressionCompiler() {
+    }
+
+    /**
+     * Compile condition now, class compiled for condition of the same shape is reused.
+     * @param condition bound condition
+     * @return predicate or <code>null</code> if condition is not compiled
+     */
+    static CompiledPredicate compile(Expression condition) {
+        ExpressionCompiler generator = generate(condition);
+        return generator == null ? null : generator.newPredicate(generator.compileClass());
+    }
+
+    /**
+     * @param condition bound condition
+     * @return predicate of class compiled for condition of the same shape before, <code>null</code> if there is none
+     */
+    static CompiledPredicate getCompiled(Expression condition) {
+        ExpressionCompiler generator = generate(condition);
+        return generator == null ? null : generator.newPredicate(CLASSES.get(generator.getShape()));
+    }
+
+    /**
+     * Compile condition by background thread.
+     * @param condition bound condition
+     * @param consumer called with predicate by background thread, not called if condition is not compiled
+     */
+    static void compileInBackground(Expression condition, Consumer<CompiledPredicate> consumer) {
+        ExpressionCompiler generator = generate(condition);
+        if (generator == null)
+            return;
+
+        BACKGROUND.execute(() -> {
+            CompiledPredicate predicate = generator.newPredicate(generator.compileClass());
+            if (predicate != null)
+                consumer.accept(predicate);
+        });
+    }
+
+    // internal ==============================================================================
+    /**
+     * @return generator of condition or <code>null</code> if condition is not compiled
+     */
+    private static ExpressionCompiler generate(Expression condition) {
+        ExpressionCompiler generator = new ExpressionCompiler();
+        generator.root = generator.addNode(condition);
+
+        return generator.constants.isEmpty() ? null : generator;
+    }
+
+    /**
+     * @return source of class body, the same for conditions which differ in constants only
+     */
+    private String getShape() {
+        return "n" + root + "\n" + methods;
+    }
+
+    /**
+     * Find class of condition shape or compile it.
+     * @return constructor of class or <code>null</code> if class can't be compiled
+     */
+    private Constructor<?> compileClass() {
+        String shape = getShape();
+        Constructor<?> constructor = CLASSES.get(shape);
+        if (constructor != null)
+            return constructor;
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null)
+            return null;
+
+        String className = "Predicate" + CLASS_ID.incrementAndGet();
+
+        try {
+            constructor = compile(compiler, PACKAGE + "." + className, getSource(className, root))
+                    .getConstructor(Expression[].class, Object[].class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOG.warn(String.format("failed to compile condition %s", shape), e);
+            return null;
+        }
+
+        CLASSES.put(shape, constructor);
+        return constructor;
+    }
+
+    /**
+     * @param constructor constructor of class of condition shape, <code>null</code> if there is none
+     * @return predicate evaluating condition with its constants and interpreted parts
+     */
+    private CompiledPredicate newPredicate(Constructor<?> constructor) {
+        if (constructor == null)
+            return null;
+
+        try {
+            return (CompiledPredicate) constructor.newInstance(expressions.toArray(new Expression[0]),
+                    constants.toArray());
+        } catch (ReflectiveOperationException e) {
+            LOG.warn(String.format("failed to create predicate %s", constructor.getName()), e);
+            return null;
+        }
+    }
+
+    /**
+     * Generate method evaluating node.
+     * @return method number
+     */
+    private int addNode(Expression expression) {
+        if (expression instanceof LogicalExpression)
+            return addLogical((LogicalExpression) expression);
+
+        if (expression instanceof ComparisonExpression) {
+            ComparisonExpression comparison = (ComparisonExpression) expression;
+
+            LongConstant constant = LongConstant.of(comparison.getLeft(), comparison.getRight());
+            ComparisonExpression.Type type = comparison.getType();
+
+            if (constant == null) {
+                constant = LongConstant.of(comparison.getRight(), comparison.getLeft());
+                type = type.swap();
+            }
+
+            if (constant != null)
+                return addComparison(expression, constant, type);
+        }
+
+        if (expression instanceof BetweenExpression) {
+            BetweenExpression between = (BetweenExpression) expression;
+            LongConstant low = LongConstant.of(between.getValue(), between.getLow());
+            LongConstant high = LongConstant.of(between.getValue(), between.getHigh());
+
+            if (low != null && high != null)
+                return addBetween(expression, low, high);
+        }
+
+        return addMethod("return interpret(" + addExpression(expression) + ", row);");
+    }
+
+    private int addLogical(LogicalExpression logical) {
+        int left = addNode(logical.getLeft());
+        int right = addNode(logical.getRight());
+
+        // result is known without right condition, NULL if any is NULL otherwise
+        if (logical.getType() == LogicalExpression.Type.AND) {
+            return addMethod("int left = n" + left + "(row);\n"
+                    + "        if (left == 0) return 0;\n"
+                    + "        int right = n" + right + "(row);\n"
+                    + "        if (right == 0) return 0;\n"
+                    + "        return left == 1 && right == 1 ? 1 : -1;");
+        }
+
+        return addMethod("int left = n" + left + "(row);\n"
+                + "        if (left == 1) return 1;\n"
+                + "        int right = n" + right + "(row);\n"
+                + "        if (right == 1) return 1;\n"
+                + "        return left == 0 && right == 0 ? 0 : -1;");
+    }
+
+    private int addComparison(Expression comparison, LongConstant constant, ComparisonExpression.Type type) {
+        int c = addConstant(constant);
+        int column = constant.getColumnIndex();
+
+        return addMethod("Long constant = load(" + c + ");\n"
+                + "        if (constant == null) return interpret(" + addExpression(comparison) + ", row);\n"
+                + "        if (row.isNull(" + column + ")) return -1;\n"
+                + "        return row.getLong(" + column + ") " + getOperator(type) + " constant ? 1 : 0;");
+    }
+
+    private int addBetween(Expression between, LongConstant low, LongConstant high) {
+        int l = addConstant(low);
+        int h = addConstant(high);
+        int column = low.getColumnIndex();
+
+        return addMethod("Long low = load(" + l + ");\n"
+                + "        Long high = load(" + h + ");\n"
+                + "        if (low == null || high == null) return interpret(" + addExpression(between) + ", row);\n"
+                + "        if (row.isNull(" + column + ")) return -1;\n"
+                + "        long value = row.getLong(" + column + ");\n"
+                + "        return value >= low && value <= high ? 1 : 0;");
+    }
+
+    private int addMethod(String body) {
+        int number = methodCount++;
+
+        methods.append("    private int n").append(number).append("(Row row) {\n")
+                .append("        ").append(body).append('\n')
+                .append("    }\n\n");
+
+        return number;
+    }
+
+    private int addExpression(Expression expression) {
+        expressions.add(expression);
+        return expressions.size() - 1;
+    }
+
+    private int addConstant(LongConstant constant) {
+        constants.add(constant);
+        return constants.size() - 1;
+    }
+
+    private static String getOperator(ComparisonExpression.Type type) {
+        switch (type) {
+            case EQUALS: return "==";
+            case NOT_EQUALS: return "!=";
+            case LESS: return "<";
+            case LESS_EQUALS: return "<=";
+            case MORE: return ">";
+            default: return ">=";
+        }
+    }
+
+    private String getSource(String className, int root) {
+        return "package " + PACKAGE + ";\n\n"
+                + "import org.mydb.command.expression.CompiledPredicate;\n"
+                + "import org.mydb.command.expression.Expression;\n"
+                + "import org.mydb.engine.table.Row;\n\n"
+                + "public final class " + className + " extends CompiledPredicate {\n"
+                + "    public " + className + "(Expression[] expressions, Object[] constants) {\n"
+                + "        super(expressions, constants);\n"
+                + "    }\n\n"
+                + "    @Override\n"
+                + "    public int test(Row row) {\n"
+                + "        return n" + root + "(row);\n"
+                + "    }\n\n"
+                + methods
+                + "}\n";
+    }
+
+    /**
+     * Compile source in memory and load class by its own class loader, so class is unloaded with predicates
+     * once it is dropped from cache. Compilations share file manager, so they run one at a time.
+     */
+    private static synchronized Class<?> compile(JavaCompiler compiler, String className, String source)
+            throws ClassNotFoundException {
+        if (standardManager == null)
+            standardManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+
+        ClassFileManager fileManager = new ClassFileManager(standardManager);
+
+        JavaFileObject sourceFile = new SimpleJavaFileObject(
+                URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+
+        List<String> options = Arrays.asList("-classpath", getClassPath(), "-proc:none");
+        List<String> errors = new ArrayList<>();
+
+        Boolean success = compiler.getTask(null, fileManager, diagnostic -> errors.add(diagnostic.toString()),
+                options, null, Collections.singletonList(sourceFile)).call();
+
+        if (!Boolean.TRUE.equals(success))
+            throw new IllegalStateException(String.format("compilation failed: %s", errors));
+
+        byte[] bytes = fileManager.getBytes();
+        ClassLoader loader = new ClassLoader(CompiledPredicate.class.getClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                if (!name.equals(className))
+                    throw new ClassNotFoundException(name);
+
+                return defineClass(name, bytes, 0, bytes.length);
+            }
+        };
+
+        return loader.loadClass(className);
+    }
+
+    /**
+     * @return class path of engine classes generated code refers to, i.e. jar or classes directory
+     */
+    private static String getClassPath() {
+        CodeSource codeSource = CompiledPredicate.class.getProtectionDomain().getCodeSource();
+        String classPath = System.getProperty("java.class.path");
+
+        if (codeSource == null || codeSource.getLocation() == null)
+            return classPath;
+
+        try {
+            return new File(codeSource.getLocation().toURI()).getPath() + File.pathSeparator + classPath;
+        } catch (Exception e) {
+            return classPath;
+        }
+    }
+
+    /**
+     * Keep compiled class in memory instead of writing class file.
+     */
+    private static final class ClassFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        ClassFileManager(JavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                   FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("bytes:///" + className.replace('.', '/') + kind.extension),
+                    kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return bytes;
+                }
+            };
+        }
+
+        byte[] getBytes() {
+            return bytes.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.mydb.command.expression;
+
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.Table;
+import org.mydb.engine.table.datatype.DataType;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * <code>value IN (value, ...)</code>, NULL unless value is found or compared values are not NULL.
+ */
+public class InExpression extends Expression {
+    private final Expression value;
+    private final List<Expression> values;
+
+    public InExpression(Expression value, List<Expression> values) {
+        this.value = value;
+        this.values = values;
+    }
+
+    public Expression getValue() {
+        return value;
+    }
+
+    public List<Expression> getValues() {
+        return Collections.unmodifiableList(values);
+    }
+
+    @Override
+    public Object getValue(Row row) {
+        Object v = value.getValue(row);
+        if (v == null)
+            return null;
+
+        boolean hasNull = false;
+        for (Expression expression : values) {
+            Object listValue = expression.getValue(row);
+            if (listValue == null)
+                hasNull = true;
+            else if (ComparisonExpression.compare(v, listValue) == 0)
+                return true;
+        }
+
+        return hasNull ? null : false;
+    }
+
+    @Override
+    public DataType getDataType() {
+        return null;
+    }
+
+    @Override
+    public String getName() {
+        return value.getName() + " IN (" + values.stream().map(Expression::getName).collect(Collectors.joining(", ")) + ")";
+    }
+
+    @Override
+    public void bind(Table table) {
+        value.bind(table);
+        for (Expression expression : values)
+            expression.bind(table);
+    }
+
+    @Override
+    public void collectColumns(BitSet columns) {
+        value.collectColumns(columns);
+        for (Expression expression : values)
+            expression.collectColumns(columns);
+    }
+}
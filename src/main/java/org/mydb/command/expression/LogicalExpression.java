@@ -0,0 +1,77 @@
+package org.mydb.command.expression;
+
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.Table;
+import org.mydb.engine.table.datatype.DataType;
+
+import java.util.BitSet;
+
+/**
+ * <code>AND</code> or <code>OR</code> of two conditions with sql three-valued logic.
+ */
+public class LogicalExpression extends Expression {
+    public enum Type {
+        AND,
+        OR
+    }
+
+    private final Type type;
+    private final Expression left;
+    private final Expression right;
+
+    public LogicalExpression(Type type, Expression left, Expression right) {
+        this.type = type;
+        this.left = left;
+        this.right = right;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Expression getLeft() {
+        return left;
+    }
+
+    public Expression getRight() {
+        return right;
+    }
+
+    @Override
+    public Object getValue(Row row) {
+        Boolean leftValue = (Boolean) left.getValue(row);
+
+        // result is known without right condition
+        if (leftValue != null && leftValue == (type == Type.OR))
+            return leftValue;
+
+        Boolean rightValue = (Boolean) right.getValue(row);
+
+        if (rightValue != null && rightValue == (type == Type.OR))
+            return rightValue;
+
+        return leftValue == null || rightValue == null ? null : rightValue;
+    }
+
+    @Override
+    public DataType getDataType() {
+        return null;
+    }
+
+    @Override
+    public String getName() {
+        return "(" + left.getName() + " " + type + " " + right.getName() + ")";
+    }
+
+    @Override
+    public void bind(Table table) {
+        left.bind(table);
+        right.bind(table);
+    }
+
+    @Override
+    public void collectColumns(BitSet columns) {
+        left.collectColumns(columns);
+        right.collectColumns(columns);
+    }
+}
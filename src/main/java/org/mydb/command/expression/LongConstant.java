@@ -0,0 +1,87 @@
+package org.mydb.command.expression;
+
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.datatype.DataType;
+import org.mydb.engine.table.datatype.WithLongValue;
+
+import java.util.BitSet;
+
+/**
+ * Constant compared with NUMBER or DATE column. Constant is converted to long once (unscaled value
+ * of column scale or epoch day), then column values are compared as longs read from row record,
+ * without decoding them to objects.
+ * <p>
+ * Condition is evaluated by threads reading morsels of table at once, so value and its long are kept
+ * together by one immutable object: thread never pairs new parameter value with long of the old one.
+ */
+final class LongConstant {
+    private final ColumnExpression column;
+    private final Expression constant;
+
+    /** The last value converted, parameter value may change between executions */
+    private volatile Converted converted = new Converted(null, null);
+
+    private LongConstant(ColumnExpression column, Expression constant) {
+        this.column = column;
+        this.constant = constant;
+    }
+
+    /**
+     * @param column bound expression
+     * @param constant bound expression
+     * @return comparison of NUMBER or DATE column with expression which does not read row,
+     * <code>null</code> otherwise
+     */
+    static LongConstant of(Expression column, Expression constant) {
+        if (!(column instanceof ColumnExpression) || !(column.getDataType() instanceof WithLongValue))
+            return null;
+
+        BitSet columns = new BitSet();
+        constant.collectColumns(columns);
+
+        return columns.isEmpty() ? new LongConstant((ColumnExpression) column, constant) : null;
+    }
+
+    int getColumnIndex() {
+        return column.getColumnIndex();
+    }
+
+    /**
+     * @return long of constant, <code>null</code> if constant is NULL or has no exact long,
+     * values are compared as objects then
+     */
+    Long getLong() {
+        Object constantValue = constant.getValue(null);
+
+        Converted last = converted;
+        if (constantValue != last.value) {
+            DataType dataType = column.getDataType();
+            last = new Converted(constantValue, constantValue == null ? null
+                    : ((WithLongValue) dataType).toLong(constantValue, column.getColumn()));
+            converted = last;
+        }
+
+        return last.longValue;
+    }
+
+    /**
+     * Compare not null column value of row with constant.
+     */
+    int compare(Row row, long constantLong) {
+        return Long.compare(row.getLong(column.getColumnIndex()), constantLong);
+    }
+
+    // internal ==============================================================================
+    /**
+     * Constant value and long it is converted to.
+     */
+    private static final class Converted {
+        final Object value;
+        final Long longValue;
+
+        Converted(Object value, Long longValue) {
+            this.value = value;
+            this.longValue = longValue;
+        }
+    }
+}
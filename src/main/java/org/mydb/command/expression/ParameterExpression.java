@@ -0,0 +1,56 @@
+package org.mydb.command.expression;
+
+import org.mydb.DbException;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.datatype.DataType;
+
+/**
+ * Parameter of prepared statement, value is set before statement is executed.
+ */
+public class ParameterExpression extends Expression {
+    /** Parameter index, starting with 1 */
+    private final int index;
+
+    private Object value;
+    private boolean set;
+
+    public ParameterExpression(int index) {
+        this.index = index;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @param value value or <code>null</code> for sql NULL
+     */
+    public void setValue(Object value) {
+        this.value = value;
+        this.set = true;
+    }
+
+    public void clear() {
+        this.value = null;
+        this.set = false;
+    }
+
+    @Override
+    public Object getValue(Row row) {
+        if (!set) {
+            throw new DbException(String.format("parameter %d is not set", index));
+        }
+
+        return value;
+    }
+
+    @Override
+    public DataType getDataType() {
+        return new ValueExpression(value).getDataType();
+    }
+
+    @Override
+    public String getName() {
+        return "?" + index;
+    }
+}
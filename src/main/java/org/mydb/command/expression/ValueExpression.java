@@ -0,0 +1,41 @@
+package org.mydb.command.expression;
+
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.datatype.DataType;
+
+import java.time.LocalDate;
+
+/**
+ * Constant value.
+ */
+public class ValueExpression extends Expression {
+    private final Object value;
+
+    public ValueExpression(Object value) {
+        this.value = value;
+    }
+
+    @Override
+    public Object getValue(Row row) {
+        return value;
+    }
+
+    @Override
+    public DataType getDataType() {
+        if (value instanceof Number)
+            return DataType.getDataType("number");
+
+        if (value instanceof LocalDate || value instanceof java.util.Date)
+            return DataType.getDataType("date");
+
+        if (value instanceof String)
+            return DataType.getDataType("varchar");
+
+        return null;
+    }
+
+    @Override
+    public String getName() {
+        return String.valueOf(value);
+    }
+}
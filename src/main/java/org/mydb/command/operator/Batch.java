@@ -0,0 +1,138 @@
+package org.mydb.command.operator;
+
+import org.mydb.engine.table.Column;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.RowCodec;
+import org.mydb.engine.table.datatype.WithLongValue;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Rows of table exchanged by operators of vectorized execution, see {@link BatchOperator}.
+ * Values are kept by column: NUMBER and DATE values as longs (unscaled value of column scale or epoch day),
+ * values of other types as objects, NULL values are flagged. Only columns query reads are filled.
+ * <p>
+ * Selection vector keeps positions of rows passed by filters in row order, filters shrink it
+ * instead of moving values.
+ */
+public class Batch {
+    /** Max number of rows */
+    public static final int CAPACITY = 1024;
+
+    private final List<Column> columns;
+
+    /** Indexes of columns filled */
+    private final BitSet read;
+
+    /** Row keys */
+    final long[] keys = new long[CAPACITY];
+
+    /** Values of columns with long values, <code>null</code> for other columns and columns not read */
+    final long[][] longs;
+
+    /** Values of other columns, <code>null</code> for columns with long values and columns not read */
+    final Object[][] objects;
+
+    /** NULL flags of columns read */
+    final boolean[][] nulls;
+
+    /** Number of rows */
+    int size;
+
+    /** Positions of selected rows, first {@link #selected} are valid */
+    final int[] selection = new int[CAPACITY];
+    int selected;
+
+    public Batch(List<Column> columns, BitSet read) {
+        this.columns = columns;
+        this.read = read;
+        this.longs = new long[columns.size()][];
+        this.objects = new Object[columns.size()][];
+        this.nulls = new boolean[columns.size()][];
+
+        for (int column = read.nextSetBit(0); column >= 0; column = read.nextSetBit(column + 1)) {
+            if (isLong(column))
+                longs[column] = new long[CAPACITY];
+            else
+                objects[column] = new Object[CAPACITY];
+
+            nulls[column] = new boolean[CAPACITY];
+        }
+    }
+
+    /**
+     * @return <code>true</code> if values of column are kept as longs
+     */
+    public boolean isLong(int column) {
+        return columns.get(column).getDataType() instanceof WithLongValue;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getSelected() {
+        return selected;
+    }
+
+    /**
+     * Remove rows and select every row added later.
+     */
+    void clear() {
+        size = 0;
+        selected = 0;
+    }
+
+    /**
+     * Decode values of columns read from record and select row.
+     * @return <code>false</code> if batch is full
+     */
+    boolean add(long key, byte[] record, RowCodec codec) {
+        if (size == CAPACITY)
+            return false;
+
+        keys[size] = key;
+        for (int column = read.nextSetBit(0); column >= 0; column = read.nextSetBit(column + 1)) {
+            boolean isNull = codec.isNull(record, column);
+            nulls[column][size] = isNull;
+
+            if (longs[column] != null)
+                longs[column][size] = isNull ? 0 : codec.decodeLong(record, column);
+            else
+                objects[column][size] = isNull ? null : codec.decode(record, column);
+        }
+
+        selection[selected++] = size++;
+        return true;
+    }
+
+    /**
+     * @param position row position, not index in selection
+     * @return row with values of columns read, other columns are NULL
+     */
+    Row getRow(int position) {
+        Object[] values = new Object[columns.size()];
+
+        for (int column = read.nextSetBit(0); column >= 0; column = read.nextSetBit(column + 1))
+            values[column] = getValue(column, position);
+
+        return new Row(keys[position], values);
+    }
+
+    /**
+     * @param column index of column read
+     * @param position row position, not index in selection
+     * @return value of column, long values are converted back to values of column type
+     */
+    Object getValue(int column, int position) {
+        if (nulls[column][position])
+            return null;
+
+        if (longs[column] == null)
+            return objects[column][position];
+
+        Column columnType = columns.get(column);
+        return ((WithLongValue) columnType.getDataType()).fromLong(longs[column][position], columnType);
+    }
+}
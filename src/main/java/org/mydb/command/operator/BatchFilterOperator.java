@@ -0,0 +1,235 @@
+package org.mydb.command.operator;
+
+import org.mydb.command.expression.BetweenExpression;
+import org.mydb.command.expression.ColumnExpression;
+import org.mydb.command.expression.ComparisonExpression;
+import org.mydb.command.expression.Expression;
+import org.mydb.command.expression.LogicalExpression;
+import org.mydb.engine.table.datatype.WithLongValue;
+
+import java.util.BitSet;
+
+/**
+ * Shrink selection of batches to rows for which condition is true.
+ * <p>
+ * Condition is compiled into predicates: comparison of NUMBER or DATE column with constant
+ * (=, !=, &lt;, &gt;, BETWEEN etc, combined by AND) loops over long values of column in batch,
+ * other conditions are evaluated for every selected row. Batches with no rows selected are skipped.
+ */
+public class BatchFilterOperator implements BatchOperator {
+    private final BatchOperator input;
+    private final Predicate predicate;
+
+    public BatchFilterOperator(BatchOperator input, Expression condition) {
+        this.input = input;
+        this.predicate = compile(condition);
+    }
+
+    @Override
+    public void open() {
+        input.open();
+    }
+
+    @Override
+    public Batch nextBatch() {
+        Batch batch;
+        while ((batch = input.nextBatch()) != null) {
+            batch.selected = predicate.filter(batch, batch.selected);
+            if (batch.selected > 0)
+                return batch;
+        }
+
+        return null;
+    }
+
+    @Override
+    public void close() {
+        input.close();
+    }
+
+    // internal ==============================================================================
+    private static Predicate compile(Expression condition) {
+        if (condition instanceof LogicalExpression
+                && ((LogicalExpression) condition).getType() == LogicalExpression.Type.AND) {
+            LogicalExpression and = (LogicalExpression) condition;
+            return new And(compile(and.getLeft()), compile(and.getRight()));
+        }
+
+        if (condition instanceof ComparisonExpression) {
+            ComparisonExpression comparison = (ComparisonExpression) condition;
+
+            if (isLongColumn(comparison.getLeft()) && isConstant(comparison.getRight())) {
+                return new LongComparison(comparison, (ColumnExpression) comparison.getLeft(), comparison.getType(),
+                        comparison.getRight());
+            }
+
+            if (isLongColumn(comparison.getRight()) && isConstant(comparison.getLeft())) {
+                return new LongComparison(comparison, (ColumnExpression) comparison.getRight(),
+                        comparison.getType().swap(), comparison.getLeft());
+            }
+        }
+
+        if (condition instanceof BetweenExpression) {
+            BetweenExpression between = (BetweenExpression) condition;
+
+            if (isLongColumn(between.getValue()) && isConstant(between.getLow()) && isConstant(between.getHigh())) {
+                ColumnExpression column = (ColumnExpression) between.getValue();
+                return new And(
+                        new LongComparison(condition, column, ComparisonExpression.Type.MORE_EQUALS, between.getLow()),
+                        new LongComparison(condition, column, ComparisonExpression.Type.LESS_EQUALS, between.getHigh()));
+            }
+        }
+
+        return new RowPredicate(condition);
+    }
+
+    private static boolean isLongColumn(Expression expression) {
+        return expression instanceof ColumnExpression && expression.getDataType() instanceof WithLongValue;
+    }
+
+    private static boolean isConstant(Expression expression) {
+        BitSet columns = new BitSet();
+        expression.collectColumns(columns);
+        return columns.isEmpty();
+    }
+
+    /**
+     * Condition compiled for batch.
+     */
+    private interface Predicate {
+        /**
+         * Remove rows for which condition is not true from the first selected rows of batch.
+         * @param count number of rows selected
+         * @return number of rows left, they are the first ones of selection
+         */
+        int filter(Batch batch, int count);
+    }
+
+    private static final class And implements Predicate {
+        private final Predicate left;
+        private final Predicate right;
+
+        And(Predicate left, Predicate right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public int filter(Batch batch, int count) {
+            count = left.filter(batch, count);
+            return count == 0 ? 0 : right.filter(batch, count);
+        }
+    }
+
+    /**
+     * Condition evaluated for every selected row.
+     */
+    private static final class RowPredicate implements Predicate {
+        private final Expression condition;
+
+        RowPredicate(Expression condition) {
+            this.condition = condition;
+        }
+
+        @Override
+        public int filter(Batch batch, int count) {
+            int[] selection = batch.selection;
+            int passed = 0;
+
+            for (int i = 0; i < count; i++) {
+                int position = selection[i];
+                if (Boolean.TRUE.equals(condition.getValue(batch.getRow(position))))
+                    selection[passed++] = position;
+            }
+
+            return passed;
+        }
+    }
+
+    /**
+     * Column compared with constant as longs. Loops select row by adding 0 or 1 to count of passed rows,
+     * so they have no branch on comparison result.
+     */
+    private static final class LongComparison implements Predicate {
+        /** Condition evaluated by row if constant has no exact long */
+        private final RowPredicate fallback;
+
+        private final int column;
+        private final ColumnExpression columnExpression;
+        private final ComparisonExpression.Type type;
+        private final Expression constant;
+
+        LongComparison(Expression condition, ColumnExpression column, ComparisonExpression.Type type,
+                       Expression constant) {
+            this.fallback = new RowPredicate(condition);
+            this.column = column.getColumnIndex();
+            this.columnExpression = column;
+            this.type = type;
+            this.constant = constant;
+        }
+
+        @Override
+        public int filter(Batch batch, int count) {
+            Object value = constant.getValue(null);
+            if (value == null)
+                return 0;
+
+            Long longValue = ((WithLongValue) columnExpression.getDataType()).toLong(value, columnExpression.getColumn());
+            if (longValue == null)
+                return fallback.filter(batch, count);
+
+            long c = longValue;
+            long[] values = batch.longs[column];
+            boolean[] nulls = batch.nulls[column];
+            int[] selection = batch.selection;
+            int passed = 0;
+
+            switch (type) {
+                case EQUALS:
+                    for (int i = 0; i < count; i++) {
+                        int position = selection[i];
+                        selection[passed] = position;
+                        passed += !nulls[position] & values[position] == c ? 1 : 0;
+                    }
+                    break;
+                case NOT_EQUALS:
+                    for (int i = 0; i < count; i++) {
+                        int position = selection[i];
+                        selection[passed] = position;
+                        passed += !nulls[position] & values[position] != c ? 1 : 0;
+                    }
+                    break;
+                case LESS:
+                    for (int i = 0; i < count; i++) {
+                        int position = selection[i];
+                        selection[passed] = position;
+                        passed += !nulls[position] & values[position] < c ? 1 : 0;
+                    }
+                    break;
+                case LESS_EQUALS:
+                    for (int i = 0; i < count; i++) {
+                        int position = selection[i];
+                        selection[passed] = position;
+                        passed += !nulls[position] & values[position] <= c ? 1 : 0;
+                    }
+                    break;
+                case MORE:
+                    for (int i = 0; i < count; i++) {
+                        int position = selection[i];
+                        selection[passed] = position;
+                        passed += !nulls[position] & values[position] > c ? 1 : 0;
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < count; i++) {
+                        int position = selection[i];
+                        selection[passed] = position;
+                        passed += !nulls[position] & values[position] >= c ? 1 : 0;
+                    }
+                    break;
+            }
+
+            return passed;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.mydb.command.operator;
+
+/**
+ * Operator of vectorized query execution: like {@link Operator}, but rows are read in batches
+ * of up to {@value Batch#CAPACITY} rows, so operators loop over primitive column vectors
+ * instead of calling input for every row.
+ */
+public interface BatchOperator extends AutoCloseable {
+    /**
+     * Start reading input, called once before the first batch is read.
+     */
+    void open();
+
+    /**
+     * @return next batch with at least one row selected or <code>null</code> if operator has no more rows.
+     * Batch may be reused for the next one, so it is valid until next call
+     */
+    Batch nextBatch();
+
+    /**
+     * Stop reading input, called when result is closed even if not all rows are read.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,62 @@
+package org.mydb.command.operator;
+
+import org.mydb.engine.table.Column;
+import org.mydb.engine.table.Record;
+import org.mydb.engine.table.RowCodec;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Leaf operator filling batches with records of table. Column vectors are filled straight from record bytes:
+ * values of NUMBER and DATE columns are read as longs and no row object is created for a record.
+ */
+public class BatchScanOperator implements BatchOperator {
+    /** Opens record source */
+    private final Supplier<Iterator<Record>> source;
+
+    /** Format of records read */
+    private final RowCodec codec;
+
+    private final Batch batch;
+
+    /** Records read, <code>null</code> if operator is not open */
+    private Iterator<Record> records;
+
+    /**
+     * @param source records of rows visible to query
+     * @param columns columns of table
+     * @param read indexes of columns query reads
+     */
+    public BatchScanOperator(Supplier<Iterator<Record>> source, RowCodec codec, List<Column> columns, BitSet read) {
+        this.source = source;
+        this.codec = codec;
+        this.batch = new Batch(columns, read);
+    }
+
+    @Override
+    public void open() {
+        records = source.get();
+    }
+
+    @Override
+    public Batch nextBatch() {
+        if (records == null)
+            return null;
+
+        batch.clear();
+        while (batch.size < Batch.CAPACITY && records.hasNext()) {
+            Record record = records.next();
+            batch.add(record.getId(), record.getData(), codec);
+        }
+
+        return batch.size == 0 ? null : batch;
+    }
+
+    @Override
+    public void close() {
+        records = null;
+    }
+}
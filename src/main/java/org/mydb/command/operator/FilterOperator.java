@@ -0,0 +1,38 @@
+package org.mydb.command.operator;
+
+import org.mydb.command.expression.Expression;
+import org.mydb.engine.table.Row;
+
+/**
+ * Pass rows of input for which condition is true, rows where it is false or NULL are skipped.
+ */
+public class FilterOperator implements Operator {
+    private final Operator input;
+    private final Expression condition;
+
+    public FilterOperator(Operator input, Expression condition) {
+        this.input = input;
+        this.condition = condition;
+    }
+
+    @Override
+    public void open() {
+        input.open();
+    }
+
+    @Override
+    public Row next() {
+        Row row;
+        while ((row = input.next()) != null) {
+            if (Boolean.TRUE.equals(condition.getValue(row)))
+                return row;
+        }
+
+        return null;
+    }
+
+    @Override
+    public void close() {
+        input.close();
+    }
+}
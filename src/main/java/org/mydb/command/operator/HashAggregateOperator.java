@@ -0,0 +1,996 @@
+package org.mydb.command.operator;
+
+import org.mydb.command.expression.AggregateExpression;
+import org.mydb.command.expression.ComparisonExpression;
+import org.mydb.engine.table.Column;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.TableException;
+import org.mydb.engine.table.datatype.NumberSum;
+import org.mydb.engine.table.datatype.WithLongValue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aggregate rows of input by group columns (hash aggregation), i.e. GROUP BY. Aggregated row has values
+ * of group columns at their indexes in input row, values of other columns are NULL, and values of aggregates
+ * follow them, see {@link AggregateExpression}. Without group columns, all rows are one group, which is
+ * passed even if input has no rows.
+ * <p>
+ * Groups are found in hash table by key: values of group columns encoded like index keys, numbers and dates
+ * as longs, so equal values have equal keys. Keys of all groups are kept in one byte array and aggregates
+ * in arrays of longs by group, so row of existing group allocates nothing. When groups exceed memory of query,
+ * groups in memory are still aggregated, but rows of other groups are written to temporary files
+ * by partition of key hash. Partitions written to files are aggregated one at a time after groups in memory
+ * are passed, partitioning them again by other bits of key hash if they do not fit into memory either.
+ * <p>
+ * Input of vectorized execution is aggregated batch by batch: groups of selected rows are found first,
+ * then every aggregate loops over column vector of batch, so rows are never built. Rows written
+ * to partition files are read back as rows.
+ * <p>
+ * Groups aggregated in parallel by other operators are merged into one operator before it is opened,
+ * see {@link ParallelAggregateOperator}.
+ */
+public class HashAggregateOperator implements Operator {
+    private static final int PARTITION_BITS = 4;
+    private static final int PARTITIONS = 1 << PARTITION_BITS;
+
+    /** Groups of the last level are kept in memory anyway */
+    private static final int MAX_LEVEL = 3;
+
+    /** Memory of group in addition to key, values and aggregates: hash table slots, key start and hash */
+    private static final int GROUP_MEMORY = 32;
+
+    private static final int INITIAL_GROUPS = 64;
+
+    /** Input rows, <code>null</code> if input is read in batches */
+    private final Operator input;
+
+    /** Input batches, <code>null</code> if input is read by row */
+    private final BatchOperator batchInput;
+
+    private final List<Column> columns;
+    private final int[] groupColumns;
+    private final List<AggregateExpression> aggregates;
+    private final QueryMemory memory;
+
+    /** Level of partitioning, 0 if rows are not read from partition file */
+    private final int level;
+
+    /** Group column has long values, so long is written to key */
+    private final boolean[] longColumns;
+
+    /** Groups of selected rows of the last batch read by index in selection, -1 if row is written to file */
+    private int[] batchGroups;
+
+    /** Key of the last row read */
+    private final KeyBuffer key = new KeyBuffer();
+    private final DataOutputStream keyOut = new DataOutputStream(key);
+
+    /** Keys of groups one after another, key of group ends where key of the next group starts */
+    private byte[] keys = new byte[INITIAL_GROUPS * 16];
+    private int[] keyStarts = new int[INITIAL_GROUPS + 1];
+    private long[] hashes = new long[INITIAL_GROUPS];
+
+    /** Hash table of groups by key hash, slot has group + 1, 0 if slot is free */
+    private int[] slots = new int[INITIAL_GROUPS * 2];
+
+    /** Values of group columns of groups */
+    private Object[] groupValues;
+
+    private final Accumulator[] accumulators;
+    private int groupCount;
+    private long groupsMemory;
+
+    /** Rows of groups which do not fit into memory, by partition */
+    private final SpillFile[] files = new SpillFile[PARTITIONS];
+    private boolean spilling;
+
+    /** Next group passed */
+    private int group;
+
+    /** Next partition written to file to aggregate */
+    private int partition;
+    private HashAggregateOperator partitionAggregate;
+
+    /**
+     * @param columns columns of input rows
+     * @param groupColumns indexes of group columns, empty if all rows are one group
+     * @param aggregates aggregates, their values follow input columns in aggregated row
+     * @param memory memory of query, groups are kept in it
+     */
+    public HashAggregateOperator(Operator input, List<Column> columns, int[] groupColumns,
+                                 List<AggregateExpression> aggregates, QueryMemory memory) {
+        this(input, null, columns, groupColumns, aggregates, memory, 0);
+    }
+
+    /**
+     * Aggregate selected rows of batches.
+     * @see #HashAggregateOperator(Operator, List, int[], List, QueryMemory)
+     */
+    public HashAggregateOperator(BatchOperator input, List<Column> columns, int[] groupColumns,
+                                 List<AggregateExpression> aggregates, QueryMemory memory) {
+        this(null, input, columns, groupColumns, aggregates, memory, 0);
+    }
+
+    private HashAggregateOperator(Operator input, BatchOperator batchInput, List<Column> columns,
+                                  int[] groupColumns, List<AggregateExpression> aggregates, QueryMemory memory,
+                                  int level) {
+        this.input = input;
+        this.batchInput = batchInput;
+        this.columns = columns;
+        this.groupColumns = groupColumns;
+        this.aggregates = aggregates;
+        this.memory = memory;
+        this.level = level;
+
+        longColumns = new boolean[groupColumns.length];
+        for (int i = 0; i < groupColumns.length; i++)
+            longColumns[i] = columns.get(groupColumns[i]).getDataType() instanceof WithLongValue;
+
+        groupValues = new Object[INITIAL_GROUPS * groupColumns.length];
+
+        accumulators = new Accumulator[aggregates.size()];
+        for (int i = 0; i < accumulators.length; i++) {
+            accumulators[i] = newAccumulator(aggregates.get(i));
+            accumulators[i].grow(INITIAL_GROUPS);
+        }
+    }
+
+    /**
+     * @return columns of aggregated rows
+     */
+    public static List<Column> getColumns(List<Column> columns, List<AggregateExpression> aggregates) {
+        Column[] aggregated = columns.toArray(new Column[columns.size() + aggregates.size()]);
+        for (int i = 0; i < aggregates.size(); i++)
+            aggregated[columns.size() + i] = aggregates.get(i).getColumn();
+
+        return Arrays.asList(aggregated);
+    }
+
+    @Override
+    public void open() {
+        if (batchInput != null) {
+            batchInput.open();
+            batchGroups = new int[Batch.CAPACITY];
+
+            Batch batch;
+            while ((batch = batchInput.nextBatch()) != null)
+                add(batch);
+        } else {
+            input.open();
+
+            Row row;
+            while ((row = input.next()) != null)
+                add(row);
+        }
+
+        if (groupColumns.length == 0 && groupCount == 0)
+            add(new Row(0, new Object[columns.size()]), false);
+    }
+
+    @Override
+    public Row next() {
+        while (true) {
+            if (group < groupCount)
+                return getRow(group++);
+
+            releaseGroups();
+
+            if (partitionAggregate != null) {
+                Row row = partitionAggregate.next();
+                if (row != null)
+                    return row;
+
+                partitionAggregate.close();
+                partitionAggregate = null;
+                closeFile(partition - 1);
+            }
+
+            while (partition < PARTITIONS && files[partition] == null)
+                partition++;
+
+            if (partition == PARTITIONS)
+                return null;
+
+            partitionAggregate = new HashAggregateOperator(files[partition].read(), null, columns, groupColumns,
+                    aggregates, memory, level + 1);
+            partitionAggregate.open();
+            partition++;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (batchInput != null)
+            batchInput.close();
+        else
+            input.close();
+
+        if (partitionAggregate != null)
+            partitionAggregate.close();
+
+        for (int i = 0; i < PARTITIONS; i++)
+            closeFile(i);
+
+        releaseGroups();
+    }
+
+    /**
+     * Merge groups aggregated by other operators of the same aggregates into groups of this operator,
+     * before it is opened, i.e. groups aggregated in parallel. Merged groups are kept in memory,
+     * they were kept in memory by other operators, which release them. Rows other operators wrote
+     * to files are aggregated as rows of input after all groups are merged, so rows of group
+     * in memory are never written to file.
+     * @param partials other operators, opened but not read
+     */
+    void merge(List<HashAggregateOperator> partials) {
+        for (HashAggregateOperator partial : partials) {
+            for (int group = 0; group < partial.groupCount; group++)
+                mergeGroup(partial, group);
+
+            partial.releaseGroups();
+        }
+
+        for (HashAggregateOperator partial : partials) {
+            for (int i = 0; i < PARTITIONS; i++) {
+                if (partial.files[i] == null)
+                    continue;
+
+                try (Operator rows = partial.files[i].read()) {
+                    rows.open();
+
+                    Row row;
+                    while ((row = rows.next()) != null)
+                        add(row);
+                }
+
+                partial.closeFile(i);
+            }
+        }
+    }
+
+    // internal ==============================================================================
+    private void add(Row row) {
+        add(row, true);
+    }
+
+    private void mergeGroup(HashAggregateOperator partial, int group) {
+        int start = partial.keyStarts[group];
+        key.reset();
+        key.write(partial.keys, start, partial.keyStarts[group + 1] - start);
+
+        int merged = find(partial.hashes[group]);
+        if (merged < 0) {
+            long groupMemory = GROUP_MEMORY + key.size() + getAccumulatorsMemory();
+            for (int i = 0; i < groupColumns.length; i++)
+                groupMemory += getValueMemory(partial.groupValues[group * groupColumns.length + i]);
+
+            memory.reserve(groupMemory);
+            groupsMemory += groupMemory;
+
+            merged = addGroup(partial.hashes[group], -merged - 1);
+            System.arraycopy(partial.groupValues, group * groupColumns.length, groupValues,
+                    merged * groupColumns.length, groupColumns.length);
+        }
+
+        for (int i = 0; i < accumulators.length; i++)
+            accumulators[i].merge(merged, partial.accumulators[i], group);
+    }
+
+    /**
+     * Aggregate row into its group, add group if it fits into memory, otherwise write row to partition file.
+     * @param aggregate <code>false</code> to add group of row only
+     */
+    private void add(Row row, boolean aggregate) {
+        long hash = writeKey(row);
+
+        int group = find(hash);
+        if (group < 0) {
+            Object[] values = new Object[groupColumns.length];
+            for (int i = 0; i < groupColumns.length; i++)
+                values[i] = row.getValue(groupColumns[i]);
+
+            group = addGroup(hash, -group - 1, values);
+            if (group < 0) {
+                spill(hash, row);
+                return;
+            }
+        }
+
+        if (aggregate)
+            accumulate(group, row);
+    }
+
+    /**
+     * Aggregate selected rows of batch: find groups of rows like {@link #add(Row, boolean)} does,
+     * then accumulate values of every aggregate in one loop over selection.
+     */
+    private void add(Batch batch) {
+        for (int i = 0; i < batch.selected; i++) {
+            int position = batch.selection[i];
+            long hash = writeKey(batch, position);
+
+            int group = find(hash);
+            if (group < 0) {
+                Object[] values = new Object[groupColumns.length];
+                for (int j = 0; j < groupColumns.length; j++)
+                    values[j] = batch.getValue(groupColumns[j], position);
+
+                group = addGroup(hash, -group - 1, values);
+                if (group < 0)
+                    spill(hash, batch.getRow(position));
+            }
+
+            batchGroups[i] = group;
+        }
+
+        for (Accumulator accumulator : accumulators)
+            accumulator.add(batchGroups, batch);
+    }
+
+    /**
+     * Add group of key in key buffer if it fits into memory.
+     * @param slot free slot of key found by {@link #find(long)}
+     * @param values values of group columns
+     * @return new group or -1 if row of group is to be written to partition file
+     */
+    private int addGroup(long hash, int slot, Object[] values) {
+        if (spilling)
+            return -1;
+
+        long groupMemory = GROUP_MEMORY + key.size() + getAccumulatorsMemory();
+        for (Object value : values)
+            groupMemory += getValueMemory(value);
+
+        if (!memory.tryReserve(groupMemory)) {
+            if (level < MAX_LEVEL && groupColumns.length > 0) {
+                // groups in memory are aggregated, rows of new groups are aggregated later
+                spilling = true;
+                return -1;
+            }
+
+            memory.reserve(groupMemory);
+        }
+
+        groupsMemory += groupMemory;
+
+        int group = addGroup(hash, slot);
+        System.arraycopy(values, 0, groupValues, group * groupColumns.length, groupColumns.length);
+        return group;
+    }
+
+    /**
+     * Find group of key in key buffer.
+     * @return group or -(free slot + 1) if key has no group
+     */
+    private int find(long hash) {
+        int mask = slots.length - 1;
+        int slot = (int) hash & mask;
+
+        for (int entry; (entry = slots[slot]) != 0; slot = (slot + 1) & mask) {
+            if (hashes[entry - 1] == hash && isKey(entry - 1))
+                return entry - 1;
+        }
+
+        return -slot - 1;
+    }
+
+    /**
+     * Add group of key in key buffer, values of group columns are set by caller.
+     * @param slot free slot of key found by {@link #find(long)}
+     */
+    private int addGroup(long hash, int slot) {
+        if (groupCount == hashes.length) {
+            int capacity = groupCount * 2;
+            keyStarts = Arrays.copyOf(keyStarts, capacity + 1);
+            hashes = Arrays.copyOf(hashes, capacity);
+            groupValues = Arrays.copyOf(groupValues, capacity * groupColumns.length);
+
+            for (Accumulator accumulator : accumulators)
+                accumulator.grow(capacity);
+        }
+
+        int start = keyStarts[groupCount];
+        if (start + key.size() > keys.length)
+            keys = Arrays.copyOf(keys, Math.max(keys.length * 2, start + key.size()));
+
+        System.arraycopy(key.getBuffer(), 0, keys, start, key.size());
+        keyStarts[groupCount + 1] = start + key.size();
+        hashes[groupCount] = hash;
+        slots[slot] = groupCount + 1;
+
+        int group = groupCount++;
+        if (groupCount * 2 > slots.length)
+            rehash();
+
+        return group;
+    }
+
+    private void accumulate(int group, Row row) {
+        for (Accumulator accumulator : accumulators)
+            accumulator.add(group, row);
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+
+        for (int group = 0; group < groupCount; group++) {
+            int slot = (int) hashes[group] & mask;
+            while (slots[slot] != 0)
+                slot = (slot + 1) & mask;
+
+            slots[slot] = group + 1;
+        }
+    }
+
+    private void spill(long hash, Row row) {
+        int p = (int) (hash >>> (64 - PARTITION_BITS * (level + 1))) & (PARTITIONS - 1);
+        if (files[p] == null)
+            files[p] = new SpillFile(columns, memory.getSpillDirectory());
+
+        files[p].write(row);
+    }
+
+    private void closeFile(int partition) {
+        if (files[partition] != null) {
+            files[partition].close();
+            files[partition] = null;
+        }
+    }
+
+    /**
+     * Release memory of groups, all groups are passed.
+     */
+    private void releaseGroups() {
+        if (keys == null)
+            return;
+
+        memory.release(groupsMemory);
+        groupsMemory = 0;
+
+        keys = null;
+        keyStarts = null;
+        hashes = null;
+        slots = null;
+        groupValues = null;
+        groupCount = 0;
+        group = 0;
+
+        for (Accumulator accumulator : accumulators)
+            accumulator.release();
+    }
+
+    /**
+     * @return aggregated row of group
+     */
+    private Row getRow(int group) {
+        Object[] values = new Object[columns.size() + accumulators.length];
+
+        for (int i = 0; i < groupColumns.length; i++)
+            values[groupColumns[i]] = groupValues[group * groupColumns.length + i];
+
+        for (int i = 0; i < accumulators.length; i++)
+            values[columns.size() + i] = accumulators[i].getValue(group);
+
+        return new Row(group, values);
+    }
+
+    private long getAccumulatorsMemory() {
+        long accumulatorsMemory = 0;
+        for (Accumulator accumulator : accumulators)
+            accumulatorsMemory += accumulator.getGroupMemory();
+
+        return accumulatorsMemory;
+    }
+
+    /**
+     * @return memory of value of group column
+     */
+    private static long getValueMemory(Object value) {
+        return 8 + (value instanceof String ? 40 + 2L * ((String) value).length() : 24);
+    }
+
+    /**
+     * Write key of row group into key buffer.
+     * @return hash of key
+     */
+    private long writeKey(Row row) {
+        key.reset();
+
+        try {
+            for (int i = 0; i < groupColumns.length; i++) {
+                int column = groupColumns[i];
+
+                if (row.isNull(column)) {
+                    key.writeFlag(0);
+                } else if (longColumns[i]) {
+                    key.writeFlag(1);
+                    key.writeLong(row.getLong(column));
+                } else {
+                    key.writeFlag(1);
+                    columns.get(column).getDataType().writeKey(keyOut, row.getValue(column));
+                }
+            }
+        } catch (IOException e) {
+            throw new TableException("failed to encode group key", e);
+        }
+
+        return hashKey();
+    }
+
+    /**
+     * Write key of group of batch row into key buffer.
+     * @param position row position, not index in selection
+     * @return hash of key
+     */
+    private long writeKey(Batch batch, int position) {
+        key.reset();
+
+        try {
+            for (int i = 0; i < groupColumns.length; i++) {
+                int column = groupColumns[i];
+
+                if (batch.nulls[column][position]) {
+                    key.writeFlag(0);
+                } else if (longColumns[i]) {
+                    key.writeFlag(1);
+                    key.writeLong(batch.longs[column][position]);
+                } else {
+                    key.writeFlag(1);
+                    columns.get(column).getDataType().writeKey(keyOut, batch.objects[column][position]);
+                }
+            }
+        } catch (IOException e) {
+            throw new TableException("failed to encode group key", e);
+        }
+
+        return hashKey();
+    }
+
+    /**
+     * @return hash of key in key buffer
+     */
+    private long hashKey() {
+        // FNV-1a, mixed so high bits of partition depend on all bytes
+        byte[] buffer = key.getBuffer();
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.size(); i++)
+            hash = (hash ^ (buffer[i] & 0xFF)) * 0x100000001b3L;
+
+        return RowHashTable.hash(hash);
+    }
+
+    /**
+     * @return <code>true</code> if key of group is the key in key buffer
+     */
+    private boolean isKey(int group) {
+        int start = keyStarts[group];
+        int length = keyStarts[group + 1] - start;
+        if (length != key.size())
+            return false;
+
+        byte[] buffer = key.getBuffer();
+        for (int i = 0; i < length; i++) {
+            if (keys[start + i] != buffer[i])
+                return false;
+        }
+
+        return true;
+    }
+
+    private static Accumulator newAccumulator(AggregateExpression aggregate) {
+        int column = aggregate.getArgument() == null ? -1 : aggregate.getArgument().getColumnIndex();
+
+        switch (aggregate.getType()) {
+            case COUNT:
+                return new CountAccumulator(column);
+            case SUM:
+            case AVG:
+                return new SumAccumulator(column, aggregate.getArgument().getColumn().getScale(),
+                        aggregate.getType() == AggregateExpression.Type.AVG);
+            default:
+                Column argument = aggregate.getArgument().getColumn();
+                boolean max = aggregate.getType() == AggregateExpression.Type.MAX;
+
+                if (argument.getDataType() instanceof WithLongValue)
+                    return new LongMinMaxAccumulator(column, argument, max);
+
+                return new MinMaxAccumulator(column, max);
+        }
+    }
+
+    /**
+     * Byte buffer which array is read without copying it. Buffer is used by one thread, so size is read,
+     * buffer is reset and flags and longs are written without locking, longs in the same byte order
+     * as by {@link DataOutputStream}.
+     */
+    private static final class KeyBuffer extends ByteArrayOutputStream {
+        KeyBuffer() {
+            super(64);
+        }
+
+        byte[] getBuffer() {
+            return buf;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public void reset() {
+            count = 0;
+        }
+
+        void writeFlag(int flag) {
+            if (count == buf.length)
+                buf = Arrays.copyOf(buf, count * 2);
+
+            buf[count++] = (byte) flag;
+        }
+
+        void writeLong(long value) {
+            if (count + 8 > buf.length)
+                buf = Arrays.copyOf(buf, Math.max(count * 2, count + 8));
+
+            for (int shift = 56; shift >= 0; shift -= 8)
+                buf[count++] = (byte) (value >>> shift);
+        }
+    }
+
+    /**
+     * Aggregate values of groups.
+     */
+    private abstract static class Accumulator {
+        /** Column aggregated, -1 for COUNT(*) */
+        final int column;
+
+        Accumulator(int column) {
+            this.column = column;
+        }
+
+        /**
+         * Make room for groups.
+         */
+        abstract void grow(int capacity);
+
+        abstract void release();
+
+        /**
+         * @return memory of group
+         */
+        abstract int getGroupMemory();
+
+        abstract void add(int group, Row row);
+
+        /**
+         * Add values of selected rows of batch to their groups.
+         * @param groups groups by index in selection, -1 to skip row
+         */
+        abstract void add(int[] groups, Batch batch);
+
+        /**
+         * Add values aggregated by other accumulator of the same aggregate to group.
+         */
+        abstract void merge(int group, Accumulator other, int otherGroup);
+
+        abstract Object getValue(int group);
+    }
+
+    private static final class CountAccumulator extends Accumulator {
+        private long[] counts;
+
+        CountAccumulator(int column) {
+            super(column);
+        }
+
+        @Override
+        void grow(int capacity) {
+            counts = counts == null ? new long[capacity] : Arrays.copyOf(counts, capacity);
+        }
+
+        @Override
+        void release() {
+            counts = null;
+        }
+
+        @Override
+        int getGroupMemory() {
+            return 8;
+        }
+
+        @Override
+        void add(int group, Row row) {
+            if (column < 0 || !row.isNull(column))
+                counts[group]++;
+        }
+
+        @Override
+        void add(int[] groups, Batch batch) {
+            boolean[] nulls = column < 0 ? null : batch.nulls[column];
+
+            for (int i = 0; i < batch.selected; i++) {
+                if (groups[i] >= 0 && (nulls == null || !nulls[batch.selection[i]]))
+                    counts[groups[i]]++;
+            }
+        }
+
+        @Override
+        void merge(int group, Accumulator other, int otherGroup) {
+            counts[group] += ((CountAccumulator) other).counts[otherGroup];
+        }
+
+        @Override
+        Object getValue(int group) {
+            return BigDecimal.valueOf(counts[group]);
+        }
+    }
+
+    /**
+     * SUM or AVG of NUMBER column, values are summed as unscaled longs of column scale.
+     */
+    private static final class SumAccumulator extends Accumulator {
+        private final int scale;
+        private final boolean average;
+
+        private long[] sums;
+        private long[] counts;
+
+        /** Sums of groups which overflowed long, <code>null</code> until any group does */
+        private NumberSum[] overflows;
+
+        SumAccumulator(int column, int scale, boolean average) {
+            super(column);
+            this.scale = scale;
+            this.average = average;
+        }
+
+        @Override
+        void grow(int capacity) {
+            sums = sums == null ? new long[capacity] : Arrays.copyOf(sums, capacity);
+            counts = counts == null ? new long[capacity] : Arrays.copyOf(counts, capacity);
+
+            if (overflows != null)
+                overflows = Arrays.copyOf(overflows, capacity);
+        }
+
+        @Override
+        void release() {
+            sums = null;
+            counts = null;
+            overflows = null;
+        }
+
+        @Override
+        int getGroupMemory() {
+            return 16;
+        }
+
+        @Override
+        void add(int group, Row row) {
+            if (row.isNull(column))
+                return;
+
+            sum(group, row.getLong(column), 1);
+        }
+
+        @Override
+        void add(int[] groups, Batch batch) {
+            long[] values = batch.longs[column];
+            boolean[] nulls = batch.nulls[column];
+
+            for (int i = 0; i < batch.selected; i++) {
+                int position = batch.selection[i];
+                if (groups[i] >= 0 && !nulls[position])
+                    sum(groups[i], values[position], 1);
+            }
+        }
+
+        @Override
+        void merge(int group, Accumulator other, int otherGroup) {
+            SumAccumulator sum = (SumAccumulator) other;
+            NumberSum otherOverflow = sum.overflows == null ? null : sum.overflows[otherGroup];
+
+            if (otherOverflow != null)
+                overflow(group).add(otherOverflow);
+            else if (sum.counts[otherGroup] > 0)
+                sum(group, sum.sums[otherGroup], sum.counts[otherGroup]);
+        }
+
+        private void sum(int group, long value, long count) {
+            if (overflows != null && overflows[group] != null) {
+                overflows[group].add(value, count);
+                return;
+            }
+
+            long result = sums[group] + value;
+
+            // overflow if both values have sign other than result, group is summed as BigDecimal then
+            if (((sums[group] ^ result) & (value ^ result)) < 0) {
+                overflow(group).add(value, count);
+                return;
+            }
+
+            sums[group] = result;
+            counts[group] += count;
+        }
+
+        /**
+         * @return sum of group as BigDecimal, created from long sum of group when group overflows first
+         */
+        private NumberSum overflow(int group) {
+            if (overflows == null)
+                overflows = new NumberSum[sums.length];
+
+            if (overflows[group] == null) {
+                overflows[group] = new NumberSum(scale);
+                overflows[group].add(sums[group], counts[group]);
+            }
+
+            return overflows[group];
+        }
+
+        @Override
+        Object getValue(int group) {
+            if (overflows != null && overflows[group] != null)
+                return average ? overflows[group].getAverage() : overflows[group].getSum();
+
+            if (counts[group] == 0)
+                return null;
+
+            BigDecimal sum = BigDecimal.valueOf(sums[group], scale);
+            if (!average)
+                return sum;
+
+            return NumberSum.average(sum, counts[group]);
+        }
+    }
+
+    /**
+     * MIN or MAX of NUMBER or DATE column, values are compared as longs.
+     */
+    private static final class LongMinMaxAccumulator extends Accumulator {
+        private final Column argument;
+        private final boolean max;
+
+        private long[] values;
+        private boolean[] found;
+
+        LongMinMaxAccumulator(int column, Column argument, boolean max) {
+            super(column);
+            this.argument = argument;
+            this.max = max;
+        }
+
+        @Override
+        void grow(int capacity) {
+            values = values == null ? new long[capacity] : Arrays.copyOf(values, capacity);
+            found = found == null ? new boolean[capacity] : Arrays.copyOf(found, capacity);
+        }
+
+        @Override
+        void release() {
+            values = null;
+            found = null;
+        }
+
+        @Override
+        int getGroupMemory() {
+            return 9;
+        }
+
+        @Override
+        void add(int group, Row row) {
+            if (row.isNull(column))
+                return;
+
+            add(group, row.getLong(column));
+        }
+
+        @Override
+        void add(int[] groups, Batch batch) {
+            long[] values = batch.longs[column];
+            boolean[] nulls = batch.nulls[column];
+
+            for (int i = 0; i < batch.selected; i++) {
+                int position = batch.selection[i];
+                if (groups[i] >= 0 && !nulls[position])
+                    add(groups[i], values[position]);
+            }
+        }
+
+        @Override
+        void merge(int group, Accumulator other, int otherGroup) {
+            LongMinMaxAccumulator minMax = (LongMinMaxAccumulator) other;
+            if (minMax.found[otherGroup])
+                add(group, minMax.values[otherGroup]);
+        }
+
+        private void add(int group, long value) {
+            if (!found[group] || (max ? value > values[group] : value < values[group])) {
+                values[group] = value;
+                found[group] = true;
+            }
+        }
+
+        @Override
+        Object getValue(int group) {
+            return found[group] ? ((WithLongValue) argument.getDataType()).fromLong(values[group], argument) : null;
+        }
+    }
+
+    /**
+     * MIN or MAX of other column, values are compared by value.
+     */
+    private static final class MinMaxAccumulator extends Accumulator {
+        private final boolean max;
+
+        private Object[] values;
+
+        MinMaxAccumulator(int column, boolean max) {
+            super(column);
+            this.max = max;
+        }
+
+        @Override
+        void grow(int capacity) {
+            values = values == null ? new Object[capacity] : Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void release() {
+            values = null;
+        }
+
+        @Override
+        int getGroupMemory() {
+            return 8;
+        }
+
+        @Override
+        void add(int group, Row row) {
+            add(group, row.getValue(column));
+        }
+
+        @Override
+        void add(int[] groups, Batch batch) {
+            Object[] values = batch.objects[column];
+
+            for (int i = 0; i < batch.selected; i++) {
+                if (groups[i] >= 0)
+                    add(groups[i], values[batch.selection[i]]);
+            }
+        }
+
+        @Override
+        void merge(int group, Accumulator other, int otherGroup) {
+            add(group, ((MinMaxAccumulator) other).values[otherGroup]);
+        }
+
+        private void add(int group, Object value) {
+            if (value == null)
+                return;
+
+            if (values[group] == null) {
+                values[group] = value;
+                return;
+            }
+
+            int result = ComparisonExpression.compare(value, values[group]);
+            if (max ? result > 0 : result < 0)
+                values[group] = value;
+        }
+
+        @Override
+        Object getValue(int group) {
+            return values[group];
+        }
+    }
+}
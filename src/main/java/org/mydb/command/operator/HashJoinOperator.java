@@ -0,0 +1,429 @@
+package org.mydb.command.operator;
+
+import org.mydb.command.expression.ComparisonExpression;
+import org.mydb.engine.table.Column;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.datatype.Number;
+import org.mydb.engine.table.datatype.WithLongValue;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Join rows of two inputs with equal key column values (inner equi-join). Joined row has values of left row
+ * followed by values of right row. Rows with NULL key never match.
+ * <p>
+ * Rows of the smaller input are put into hash table (build side), then rows of the other input look up
+ * matching rows in it (probe side). Inputs are read in turns until one of them ends, that one is smaller.
+ * Rows are put into partitions by key hash. When rows held exceed memory of query, the largest partition
+ * is written to temporary file, and probe rows of partitions written to file are written to file too
+ * instead of being joined. Partitions in memory are joined at once (hybrid hash join), partitions written
+ * to files are joined after inputs end, one pair of files at a time, partitioning them again by other
+ * bits of key hash if they do not fit into memory either (grace hash join).
+ */
+public class HashJoinOperator implements Operator {
+    private static final int PARTITION_BITS = 4;
+    private static final int PARTITIONS = 1 << PARTITION_BITS;
+
+    /**
+     * Partition of the last level is kept in memory anyway, it does not get smaller by partitioning
+     * when its rows have the same key
+     */
+    private static final int MAX_LEVEL = 3;
+
+    private final Side left;
+    private final Side right;
+
+    private final QueryMemory memory;
+
+    /** Level of partitioning, 0 if rows are not read from partition files */
+    private final int level;
+
+    /** Keys are longs of record values, otherwise keys are computed from values and matches compared */
+    private final boolean longKeys;
+
+    /** Scale numbers of both key columns are converted to */
+    private final int keyScale;
+
+    private Side build;
+    private Side probe;
+
+    /** Build rows of partition, <code>null</code> if partition is written to file */
+    private RowHashTable[] tables;
+    private long[] partitionMemory;
+
+    /** Probe rows read before build side is known */
+    private Iterator<Row> probeBuffer;
+    private SpillFile probeBufferFile;
+    private Operator probeBufferReader;
+    private boolean probeEnded;
+
+    private Row probeRow;
+    private RowHashTable probeTable;
+    private int entry = -1;
+
+    /** Next partition written to file to join */
+    private int partition;
+    private HashJoinOperator partitionJoin;
+
+    /**
+     * @param leftColumns columns of left rows
+     * @param leftKey index of left key column
+     * @param rightColumns columns of right rows
+     * @param rightKey index of right key column
+     * @param memory memory of query, build rows are kept in it
+     */
+    public HashJoinOperator(Operator left, List<Column> leftColumns, int leftKey,
+                            Operator right, List<Column> rightColumns, int rightKey, QueryMemory memory) {
+        this(left, leftColumns, leftKey, right, rightColumns, rightKey, memory, 0);
+    }
+
+    private HashJoinOperator(Operator left, List<Column> leftColumns, int leftKey,
+                             Operator right, List<Column> rightColumns, int rightKey, QueryMemory memory,
+                             int level) {
+        this.left = new Side(left, leftColumns, leftKey, memory.getSpillDirectory());
+        this.right = new Side(right, rightColumns, rightKey, memory.getSpillDirectory());
+        this.memory = memory;
+        this.level = level;
+
+        Column leftColumn = leftColumns.get(leftKey);
+        Column rightColumn = rightColumns.get(rightKey);
+
+        this.longKeys = leftColumn.getDataType() instanceof WithLongValue
+                && leftColumn.getDataType().getClass() == rightColumn.getDataType().getClass()
+                && leftColumn.getScale() == rightColumn.getScale();
+        this.keyScale = Math.max(leftColumn.getScale(), rightColumn.getScale());
+    }
+
+    @Override
+    public void open() {
+        left.input.open();
+        right.input.open();
+
+        // read inputs in turns, the one which ends first is smaller
+        long buffered = 0;
+        while (build == null && buffered <= memory.getAvailable()) {
+            buffered += left.read();
+            if (left.ended) {
+                build = left;
+                probe = right;
+                break;
+            }
+
+            buffered += right.read();
+            if (right.ended) {
+                build = right;
+                probe = left;
+            }
+        }
+
+        if (build == null) {
+            // both inputs are large, probe rows read are kept in file until build rows are in hash table
+            build = right;
+            probe = left;
+
+            probeBufferFile = new SpillFile(probe.columns, memory.getSpillDirectory());
+            for (Row row : probe.buffer)
+                probeBufferFile.write(row);
+
+            probeBufferReader = probeBufferFile.read();
+            probeBufferReader.open();
+        } else {
+            probeBuffer = probe.buffer.iterator();
+        }
+
+        probe.buffer = null;
+
+        tables = new RowHashTable[PARTITIONS];
+        partitionMemory = new long[PARTITIONS];
+        for (int i = 0; i < PARTITIONS; i++)
+            tables[i] = new RowHashTable();
+
+        for (Row row : build.buffer)
+            addBuildRow(row);
+
+        build.buffer = null;
+
+        Row row;
+        while (!build.ended && (row = build.next()) != null)
+            addBuildRow(row);
+    }
+
+    @Override
+    public Row next() {
+        while (true) {
+            while (entry >= 0) {
+                Row match = probeTable.getRow(entry);
+                entry = probeTable.next(entry);
+
+                if (longKeys || ComparisonExpression.compare(probeRow.getValue(probe.key),
+                        match.getValue(build.key)) == 0) {
+                    return probe == left ? join(probeRow, match) : join(match, probeRow);
+                }
+            }
+
+            if (!probeEnded) {
+                probeMatches();
+                continue;
+            }
+
+            if (partitionJoin != null) {
+                Row row = partitionJoin.next();
+                if (row != null)
+                    return row;
+
+                partitionJoin.close();
+                partitionJoin = null;
+                left.closeFile(partition - 1);
+                right.closeFile(partition - 1);
+            }
+
+            while (partition < PARTITIONS && (left.files[partition] == null || right.files[partition] == null)) {
+                left.closeFile(partition);
+                right.closeFile(partition);
+                partition++;
+            }
+
+            if (partition == PARTITIONS)
+                return null;
+
+            partitionJoin = new HashJoinOperator(left.files[partition].read(), left.columns, left.key,
+                    right.files[partition].read(), right.columns, right.key, memory, level + 1);
+            partitionJoin.open();
+            partition++;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (partitionJoin != null)
+            partitionJoin.close();
+
+        if (probeBufferReader != null)
+            probeBufferReader.close();
+
+        if (probeBufferFile != null)
+            probeBufferFile.close();
+
+        releaseTables();
+        left.close();
+        right.close();
+    }
+
+    // internal ==============================================================================
+    private void addBuildRow(Row row) {
+        if (row.isNull(build.key))
+            return;
+
+        long key = getKey(row, build.key);
+        int p = getPartition(key);
+
+        if (tables[p] == null) {
+            build.write(p, row);
+            return;
+        }
+
+        tables[p].add(key, row);
+
+        long rowMemory = row.getMemory();
+        partitionMemory[p] += rowMemory;
+        memory.reserve(rowMemory);
+
+        while (memory.getAvailable() < 0 && level < MAX_LEVEL && spillLargestPartition()) {
+            // until rows fit into memory of query
+        }
+    }
+
+    /**
+     * @return <code>false</code> if no partition with rows is in memory
+     */
+    private boolean spillLargestPartition() {
+        int largest = -1;
+        for (int i = 0; i < PARTITIONS; i++) {
+            if (tables[i] != null && partitionMemory[i] > 0
+                    && (largest < 0 || partitionMemory[i] > partitionMemory[largest])) {
+                largest = i;
+            }
+        }
+
+        if (largest < 0)
+            return false;
+
+        RowHashTable table = tables[largest];
+        for (int i = 0; i < table.getRowCount(); i++)
+            build.write(largest, table.getRow(i));
+
+        tables[largest] = null;
+        memory.release(partitionMemory[largest]);
+        partitionMemory[largest] = 0;
+        return true;
+    }
+
+    private void releaseTables() {
+        if (tables == null)
+            return;
+
+        for (long bytes : partitionMemory)
+            memory.release(bytes);
+
+        tables = null;
+    }
+
+    /**
+     * Read the next probe row with not NULL key and find its matches, probe rows of partitions
+     * written to file are written to file too.
+     */
+    private void probeMatches() {
+        Row row = nextProbeRow();
+        if (row == null) {
+            probeEnded = true;
+            releaseTables();
+            return;
+        }
+
+        if (row.isNull(probe.key))
+            return;
+
+        long key = getKey(row, probe.key);
+        int p = getPartition(key);
+
+        if (tables[p] == null) {
+            probe.write(p, row);
+            return;
+        }
+
+        probeRow = row;
+        probeTable = tables[p];
+        entry = probeTable.find(key);
+    }
+
+    private Row nextProbeRow() {
+        if (probeBuffer != null) {
+            if (probeBuffer.hasNext())
+                return probeBuffer.next();
+
+            probeBuffer = null;
+        }
+
+        if (probeBufferReader != null) {
+            Row row = probeBufferReader.next();
+            if (row != null)
+                return row;
+
+            probeBufferReader.close();
+            probeBufferReader = null;
+            probeBufferFile.close();
+            probeBufferFile = null;
+        }
+
+        return probe.ended ? null : probe.next();
+    }
+
+    /**
+     * @return key of not NULL value, equal values have equal keys
+     */
+    private long getKey(Row row, int column) {
+        if (longKeys)
+            return row.getLong(column);
+
+        Object value = row.getValue(column);
+
+        if (value instanceof BigDecimal) {
+            Long unscaled = Number.toUnscaled(value, keyScale);
+            return unscaled != null ? unscaled : ((BigDecimal) value).stripTrailingZeros().hashCode();
+        }
+
+        if (value instanceof LocalDate)
+            return ((LocalDate) value).toEpochDay();
+
+        return value.hashCode();
+    }
+
+    /**
+     * Partition by high bits of key hash, every level uses other bits. Hash table uses low bits.
+     */
+    private int getPartition(long key) {
+        return (int) (RowHashTable.hash(key) >>> (64 - PARTITION_BITS * (level + 1))) & (PARTITIONS - 1);
+    }
+
+    private static Row join(Row leftRow, Row rightRow) {
+        Object[] leftValues = leftRow.getValues();
+        Object[] rightValues = rightRow.getValues();
+
+        Object[] values = new Object[leftValues.length + rightValues.length];
+        System.arraycopy(leftValues, 0, values, 0, leftValues.length);
+        System.arraycopy(rightValues, 0, values, leftValues.length, rightValues.length);
+
+        return new Row(leftRow.getKey(), values);
+    }
+
+    /**
+     * Input of join.
+     */
+    private static final class Side {
+        private final Operator input;
+        private final List<Column> columns;
+        private final int key;
+
+        /** Directory of files, <code>null</code> for default temporary directory */
+        private final File directory;
+
+        /** Rows read before build side is known */
+        private List<Row> buffer = new ArrayList<>();
+        private boolean ended;
+
+        /** Rows of partition written to file */
+        private final SpillFile[] files = new SpillFile[PARTITIONS];
+
+        Side(Operator input, List<Column> columns, int key, File directory) {
+            this.input = input;
+            this.columns = columns;
+            this.key = key;
+            this.directory = directory;
+        }
+
+        Row next() {
+            Row row = input.next();
+            ended = row == null;
+            return row;
+        }
+
+        /**
+         * Read row into buffer.
+         * @return memory of row
+         */
+        long read() {
+            Row row = next();
+            if (row == null)
+                return 0;
+
+            buffer.add(row);
+            return row.getMemory();
+        }
+
+        void write(int partition, Row row) {
+            if (files[partition] == null)
+                files[partition] = new SpillFile(columns, directory);
+
+            files[partition].write(row);
+        }
+
+        void closeFile(int partition) {
+            if (files[partition] != null) {
+                files[partition].close();
+                files[partition] = null;
+            }
+        }
+
+        void close() {
+            input.close();
+
+            for (int i = 0; i < PARTITIONS; i++)
+                closeFile(i);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.mydb.command.operator;
+
+import org.mydb.engine.table.Row;
+
+/**
+ * Skip first rows of input and pass next rows only. Input is not read after the last row passed.
+ */
+public class LimitOperator implements Operator {
+    private final Operator input;
+
+    /** Number of rows skipped */
+    private final long offset;
+
+    /** Max number of rows */
+    private final long limit;
+
+    /** Number of rows passed */
+    private long count;
+
+    public LimitOperator(Operator input, long limit) {
+        this(input, 0, limit);
+    }
+
+    public LimitOperator(Operator input, long offset, long limit) {
+        this.input = input;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    @Override
+    public void open() {
+        count = 0;
+        input.open();
+
+        for (long i = 0; i < offset && limit > 0 && input.next() != null; i++) {
+            // skip rows
+        }
+    }
+
+    @Override
+    public Row next() {
+        if (count >= limit)
+            return null;
+
+        Row row = input.next();
+        if (row != null)
+            count++;
+
+        return row;
+    }
+
+    @Override
+    public void close() {
+        input.close();
+    }
+}
@@ -0,0 +1,93 @@
+package org.mydb.command.operator;
+
+import org.mydb.command.expression.ComparisonExpression;
+import org.mydb.engine.table.Row;
+
+import java.util.function.Function;
+
+/**
+ * Join rows of left input with right rows of equal key column value (inner equi-join), right rows are read
+ * for every left row by operator of its key, i.e. by index lookup (index nested loop join). Right rows
+ * are not kept, so join reads few right rows and holds no memory when left input is small. Joined row has
+ * values of left row followed by values of right row. Rows with NULL key never match, right rows read
+ * with other key are skipped.
+ */
+public class NestedLoopJoinOperator implements Operator {
+    private final Operator left;
+    private final int leftKey;
+    private final Function<Object, Operator> right;
+    private final int rightKey;
+
+    private Row leftRow;
+
+    /** Right rows of key of left row, <code>null</code> if next left row is not read yet */
+    private Operator rightRows;
+
+    /**
+     * @param leftKey index of left key column
+     * @param right operator reading right rows of not null key
+     * @param rightKey index of right key column
+     */
+    public NestedLoopJoinOperator(Operator left, int leftKey, Function<Object, Operator> right, int rightKey) {
+        this.left = left;
+        this.leftKey = leftKey;
+        this.right = right;
+        this.rightKey = rightKey;
+    }
+
+    @Override
+    public void open() {
+        left.open();
+    }
+
+    @Override
+    public Row next() {
+        while (true) {
+            if (rightRows == null) {
+                leftRow = left.next();
+                if (leftRow == null)
+                    return null;
+
+                Object key = leftRow.getValue(leftKey);
+                if (key == null)
+                    continue;
+
+                rightRows = right.apply(key);
+                rightRows.open();
+            }
+
+            Row rightRow = rightRows.next();
+            if (rightRow == null) {
+                rightRows.close();
+                rightRows = null;
+                continue;
+            }
+
+            Object key = rightRow.getValue(rightKey);
+            if (key != null && ComparisonExpression.compare(leftRow.getValue(leftKey), key) == 0)
+                return join(leftRow, rightRow);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (rightRows != null) {
+            rightRows.close();
+            rightRows = null;
+        }
+
+        left.close();
+    }
+
+    // internal ==============================================================================
+    private static Row join(Row leftRow, Row rightRow) {
+        Object[] leftValues = leftRow.getValues();
+        Object[] rightValues = rightRow.getValues();
+
+        Object[] values = new Object[leftValues.length + rightValues.length];
+        System.arraycopy(leftValues, 0, values, 0, leftValues.length);
+        System.arraycopy(rightValues, 0, values, leftValues.length, rightValues.length);
+
+        return new Row(leftRow.getKey(), values);
+    }
+}
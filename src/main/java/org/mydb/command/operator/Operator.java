@@ -0,0 +1,26 @@
+package org.mydb.command.operator;
+
+import org.mydb.engine.table.Row;
+
+/**
+ * Operator of pull based (Volcano) query execution. Query is compiled into tree of operators,
+ * every operator reads rows of its input one at a time when its own next row is read,
+ * so rows are produced only as far as result is read.
+ */
+public interface Operator extends AutoCloseable {
+    /**
+     * Start reading input, called once before the first row is read.
+     */
+    void open();
+
+    /**
+     * @return next row or <code>null</code> if operator has no more rows
+     */
+    Row next();
+
+    /**
+     * Stop reading input, called when result is closed even if not all rows are read.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,244 @@
+package org.mydb.command.operator;
+
+import org.mydb.command.expression.AggregateExpression;
+import org.mydb.engine.table.Column;
+import org.mydb.engine.table.Row;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Aggregate rows of table read in parallel by morsels, see {@link ParallelScanOperator}. Every thread
+ * of pool aggregates rows of morsels it takes next into groups of its own (partial aggregation),
+ * then groups of threads are merged into one {@link HashAggregateOperator}, which passes them.
+ * Threads share memory of query, rows of groups which do not fit into it are written to files
+ * by every thread and aggregated after merged groups.
+ * <p>
+ * Morsels read in batches are aggregated from batches by threads, see {@link #ofBatches}.
+ */
+public class ParallelAggregateOperator implements Operator {
+    private final int morselCount;
+    /** Operator reading rows of morsel, <code>null</code> if morsels are read in batches */
+    private final IntFunction<Operator> morsels;
+
+    /** Operator reading batches of morsel, <code>null</code> if morsels are read by row */
+    private final IntFunction<BatchOperator> batchMorsels;
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+
+    private final List<Column> columns;
+    private final int[] groupColumns;
+    private final List<AggregateExpression> aggregates;
+    private final QueryMemory memory;
+
+    /** Groups aggregated by threads, until they are merged */
+    private final List<HashAggregateOperator> partials = new ArrayList<>();
+
+    /** Merged groups, <code>null</code> if operator is not open */
+    private HashAggregateOperator aggregate;
+
+    /**
+     * @param morselCount number of morsels
+     * @param morsels operator reading morsel by index
+     * @param parallelism number of threads aggregating morsels
+     * @param columns columns of rows read by morsels
+     * @param groupColumns indexes of group columns, empty if all rows are one group
+     * @param aggregates aggregates, see {@link HashAggregateOperator}
+     * @param memory memory of query, groups are kept in it
+     */
+    public ParallelAggregateOperator(int morselCount, IntFunction<Operator> morsels, ForkJoinPool pool,
+                                     int parallelism, List<Column> columns, int[] groupColumns,
+                                     List<AggregateExpression> aggregates, QueryMemory memory) {
+        this(morselCount, morsels, null, pool, parallelism, columns, groupColumns, aggregates, memory);
+    }
+
+    private ParallelAggregateOperator(int morselCount, IntFunction<Operator> morsels,
+                                      IntFunction<BatchOperator> batchMorsels, ForkJoinPool pool, int parallelism,
+                                      List<Column> columns, int[] groupColumns, List<AggregateExpression> aggregates,
+                                      QueryMemory memory) {
+        this.morselCount = morselCount;
+        this.morsels = morsels;
+        this.batchMorsels = batchMorsels;
+        this.pool = pool;
+        this.parallelism = parallelism;
+        this.columns = columns;
+        this.groupColumns = groupColumns;
+        this.aggregates = aggregates;
+        this.memory = memory;
+    }
+
+    /**
+     * Aggregate morsels read in batches, threads aggregate selected rows of batches.
+     * @param morsels operator reading batches of morsel by index
+     * @see #ParallelAggregateOperator(int, IntFunction, ForkJoinPool, int, List, int[], List, QueryMemory)
+     */
+    public static ParallelAggregateOperator ofBatches(int morselCount, IntFunction<BatchOperator> morsels,
+                                                      ForkJoinPool pool, int parallelism, List<Column> columns,
+                                                      int[] groupColumns, List<AggregateExpression> aggregates,
+                                                      QueryMemory memory) {
+        return new ParallelAggregateOperator(morselCount, null, morsels, pool, parallelism, columns, groupColumns,
+                aggregates, memory);
+    }
+
+    @Override
+    public void open() {
+        AtomicInteger nextMorsel = new AtomicInteger();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < Math.min(parallelism, morselCount); i++) {
+            HashAggregateOperator partial = batchMorsels != null
+                    ? new HashAggregateOperator(new BatchMorselSource(nextMorsel), columns, groupColumns, aggregates,
+                            memory)
+                    : new HashAggregateOperator(new MorselSource(nextMorsel), columns, groupColumns, aggregates,
+                            memory);
+            partials.add(partial);
+            tasks.add(pool.submit(partial::open));
+        }
+
+        // every thread ends before groups are merged or released
+        RuntimeException failure = null;
+        for (ForkJoinTask<?> task : tasks) {
+            try {
+                task.join();
+            } catch (RuntimeException e) {
+                if (failure == null)
+                    failure = e;
+                else
+                    failure.addSuppressed(e);
+            }
+        }
+
+        if (failure != null)
+            throw failure;
+
+        aggregate = new HashAggregateOperator(new ScanOperator(Collections::emptyIterator), columns, groupColumns,
+                aggregates, memory);
+
+        aggregate.merge(partials);
+
+        for (HashAggregateOperator partial : partials)
+            partial.close();
+
+        partials.clear();
+        aggregate.open();
+    }
+
+    @Override
+    public Row next() {
+        return aggregate == null ? null : aggregate.next();
+    }
+
+    @Override
+    public void close() {
+        for (HashAggregateOperator partial : partials)
+            partial.close();
+
+        partials.clear();
+
+        if (aggregate != null) {
+            aggregate.close();
+            aggregate = null;
+        }
+    }
+
+    // internal ==============================================================================
+    /**
+     * Rows of morsels taken one after another by thread, until every morsel is taken.
+     */
+    private final class MorselSource implements Operator {
+        private final AtomicInteger nextMorsel;
+
+        /** Operator of morsel read, <code>null</code> if next morsel is not taken yet */
+        private Operator morsel;
+
+        MorselSource(AtomicInteger nextMorsel) {
+            this.nextMorsel = nextMorsel;
+        }
+
+        @Override
+        public void open() {
+        }
+
+        @Override
+        public Row next() {
+            while (true) {
+                if (morsel == null) {
+                    int index = nextMorsel.getAndIncrement();
+                    if (index >= morselCount)
+                        return null;
+
+                    morsel = morsels.apply(index);
+                    morsel.open();
+                }
+
+                Row row = morsel.next();
+                if (row != null)
+                    return row;
+
+                morsel.close();
+                morsel = null;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (morsel != null) {
+                morsel.close();
+                morsel = null;
+            }
+        }
+    }
+
+    /**
+     * Batches of morsels taken one after another by thread, like {@link MorselSource}.
+     */
+    private final class BatchMorselSource implements BatchOperator {
+        private final AtomicInteger nextMorsel;
+
+        /** Operator of morsel read, <code>null</code> if next morsel is not taken yet */
+        private BatchOperator morsel;
+
+        BatchMorselSource(AtomicInteger nextMorsel) {
+            this.nextMorsel = nextMorsel;
+        }
+
+        @Override
+        public void open() {
+        }
+
+        @Override
+        public Batch nextBatch() {
+            while (true) {
+                if (morsel == null) {
+                    int index = nextMorsel.getAndIncrement();
+                    if (index >= morselCount)
+                        return null;
+
+                    morsel = batchMorsels.apply(index);
+                    morsel.open();
+                }
+
+                Batch batch = morsel.nextBatch();
+                if (batch != null)
+                    return batch;
+
+                morsel.close();
+                morsel = null;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (morsel != null) {
+                morsel.close();
+                morsel = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.mydb.command.operator;
+
+import org.mydb.engine.table.Row;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntFunction;
+
+/**
+ * Read table in parallel by morsels: ranges of pages read by operators of their own, i.e. scan and filter,
+ * which run on threads of pool. Rows of morsels are passed in morsel order, so rows are in the same order
+ * as rows of one scan. At most as many morsels as operator has threads are read ahead of rows passed,
+ * rows of morsel are kept until they are passed.
+ */
+public class ParallelScanOperator implements Operator {
+    /** Pages of table read by one morsel */
+    public static final int MORSEL_PAGES = 16;
+
+    private final int morselCount;
+    private final IntFunction<Operator> morsels;
+    private final ForkJoinPool pool;
+    private final int parallelism;
+
+    /** Morsels read or being read, in morsel order */
+    private final Deque<ForkJoinTask<List<Row>>> tasks = new ArrayDeque<>();
+
+    /** Next morsel submitted */
+    private int morsel;
+
+    /** Rows of morsel passed, <code>null</code> if operator is not open */
+    private Iterator<Row> rows;
+
+    /**
+     * @param morselCount number of morsels
+     * @param morsels operator reading morsel by index
+     * @param parallelism number of morsels read at once
+     */
+    public ParallelScanOperator(int morselCount, IntFunction<Operator> morsels, ForkJoinPool pool, int parallelism) {
+        this.morselCount = morselCount;
+        this.morsels = morsels;
+        this.pool = pool;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return number of morsels table of page count is read by
+     */
+    public static int getMorselCount(int pageCount) {
+        return (pageCount + MORSEL_PAGES - 1) / MORSEL_PAGES;
+    }
+
+    @Override
+    public void open() {
+        while (morsel < morselCount && tasks.size() < parallelism)
+            submit();
+
+        rows = Collections.emptyIterator();
+    }
+
+    @Override
+    public Row next() {
+        if (rows == null)
+            return null;
+
+        while (!rows.hasNext()) {
+            ForkJoinTask<List<Row>> task = tasks.poll();
+            if (task == null)
+                return null;
+
+            if (morsel < morselCount)
+                submit();
+
+            rows = task.join().iterator();
+        }
+
+        return rows.next();
+    }
+
+    @Override
+    public void close() {
+        // morsels being read are read to the end, their rows are dropped
+        for (ForkJoinTask<List<Row>> task : tasks)
+            task.cancel(false);
+
+        tasks.clear();
+        morsel = morselCount;
+        rows = null;
+    }
+
+    // internal ==============================================================================
+    private void submit() {
+        Operator operator = morsels.apply(morsel++);
+        tasks.add(pool.submit(() -> read(operator)));
+    }
+
+    private static List<Row> read(Operator operator) {
+        List<Row> rows = new ArrayList<>();
+
+        try (Operator input = operator) {
+            input.open();
+
+            Row row;
+            while ((row = input.next()) != null)
+                rows.add(row);
+        }
+
+        return rows;
+    }
+}
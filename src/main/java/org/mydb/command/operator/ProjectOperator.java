@@ -0,0 +1,43 @@
+package org.mydb.command.operator;
+
+import org.mydb.command.expression.Expression;
+import org.mydb.engine.table.Row;
+
+import java.util.List;
+
+/**
+ * Evaluate select list for every row of input. Row produced has values of expressions in select list order
+ * and key of input row.
+ */
+public class ProjectOperator implements Operator {
+    private final Operator input;
+    private final List<Expression> expressions;
+
+    public ProjectOperator(Operator input, List<Expression> expressions) {
+        this.input = input;
+        this.expressions = expressions;
+    }
+
+    @Override
+    public void open() {
+        input.open();
+    }
+
+    @Override
+    public Row next() {
+        Row row = input.next();
+        if (row == null)
+            return null;
+
+        Object[] values = new Object[expressions.size()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = expressions.get(i).getValue(row);
+
+        return new Row(row.getKey(), values);
+    }
+
+    @Override
+    public void close() {
+        input.close();
+    }
+}
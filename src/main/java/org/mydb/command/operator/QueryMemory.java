@@ -0,0 +1,86 @@
+package org.mydb.command.operator;
+
+import java.io.File;
+
+/**
+ * Memory of rows held by operators of one query, i.e. rows of hash join or sort. Operator reserves memory
+ * of rows it keeps and releases it when it writes them to temporary file or ends. When memory of query is
+ * used up, operator writes rows to temporary files instead of keeping more of them.
+ * Temporary files are created in spill directory of query.
+ */
+public class QueryMemory {
+    /** Memory of query in bytes */
+    private final long limit;
+
+    /** Directory of temporary files, <code>null</code> for default temporary directory */
+    private final File spillDirectory;
+
+    private long used;
+    private long peak;
+
+    /**
+     * @param limit memory of query in bytes
+     */
+    public QueryMemory(long limit) {
+        this(limit, null);
+    }
+
+    /**
+     * @param limit memory of query in bytes
+     * @param spillDirectory directory of temporary files, <code>null</code> for default temporary directory
+     */
+    public QueryMemory(long limit, File spillDirectory) {
+        this.limit = limit;
+        this.spillDirectory = spillDirectory;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public File getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    public synchronized long getUsed() {
+        return used;
+    }
+
+    /**
+     * @return the most memory reserved at once
+     */
+    public synchronized long getPeak() {
+        return peak;
+    }
+
+    /**
+     * @return memory not reserved, negative if more is reserved than query has
+     */
+    public synchronized long getAvailable() {
+        return limit - used;
+    }
+
+    /**
+     * Reserve memory if query has it.
+     * @return <code>false</code> if memory is not reserved
+     */
+    public synchronized boolean tryReserve(long bytes) {
+        if (used + bytes > limit)
+            return false;
+
+        reserve(bytes);
+        return true;
+    }
+
+    /**
+     * Reserve memory even if query has no more, i.e. for rows which can not be written to file.
+     */
+    public synchronized void reserve(long bytes) {
+        used += bytes;
+        peak = Math.max(peak, used);
+    }
+
+    public synchronized void release(long bytes) {
+        used -= bytes;
+    }
+}
@@ -0,0 +1,111 @@
+package org.mydb.command.operator;
+
+import org.mydb.engine.table.Row;
+
+import java.util.Arrays;
+
+/**
+ * Rows by long key in open addressing table. Keys are kept in long array and rows with the same key
+ * are chained by int array, so no object is created per row or key.
+ */
+public class RowHashTable {
+    private static final int INITIAL_SLOTS = 64;
+
+    /** Key of slot */
+    private long[] keys = new long[INITIAL_SLOTS];
+
+    /** Last row added with key of slot plus one, 0 if slot is empty */
+    private int[] heads = new int[INITIAL_SLOTS];
+
+    private Row[] rows = new Row[INITIAL_SLOTS];
+
+    /** Previous row with the same key, -1 if row is the first one */
+    private int[] next = new int[INITIAL_SLOTS];
+
+    private int rowCount;
+    private int keyCount;
+
+    public void add(long key, Row row) {
+        if ((keyCount + 1) * 4L > keys.length * 3L)
+            rehash(keys.length * 2);
+
+        if (rowCount == rows.length) {
+            rows = Arrays.copyOf(rows, rowCount * 2);
+            next = Arrays.copyOf(next, rowCount * 2);
+        }
+
+        int slot = findSlot(keys, heads, key);
+        if (heads[slot] == 0) {
+            keys[slot] = key;
+            keyCount++;
+        }
+
+        rows[rowCount] = row;
+        next[rowCount] = heads[slot] - 1;
+        heads[slot] = ++rowCount;
+    }
+
+    /**
+     * @return the first row with key, -1 if there is none, next ones are found by {@link #next(int)}
+     */
+    public int find(long key) {
+        int slot = findSlot(keys, heads, key);
+        return heads[slot] - 1;
+    }
+
+    /**
+     * @return next row with the same key, -1 if there is none
+     */
+    public int next(int entry) {
+        return next[entry];
+    }
+
+    public Row getRow(int entry) {
+        return rows[entry];
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Mix bits of key, so keys which differ in high bits only get different slots.
+     */
+    public static long hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+
+    // internal ==============================================================================
+    /**
+     * @return slot of key or empty slot to put it in
+     */
+    private static int findSlot(long[] keys, int[] heads, long key) {
+        int mask = keys.length - 1;
+        int slot = (int) hash(key) & mask;
+
+        while (heads[slot] != 0 && keys[slot] != key)
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+    private void rehash(int slots) {
+        long[] newKeys = new long[slots];
+        int[] newHeads = new int[slots];
+
+        for (int i = 0; i < keys.length; i++) {
+            if (heads[i] != 0) {
+                int slot = findSlot(newKeys, newHeads, keys[i]);
+                newKeys[slot] = keys[i];
+                newHeads[slot] = heads[i];
+            }
+        }
+
+        keys = newKeys;
+        heads = newHeads;
+    }
+}
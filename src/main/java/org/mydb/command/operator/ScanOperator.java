@@ -0,0 +1,36 @@
+package org.mydb.command.operator;
+
+import org.mydb.engine.table.Row;
+
+import java.util.Iterator;
+import java.util.function.Supplier;
+
+/**
+ * Leaf operator reading rows of table, i.e. by full scan or index range chosen when operator is opened.
+ */
+public class ScanOperator implements Operator {
+    /** Opens row source */
+    private final Supplier<Iterator<Row>> source;
+
+    /** Rows read, <code>null</code> if operator is not open */
+    private Iterator<Row> rows;
+
+    public ScanOperator(Supplier<Iterator<Row>> source) {
+        this.source = source;
+    }
+
+    @Override
+    public void open() {
+        rows = source.get();
+    }
+
+    @Override
+    public Row next() {
+        return rows != null && rows.hasNext() ? rows.next() : null;
+    }
+
+    @Override
+    public void close() {
+        rows = null;
+    }
+}
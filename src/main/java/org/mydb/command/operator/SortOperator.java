@@ -0,0 +1,322 @@
+package org.mydb.command.operator;
+
+import org.mydb.engine.table.Column;
+import org.mydb.engine.table.Row;
+import org.mydb.util.Bytes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sort rows of input by sort keys (external merge sort). All input rows are read when operator is opened.
+ * Rows are kept in memory of query with their keys; when memory is used up, rows kept are sorted and
+ * written to temporary file (sorted run). Sorted runs and rows left in memory are merged by loser tree,
+ * which finds the next row of k runs by log k key comparisons. If there are too many runs to read at once,
+ * runs are merged into longer runs first. Keys are compared as bytes, see {@link SortOrder}.
+ * Rows with equal keys keep input order.
+ */
+public class SortOperator implements Operator {
+    /** The most runs merged at once, every run has file and buffer open */
+    static final int MAX_MERGE = 64;
+
+    /** Memory of sorted row in addition to row memory */
+    private static final int ENTRY_MEMORY = 48;
+
+    private static final Comparator<Entry> ORDER = (a, b) -> Bytes.compare(a.key, b.key);
+
+    private final Operator input;
+    private final List<Column> columns;
+    private final SortOrder order;
+    private final QueryMemory memory;
+
+    private Entry[] entries = new Entry[64];
+    private int entryCount;
+    private long entriesMemory;
+
+    private final List<SpillFile> runs = new ArrayList<>();
+
+    /** Sorted rows, merged from runs if rows do not fit into memory */
+    private Source output;
+
+    /**
+     * @param columns columns of input rows
+     * @param memory memory of query, rows are kept in it
+     */
+    public SortOperator(Operator input, List<Column> columns, SortOrder order, QueryMemory memory) {
+        this.input = input;
+        this.columns = columns;
+        this.order = order;
+        this.memory = memory;
+    }
+
+    @Override
+    public void open() {
+        input.open();
+
+        Row row;
+        while ((row = input.next()) != null) {
+            Entry entry = new Entry(order.getKey(row), row);
+            long entryMemory = row.getMemory() + entry.key.length + ENTRY_MEMORY;
+
+            if (!memory.tryReserve(entryMemory)) {
+                if (entryCount > 0)
+                    runs.add(writeRun());
+
+                // row which does not fit into memory alone is kept anyway
+                memory.reserve(entryMemory);
+            }
+
+            if (entryCount == entries.length)
+                entries = Arrays.copyOf(entries, entryCount * 2);
+
+            entries[entryCount++] = entry;
+            entriesMemory += entryMemory;
+        }
+
+        Arrays.sort(entries, 0, entryCount, ORDER);
+
+        while (runs.size() >= MAX_MERGE) {
+            // merge the first runs into one run, it is the first run then, so equal keys keep input order
+            SpillFile run = new SpillFile(columns, memory.getSpillDirectory());
+            List<Source> sources = new ArrayList<>();
+            for (int i = 0; i < MAX_MERGE; i++)
+                sources.add(new RunSource(runs.get(i)));
+
+            Source merge = new LoserTree(sources);
+            while (merge.current() != null) {
+                run.write(merge.current());
+                merge.advance();
+            }
+
+            merge.close();
+
+            List<SpillFile> merged = runs.subList(0, MAX_MERGE);
+            for (SpillFile file : merged)
+                file.close();
+
+            merged.clear();
+            runs.add(0, run);
+        }
+
+        List<Source> sources = new ArrayList<>();
+        for (SpillFile run : runs)
+            sources.add(new RunSource(run));
+
+        // rows in memory are the last ones read
+        sources.add(new MemorySource());
+        output = sources.size() == 1 ? sources.get(0) : new LoserTree(sources);
+    }
+
+    @Override
+    public Row next() {
+        Row row = output.current();
+        if (row != null)
+            output.advance();
+
+        return row;
+    }
+
+    @Override
+    public void close() {
+        input.close();
+
+        if (output != null)
+            output.close();
+
+        for (SpillFile run : runs)
+            run.close();
+
+        releaseEntries();
+    }
+
+    // internal ==============================================================================
+    /**
+     * Sort rows in memory and write them to file.
+     */
+    private SpillFile writeRun() {
+        Arrays.sort(entries, 0, entryCount, ORDER);
+
+        SpillFile run = new SpillFile(columns, memory.getSpillDirectory());
+        for (int i = 0; i < entryCount; i++)
+            run.write(entries[i].row);
+
+        releaseEntries();
+        return run;
+    }
+
+    private void releaseEntries() {
+        Arrays.fill(entries, 0, entryCount, null);
+        entryCount = 0;
+
+        memory.release(entriesMemory);
+        entriesMemory = 0;
+    }
+
+    private static final class Entry {
+        private final byte[] key;
+        private final Row row;
+
+        Entry(byte[] key, Row row) {
+            this.key = key;
+            this.row = row;
+        }
+    }
+
+    /**
+     * Sorted rows.
+     */
+    private interface Source {
+        /**
+         * @return current row, <code>null</code> if source has no more rows
+         */
+        Row current();
+
+        /**
+         * @return key of current row
+         */
+        byte[] currentKey();
+
+        void advance();
+
+        void close();
+    }
+
+    private final class MemorySource implements Source {
+        private int position;
+
+        @Override
+        public Row current() {
+            return position < entryCount ? entries[position].row : null;
+        }
+
+        @Override
+        public byte[] currentKey() {
+            return entries[position].key;
+        }
+
+        @Override
+        public void advance() {
+            entries[position++] = null;
+        }
+
+        @Override
+        public void close() {
+            // entries are released by operator
+        }
+    }
+
+    /**
+     * Rows of sorted run, keys are computed again when rows are read.
+     */
+    private final class RunSource implements Source {
+        private final Operator reader;
+        private Row row;
+        private byte[] key;
+
+        RunSource(SpillFile run) {
+            reader = run.read();
+            reader.open();
+            advance();
+        }
+
+        @Override
+        public Row current() {
+            return row;
+        }
+
+        @Override
+        public byte[] currentKey() {
+            return key;
+        }
+
+        @Override
+        public void advance() {
+            row = reader.next();
+            key = row == null ? null : order.getKey(row);
+        }
+
+        @Override
+        public void close() {
+            reader.close();
+        }
+    }
+
+    /**
+     * Merge of sorted sources by tree of losers: node keeps source which lost comparison there, the root
+     * keeps the winner, i.e. source with the least key. When the winner advances, it is compared with
+     * losers on path from its leaf to the root only. Sources which ended are greater than any other one,
+     * sources with equal keys are taken in source order.
+     */
+    private static final class LoserTree implements Source {
+        private final List<? extends Source> sources;
+        private final int[] tree;
+
+        LoserTree(List<? extends Source> sources) {
+            this.sources = sources;
+            this.tree = new int[sources.size()];
+
+            // virtual source less than any other one fills the tree, then every source replays
+            int k = sources.size();
+            Arrays.fill(tree, k);
+            for (int source = k - 1; source >= 0; source--)
+                replay(source);
+        }
+
+        @Override
+        public Row current() {
+            return sources.get(tree[0]).current();
+        }
+
+        @Override
+        public byte[] currentKey() {
+            return sources.get(tree[0]).currentKey();
+        }
+
+        @Override
+        public void advance() {
+            int winner = tree[0];
+            sources.get(winner).advance();
+            replay(winner);
+        }
+
+        @Override
+        public void close() {
+            for (Source source : sources)
+                source.close();
+        }
+
+        private void replay(int source) {
+            int winner = source;
+
+            for (int node = (source + tree.length) >>> 1; node > 0; node >>>= 1) {
+                if (isBefore(tree[node], winner)) {
+                    int loser = winner;
+                    winner = tree[node];
+                    tree[node] = loser;
+                }
+            }
+
+            tree[0] = winner;
+        }
+
+        /**
+         * @return <code>true</code> if current row of source a is before current row of source b
+         */
+        private boolean isBefore(int a, int b) {
+            int k = sources.size();
+            if (a == k || b == k)
+                return a == k;
+
+            Source sourceA = sources.get(a);
+            Source sourceB = sources.get(b);
+
+            if (sourceA.current() == null || sourceB.current() == null)
+                return sourceB.current() == null && (sourceA.current() != null || a < b);
+
+            int result = Bytes.compare(sourceA.currentKey(), sourceB.currentKey());
+            return result < 0 || (result == 0 && a < b);
+        }
+    }
+}
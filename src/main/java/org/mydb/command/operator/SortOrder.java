@@ -0,0 +1,98 @@
+package org.mydb.command.operator;
+
+import org.mydb.command.expression.Expression;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.TableException;
+import org.mydb.engine.table.datatype.DataType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * ORDER BY expressions. Row is sorted by key: values of expressions encoded like index keys, so keys
+ * compare as unsigned bytes in sort order and rows are compared without reading values again.
+ * NULL is less than any value, so it is the first in ascending order. Key parts of descending expressions
+ * have inverted bits; key parts are never prefix of other ones, so inverted parts compare in reverse order.
+ */
+public class SortOrder {
+    private final Expression[] expressions;
+    private final boolean[] descending;
+
+    /** Expression does not read row, it does not change order */
+    private final boolean[] constant;
+
+    /**
+     * @param expressions expressions bound to columns of rows sorted
+     * @param descending <code>true</code> for expression sorted in descending order
+     */
+    public SortOrder(List<Expression> expressions, List<Boolean> descending) {
+        this.expressions = expressions.toArray(new Expression[0]);
+        this.descending = new boolean[this.expressions.length];
+        this.constant = new boolean[this.expressions.length];
+
+        for (int i = 0; i < this.expressions.length; i++) {
+            BitSet columns = new BitSet();
+            this.expressions[i].collectColumns(columns);
+
+            this.descending[i] = descending.get(i);
+            this.constant[i] = columns.isEmpty();
+        }
+    }
+
+    public Expression[] getExpressions() {
+        return expressions;
+    }
+
+    public boolean isDescending(int index) {
+        return descending[index];
+    }
+
+    /**
+     * @return sort key of row
+     */
+    public byte[] getKey(Row row) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            for (int i = 0; i < expressions.length; i++) {
+                if (constant[i])
+                    continue;
+
+                DataType dataType = expressions[i].getDataType();
+                int start = bytes.size();
+                Object value = expressions[i].getValue(row);
+
+                if (value == null) {
+                    out.writeByte(0);
+                } else {
+                    out.writeByte(1);
+                    dataType.writeKey(out, value);
+                }
+
+                if (descending[i])
+                    invert(bytes, start);
+            }
+        } catch (IOException e) {
+            throw new TableException("failed to encode sort key", e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    // internal ==============================================================================
+    /**
+     * Invert bits of bytes written from start.
+     */
+    private static void invert(ByteArrayOutputStream bytes, int start) {
+        byte[] written = bytes.toByteArray();
+        bytes.reset();
+        bytes.write(written, 0, start);
+
+        for (int i = start; i < written.length; i++)
+            bytes.write(~written[i]);
+    }
+}
@@ -0,0 +1,152 @@
+package org.mydb.command.operator;
+
+import org.mydb.DbException;
+import org.mydb.engine.table.Column;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.RowCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Temporary file operator writes rows to when they do not fit into memory of query.
+ * Rows are encoded like table records and read back in order they are written.
+ * File is deleted when it is closed.
+ */
+public class SpillFile implements AutoCloseable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final RowCodec codec;
+    private final File file;
+
+    /** Output stream, <code>null</code> when rows are read */
+    private DataOutputStream out;
+
+    private long rowCount;
+
+    /**
+     * @param columns columns of rows written
+     * @param directory directory of file, <code>null</code> for default temporary directory
+     */
+    public SpillFile(List<Column> columns, File directory) {
+        this.codec = new RowCodec(columns);
+
+        try {
+            this.file = File.createTempFile("mydb", ".spill", directory);
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+        } catch (IOException e) {
+            throw new DbException("failed to create temporary file", e);
+        }
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void write(Row row) {
+        byte[] record = codec.encode(row.getValues());
+
+        try {
+            out.writeLong(row.getKey());
+            out.writeInt(record.length);
+            out.write(record);
+        } catch (IOException e) {
+            throw new DbException(String.format("failed to write temporary file %s", file), e);
+        }
+
+        rowCount++;
+    }
+
+    /**
+     * Finish writing, no rows may be written after it.
+     * @return operator reading rows of file, file may be read more than once
+     */
+    public Operator read() {
+        finish();
+        return new Reader();
+    }
+
+    /**
+     * Delete file.
+     */
+    @Override
+    public void close() {
+        try {
+            finish();
+        } finally {
+            if (!file.delete() && file.exists())
+                file.deleteOnExit();
+        }
+    }
+
+    // internal ==============================================================================
+    private void finish() {
+        if (out == null)
+            return;
+
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new DbException(String.format("failed to write temporary file %s", file), e);
+        } finally {
+            out = null;
+        }
+    }
+
+    private class Reader implements Operator {
+        private DataInputStream in;
+
+        @Override
+        public void open() {
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+            } catch (IOException e) {
+                throw new DbException(String.format("failed to read temporary file %s", file), e);
+            }
+        }
+
+        @Override
+        public Row next() {
+            if (in == null)
+                return null;
+
+            try {
+                long key;
+                try {
+                    key = in.readLong();
+                } catch (EOFException e) {
+                    close();
+                    return null;
+                }
+
+                byte[] record = new byte[in.readInt()];
+                in.readFully(record);
+                return new Row(key, codec.decode(record));
+            } catch (IOException e) {
+                throw new DbException(String.format("failed to read temporary file %s", file), e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (in == null)
+                return;
+
+            try {
+                in.close();
+            } catch (IOException e) {
+                // nothing left to read
+            } finally {
+                in = null;
+            }
+        }
+    }
+}
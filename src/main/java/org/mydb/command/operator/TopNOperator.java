@@ -0,0 +1,175 @@
+package org.mydb.command.operator;
+
+import org.mydb.engine.table.Row;
+import org.mydb.util.Bytes;
+
+import java.util.Arrays;
+
+/**
+ * Pass first rows of input sorted by sort keys, i.e. ORDER BY with LIMIT. All input rows are read when
+ * operator is opened, but only rows which are among the first ones so far are kept: they are in heap
+ * with the last of them on top, and row read is discarded unless it is before the top row, so only
+ * its key is computed. Rows with equal keys keep input order, see {@link SortOperator}.
+ */
+public class TopNOperator implements Operator {
+    /**
+     * The most rows kept in heap, they should fit into memory of query; more rows are sorted
+     * by {@link SortOperator}, which writes them to temporary files
+     */
+    public static final long MAX_ROWS = 10000;
+
+    /** Memory of row in heap in addition to row memory */
+    private static final int ENTRY_MEMORY = 56;
+
+    private final Operator input;
+    private final SortOrder order;
+    private final int count;
+    private final QueryMemory memory;
+
+    /** Heap of rows, the last row is on top */
+    private Entry[] heap = new Entry[16];
+    private int size;
+    private long heapMemory;
+
+    /** Next row passed */
+    private int position;
+
+    /**
+     * @param count number of rows passed, not more than {@link #MAX_ROWS}
+     * @param memory memory of query, rows are kept in it
+     */
+    public TopNOperator(Operator input, SortOrder order, long count, QueryMemory memory) {
+        if (count > MAX_ROWS)
+            throw new IllegalArgumentException(String.format("too many rows: %d", count));
+
+        this.input = input;
+        this.order = order;
+        this.count = (int) count;
+        this.memory = memory;
+    }
+
+    @Override
+    public void open() {
+        input.open();
+
+        if (count == 0)
+            return;
+
+        Row row;
+        long sequence = 0;
+        while ((row = input.next()) != null) {
+            byte[] key = order.getKey(row);
+
+            if (size == count) {
+                // row with the same key as the top one was read later, so it is after it
+                if (Bytes.compare(key, heap[0].key) >= 0)
+                    continue;
+
+                release(heap[0]);
+                heap[0] = newEntry(key, sequence++, row);
+                siftDown(0);
+            } else {
+                if (size == heap.length)
+                    heap = Arrays.copyOf(heap, Math.min(size * 2, count));
+
+                heap[size] = newEntry(key, sequence++, row);
+                siftUp(size++);
+            }
+        }
+
+        Arrays.sort(heap, 0, size, TopNOperator::compare);
+    }
+
+    @Override
+    public Row next() {
+        if (position == size)
+            return null;
+
+        Row row = heap[position].row;
+        heap[position++] = null;
+        return row;
+    }
+
+    @Override
+    public void close() {
+        input.close();
+
+        Arrays.fill(heap, 0, size, null);
+        size = 0;
+
+        memory.release(heapMemory);
+        heapMemory = 0;
+    }
+
+    // internal ==============================================================================
+    private Entry newEntry(byte[] key, long sequence, Row row) {
+        Entry entry = new Entry(key, sequence, row);
+        entry.memory = row.getMemory() + key.length + ENTRY_MEMORY;
+
+        memory.reserve(entry.memory);
+        heapMemory += entry.memory;
+        return entry;
+    }
+
+    private void release(Entry entry) {
+        memory.release(entry.memory);
+        heapMemory -= entry.memory;
+    }
+
+    private void siftUp(int index) {
+        Entry entry = heap[index];
+
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (compare(heap[parent], entry) >= 0)
+                break;
+
+            heap[index] = heap[parent];
+            index = parent;
+        }
+
+        heap[index] = entry;
+    }
+
+    private void siftDown(int index) {
+        Entry entry = heap[index];
+
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size)
+                break;
+
+            if (child + 1 < size && compare(heap[child + 1], heap[child]) > 0)
+                child++;
+
+            if (compare(heap[child], entry) <= 0)
+                break;
+
+            heap[index] = heap[child];
+            index = child;
+        }
+
+        heap[index] = entry;
+    }
+
+    /**
+     * Compare rows by key, rows with equal keys by input order.
+     */
+    private static int compare(Entry a, Entry b) {
+        int result = Bytes.compare(a.key, b.key);
+        return result != 0 ? result : Long.compare(a.sequence, b.sequence);
+    }
+
+    private static final class Entry {
+        private final byte[] key;
+        private final long sequence;
+        private final Row row;
+        private long memory;
+
+        Entry(byte[] key, long sequence, Row row) {
+            this.key = key;
+            this.sequence = sequence;
+            this.row = row;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.mydb.command.operator;
+
+import org.mydb.engine.table.Row;
+
+/**
+ * Read selected rows of batches one at a time, so row operators run on top of vectorized ones.
+ */
+public class UnbatchOperator implements Operator {
+    private final BatchOperator input;
+
+    /** Current batch, <code>null</code> before the first one */
+    private Batch batch;
+
+    /** Index of next row in selection of current batch */
+    private int index;
+
+    public UnbatchOperator(BatchOperator input) {
+        this.input = input;
+    }
+
+    @Override
+    public void open() {
+        batch = null;
+        input.open();
+    }
+
+    @Override
+    public Row next() {
+        while (batch == null || index >= batch.selected) {
+            batch = input.nextBatch();
+            index = 0;
+
+            if (batch == null)
+                return null;
+        }
+
+        return batch.getRow(batch.selection[index++]);
+    }
+
+    @Override
+    public void close() {
+        batch = null;
+        input.close();
+    }
+}
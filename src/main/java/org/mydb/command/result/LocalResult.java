@@ -0,0 +1,68 @@
+package org.mydb.command.result;
+
+import org.mydb.command.expression.Expression;
+import org.mydb.engine.table.datatype.DataType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result with all rows kept in memory.
+ */
+public class LocalResult implements Result {
+    /** Expressions describing result columns */
+    private final List<Expression> expressions;
+
+    private final List<Object[]> rows = new ArrayList<>();
+
+    /** Current row position */
+    private int position = -1;
+
+    public LocalResult(List<Expression> expressions) {
+        this.expressions = expressions;
+    }
+
+    public void addRow(Object[] row) {
+        rows.add(row);
+    }
+
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return expressions.size();
+    }
+
+    @Override
+    public String getColumnName(int index) {
+        return expressions.get(index).getName();
+    }
+
+    @Override
+    public DataType getColumnType(int index) {
+        return expressions.get(index).getDataType();
+    }
+
+    @Override
+    public boolean next() {
+        if (position < rows.size())
+            position++;
+
+        return position < rows.size();
+    }
+
+    @Override
+    public Object[] currentRow() {
+        if (position < 0 || position >= rows.size())
+            return null;
+
+        return rows.get(position);
+    }
+
+    @Override
+    public void close() {
+        rows.clear();
+    }
+}
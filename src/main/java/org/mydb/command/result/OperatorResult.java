@@ -0,0 +1,77 @@
+package org.mydb.command.result;
+
+import org.mydb.command.expression.Expression;
+import org.mydb.command.operator.Operator;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.datatype.DataType;
+
+import java.util.List;
+
+/**
+ * Result reading rows from operator tree when they are read, so rows are not kept in memory.
+ * Operator is opened when result is created and closed when result is closed or read to the end.
+ */
+public class OperatorResult implements Result {
+    /** Expressions describing result columns */
+    private final List<Expression> expressions;
+
+    /** Root operator producing rows of select list values */
+    private final Operator operator;
+
+    /** Values of current row, <code>null</code> before the first row and after the last one */
+    private Object[] current;
+
+    private boolean closed;
+
+    public OperatorResult(List<Expression> expressions, Operator operator) {
+        this.expressions = expressions;
+        this.operator = operator;
+
+        operator.open();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return expressions.size();
+    }
+
+    @Override
+    public String getColumnName(int index) {
+        return expressions.get(index).getName();
+    }
+
+    @Override
+    public DataType getColumnType(int index) {
+        return expressions.get(index).getDataType();
+    }
+
+    @Override
+    public boolean next() {
+        if (closed)
+            return false;
+
+        Row row = operator.next();
+        if (row == null) {
+            close();
+            return false;
+        }
+
+        current = row.getValues();
+        return true;
+    }
+
+    @Override
+    public Object[] currentRow() {
+        return current;
+    }
+
+    @Override
+    public void close() {
+        if (closed)
+            return;
+
+        closed = true;
+        current = null;
+        operator.close();
+    }
+}
@@ -0,0 +1,35 @@
+package org.mydb.command.result;
+
+import org.mydb.engine.table.datatype.DataType;
+
+/**
+ * Query result, read row by row.
+ */
+public interface Result extends AutoCloseable {
+    int getColumnCount();
+
+    /**
+     * @param index zero based column index
+     */
+    String getColumnName(int index);
+
+    /**
+     * @param index zero based column index
+     * @return column data type or <code>null</code> if not known
+     */
+    DataType getColumnType(int index);
+
+    /**
+     * Move to next row.
+     * @return <code>false</code> if no more rows
+     */
+    boolean next();
+
+    /**
+     * @return values of current row
+     */
+    Object[] currentRow();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,125 @@
+package org.mydb.engine;
+
+import org.mydb.DbException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Parsed connection url.
+ * Url format is <code>jdbc:mdb:[mem:]&lt;name&gt;[;SETTING=VALUE]*</code>,
+ * settings can also be passed as connection properties.
+ * Name after <code>mem:</code> is name of in-memory database instead of directory path.
+ * <ul>
+ *     <li>PAGE_SIZE - page size of table files in bytes</li>
+ *     <li>CACHE_SIZE - page cache size in megabytes</li>
+ *     <li>COMMIT_DELAY - time in microseconds commit waits for concurrent commits to sync log once</li>
+ *     <li>LOG_SEGMENT_SIZE - size of log segment file in bytes</li>
+ *     <li>CHECKPOINT_INTERVAL - time between checkpoints in seconds, 0 disables background checkpoints</li>
+ *     <li>CHECKPOINT_SIZE - log size in megabytes which triggers checkpoint</li>
+ *     <li>LOCK_TIMEOUT - time in milliseconds transaction waits for row locked by other transaction</li>
+ *     <li>VECTORIZED - TRUE to run queries of the connection in vectorized mode, reading rows in batches</li>
+ *     <li>QUERY_MEMORY - memory in kilobytes query may use for rows it holds, i.e. to join them,
+ *     rows beyond it are written to temporary files</li>
+ *     <li>PARALLELISM - number of threads query of the connection reads table with, 1 to read it in session thread</li>
+ *     <li>MAX_PARALLELISM - max number of threads parallel queries of all connections to database run on</li>
+ *     <li>MV_STORE - TRUE to create database in copy-on-write store instead of page files and log</li>
+ * </ul>
+ */
+public class ConnectionInfo {
+    /** Url prefix */
+    public static final String URL_PREFIX = "jdbc:mdb:";
+
+    /** Name prefix of in-memory database */
+    public static final String MEMORY_PREFIX = "mem:";
+
+    /** Original url */
+    private final String url;
+
+    /** Database name (directory path or name of in-memory database) */
+    private final String name;
+
+    /** Database is kept in memory */
+    private final boolean memory;
+
+    /** Upper case settings from url and properties */
+    private final Map<String, String> settings = new HashMap<>();
+
+    public ConnectionInfo(String url, Properties info) {
+        this.url = url;
+
+        String value = url == null ? "" : url;
+        if (value.toLowerCase().startsWith(URL_PREFIX)) {
+            value = value.substring(URL_PREFIX.length());
+        }
+
+        String[] parts = value.split(";");
+        String name = parts.length > 0 ? parts[0].trim() : "";
+
+        this.memory = name.toLowerCase().startsWith(MEMORY_PREFIX);
+        this.name = memory ? name.substring(MEMORY_PREFIX.length()).trim() : name;
+
+        if (info != null) {
+            for (String key : info.stringPropertyNames()) {
+                settings.put(key.toUpperCase(), info.getProperty(key));
+            }
+        }
+
+        for (int i = 1; i < parts.length; i++) {
+            if (parts[i].trim().isEmpty())
+                continue;
+
+            int eq = parts[i].indexOf('=');
+            if (eq < 0) {
+                throw new DbException(String.format("invalid url setting: %s", parts[i]));
+            }
+
+            settings.put(parts[i].substring(0, eq).trim().toUpperCase(), parts[i].substring(eq + 1).trim());
+        }
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Database without name is private to the connection and removed when closed.
+     */
+    public boolean isUnnamed() {
+        return name.isEmpty();
+    }
+
+    /**
+     * Database in memory has no files, it is removed when its last connection is closed.
+     */
+    public boolean isMemory() {
+        return memory;
+    }
+
+    public String getSetting(String key, String defaultValue) {
+        String value = settings.get(key.toUpperCase());
+        return value == null ? defaultValue : value;
+    }
+
+    public int getIntSetting(String key, int defaultValue) {
+        String value = settings.get(key.toUpperCase());
+        if (value == null)
+            return defaultValue;
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new DbException(String.format("invalid value for setting %s: %s", key, value), e);
+        }
+    }
+
+    public boolean getBooleanSetting(String key, boolean defaultValue) {
+        String value = settings.get(key.toUpperCase());
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
@@ -1,5 +1,910 @@
 package org.mydb.engine;
 
+import org.mydb.DbException;
+import org.mydb.command.ParserFactory;
+import org.mydb.command.Prepared;
+import org.mydb.command.ddl.CreateIndexCommand;
+import org.mydb.command.ddl.CreateTableCommand;
+import org.mydb.engine.index.BTreeIndex;
+import org.mydb.engine.index.HashIndex;
+import org.mydb.engine.index.Index;
+import org.mydb.engine.index.MVIndex;
+import org.mydb.engine.log.LogRecord;
+import org.mydb.engine.log.WriteAheadLog;
+import org.mydb.engine.mvstore.Cursor;
+import org.mydb.engine.mvstore.MVMap;
+import org.mydb.engine.mvstore.MVStore;
+import org.mydb.engine.mvstore.TransactionStore;
+import org.mydb.engine.page.BufferPool;
+import org.mydb.engine.page.MemoryPageFile;
+import org.mydb.engine.page.PageFile;
+import org.mydb.engine.table.ColumnStore;
+import org.mydb.engine.table.HeapFile;
+import org.mydb.engine.table.MVTableStore;
+import org.mydb.engine.table.Table;
+import org.mydb.engine.table.TableException;
+import org.mydb.engine.table.TableIndex;
+import org.mydb.engine.tx.LockManager;
+import org.mydb.engine.tx.Snapshot;
+import org.mydb.engine.tx.Transaction;
+import org.mydb.server.web.logger.Logger;
+import org.mydb.util.Bytes;
+import org.mydb.util.IOUtils;
+import org.mydb.util.IdGenerator;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Database: directory with catalog, table files and write-ahead log.
+ * Catalog keeps DDL statements of database objects, they are parsed again when database is opened.
+ * DDL and row changes are logged first, pages and catalog are written by checkpoint,
+ * so only log after last checkpoint is replayed when database was not closed properly.
+ * <p>
+ * Checkpoint is fuzzy: sessions keep working while pages are written, log is replayed from
+ * the LSN checkpoint started with and from the first record of transactions running at that time.
+ * <p>
+ * Database created with MV_STORE setting keeps catalog and tables in one copy-on-write store file instead,
+ * it needs no log: every commit appends changed pages to the file.
+ * <p>
+ * In-memory database keeps pages of tables and indexes in {@link MemoryPageFile}s outside of Java heap,
+ * behind the same buffer pool. It has no directory and no log, MV_STORE setting is ignored.
+ * <p>
+ * Rows are versioned by transaction ids, transactions read rows of {@link Snapshot} of running transactions.
+ * Rows deleted by committed transaction are purged when every running transaction sees the commit.
+ */
 public class Database {
+    /** Catalog file name */
+    private static final String CATALOG_FILE = "catalog";
+
+    /** Heap file extension */
+    private static final String HEAP_FILE_EXT = ".heap";
+
+    /** Index file extension */
+    private static final String INDEX_FILE_EXT = ".idx";
+
+    /** Log directory name */
+    private static final String LOG_DIRECTORY = "wal";
+
+    /** Store file name of MV_STORE database */
+    private static final String STORE_FILE = "data.mv";
+
+    /** Map id of catalog in store */
+    private static final int CATALOG_MAP_ID = -2;
+
+    /** Default page cache size in megabytes */
+    private static final int DEFAULT_CACHE_SIZE = 16;
+
+    /** Default time between checkpoints in seconds */
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 60;
+
+    /** Default log size in megabytes which triggers checkpoint */
+    private static final int DEFAULT_CHECKPOINT_SIZE = 64;
+
+    /** Default time transaction waits for row lock in milliseconds */
+    private static final int DEFAULT_LOCK_TIMEOUT = 10000;
+
+    /** Default max number of threads of parallel queries, the other cores are left to other sessions */
+    private static final int DEFAULT_MAX_PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    private static final Logger LOG = Logger.forClass(Database.class);
+
+    /** Connection info of the first session */
+    private final ConnectionInfo connectionInfo;
+
+    /** Page size of table files */
+    private final int pageSize;
+
+    /** Page cache shared by all files */
+    private final BufferPool bufferPool;
+
+    /** Database directory, created on first use for unnamed database, <code>null</code> for in-memory database */
+    private Path directory;
+
+    /** Write-ahead log, <code>null</code> for unnamed and MV_STORE database */
+    private WriteAheadLog log;
+
+    /** Store of MV_STORE database, <code>null</code> if tables are in page files */
+    private MVStore store;
+
+    /** Transactions of store */
+    private TransactionStore transactionStore;
+
+    /** Tables by name */
+    private final Map<String, Table> tables = new LinkedHashMap<>();
+
+    /** Tables by id */
+    private final Map<Integer, Table> tablesById = new HashMap<>();
+
+    /** Indexes by id */
+    private final Map<Integer, Index> indexesById = new HashMap<>();
+
+    /** Index ids by name */
+    private final Map<String, Integer> indexNames = new HashMap<>();
+
+    /** Page files of tables and indexes by file id */
+    private final Map<Integer, PageFile> files = new HashMap<>();
+
+    /** Running transactions */
+    private final Set<Transaction> transactions = new HashSet<>();
+
+    /** Row locks of running transactions */
+    private final LockManager lockManager;
+
+    /** Committed transactions which deleted rows, in commit order */
+    private final List<Transaction> purgeQueue = new ArrayList<>();
+
+    /** Taken by checkpoint and close before database lock */
+    private final Object checkpointLock = new Object();
+
+    /** Background checkpoint thread, <code>null</code> if disabled */
+    private ScheduledExecutorService checkpointer;
+
+    /** Redo LSN of last checkpoint: changes before it are on disk */
+    private volatile long checkpointLsn;
+
+    /** LSN of the first log record needed by recovery */
+    private long recoveryStartLsn;
+
+    /** Time of last checkpoint, milliseconds */
+    private volatile long checkpointTime;
+
+    /** Time spent in recovery when database was opened, milliseconds */
+    private long recoveryTime;
+
+    /** Number of log records replayed when database was opened */
+    private int recoveredRecords;
+
+    /** DDL statements by object id */
+    private final Map<Integer, String> catalog = new LinkedHashMap<>();
+
+    /** Next object id */
+    private int nextObjectId;
+
+    /** Open sessions */
+    private final Set<Session> sessions = new HashSet<>();
+
+    /** Session used internally, i.e. to parse catalog */
+    private final Session systemSession = new SessionImpl(this);
+
+    /** Max number of threads running parts of queries in parallel, shared by all sessions */
+    private final int maxParallelism;
+
+    /** Threads of parallel queries, <code>null</code> until the first parallel query */
+    private ForkJoinPool queryPool;
+
+    private boolean closed;
+
+    public Database(ConnectionInfo connectionInfo) {
+        this.connectionInfo = connectionInfo;
+        this.pageSize = connectionInfo.getIntSetting("PAGE_SIZE", PageFile.DEFAULT_PAGE_SIZE);
+        this.bufferPool = BufferPool.ofMegabytes(pageSize,
+                connectionInfo.getIntSetting("CACHE_SIZE", DEFAULT_CACHE_SIZE));
+        this.lockManager = new LockManager(connectionInfo.getIntSetting("LOCK_TIMEOUT", DEFAULT_LOCK_TIMEOUT));
+        this.maxParallelism = Math.max(1, connectionInfo.getIntSetting("MAX_PARALLELISM", DEFAULT_MAX_PARALLELISM));
+
+        // transaction id 0 marks rows visible to every transaction
+        IdGenerator.advance(IdGenerator.Type.XID, 0);
+
+        if (!connectionInfo.isUnnamed() && !connectionInfo.isMemory()) {
+            this.directory = Paths.get(connectionInfo.getName()).toAbsolutePath().normalize();
+        }
+    }
+
+    /**
+     * Open database: read catalog, open tables and replay log.
+     */
+    public synchronized void open() {
+        if (directory == null)
+            return;
+
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new DbException(String.format("failed to create database directory %s", directory), e);
+        }
+
+        if (connectionInfo.getBooleanSetting("MV_STORE", false) && !Files.exists(directory.resolve(CATALOG_FILE))
+                || Files.exists(directory.resolve(STORE_FILE))) {
+            openStore();
+            return;
+        }
+
+        readCatalog();
+
+        for (Map.Entry<Integer, String> entry : catalog.entrySet()) {
+            openObject(entry.getKey(), entry.getValue());
+        }
+
+        log = new WriteAheadLog(directory.resolve(LOG_DIRECTORY),
+                connectionInfo.getIntSetting("LOG_SEGMENT_SIZE", (int) WriteAheadLog.DEFAULT_SEGMENT_SIZE),
+                connectionInfo.getIntSetting("COMMIT_DELAY", 0));
+        bufferPool.setLogFlusher(log::flush);
+
+        long start = System.nanoTime();
+        recoveredRecords = new Recovery(this, log, checkpointLsn).run(recoveryStartLsn);
+        recoveryTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        if (recoveredRecords > 0) {
+            LOG.trace(String.format("database %s recovered: %d log records replayed in %d ms",
+                    directory, recoveredRecords, recoveryTime));
+        }
+
+        checkpointTime = System.currentTimeMillis();
+        startCheckpointer();
+    }
+
+    public String getName() {
+        return connectionInfo.getName();
+    }
+
+    public ConnectionInfo getConnectionInfo() {
+        return connectionInfo;
+    }
+
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * @return max number of threads queries of all sessions run in parallel
+     */
+    public int getMaxParallelism() {
+        return maxParallelism;
+    }
+
+    /**
+     * @return threads running parts of queries in parallel, at most {@link #getMaxParallelism()} of them
+     */
+    public synchronized ForkJoinPool getQueryPool() {
+        if (queryPool == null) {
+            String name = "mydb query " + (directory == null ? connectionInfo.getName() : directory.getFileName());
+            queryPool = new ForkJoinPool(maxParallelism, pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName(name + " " + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+        }
+
+        return queryPool;
+    }
+
+    /**
+     * @return write-ahead log, <code>null</code> if database is not logged
+     */
+    public WriteAheadLog getLog() {
+        return log;
+    }
+
+    public synchronized Table getTable(String name) {
+        return tables.get(name);
+    }
+
+    public synchronized Table getTable(int id) {
+        return tablesById.get(id);
+    }
+
+    /**
+     * @return index or <code>null</code> if database has no such index
+     */
+    public synchronized Index getIndex(int id) {
+        return indexesById.get(id);
+    }
+
+    public synchronized List<Table> getTables() {
+        return new ArrayList<>(tables.values());
+    }
+
+    /**
+     * @return time spent replaying log when database was opened, milliseconds
+     */
+    public long getRecoveryTime() {
+        return recoveryTime;
+    }
+
+    /**
+     * @return number of log records replayed when database was opened
+     */
+    public int getRecoveredRecords() {
+        return recoveredRecords;
+    }
+
+    /**
+     * Write changed pages and catalog, then remove log not needed for recovery anymore.
+     * Sessions are not blocked while pages are written.
+     */
+    public void checkpoint() {
+        if (store != null) {
+            store.commit();
+            return;
+        }
+
+        if (log == null)
+            return;
+
+        synchronized (checkpointLock) {
+            long redoLsn = log.getEndLsn();
+            long startLsn = redoLsn;
+
+            Map<Integer, String> objects;
+            List<PageFile> fileList;
+            synchronized (this) {
+                checkOpen();
+
+                for (Transaction transaction : transactions) {
+                    long firstLsn = transaction.getFirstLsn();
+                    if (firstLsn != 0)
+                        startLsn = Math.min(startLsn, firstLsn);
+                }
+
+                objects = new LinkedHashMap<>(catalog);
+                fileList = new ArrayList<>(files.values());
+            }
+
+            bufferPool.flush();
+            for (PageFile file : fileList) {
+                file.sync();
+            }
+
+            writeCatalog(objects, redoLsn, startLsn);
+            log.truncate(startLsn);
+
+            checkpointLsn = redoLsn;
+            checkpointTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Create new table. DDL is logged and durable when method returns,
+     * catalog is written when database is closed.
+     * Primary key index gets id next to table id.
+     */
+    public synchronized void createTable(Table table, String sql) {
+        checkOpen();
+
+        if (tables.containsKey(table.getName())) {
+            throw new TableException(String.format("table already exists: %s", table.getName()));
+        }
+
+        table.setId(nextObjectId);
+
+        if (log != null) {
+            log.flush(log.append(LogRecord.createTable(table.getId(), sql)));
+        }
+
+        openTable(table);
+        catalog.put(table.getId(), sql);
+
+        if (store != null) {
+            store.openMap(CATALOG_MAP_ID).put(Bytes.fromLong(table.getId()), sql.getBytes(StandardCharsets.UTF_8));
+            store.commit();
+        }
+    }
+
+    /**
+     * Create index and fill it with keys of table rows. Pages of new index are synced before DDL is logged,
+     * so recovery finds index complete.
+     */
+    public synchronized void createIndex(CreateIndexCommand command, String sql) {
+        checkOpen();
+
+        String name = command.getIndexName();
+        if (indexNames.containsKey(name)) {
+            throw new TableException(String.format("index already exists: %s", name));
+        }
+
+        int id = nextObjectId++;
+
+        // index of failed create could leave data with this id
+        if (store != null) {
+            clearMap(id);
+        } else if (!connectionInfo.isMemory()) {
+            deleteFile(getDirectory().resolve(id + INDEX_FILE_EXT));
+        }
+
+        Index index = openIndex(id, command.isHash());
+        try {
+            command.getTable().buildIndex(newIndex(command, index));
+        } catch (RuntimeException e) {
+            indexesById.remove(id);
+            files.remove(id);
+            IOUtils.close(index);
+            throw e;
+        }
+
+        if (log != null) {
+            log.flush(log.append(LogRecord.createIndex(id, sql)));
+        }
+
+        catalog.put(id, sql);
+        indexNames.put(name, id);
+
+        if (store != null) {
+            store.openMap(CATALOG_MAP_ID).put(Bytes.fromLong(id), sql.getBytes(StandardCharsets.UTF_8));
+            store.commit();
+        }
+    }
+
+    /**
+     * Start transaction with new id.
+     */
+    public synchronized Transaction beginTransaction() {
+        checkOpen();
+
+        Transaction transaction = new Transaction(IdGenerator.generate(IdGenerator.Type.XID), log, lockManager);
+        transactions.add(transaction);
+        return transaction;
+    }
+
+    /**
+     * Take snapshot of transactions committed now.
+     * @param transaction transaction which reads snapshot, its own changes are visible
+     */
+    public synchronized Snapshot newSnapshot(Transaction transaction) {
+        long[] running = new long[transactions.size()];
+        int count = 0;
+
+        for (Transaction other : transactions) {
+            if (other != transaction)
+                running[count++] = other.getXid();
+        }
+
+        return new Snapshot(transaction.getXid(), IdGenerator.peek(IdGenerator.Type.XID),
+                Arrays.copyOf(running, count));
+    }
+
+    /**
+     * Remove committed or rolled back transaction, changes of committed transaction are visible
+     * to snapshots taken later. Then purge rows deleted by transactions every running transaction sees.
+     * Failed transaction is kept running, so its changes, neither durable nor undone, are never visible,
+     * see {@link Transaction#isFailed()}.
+     */
+    public void endTransaction(Transaction transaction) {
+        List<Transaction> purged = new ArrayList<>();
+        List<Table> columnarTables = new ArrayList<>();
+        long horizon;
+
+        synchronized (this) {
+            if (transaction.isFailed()) {
+                LOG.warn(String.format("transaction %d of database %s failed, its changes stay invisible",
+                        transaction.getXid(), directory));
+                return;
+            }
+
+            transactions.remove(transaction);
+            if (closed)
+                return;
+
+            for (Transaction.Change change : transaction.getChanges()) {
+                if (change.isDelete()) {
+                    purgeQueue.add(transaction);
+                    break;
+                }
+            }
+
+            horizon = getHorizon();
+            for (Iterator<Transaction> iterator = purgeQueue.iterator(); iterator.hasNext(); ) {
+                Transaction committed = iterator.next();
+                if (committed.getXid() < horizon) {
+                    purged.add(committed);
+                    iterator.remove();
+                }
+            }
+
+            for (Table table : tables.values()) {
+                if (table.isColumnar())
+                    columnarTables.add(table);
+            }
+        }
+
+        if (!purged.isEmpty())
+            purge(purged);
+
+        for (Table table : columnarTables)
+            table.freeze(horizon);
+    }
+
+    synchronized void addSession(Session session) {
+        checkOpen();
+        sessions.add(session);
+    }
+
+    /**
+     * @return number of remaining sessions
+     */
+    synchronized int removeSession(Session session) {
+        sessions.remove(session);
+        return sessions.size();
+    }
+
+    /**
+     * Close database: write pages and catalog, then drop log which is not needed anymore.
+     * If log failed, pages may have changes log did not make durable: they are dropped without writing,
+     * and log and catalog are kept, so database is recovered from durable log when it is opened again.
+     */
+    public void close() {
+        synchronized (checkpointLock) {
+            synchronized (this) {
+                if (closed)
+                    return;
+
+                closed = true;
+
+                if (checkpointer != null)
+                    checkpointer.shutdown();
+
+                if (queryPool != null)
+                    queryPool.shutdown();
+
+                if (log != null && log.isFailed()) {
+                    for (PageFile file : files.values()) {
+                        bufferPool.invalidate(file);
+                        file.close();
+                    }
+
+                    log.close();
+                    clearObjects();
+
+                    if (connectionInfo.isUnnamed() && directory != null)
+                        deleteDirectory(directory);
+
+                    return;
+                }
+
+                for (Table table : tables.values()) {
+                    IOUtils.close(table.getStore());
+                }
+
+                for (Index index : indexesById.values()) {
+                    IOUtils.close(index);
+                }
+
+                if (store != null) {
+                    store.commit();
+                    store.close();
+                }
+
+                if (log != null) {
+                    log.switchSegment();
+
+                    long endLsn = log.getEndLsn();
+                    writeCatalog(catalog, endLsn, endLsn);
+
+                    log.truncate(endLsn);
+                    log.close();
+                }
+
+                clearObjects();
+
+                if (connectionInfo.isUnnamed() && directory != null) {
+                    deleteDirectory(directory);
+                }
+            }
+        }
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Repeat logged DDL unless catalog has it.
+     */
+    synchronized void redoCreateObject(LogRecord record) {
+        if (catalog.containsKey(record.getFileId()))
+            return;
+
+        openObject(record.getFileId(), record.getSql());
+        catalog.put(record.getFileId(), record.getSql());
+    }
+
+    // internal ==============================================================================
+    private void checkOpen() {
+        if (closed)
+            throw new DbException("database is closed");
+    }
+
+    private void clearObjects() {
+        tables.clear();
+        tablesById.clear();
+        indexesById.clear();
+        indexNames.clear();
+        files.clear();
+    }
+
+    /**
+     * @return transaction id which every running snapshot sees committed transactions below
+     */
+    private long getHorizon() {
+        long horizon = IdGenerator.peek(IdGenerator.Type.XID);
+        for (Transaction transaction : transactions) {
+            Snapshot snapshot = transaction.getSnapshot();
+            if (snapshot != null)
+                horizon = Math.min(horizon, snapshot.getXmin());
+        }
+
+        return horizon;
+    }
+
+    /**
+     * Remove rows deleted by committed transactions and their index entries. Purge is logged,
+     * but its commit is not waited for: purge is not undone, rows are purged again if it is lost.
+     */
+    private void purge(List<Transaction> committed) {
+        Transaction transaction = beginTransaction();
+        try {
+            for (Transaction deleting : committed) {
+                for (Transaction.Change change : deleting.getChanges()) {
+                    if (change.isDelete())
+                        change.getTable().purge(transaction, change.getRecordId(), deleting.getXid());
+                }
+            }
+        } finally {
+            transaction.commit(false);
+            endTransaction(transaction);
+        }
+    }
+
+    private Path getDirectory() {
+        if (directory == null) {
+            try {
+                directory = Files.createTempDirectory("mydb");
+            } catch (IOException e) {
+                throw new DbException("failed to create database directory", e);
+            }
+        }
+
+        return directory;
+    }
+
+    /**
+     * Open MV_STORE database: catalog is a map of store, inserts of transactions
+     * not committed before database was closed are removed.
+     */
+    private void openStore() {
+        int cacheSize = connectionInfo.getIntSetting("CACHE_SIZE", DEFAULT_CACHE_SIZE) * 1024 * 1024 / pageSize;
+        store = new MVStore(directory.resolve(STORE_FILE), MVStore.DEFAULT_KEYS_PER_PAGE, Math.max(cacheSize, 16));
+        transactionStore = new TransactionStore(store);
+
+        Cursor cursor = store.openMap(CATALOG_MAP_ID).cursor();
+        while (cursor.hasNext()) {
+            int id = (int) Bytes.toLong(cursor.next());
+            catalog.put(id, new String(cursor.getValue(), StandardCharsets.UTF_8));
+        }
+
+        for (Map.Entry<Integer, String> entry : catalog.entrySet()) {
+            openObject(entry.getKey(), entry.getValue());
+        }
+
+        long start = System.nanoTime();
+        recoveredRecords = transactionStore.rollbackPending();
+        recoveryTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Open database object defined by catalog DDL.
+     */
+    private void openObject(int id, String sql) {
+        Prepared prepared = parse(sql);
+
+        if (prepared instanceof CreateTableCommand) {
+            Table table = ((CreateTableCommand) prepared).getTable();
+            table.setId(id);
+            openTable(table);
+        } else if (prepared instanceof CreateIndexCommand) {
+            CreateIndexCommand command = (CreateIndexCommand) prepared;
+            command.getTable().addIndex(newIndex(command, openIndex(id, command.isHash())));
+            indexNames.put(command.getIndexName(), id);
+        } else {
+            throw new DbException(String.format("unsupported catalog statement: %s", sql));
+        }
+
+        nextObjectId = Math.max(nextObjectId, id + 1);
+    }
+
+    private void openTable(Table table) {
+        if (store != null) {
+            table.setStore(new MVTableStore(store.openMap(table.getId()), transactionStore));
+        } else {
+            PageFile file = openFile(table.getId(), HEAP_FILE_EXT);
+            table.setStore(table.isColumnar() ? new ColumnStore(file, bufferPool, table.getColumns())
+                    : new HeapFile(file, bufferPool));
+        }
+
+        int lastId = table.getId();
+        if (table.getPrimaryKey() >= 0) {
+            lastId = table.getId() + 1;
+            table.addIndex(new TableIndex(null, table, new int[] {table.getPrimaryKey()}, true, true, false,
+                    openIndex(lastId, false)));
+        }
+
+        tables.put(table.getName(), table);
+        tablesById.put(table.getId(), table);
+        nextObjectId = Math.max(nextObjectId, lastId + 1);
+    }
+
+    /**
+     * Store map is sorted, so hash index is store map too in MV_STORE mode.
+     * Index storage is never unique, it keeps keys of every row version, table checks unique keys.
+     */
+    private Index openIndex(int id, boolean hash) {
+        Index index;
+        if (store != null) {
+            index = new MVIndex(store.openMap(id), transactionStore, false);
+        } else if (hash) {
+            index = new HashIndex(openFile(id, INDEX_FILE_EXT), bufferPool, false);
+        } else {
+            index = new BTreeIndex(openFile(id, INDEX_FILE_EXT), bufferPool, false);
+        }
+
+        indexesById.put(id, index);
+        return index;
+    }
+
+    private static TableIndex newIndex(CreateIndexCommand command, Index index) {
+        return new TableIndex(command.getIndexName(), command.getTable(), command.getColumnIndexes(),
+                command.isUnique(), false, command.isHash(), index);
+    }
+
+    private void clearMap(int id) {
+        MVMap map = store.openMap(id);
+
+        List<byte[]> keys = new ArrayList<>();
+        Cursor cursor = map.cursor();
+        while (cursor.hasNext())
+            keys.add(cursor.next());
+
+        for (byte[] key : keys)
+            map.remove(key);
+    }
+
+    private static void deleteFile(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new DbException(String.format("failed to delete %s", path), e);
+        }
+    }
+
+    private PageFile openFile(int id, String extension) {
+        PageFile file = connectionInfo.isMemory()
+                ? new MemoryPageFile(id, Paths.get(id + extension), pageSize)
+                : new PageFile(id, getDirectory().resolve(id + extension), pageSize);
+        files.put(id, file);
+        return file;
+    }
+
+    /**
+     * Run checkpoint in background when log grows or time passes.
+     */
+    private void startCheckpointer() {
+        long interval = TimeUnit.SECONDS.toMillis(
+                connectionInfo.getIntSetting("CHECKPOINT_INTERVAL", DEFAULT_CHECKPOINT_INTERVAL));
+        long size = connectionInfo.getIntSetting("CHECKPOINT_SIZE", DEFAULT_CHECKPOINT_SIZE) * 1024L * 1024L;
+
+        if (interval <= 0)
+            return;
+
+        checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mydb checkpoint " + directory.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        checkpointer.scheduleWithFixedDelay(() -> {
+            long logSize = log.getEndLsn() - checkpointLsn;
+            boolean due = System.currentTimeMillis() - checkpointTime >= interval;
+
+            if (logSize >= size || (logSize > 0 && due)) {
+                try {
+                    checkpoint();
+                } catch (RuntimeException e) {
+                    if (!isClosed())
+                        LOG.warn(String.format("checkpoint of database %s failed", directory), e);
+                }
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    private Prepared parse(String sql) {
+        ParserFactory parserFactory = new ParserFactory(systemSession);
+        parserFactory.setSql(sql);
+        return parserFactory.getObject().parse();
+    }
+
+    private void readCatalog() {
+        Path path = directory.resolve(CATALOG_FILE);
+        if (!Files.exists(path))
+            return;
+
+        try (InputStream stream = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(stream)) {
+            checkpointLsn = in.readLong();
+            recoveryStartLsn = in.readLong();
+
+            int count = in.readInt();
+
+            for (int i = 0; i < count; i++) {
+                int id = in.readInt();
+                catalog.put(id, in.readUTF());
+            }
+
+            if (in.available() > 0)
+                IdGenerator.advance(IdGenerator.Type.XID, in.readLong() - 1);
+        } catch (IOException e) {
+            throw new DbException(String.format("failed to read catalog %s", path), e);
+        }
+    }
+
+    /**
+     * Write catalog to temporary file and replace old catalog with it.
+     * Catalog starts with checkpoint redo LSN and LSN recovery starts reading log with,
+     * it ends with the next transaction id, so row versions on disk never get ids of new transactions.
+     */
+    private void writeCatalog(Map<Integer, String> objects, long redoLsn, long startLsn) {
+        Path path = getDirectory().resolve(CATALOG_FILE);
+        Path tempPath = getDirectory().resolve(CATALOG_FILE + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream stream = Channels.newOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(stream);
+
+            out.writeLong(redoLsn);
+            out.writeLong(startLsn);
+
+            out.writeInt(objects.size());
+            for (Map.Entry<Integer, String> entry : objects.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeUTF(entry.getValue());
+            }
+
+            out.writeLong(IdGenerator.peek(IdGenerator.Type.XID));
+
+            out.flush();
+            channel.force(true);
+        } catch (IOException e) {
+            throw new DbException(String.format("failed to write catalog %s", path), e);
+        }
+
+        try {
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new DbException(String.format("failed to replace catalog %s", path), e);
+        }
+    }
 
+    private static void deleteDirectory(Path path) {
+        try (Stream<Path> files = Files.walk(path)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (IOException ignore) {}
+    }
 }
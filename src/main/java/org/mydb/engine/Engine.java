@@ -1,8 +1,18 @@
 package org.mydb.engine;
 
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Database engine. Keeps databases open while they have sessions.
+ */
 public class Engine implements SessionFactory {
     private static final Engine INSTANCE = new Engine();
 
+    /** Open databases by path, in-memory databases by name with prefix */
+    private final Map<String, Database> databases = new HashMap<>();
+
     private Engine() {}
 
     public static Engine getInstance() {
@@ -10,7 +20,43 @@ public class Engine implements SessionFactory {
     }
 
     @Override
-    public Session createSession() {
-        return new SessionImpl();
+    public synchronized Session createSession(ConnectionInfo connectionInfo) {
+        Database database;
+
+        if (connectionInfo.isUnnamed()) {
+            database = new Database(connectionInfo);
+            database.open();
+        } else {
+            String key = connectionInfo.isMemory()
+                    ? ConnectionInfo.MEMORY_PREFIX + connectionInfo.getName()
+                    : Paths.get(connectionInfo.getName()).toAbsolutePath().normalize().toString();
+            database = databases.get(key);
+
+            if (database == null) {
+                database = new Database(connectionInfo);
+                database.open();
+                databases.put(key, database);
+            }
+        }
+
+        SessionImpl session = new SessionImpl(database);
+        session.setVectorized(connectionInfo.getBooleanSetting("VECTORIZED", false));
+        session.setQueryMemory(connectionInfo.getIntSetting("QUERY_MEMORY", SessionImpl.DEFAULT_QUERY_MEMORY_KB) * 1024L);
+        session.setParallelism(connectionInfo.getIntSetting("PARALLELISM", 1));
+        database.addSession(session);
+        return session;
+    }
+
+    /**
+     * Remove closed session, database is closed with its last session.
+     */
+    synchronized void closeSession(Session session) {
+        Database database = session.getDatabase();
+
+        if (database.removeSession(session) > 0)
+            return;
+
+        databases.values().remove(database);
+        database.close();
     }
 }
@@ -0,0 +1,220 @@
+package org.mydb.engine;
+
+import org.mydb.DbException;
+import org.mydb.engine.index.PageIndex;
+import org.mydb.engine.index.Index;
+import org.mydb.engine.log.LogRecord;
+import org.mydb.engine.log.WriteAheadLog;
+import org.mydb.engine.table.ColumnStore;
+import org.mydb.engine.table.HeapFile;
+import org.mydb.engine.table.Table;
+import org.mydb.engine.tx.Transaction;
+import org.mydb.util.IdGenerator;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays log after database was not closed properly.
+ * Log is read from the oldest record of transactions running at last checkpoint,
+ * changes after checkpoint redo LSN are repeated, then changes of transactions without commit record are undone.
+ * Index changes are repeated physically, but undone logically: rows inserted by loser transaction
+ * are deleted with their index keys, rows deleted by it get no deleting transaction again.
+ */
+class Recovery {
+    private final Database database;
+    private final WriteAheadLog log;
+
+    /** Changes before this LSN are on disk */
+    private final long redoLsn;
+
+    /** Inserts and deletes of transactions without commit or abort record, by xid */
+    private final Map<Long, List<LogRecord>> active = new LinkedHashMap<>();
+
+    /** Max transaction id found in log */
+    private long maxXid = -1;
+
+    /** Number of repeated records */
+    private int redoCount;
+
+    /**
+     * @param redoLsn redo LSN of last checkpoint
+     */
+    Recovery(Database database, WriteAheadLog log, long redoLsn) {
+        this.database = database;
+        this.log = log;
+        this.redoLsn = redoLsn;
+    }
+
+    /**
+     * Replay log starting with given LSN.
+     * @return number of repeated records
+     */
+    int run(long fromLsn) {
+        Iterator<LogRecord> records = log.read(fromLsn);
+        while (records.hasNext()) {
+            LogRecord record = records.next();
+            if (record.getLsn() >= redoLsn) {
+                redo(record);
+                redoCount++;
+            }
+
+            analyze(record);
+        }
+
+        undo();
+
+        if (maxXid >= 0)
+            IdGenerator.advance(IdGenerator.Type.XID, maxXid);
+
+        return redoCount;
+    }
+
+    // internal ==============================================================================
+    private void redo(LogRecord record) {
+        switch (record.getType()) {
+            case CREATE_TABLE:
+            case CREATE_INDEX:
+                database.redoCreateObject(record);
+                break;
+
+            case INSERT:
+                getHeap(record).redoInsert(record);
+                break;
+
+            case DELETE:
+                getHeap(record).redoDelete(record);
+                break;
+
+            case VERSION:
+                getHeap(record).redoVersion(record);
+                break;
+
+            case COLUMN_INSERT:
+                getColumnStore(record).redoInsert(record);
+                break;
+
+            case COLUMN_DELETE:
+                getColumnStore(record).redoDelete(record);
+                break;
+
+            case INDEX_INSERT:
+                getIndex(record).redoInsert(record);
+                break;
+
+            case INDEX_DELETE:
+                getIndex(record).redoDelete(record);
+                break;
+
+            case PAGE_IMAGE:
+                getIndex(record).redoPageImage(record);
+                break;
+        }
+    }
+
+    /**
+     * Track transactions to find ones to roll back.
+     */
+    private void analyze(LogRecord record) {
+        switch (record.getType()) {
+            case CREATE_TABLE:
+            case CREATE_INDEX:
+                return;
+
+            case INSERT:
+            case COLUMN_INSERT:
+                getChanges(record.getXid()).add(record);
+                break;
+
+            case VERSION:
+                // undo of delete clears deleting transaction, it is logged too but needs no undo
+                if (ByteBuffer.wrap(record.getData()).getLong(8) == record.getXid())
+                    getChanges(record.getXid()).add(record);
+                else
+                    getChanges(record.getXid());
+                break;
+
+            case DELETE:
+                // insert undone by statement rollback needs no undo, its slot may be reused by other row since
+                getChanges(record.getXid()).removeIf(change -> change.getType() == LogRecord.Type.INSERT
+                        && change.getFileId() == record.getFileId() && change.getPageNo() == record.getPageNo()
+                        && change.getSlot() == record.getSlot());
+                break;
+
+            case COLUMN_DELETE:
+            case INDEX_INSERT:
+            case INDEX_DELETE:
+            case PAGE_IMAGE:
+                getChanges(record.getXid());
+                break;
+
+            case COMMIT:
+            case ABORT:
+                active.remove(record.getXid());
+                break;
+        }
+
+        maxXid = Math.max(maxXid, record.getXid());
+    }
+
+    /**
+     * Roll back transactions which were running when database stopped.
+     */
+    private void undo() {
+        if (active.isEmpty())
+            return;
+
+        for (Map.Entry<Long, List<LogRecord>> entry : active.entrySet()) {
+            Transaction transaction = new Transaction(entry.getKey(), log);
+
+            for (LogRecord change : entry.getValue()) {
+                long recordId = change.getType() == LogRecord.Type.COLUMN_INSERT ? ColumnStore.getRow(change)
+                        : HeapFile.recordId(change.getPageNo(), change.getSlot());
+
+                if (change.getType() == LogRecord.Type.VERSION)
+                    transaction.addDelete(getTable(change), recordId);
+                else
+                    transaction.addInsert(getTable(change), recordId);
+            }
+            transaction.rollback();
+
+            if (transaction.getLastLsn() == 0)
+                transaction.log(LogRecord.abort(entry.getKey()));
+        }
+
+        log.flush();
+        active.clear();
+    }
+
+    private List<LogRecord> getChanges(long xid) {
+        return active.computeIfAbsent(xid, k -> new ArrayList<>());
+    }
+
+    private Table getTable(LogRecord record) {
+        Table table = database.getTable(record.getFileId());
+        if (table == null)
+            throw new DbException(String.format("log record %s refers to unknown table", record));
+
+        return table;
+    }
+
+    private HeapFile getHeap(LogRecord record) {
+        return (HeapFile) getTable(record).getStore();
+    }
+
+    private ColumnStore getColumnStore(LogRecord record) {
+        return (ColumnStore) getTable(record).getStore();
+    }
+
+    private PageIndex getIndex(LogRecord record) {
+        Index index = database.getIndex(record.getFileId());
+        if (index == null)
+            throw new DbException(String.format("log record %s refers to unknown index", record));
+
+        return (PageIndex) index;
+    }
+}
@@ -1,5 +1,83 @@
 package org.mydb.engine;
 
+import org.mydb.command.operator.QueryMemory;
+import org.mydb.engine.tx.IsolationLevel;
+import org.mydb.engine.tx.Snapshot;
+import org.mydb.engine.tx.Transaction;
+
 public interface Session {
     boolean isClosed();
+
+    /**
+     * @return database of this session, <code>null</code> if session is detached
+     */
+    Database getDatabase();
+
+    /**
+     * @return current transaction, started if session has none
+     */
+    Transaction getTransaction();
+
+    /**
+     * Start statement: statement of READ COMMITTED transaction takes new snapshot when it reads.
+     */
+    void startStatement();
+
+    /**
+     * @return snapshot of rows read by current statement, taken with transaction if session has none
+     */
+    Snapshot getSnapshot();
+
+    IsolationLevel getIsolationLevel();
+
+    /**
+     * Isolation level applies to snapshots taken later.
+     */
+    void setIsolationLevel(IsolationLevel isolationLevel);
+
+    /**
+     * @return time transactions of session waited for row locks, milliseconds
+     */
+    long getLockWaitTime();
+
+    /**
+     * @return <code>true</code> if queries run in vectorized mode, reading rows in batches
+     */
+    boolean isVectorized();
+
+    void setVectorized(boolean vectorized);
+
+    /**
+     * @return memory in bytes query may use for rows it holds, i.e. to join them,
+     * rows beyond it are written to temporary files
+     */
+    long getQueryMemory();
+
+    void setQueryMemory(long queryMemory);
+
+    /**
+     * @return number of threads query reads table with, limited by max parallelism of database,
+     * 1 if query runs in session thread
+     */
+    int getParallelism();
+
+    void setParallelism(int parallelism);
+
+    /**
+     * @return memory of the last query of session, i.e. to find memory it held at peak,
+     * <code>null</code> if session ran no query
+     */
+    QueryMemory getLastQueryMemory();
+
+    void setLastQueryMemory(QueryMemory memory);
+
+    boolean isAutoCommit();
+
+    void setAutoCommit(boolean autoCommit);
+
+    void commit();
+
+    void rollback();
+
+    void close();
 }
@@ -1,5 +1,5 @@
 package org.mydb.engine;
 
 public interface SessionFactory {
-    Session createSession();
+    Session createSession(ConnectionInfo connectionInfo);
 }
@@ -1,9 +1,193 @@
 package org.mydb.engine;
 
+import org.mydb.command.operator.QueryMemory;
+import org.mydb.engine.tx.IsolationLevel;
+import org.mydb.engine.tx.Snapshot;
+import org.mydb.engine.tx.Transaction;
+
+import java.util.concurrent.TimeUnit;
+
 public class SessionImpl implements Session {
+    /** Default memory of query in kilobytes */
+    public static final int DEFAULT_QUERY_MEMORY_KB = 64 * 1024;
+
+    private final Database database;
     private boolean closed;
+    private boolean autoCommit = true;
+    private boolean vectorized;
+    private long queryMemory = DEFAULT_QUERY_MEMORY_KB * 1024L;
+    private int parallelism = 1;
+
+    /** Memory of the last query, <code>null</code> if session ran no query */
+    private QueryMemory lastQueryMemory;
+
+    private IsolationLevel isolationLevel = IsolationLevel.READ_COMMITTED;
+
+    /** Current transaction, <code>null</code> if not started */
+    private Transaction transaction;
+
+    /** Current statement read snapshot of transaction already */
+    private boolean statementSnapshot;
+
+    /** Time ended transactions waited for row locks, nanoseconds */
+    private long lockWaitTime;
+
+    /**
+     * Detached session not bound to database.
+     */
+    public SessionImpl() {
+        this(null);
+    }
+
+    public SessionImpl(Database database) {
+        this.database = database;
+    }
 
     public boolean isClosed() {
         return closed;
     }
+
+    @Override
+    public Database getDatabase() {
+        return database;
+    }
+
+    @Override
+    public Transaction getTransaction() {
+        if (transaction == null) {
+            transaction = database.beginTransaction();
+        }
+
+        return transaction;
+    }
+
+    @Override
+    public void startStatement() {
+        statementSnapshot = false;
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        Transaction transaction = getTransaction();
+
+        if (transaction.getSnapshot() == null
+                || isolationLevel == IsolationLevel.READ_COMMITTED && !statementSnapshot) {
+            transaction.setSnapshot(database.newSnapshot(transaction));
+        }
+
+        statementSnapshot = true;
+        return transaction.getSnapshot();
+    }
+
+    @Override
+    public IsolationLevel getIsolationLevel() {
+        return isolationLevel;
+    }
+
+    @Override
+    public void setIsolationLevel(IsolationLevel isolationLevel) {
+        this.isolationLevel = isolationLevel;
+    }
+
+    @Override
+    public long getLockWaitTime() {
+        Transaction transaction = this.transaction;
+        long time = lockWaitTime + (transaction == null ? 0 : transaction.getLockWaitTime());
+        return TimeUnit.NANOSECONDS.toMillis(time);
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return vectorized;
+    }
+
+    @Override
+    public void setVectorized(boolean vectorized) {
+        this.vectorized = vectorized;
+    }
+
+    @Override
+    public long getQueryMemory() {
+        return queryMemory;
+    }
+
+    @Override
+    public void setQueryMemory(long queryMemory) {
+        this.queryMemory = queryMemory;
+    }
+
+    @Override
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    @Override
+    public QueryMemory getLastQueryMemory() {
+        return lastQueryMemory;
+    }
+
+    @Override
+    public void setLastQueryMemory(QueryMemory memory) {
+        this.lastQueryMemory = memory;
+    }
+
+    @Override
+    public boolean isAutoCommit() {
+        return autoCommit;
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) {
+        if (autoCommit && !this.autoCommit)
+            commit();
+
+        this.autoCommit = autoCommit;
+    }
+
+    @Override
+    public void commit() {
+        if (transaction == null)
+            return;
+
+        try {
+            transaction.commit();
+        } finally {
+            lockWaitTime += transaction.getLockWaitTime();
+            database.endTransaction(transaction);
+            transaction = null;
+        }
+    }
+
+    @Override
+    public void rollback() {
+        if (transaction == null)
+            return;
+
+        try {
+            transaction.rollback();
+        } finally {
+            lockWaitTime += transaction.getLockWaitTime();
+            database.endTransaction(transaction);
+            transaction = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed)
+            return;
+
+        if (database != null) {
+            rollback();
+            closed = true;
+            Engine.getInstance().closeSession(this);
+        } else {
+            closed = true;
+        }
+    }
 }
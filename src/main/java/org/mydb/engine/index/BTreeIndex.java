@@ -0,0 +1,434 @@
+package org.mydb.engine.index;
+
+import org.mydb.engine.log.LogRecord;
+import org.mydb.engine.page.BufferPool;
+import org.mydb.engine.page.PageFile;
+import org.mydb.engine.table.TableException;
+import org.mydb.engine.tx.Transaction;
+import org.mydb.util.Bytes;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * B+tree index in page file. Root is always page 0, so root split moves root entries to two new pages
+ * and root never moves. Leaves are linked in key order for range scans.
+ * <p>
+ * Changes are logged like heap changes: entry insert and delete by page and position,
+ * pages changed by split are logged as whole page images. Splits are not undone by rollback,
+ * rollback removes keys of transaction only. Pages are not merged when keys are removed.
+ * <p>
+ * Writers hold tree lock exclusively, readers share it. Scan reads one leaf at a time and looks up
+ * next key again when leaf was split meanwhile, so long scan does not block writers.
+ */
+public class BTreeIndex extends PageIndex {
+    /** Root page number */
+    private static final int ROOT = 0;
+
+    /** Part of page filled by load, room is left for inserts */
+    private static final double LOAD_FILL_FACTOR = 0.9;
+
+    /** Tree structure lock */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Open index file, empty file gets empty root leaf written and synced at once.
+     */
+    public BTreeIndex(PageFile file, BufferPool pool, boolean unique) {
+        super(file, pool, unique);
+
+        if (file.getPageCount() == 0) {
+            ByteBuffer buffer = ByteBuffer.allocate(file.getPageSize());
+            new BTreePage(buffer).init(BTreePage.TYPE_LEAF);
+            file.writePage(ROOT, buffer);
+            file.sync();
+        }
+    }
+
+    @Override
+    public boolean add(Transaction tx, byte[] key, long recordId) {
+        checkKeySize(key);
+
+        lock.writeLock().lock();
+        try {
+            List<Integer> path = new ArrayList<>();
+            BufferPool.Frame frame = findLeaf(key, path);
+            frame.writeLock();
+            try {
+                BTreePage leaf = new BTreePage(frame.getBuffer());
+                int index = leaf.search(key);
+                if (index >= 0)
+                    return false;
+
+                index = -index - 1;
+                byte[] entry = BTreePage.leafEntry(key, recordId);
+
+                if (leaf.canInsert(entry.length)) {
+                    leaf.insert(index, entry);
+                    setLsn(frame, log(tx, LogRecord.indexInsert(xid(tx), getId(), frame.getPageNo(), index, entry)));
+                    return true;
+                }
+            } finally {
+                frame.writeUnlock();
+                pool.unpin(frame);
+            }
+
+            split(tx, path, path.size() - 1, key, BTreePage.leafEntry(key, recordId));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Transaction tx, byte[] key) {
+        lock.writeLock().lock();
+        try {
+            BufferPool.Frame frame = findLeaf(key, new ArrayList<>());
+            frame.writeLock();
+            try {
+                BTreePage leaf = new BTreePage(frame.getBuffer());
+                int index = leaf.search(key);
+                if (index < 0)
+                    return;
+
+                leaf.remove(index);
+                setLsn(frame, log(tx, LogRecord.indexDelete(xid(tx), getId(), frame.getPageNo(), index)));
+            } finally {
+                frame.writeUnlock();
+                pool.unpin(frame);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<Long> find(byte[] from, byte[] to) {
+        return new Iterator<Long>() {
+            /** Entries of current leaf in range */
+            private final List<byte[]> keys = new ArrayList<>();
+            private final List<Long> ids = new ArrayList<>();
+            private int position;
+
+            /** Last key read, next leaf is looked up by it */
+            private byte[] lastKey;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                while (position >= ids.size()) {
+                    if (done)
+                        return false;
+
+                    keys.clear();
+                    ids.clear();
+                    position = 0;
+                    done = readLeaf(from, to, lastKey, keys, ids);
+
+                    if (!keys.isEmpty())
+                        lastKey = keys.get(keys.size() - 1);
+                }
+
+                return true;
+            }
+
+            @Override
+            public Long next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                return ids.get(position++);
+            }
+        };
+    }
+
+    /**
+     * Build tree bottom up: leaves are filled in key order, then each node level over the level below,
+     * until level fits into root. Pages are written to file directly and synced.
+     * @throws TableException if key is too large, nothing is written then
+     */
+    @Override
+    public void load(List<byte[]> keys, List<Long> recordIds) {
+        if (keys.isEmpty())
+            return;
+
+        for (byte[] key : keys)
+            checkKeySize(key);
+
+        lock.writeLock().lock();
+        try {
+            pool.invalidate(file);
+
+            List<byte[]> entries = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++)
+                entries.add(BTreePage.leafEntry(keys.get(i), recordIds.get(i)));
+
+            List<byte[]> level = loadLevel(BTreePage.TYPE_LEAF, entries);
+            while (level != null)
+                level = loadLevel(BTreePage.TYPE_NODE, level);
+
+            file.sync();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // internal ==============================================================================
+    /**
+     * Descend to leaf which may contain key.
+     * @param path filled with page numbers from root to leaf
+     * @return pinned leaf, not latched
+     */
+    private BufferPool.Frame findLeaf(byte[] key, List<Integer> path) {
+        int pageNo = ROOT;
+
+        while (true) {
+            path.add(pageNo);
+            BufferPool.Frame frame = pool.pin(file, pageNo);
+
+            int child;
+            frame.readLock();
+            try {
+                BTreePage page = new BTreePage(frame.getBuffer());
+                if (page.isLeaf())
+                    return frame;
+
+                child = page.findChild(key);
+            } finally {
+                frame.readUnlock();
+            }
+
+            pool.unpin(frame);
+            pageNo = child;
+        }
+    }
+
+    /**
+     * Read entries in range from leaf with the first key after last key read.
+     * @return <code>true</code> if there are no more entries in range
+     */
+    private boolean readLeaf(byte[] from, byte[] to, byte[] lastKey, List<byte[]> keys, List<Long> ids) {
+        byte[] start = lastKey != null ? lastKey : from != null ? from : new byte[0];
+
+        lock.readLock().lock();
+        try {
+            BufferPool.Frame frame = findLeaf(start, new ArrayList<>());
+
+            while (true) {
+                int next;
+                frame.readLock();
+                try {
+                    BTreePage leaf = new BTreePage(frame.getBuffer());
+                    int index = leaf.search(start);
+                    if (index < 0)
+                        index = -index - 1;
+                    else if (lastKey != null)
+                        index++;
+
+                    for (; index < leaf.getCount(); index++) {
+                        byte[] key = leaf.getKey(index);
+                        if (to != null && Bytes.compareToBound(key, to) > 0)
+                            return true;
+
+                        keys.add(key);
+                        ids.add(leaf.getRecordId(index));
+                    }
+
+                    next = leaf.getLink();
+                } finally {
+                    frame.readUnlock();
+                    pool.unpin(frame);
+                }
+
+                if (next == 0)
+                    return true;
+
+                if (!keys.isEmpty())
+                    return false;
+
+                frame = pool.pin(file, next);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Split full page and insert entry, separator of new page is inserted into parent,
+     * which is split the same way when full.
+     * @param path page numbers from root to page
+     * @param level level of page in path
+     * @param key key of entry
+     * @param entry entry to insert
+     */
+    private void split(Transaction tx, List<Integer> path, int level, byte[] key, byte[] entry) {
+        int pageNo = path.get(level);
+        BufferPool.Frame frame = pool.pin(file, pageNo);
+        frame.writeLock();
+
+        byte[] separator;
+        int rightNo;
+        try {
+            BTreePage page = new BTreePage(frame.getBuffer());
+            boolean leaf = page.isLeaf();
+            byte type = leaf ? BTreePage.TYPE_LEAF : BTreePage.TYPE_NODE;
+
+            if (page.canInsert(entry.length)) {
+                int index = -page.search(key) - 1;
+                page.insert(index, entry);
+                setLsn(frame, log(tx, LogRecord.indexInsert(xid(tx), getId(), pageNo, index, entry)));
+                return;
+            }
+
+            List<byte[]> entries = new ArrayList<>();
+            for (int i = 0; i < page.getCount(); i++)
+                entries.add(page.getEntry(i));
+
+            entries.add(-page.search(key) - 1, entry);
+
+            int middle = middle(entries);
+            List<byte[]> left = entries.subList(0, middle);
+            List<byte[]> right = entries.subList(middle, entries.size());
+
+            separator = BTreePage.entryKey(right.get(0));
+
+            // node keeps separator child as link of right page, separator moves to parent
+            int rightLink = 0;
+            if (!leaf) {
+                rightLink = ByteBuffer.wrap(right.get(0)).getInt(right.get(0).length - 4);
+                right = right.subList(1, right.size());
+            }
+
+            rightNo = file.allocatePage();
+
+            if (pageNo == ROOT) {
+                int leftNo = file.allocatePage();
+                int leftLink = page.getLink();
+
+                if (leaf) {
+                    writePage(tx, leftNo, type, left, rightNo);
+                    writePage(tx, rightNo, type, right, 0);
+                } else {
+                    writePage(tx, leftNo, type, left, leftLink);
+                    writePage(tx, rightNo, type, right, rightLink);
+                }
+
+                List<byte[]> root = new ArrayList<>();
+                root.add(BTreePage.nodeEntry(separator, rightNo));
+                fill(page, BTreePage.TYPE_NODE, root, leftNo);
+                setLsn(frame, log(tx, LogRecord.pageImage(xid(tx), getId(), pageNo, frame.getBuffer())));
+                return;
+            }
+
+            if (leaf) {
+                writePage(tx, rightNo, type, right, page.getLink());
+                fill(page, type, new ArrayList<>(left), rightNo);
+            } else {
+                writePage(tx, rightNo, type, right, rightLink);
+                fill(page, type, new ArrayList<>(left), page.getLink());
+            }
+
+            setLsn(frame, log(tx, LogRecord.pageImage(xid(tx), getId(), pageNo, frame.getBuffer())));
+        } finally {
+            frame.writeUnlock();
+            pool.unpin(frame);
+        }
+
+        split(tx, path, level - 1, separator, BTreePage.nodeEntry(separator, rightNo));
+    }
+
+    /**
+     * @return index of the first entry of right half, halves have about the same size
+     */
+    private static int middle(List<byte[]> entries) {
+        int total = 0;
+        for (byte[] entry : entries)
+            total += entry.length;
+
+        int size = 0;
+        for (int i = 0; i < entries.size() - 1; i++) {
+            size += entries.get(i).length;
+            if (size >= total / 2)
+                return Math.max(i, 1);
+        }
+
+        return entries.size() - 1;
+    }
+
+    /**
+     * Fill pages of one level with entries in order. Page is written when the next one is started,
+     * so the last leaf is written without link.
+     * @return entries of the level above, <code>null</code> if level was written as root
+     */
+    private List<byte[]> loadLevel(byte type, List<byte[]> entries) {
+        boolean leaf = type == BTreePage.TYPE_LEAF;
+        int capacity = (int) ((file.getPageSize() - BTreePage.HEADER_SIZE) * LOAD_FILL_FACTOR);
+
+        List<byte[]> firstKeys = new ArrayList<>();
+        List<Integer> pageNos = new ArrayList<>();
+
+        ByteBuffer pending = null;
+        ByteBuffer buffer = null;
+        BTreePage page = null;
+        int used = 0;
+
+        for (byte[] entry : entries) {
+            if (page == null || used + entry.length + BTreePage.SLOT_SIZE > capacity) {
+                if (pending != null)
+                    pageNos.add(writeLoaded(pending, leaf));
+
+                pending = buffer;
+                buffer = ByteBuffer.allocate(file.getPageSize());
+                page = new BTreePage(buffer);
+                page.init(type);
+
+                firstKeys.add(BTreePage.entryKey(entry));
+                used = 0;
+
+                // node page gets the first child as link
+                if (!leaf) {
+                    page.setLink(ByteBuffer.wrap(entry).getInt(entry.length - 4));
+                    continue;
+                }
+            }
+
+            page.insert(page.getCount(), entry);
+            used += entry.length + BTreePage.SLOT_SIZE;
+        }
+
+        if (pending == null) {
+            file.writePage(ROOT, buffer);
+            return null;
+        }
+
+        pageNos.add(writeLoaded(pending, leaf));
+        pageNos.add(writeLoaded(buffer, false));
+
+        List<byte[]> nodeEntries = new ArrayList<>(pageNos.size());
+        for (int i = 0; i < pageNos.size(); i++)
+            nodeEntries.add(BTreePage.nodeEntry(firstKeys.get(i), pageNos.get(i)));
+
+        return nodeEntries;
+    }
+
+    /**
+     * Write loaded page at the next page number.
+     * @param linkNext link leaf to the page written after it
+     * @return page number
+     */
+    private int writeLoaded(ByteBuffer buffer, boolean linkNext) {
+        int pageNo = file.allocatePage();
+        if (linkNext)
+            new BTreePage(buffer).setLink(pageNo + 1);
+
+        file.writePage(pageNo, buffer);
+        return pageNo;
+    }
+
+}
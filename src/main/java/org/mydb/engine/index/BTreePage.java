@@ -0,0 +1,284 @@
+package org.mydb.engine.index;
+
+import org.mydb.engine.page.Page;
+
+import java.nio.ByteBuffer;
+
+/**
+ * B+tree page view over page buffer.
+ * <pre>
+ * | header | link | slot 0 | slot 1 | ... free space ... | entry 1 | entry 0 |
+ * </pre>
+ * Slots keep entry offsets in key order, entries are written from the end of page.
+ * Leaf entry is key and record id, link is next leaf page number (0 for the last leaf).
+ * Node entry is key and child page with keys not less than entry key, link is child page with smaller keys.
+ */
+class BTreePage {
+    static final byte TYPE_LEAF = 2;
+    static final byte TYPE_NODE = 3;
+
+    /** Header: type (1), reserved (1), entry count (2), free space end (2), garbage (2), page LSN (8), link (4) */
+    static final int HEADER_SIZE = Page.HEADER_SIZE + 8;
+
+    static final int SLOT_SIZE = 2;
+
+    private static final int COUNT_OFFSET = 2;
+    private static final int FREE_END_OFFSET = 4;
+    private static final int GARBAGE_OFFSET = 6;
+    private static final int LINK_OFFSET = Page.HEADER_SIZE;
+
+    /** Entry: key length (2), key, record id (8) or child page (4) */
+    private static final int KEY_LENGTH_SIZE = 2;
+
+    private final ByteBuffer buffer;
+
+    BTreePage(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Max key size, so that page always has room for at least four entries.
+     */
+    static int maxKeySize(int pageSize) {
+        return (pageSize - HEADER_SIZE) / 4 - SLOT_SIZE - KEY_LENGTH_SIZE - 8;
+    }
+
+    void init(byte type) {
+        for (int i = 0; i < buffer.capacity(); i++)
+            buffer.put(i, (byte) 0);
+
+        buffer.put(Page.TYPE_OFFSET, type);
+        setCount(0);
+        setFreeEnd(buffer.capacity());
+    }
+
+    boolean isLeaf() {
+        return Page.getType(buffer) == TYPE_LEAF;
+    }
+
+    int getCount() {
+        return buffer.getChar(COUNT_OFFSET);
+    }
+
+    int getLink() {
+        return buffer.getInt(LINK_OFFSET);
+    }
+
+    void setLink(int pageNo) {
+        buffer.putInt(LINK_OFFSET, pageNo);
+    }
+
+    byte[] getKey(int index) {
+        int offset = getOffset(index);
+        byte[] key = new byte[buffer.getChar(offset)];
+        for (int i = 0; i < key.length; i++)
+            key[i] = buffer.get(offset + KEY_LENGTH_SIZE + i);
+
+        return key;
+    }
+
+    long getRecordId(int index) {
+        int offset = getOffset(index);
+        return buffer.getLong(offset + KEY_LENGTH_SIZE + buffer.getChar(offset));
+    }
+
+    int getChild(int index) {
+        int offset = getOffset(index);
+        return buffer.getInt(offset + KEY_LENGTH_SIZE + buffer.getChar(offset));
+    }
+
+    /**
+     * @return index of key or <code>-(insertion point) - 1</code>
+     */
+    int search(byte[] key) {
+        int low = 0;
+        int high = getCount() - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int result = compareKey(mid, key);
+
+            if (result < 0)
+                low = mid + 1;
+            else if (result > 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+
+        return -(low + 1);
+    }
+
+    /**
+     * @return child page which may contain key
+     */
+    int findChild(byte[] key) {
+        int index = search(key);
+        if (index < 0)
+            index = -index - 2;
+
+        return index < 0 ? getLink() : getChild(index);
+    }
+
+    /**
+     * @return leaf entry bytes
+     */
+    static byte[] leafEntry(byte[] key, long recordId) {
+        ByteBuffer entry = ByteBuffer.allocate(KEY_LENGTH_SIZE + key.length + 8);
+        entry.putChar((char) key.length).put(key).putLong(recordId);
+        return entry.array();
+    }
+
+    /**
+     * @return node entry bytes
+     */
+    static byte[] nodeEntry(byte[] key, int child) {
+        ByteBuffer entry = ByteBuffer.allocate(KEY_LENGTH_SIZE + key.length + 4);
+        entry.putChar((char) key.length).put(key).putInt(child);
+        return entry.array();
+    }
+
+    /**
+     * @return entry bytes as written by {@link #insert(int, byte[])}
+     */
+    static byte[] entryKey(byte[] entry) {
+        byte[] key = new byte[ByteBuffer.wrap(entry).getChar(0)];
+        System.arraycopy(entry, KEY_LENGTH_SIZE, key, 0, key.length);
+        return key;
+    }
+
+    byte[] getEntry(int index) {
+        int offset = getOffset(index);
+        byte[] entry = new byte[getEntrySize(offset)];
+        for (int i = 0; i < entry.length; i++)
+            entry[i] = buffer.get(offset + i);
+
+        return entry;
+    }
+
+    /**
+     * @return <code>true</code> if entry fits, page is compacted if needed
+     */
+    boolean canInsert(int entrySize) {
+        int needed = entrySize + SLOT_SIZE;
+        if (getFreeSpace() >= needed)
+            return true;
+
+        if (getFreeSpace() + getGarbage() < needed)
+            return false;
+
+        compact();
+        return true;
+    }
+
+    /**
+     * Insert entry at index, entry must fit.
+     */
+    void insert(int index, byte[] entry) {
+        int count = getCount();
+        int offset = getFreeEnd() - entry.length;
+
+        for (int i = 0; i < entry.length; i++)
+            buffer.put(offset + i, entry[i]);
+
+        for (int i = count; i > index; i--)
+            setOffset(i, getOffset(i - 1));
+
+        setOffset(index, offset);
+        setCount(count + 1);
+        setFreeEnd(offset);
+    }
+
+    void remove(int index) {
+        int count = getCount();
+        setGarbage(getGarbage() + getEntrySize(getOffset(index)));
+
+        for (int i = index; i < count - 1; i++)
+            setOffset(i, getOffset(i + 1));
+
+        setCount(count - 1);
+    }
+
+    /**
+     * Remove entries starting with index.
+     */
+    void truncate(int index) {
+        while (getCount() > index)
+            remove(getCount() - 1);
+
+        compact();
+    }
+
+    // internal ==============================================================================
+    private int compareKey(int index, byte[] key) {
+        int offset = getOffset(index);
+        int length = buffer.getChar(offset);
+        int common = Math.min(length, key.length);
+
+        for (int i = 0; i < common; i++) {
+            int result = (buffer.get(offset + KEY_LENGTH_SIZE + i) & 0xFF) - (key[i] & 0xFF);
+            if (result != 0)
+                return result;
+        }
+
+        return length - key.length;
+    }
+
+    /**
+     * Rewrite entries without gaps.
+     */
+    private void compact() {
+        int count = getCount();
+        byte[][] entries = new byte[count][];
+        for (int i = 0; i < count; i++)
+            entries[i] = getEntry(i);
+
+        int end = buffer.capacity();
+        for (int i = 0; i < count; i++) {
+            end -= entries[i].length;
+            for (int j = 0; j < entries[i].length; j++)
+                buffer.put(end + j, entries[i][j]);
+
+            setOffset(i, end);
+        }
+
+        setFreeEnd(end);
+        setGarbage(0);
+    }
+
+    private int getEntrySize(int offset) {
+        return KEY_LENGTH_SIZE + buffer.getChar(offset) + (isLeaf() ? 8 : 4);
+    }
+
+    private int getFreeSpace() {
+        return getFreeEnd() - HEADER_SIZE - getCount() * SLOT_SIZE;
+    }
+
+    private int getOffset(int index) {
+        return buffer.getChar(HEADER_SIZE + index * SLOT_SIZE);
+    }
+
+    private void setOffset(int index, int offset) {
+        buffer.putChar(HEADER_SIZE + index * SLOT_SIZE, (char) offset);
+    }
+
+    private void setCount(int count) {
+        buffer.putChar(COUNT_OFFSET, (char) count);
+    }
+
+    private int getFreeEnd() {
+        return buffer.getChar(FREE_END_OFFSET);
+    }
+
+    private void setFreeEnd(int freeEnd) {
+        buffer.putChar(FREE_END_OFFSET, (char) freeEnd);
+    }
+
+    private int getGarbage() {
+        return buffer.getChar(GARBAGE_OFFSET);
+    }
+
+    private void setGarbage(int garbage) {
+        buffer.putChar(GARBAGE_OFFSET, (char) garbage);
+    }
+}
@@ -0,0 +1,440 @@
+package org.mydb.engine.index;
+
+import org.mydb.engine.log.LogRecord;
+import org.mydb.engine.page.BufferPool;
+import org.mydb.engine.page.Page;
+import org.mydb.engine.page.PageFile;
+import org.mydb.engine.table.TableException;
+import org.mydb.engine.tx.Transaction;
+import org.mydb.util.Bytes;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Linear hashing index in page file, finds keys by equality only.
+ * <p>
+ * Page 0 keeps split level, next bucket to split and directory page numbers, directory pages keep
+ * the first page of every bucket. Bucket is chain of pages in {@link BTreePage} leaf format linked
+ * by overflow page number. Bucket of key is <code>hash mod 2^level</code>, or <code>hash mod 2^(level + 1)</code>
+ * for buckets already split at this level. Insert that needs overflow page splits the next bucket,
+ * so number of buckets grows with number of keys and lookup reads one bucket page in most cases.
+ * <p>
+ * Key of non-unique index is hashed without record id, so lookup by column values finds all rows.
+ * Changes are logged like B+tree changes, split is logged as page images.
+ */
+public class HashIndex extends PageIndex {
+    private static final int META = 0;
+
+    private static final byte TYPE_META = 4;
+    private static final byte TYPE_DIRECTORY = 5;
+
+    /** Meta page: header, level (4), next bucket to split (4), directory count (4), directory pages (4 each) */
+    private static final int LEVEL_OFFSET = Page.HEADER_SIZE;
+    private static final int NEXT_OFFSET = LEVEL_OFFSET + 4;
+    private static final int DIRECTORY_COUNT_OFFSET = NEXT_OFFSET + 4;
+    private static final int DIRECTORIES_OFFSET = DIRECTORY_COUNT_OFFSET + 4;
+
+    private final int bucketsPerDirectory;
+    private final int maxDirectories;
+
+    /** Bucket structure lock */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Open index file, empty file gets meta page, directory and one empty bucket written and synced at once.
+     */
+    public HashIndex(PageFile file, BufferPool pool, boolean unique) {
+        super(file, pool, unique);
+        this.bucketsPerDirectory = (file.getPageSize() - Page.HEADER_SIZE) / 4;
+        this.maxDirectories = (file.getPageSize() - DIRECTORIES_OFFSET) / 4;
+
+        if (file.getPageCount() == 0) {
+            ByteBuffer buffer = ByteBuffer.allocate(file.getPageSize());
+            buffer.put(Page.TYPE_OFFSET, TYPE_META);
+            buffer.putInt(DIRECTORY_COUNT_OFFSET, 1);
+            buffer.putInt(DIRECTORIES_OFFSET, 1);
+            file.writePage(META, buffer);
+
+            buffer = ByteBuffer.allocate(file.getPageSize());
+            buffer.put(Page.TYPE_OFFSET, TYPE_DIRECTORY);
+            buffer.putInt(Page.HEADER_SIZE, 2);
+            file.writePage(1, buffer);
+
+            buffer = ByteBuffer.allocate(file.getPageSize());
+            new BTreePage(buffer).init(BTreePage.TYPE_LEAF);
+            file.writePage(2, buffer);
+
+            file.sync();
+        }
+    }
+
+    @Override
+    public boolean add(Transaction tx, byte[] key, long recordId) {
+        checkKeySize(key);
+
+        byte[] entry = BTreePage.leafEntry(key, recordId);
+
+        lock.writeLock().lock();
+        try {
+            int target = 0;
+            int last = 0;
+            for (int pageNo = findBucket(hash(key)); pageNo != 0; ) {
+                BufferPool.Frame frame = pool.pin(file, pageNo);
+                frame.writeLock();
+                try {
+                    BTreePage page = new BTreePage(frame.getBuffer());
+                    if (page.search(key) >= 0)
+                        return false;
+
+                    if (target == 0 && page.canInsert(entry.length))
+                        target = pageNo;
+
+                    last = pageNo;
+                    pageNo = page.getLink();
+                } finally {
+                    frame.writeUnlock();
+                    pool.unpin(frame);
+                }
+            }
+
+            if (target != 0) {
+                BufferPool.Frame frame = pool.pin(file, target);
+                frame.writeLock();
+                try {
+                    BTreePage page = new BTreePage(frame.getBuffer());
+                    int index = -page.search(key) - 1;
+                    page.insert(index, entry);
+                    setLsn(frame, log(tx, LogRecord.indexInsert(xid(tx), getId(), target, index, entry)));
+                } finally {
+                    frame.writeUnlock();
+                    pool.unpin(frame);
+                }
+
+                return true;
+            }
+
+            int overflow = file.allocatePage();
+            writePage(tx, overflow, BTreePage.TYPE_LEAF, Collections.singletonList(entry), 0);
+            setLink(tx, last, overflow);
+
+            split(tx);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Keys are checked first, then added one by one without logging, pages are written and synced at the end.
+     */
+    @Override
+    public void load(List<byte[]> keys, List<Long> recordIds) {
+        for (byte[] key : keys)
+            checkKeySize(key);
+
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < keys.size(); i++)
+                add(null, keys.get(i), recordIds.get(i));
+
+            pool.flush(file);
+            file.sync();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Transaction tx, byte[] key) {
+        lock.writeLock().lock();
+        try {
+            for (int pageNo = findBucket(hash(key)); pageNo != 0; ) {
+                BufferPool.Frame frame = pool.pin(file, pageNo);
+                frame.writeLock();
+                try {
+                    BTreePage page = new BTreePage(frame.getBuffer());
+                    int index = page.search(key);
+                    if (index >= 0) {
+                        page.remove(index);
+                        setLsn(frame, log(tx, LogRecord.indexDelete(xid(tx), getId(), pageNo, index)));
+                        return;
+                    }
+
+                    pageNo = page.getLink();
+                } finally {
+                    frame.writeUnlock();
+                    pool.unpin(frame);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find rows with key equal to <code>from</code>, range lookups are not supported.
+     * Record ids of bucket are read at once.
+     */
+    @Override
+    public Iterator<Long> find(byte[] from, byte[] to) {
+        if (from == null || !Arrays.equals(from, to)) {
+            throw new TableException(String.format("hash index %d supports equality lookups only", getId()));
+        }
+
+        List<Long> ids = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            for (int pageNo = findBucket(hash(from, from.length)); pageNo != 0; ) {
+                BufferPool.Frame frame = pool.pin(file, pageNo);
+                frame.readLock();
+                try {
+                    BTreePage page = new BTreePage(frame.getBuffer());
+                    for (int i = 0; i < page.getCount(); i++) {
+                        byte[] key = page.getKey(i);
+                        if (hashLength(key) == from.length && Bytes.compareToBound(key, from) == 0)
+                            ids.add(page.getRecordId(i));
+                    }
+
+                    pageNo = page.getLink();
+                } finally {
+                    frame.readUnlock();
+                    pool.unpin(frame);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return ids.iterator();
+    }
+
+    // internal ==============================================================================
+    /**
+     * Split the next bucket: entries which hash to new bucket at the next level move to new bucket.
+     * New bucket is written and addressed before split bucket is rewritten, so split cut by crash
+     * loses no keys, only leaves copies in split bucket which are dropped by its next split.
+     */
+    private void split(Transaction tx) {
+        BufferPool.Frame metaFrame = pool.pin(file, META);
+        metaFrame.writeLock();
+        try {
+            ByteBuffer meta = metaFrame.getBuffer();
+            int level = meta.getInt(LEVEL_OFFSET);
+            int next = meta.getInt(NEXT_OFFSET);
+            int directories = meta.getInt(DIRECTORY_COUNT_OFFSET);
+            int bucket = next + (1 << level);
+
+            if (bucket / bucketsPerDirectory >= directories) {
+                // directory is full, buckets just get longer
+                if (directories == maxDirectories || level == 30)
+                    return;
+
+                int directory = file.allocatePage();
+                BufferPool.Frame frame = pool.pinNew(file, directory);
+                frame.writeLock();
+                try {
+                    ByteBuffer buffer = frame.getBuffer();
+                    for (int i = 0; i < buffer.capacity(); i++)
+                        buffer.put(i, (byte) 0);
+
+                    buffer.put(Page.TYPE_OFFSET, TYPE_DIRECTORY);
+                    setLsn(frame, log(tx, LogRecord.pageImage(xid(tx), getId(), directory, buffer)));
+                } finally {
+                    frame.writeUnlock();
+                    pool.unpin(frame);
+                }
+
+                meta.putInt(DIRECTORIES_OFFSET + directories * 4, directory);
+                meta.putInt(DIRECTORY_COUNT_OFFSET, directories + 1);
+            }
+
+            List<Integer> pages = new ArrayList<>();
+            List<byte[]> entries = new ArrayList<>();
+            for (int pageNo = getBucketPage(meta, next); pageNo != 0; ) {
+                pages.add(pageNo);
+
+                BufferPool.Frame frame = pool.pin(file, pageNo);
+                try {
+                    BTreePage page = new BTreePage(frame.getBuffer());
+                    for (int i = 0; i < page.getCount(); i++)
+                        entries.add(page.getEntry(i));
+
+                    pageNo = page.getLink();
+                } finally {
+                    pool.unpin(frame);
+                }
+            }
+
+            int mask = (2 << level) - 1;
+            List<byte[]> kept = new ArrayList<>();
+            List<byte[]> moved = new ArrayList<>();
+            for (byte[] entry : entries) {
+                int hash = hash(BTreePage.entryKey(entry));
+                if ((hash & mask) == next)
+                    kept.add(entry);
+                else if ((hash & mask) == bucket)
+                    moved.add(entry);
+            }
+
+            kept.sort((a, b) -> Bytes.compare(BTreePage.entryKey(a), BTreePage.entryKey(b)));
+            moved.sort((a, b) -> Bytes.compare(BTreePage.entryKey(a), BTreePage.entryKey(b)));
+
+            // split bucket keeps its first page, other pages go to new bucket first
+            Deque<Integer> free = new ArrayDeque<>(pages.subList(1, pages.size()));
+            int movedFirst = writeBucket(tx, moved, free, free.isEmpty() ? file.allocatePage() : free.poll());
+            setBucketPage(tx, meta, bucket, movedFirst);
+
+            if (next + 1 == 1 << level) {
+                meta.putInt(LEVEL_OFFSET, level + 1);
+                meta.putInt(NEXT_OFFSET, 0);
+            } else {
+                meta.putInt(NEXT_OFFSET, next + 1);
+            }
+
+            setLsn(metaFrame, log(tx, LogRecord.pageImage(xid(tx), getId(), META, meta)));
+
+            writeBucket(tx, kept, free, pages.get(0));
+        } finally {
+            metaFrame.writeUnlock();
+            pool.unpin(metaFrame);
+        }
+    }
+
+    /**
+     * Write sorted entries to chain of pages. Pages are taken from free pages first, pages left
+     * are linked at the end of chain as empty pages, so no page is lost.
+     * @return first page
+     */
+    private int writeBucket(Transaction tx, List<byte[]> entries, Deque<Integer> free, int first) {
+        int capacity = file.getPageSize() - BTreePage.HEADER_SIZE;
+
+        List<List<byte[]>> chunks = new ArrayList<>();
+        List<byte[]> chunk = new ArrayList<>();
+        int used = 0;
+        for (byte[] entry : entries) {
+            if (used + entry.length + BTreePage.SLOT_SIZE > capacity) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                used = 0;
+            }
+
+            chunk.add(entry);
+            used += entry.length + BTreePage.SLOT_SIZE;
+        }
+
+        chunks.add(chunk);
+
+        int pageNo = first;
+        for (int i = 0; i < chunks.size(); i++) {
+            boolean last = i == chunks.size() - 1;
+            int link = last ? (free.isEmpty() ? 0 : free.peek())
+                    : free.isEmpty() ? file.allocatePage() : free.poll();
+
+            writePage(tx, pageNo, BTreePage.TYPE_LEAF, chunks.get(i), link);
+            pageNo = link;
+        }
+
+        while (!free.isEmpty()) {
+            pageNo = free.poll();
+            writePage(tx, pageNo, BTreePage.TYPE_LEAF, Collections.emptyList(), free.isEmpty() ? 0 : free.peek());
+        }
+
+        return first;
+    }
+
+    /**
+     * @return first page of bucket for hash
+     */
+    private int findBucket(int hash) {
+        BufferPool.Frame frame = pool.pin(file, META);
+        frame.readLock();
+        try {
+            ByteBuffer meta = frame.getBuffer();
+            int level = meta.getInt(LEVEL_OFFSET);
+            int bucket = hash & ((1 << level) - 1);
+            if (bucket < meta.getInt(NEXT_OFFSET))
+                bucket = hash & ((2 << level) - 1);
+
+            return getBucketPage(meta, bucket);
+        } finally {
+            frame.readUnlock();
+            pool.unpin(frame);
+        }
+    }
+
+    private int getBucketPage(ByteBuffer meta, int bucket) {
+        int directory = meta.getInt(DIRECTORIES_OFFSET + bucket / bucketsPerDirectory * 4);
+
+        BufferPool.Frame frame = pool.pin(file, directory);
+        frame.readLock();
+        try {
+            return frame.getBuffer().getInt(Page.HEADER_SIZE + bucket % bucketsPerDirectory * 4);
+        } finally {
+            frame.readUnlock();
+            pool.unpin(frame);
+        }
+    }
+
+    private void setBucketPage(Transaction tx, ByteBuffer meta, int bucket, int pageNo) {
+        int directory = meta.getInt(DIRECTORIES_OFFSET + bucket / bucketsPerDirectory * 4);
+
+        BufferPool.Frame frame = pool.pin(file, directory);
+        frame.writeLock();
+        try {
+            frame.getBuffer().putInt(Page.HEADER_SIZE + bucket % bucketsPerDirectory * 4, pageNo);
+            setLsn(frame, log(tx, LogRecord.pageImage(xid(tx), getId(), directory, frame.getBuffer())));
+        } finally {
+            frame.writeUnlock();
+            pool.unpin(frame);
+        }
+    }
+
+    private void setLink(Transaction tx, int pageNo, int link) {
+        BufferPool.Frame frame = pool.pin(file, pageNo);
+        frame.writeLock();
+        try {
+            new BTreePage(frame.getBuffer()).setLink(link);
+            setLsn(frame, log(tx, LogRecord.pageImage(xid(tx), getId(), pageNo, frame.getBuffer())));
+        } finally {
+            frame.writeUnlock();
+            pool.unpin(frame);
+        }
+    }
+
+    /**
+     * Length of key part which is hashed: key without record id in non-unique index.
+     */
+    private int hashLength(byte[] key) {
+        return isUnique() ? key.length : key.length - IndexKey.RECORD_ID_SIZE;
+    }
+
+    private int hash(byte[] key) {
+        return hash(key, hashLength(key));
+    }
+
+    /**
+     * Hash of key prefix with bits mixed, as buckets are chosen by the lowest bits.
+     */
+    private static int hash(byte[] key, int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++)
+            h = 31 * h + key[i];
+
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
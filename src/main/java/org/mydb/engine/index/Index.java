@@ -0,0 +1,48 @@
+package org.mydb.engine.index;
+
+import org.mydb.engine.tx.Transaction;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Ordered index of table records: key built by {@link IndexKey} maps to record id.
+ * Keys of non-unique index end with record id, so every key is unique inside index.
+ */
+public interface Index extends Closeable {
+    int getId();
+
+    boolean isUnique();
+
+    /**
+     * Add entry.
+     * @param tx transaction of insert, <code>null</code> if not logged
+     * @return <code>false</code> if index already has the key, entry is not added then
+     */
+    boolean add(Transaction tx, byte[] key, long recordId);
+
+    /**
+     * Fill empty index with entries sorted by key, i.e. when index is created for existing rows.
+     * Load is not logged: page file index writes and syncs its pages, store index is committed with store.
+     * @param keys unique keys in ascending order
+     * @param recordIds record ids of keys
+     */
+    void load(List<byte[]> keys, List<Long> recordIds);
+
+    /**
+     * Remove entry, missing key is ignored.
+     */
+    void remove(Transaction tx, byte[] key);
+
+    /**
+     * Find record ids of keys in range in key order.
+     * Key starting with <code>to</code> is in range, so bound can be key prefix.
+     * @param from first key, <code>null</code> to start with the first key of index
+     * @param to last key, <code>null</code> to read up to the last key of index
+     */
+    Iterator<Long> find(byte[] from, byte[] to);
+
+    @Override
+    void close();
+}
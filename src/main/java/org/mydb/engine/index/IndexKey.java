@@ -0,0 +1,58 @@
+package org.mydb.engine.index;
+
+import org.mydb.engine.table.Column;
+import org.mydb.engine.table.TableException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Index keys: values of index columns encoded so keys compare as unsigned bytes in value order.
+ * Each value starts with 0 for NULL, which is less than any value, or 1 followed by value key.
+ */
+public final class IndexKey {
+    /** Size of record id at the end of non-unique key */
+    public static final int RECORD_ID_SIZE = 8;
+
+    private IndexKey() {}
+
+    /**
+     * Encode values of columns, values must be converted to column types.
+     */
+    public static byte[] encode(List<Column> columns, Object[] values) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            for (int i = 0; i < columns.size(); i++) {
+                if (values[i] == null) {
+                    out.writeByte(0);
+                } else {
+                    out.writeByte(1);
+                    columns.get(i).getDataType().writeKey(out, values[i]);
+                }
+            }
+        } catch (IOException e) {
+            throw new TableException("failed to encode index key", e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return key followed by record id
+     */
+    public static byte[] withRecordId(byte[] key, long recordId) {
+        byte[] result = new byte[key.length + RECORD_ID_SIZE];
+        System.arraycopy(key, 0, result, 0, key.length);
+
+        for (int i = RECORD_ID_SIZE - 1; i >= 0; i--) {
+            result[key.length + i] = (byte) recordId;
+            recordId >>>= 8;
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,111 @@
+package org.mydb.engine.index;
+
+import org.mydb.engine.mvstore.Cursor;
+import org.mydb.engine.mvstore.MVMap;
+import org.mydb.engine.mvstore.TransactionStore;
+import org.mydb.engine.tx.Transaction;
+import org.mydb.util.Bytes;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Index in store map: index key maps to record id.
+ * Inserts are undone by transaction store like table inserts.
+ */
+public class MVIndex implements Index {
+    private static final byte[] FIRST_KEY = new byte[0];
+
+    private final MVMap map;
+    private final TransactionStore transactionStore;
+    private final boolean unique;
+
+    public MVIndex(MVMap map, TransactionStore transactionStore, boolean unique) {
+        this.map = map;
+        this.transactionStore = transactionStore;
+        this.unique = unique;
+    }
+
+    @Override
+    public int getId() {
+        return map.getId();
+    }
+
+    @Override
+    public boolean isUnique() {
+        return unique;
+    }
+
+    /**
+     * Synchronized, so two inserts of the same key can't both pass duplicate check.
+     */
+    @Override
+    public synchronized boolean add(Transaction tx, byte[] key, long recordId) {
+        if (map.get(key) != null)
+            return false;
+
+        if (tx != null)
+            transactionStore.addInsert(tx, map, key);
+
+        map.put(key, Bytes.fromLong(recordId));
+        return true;
+    }
+
+    /**
+     * Keys are put in order, store is committed by caller.
+     */
+    @Override
+    public synchronized void load(List<byte[]> keys, List<Long> recordIds) {
+        for (int i = 0; i < keys.size(); i++)
+            map.put(keys.get(i), Bytes.fromLong(recordIds.get(i)));
+    }
+
+    @Override
+    public void remove(Transaction tx, byte[] key) {
+        map.remove(key);
+    }
+
+    /**
+     * Reads map version current when scan starts.
+     */
+    @Override
+    public Iterator<Long> find(byte[] from, byte[] to) {
+        Cursor cursor = map.cursor(from == null ? FIRST_KEY : from);
+
+        return new Iterator<Long>() {
+            private Long next;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !done && cursor.hasNext()) {
+                    byte[] key = cursor.next();
+                    if (to == null || Bytes.compareToBound(key, to) <= 0)
+                        next = Bytes.toLong(cursor.getValue());
+                    else
+                        done = true;
+                }
+
+                return next != null;
+            }
+
+            @Override
+            public Long next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                Long result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Map is closed with store.
+     */
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,187 @@
+package org.mydb.engine.index;
+
+import org.mydb.DbException;
+import org.mydb.engine.log.LogRecord;
+import org.mydb.engine.page.BufferPool;
+import org.mydb.engine.page.Page;
+import org.mydb.engine.page.PageFile;
+import org.mydb.engine.table.TableException;
+import org.mydb.engine.tx.Transaction;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Index in page file with entries in {@link BTreePage} format.
+ * Entry insert and delete are logged by page and position, other page changes as whole page images,
+ * so recovery repeats changes of any page index the same way.
+ */
+public abstract class PageIndex implements Index {
+    protected final PageFile file;
+    protected final BufferPool pool;
+    private final boolean unique;
+
+    /** Max key size, keeps at least four entries per page */
+    protected final int maxKeySize;
+
+    protected PageIndex(PageFile file, BufferPool pool, boolean unique) {
+        this.file = file;
+        this.pool = pool;
+        this.unique = unique;
+        this.maxKeySize = BTreePage.maxKeySize(file.getPageSize());
+    }
+
+    @Override
+    public int getId() {
+        return file.getId();
+    }
+
+    @Override
+    public boolean isUnique() {
+        return unique;
+    }
+
+    public PageFile getFile() {
+        return file;
+    }
+
+    /**
+     * Repeat logged entry insert unless page already has it.
+     */
+    public void redoInsert(LogRecord record) {
+        BufferPool.Frame frame = pinForRedo(record);
+        if (frame == null)
+            return;
+
+        try {
+            BTreePage page = new BTreePage(frame.getBuffer());
+            if (record.getSlot() > page.getCount() || !page.canInsert(record.getData().length)) {
+                throw new DbException(String.format("page %d of %s does not match log record %s",
+                        record.getPageNo(), file.getPath(), record));
+            }
+
+            page.insert(record.getSlot(), record.getData());
+            setLsn(frame, record.getLsn());
+        } finally {
+            frame.writeUnlock();
+            pool.unpin(frame);
+        }
+    }
+
+    /**
+     * Repeat logged entry delete unless page already has it.
+     */
+    public void redoDelete(LogRecord record) {
+        BufferPool.Frame frame = pinForRedo(record);
+        if (frame == null)
+            return;
+
+        try {
+            new BTreePage(frame.getBuffer()).remove(record.getSlot());
+            setLsn(frame, record.getLsn());
+        } finally {
+            frame.writeUnlock();
+            pool.unpin(frame);
+        }
+    }
+
+    /**
+     * Repeat logged page image unless page is newer.
+     */
+    public void redoPageImage(LogRecord record) {
+        BufferPool.Frame frame = pinForRedo(record);
+        if (frame == null)
+            return;
+
+        try {
+            ByteBuffer buffer = frame.getBuffer().duplicate();
+            buffer.clear();
+            buffer.put(record.getData());
+            setLsn(frame, record.getLsn());
+        } finally {
+            frame.writeUnlock();
+            pool.unpin(frame);
+        }
+    }
+
+    /**
+     * Write cached pages and close file.
+     */
+    @Override
+    public void close() {
+        pool.flush(file);
+        pool.invalidate(file);
+        file.sync();
+        file.close();
+    }
+
+    // internal ==============================================================================
+    /**
+     * @throws TableException if key does not fit into index page with other entries
+     */
+    protected void checkKeySize(byte[] key) {
+        if (key.length > maxKeySize) {
+            throw new TableException(String.format("index key too large: %d bytes", key.length));
+        }
+    }
+
+    /**
+     * Write new page with entries and log its image.
+     */
+    protected void writePage(Transaction tx, int pageNo, byte type, List<byte[]> entries, int link) {
+        BufferPool.Frame frame = pool.pinNew(file, pageNo);
+        frame.writeLock();
+        try {
+            fill(new BTreePage(frame.getBuffer()), type, entries, link);
+            setLsn(frame, log(tx, LogRecord.pageImage(xid(tx), getId(), pageNo, frame.getBuffer())));
+        } finally {
+            frame.writeUnlock();
+            pool.unpin(frame);
+        }
+    }
+
+    protected static void fill(BTreePage page, byte type, List<byte[]> entries, int link) {
+        page.init(type);
+        page.setLink(link);
+
+        for (int i = 0; i < entries.size(); i++)
+            page.insert(i, entries.get(i));
+    }
+
+    protected static long xid(Transaction tx) {
+        return tx == null ? 0 : tx.getXid();
+    }
+
+    protected static long log(Transaction tx, LogRecord record) {
+        return tx == null ? 0 : tx.log(record);
+    }
+
+    /**
+     * Mark page dirty, set page LSN if change was logged.
+     */
+    protected static void setLsn(BufferPool.Frame frame, long lsn) {
+        if (lsn != 0)
+            Page.setLsn(frame.getBuffer(), lsn);
+
+        frame.markDirty();
+    }
+
+    /**
+     * Pin and latch page changed by log record.
+     * @return frame or <code>null</code> if page already has the change
+     */
+    private BufferPool.Frame pinForRedo(LogRecord record) {
+        file.ensurePageCount(record.getPageNo() + 1);
+
+        BufferPool.Frame frame = pool.pin(file, record.getPageNo());
+        frame.writeLock();
+
+        if (Page.getLsn(frame.getBuffer()) >= record.getLsn()) {
+            frame.writeUnlock();
+            pool.unpin(frame);
+            return null;
+        }
+
+        return frame;
+    }
+}
@@ -0,0 +1,185 @@
+package org.mydb.engine.log;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Write-ahead log record.
+ * Heap and index changes are logged physiologically: page and slot of record with record data.
+ */
+public class LogRecord {
+    public enum Type {
+        /** Table created: file id is table id, data is DDL sql */
+        CREATE_TABLE,
+        /** Record inserted into heap page */
+        INSERT,
+        /** Heap record deleted, also written when insert is rolled back */
+        DELETE,
+        /** Transaction committed */
+        COMMIT,
+        /** Transaction rolled back, all its changes are undone */
+        ABORT,
+        /** Entry inserted into index page: slot is entry position, data is entry */
+        INDEX_INSERT,
+        /** Index entry deleted: slot is entry position */
+        INDEX_DELETE,
+        /** Whole page written, i.e. by index split: data is page content */
+        PAGE_IMAGE,
+        /** Index created and its pages synced: file id is index id, data is DDL sql */
+        CREATE_INDEX,
+        /** Row inserted into column store: data is row number, page, slot and value of every column */
+        COLUMN_INSERT,
+        /** Row deleted from column store: data is row number, page and slot of every column */
+        COLUMN_DELETE,
+        /** Deleting transaction of heap record changed in place: data is old and new transaction id */
+        VERSION
+    }
+
+    /** Size of serialized fields before data */
+    private static final int FIXED_SIZE = 1 + 8 + 4 + 4 + 4 + 4;
+
+    private static final byte[] NO_DATA = new byte[0];
+
+    private final Type type;
+    private final long xid;
+    private final int fileId;
+    private final int pageNo;
+    private final int slot;
+    private final byte[] data;
+
+    /** Log sequence number, set when record is appended or read */
+    private long lsn;
+
+    private LogRecord(Type type, long xid, int fileId, int pageNo, int slot, byte[] data) {
+        this.type = type;
+        this.xid = xid;
+        this.fileId = fileId;
+        this.pageNo = pageNo;
+        this.slot = slot;
+        this.data = data == null ? NO_DATA : data;
+    }
+
+    public static LogRecord createTable(int tableId, String sql) {
+        return new LogRecord(Type.CREATE_TABLE, 0, tableId, 0, 0, sql.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static LogRecord createIndex(int indexId, String sql) {
+        return new LogRecord(Type.CREATE_INDEX, 0, indexId, 0, 0, sql.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static LogRecord insert(long xid, int fileId, int pageNo, int slot, byte[] data) {
+        return new LogRecord(Type.INSERT, xid, fileId, pageNo, slot, data);
+    }
+
+    public static LogRecord delete(long xid, int fileId, int pageNo, int slot) {
+        return new LogRecord(Type.DELETE, xid, fileId, pageNo, slot, null);
+    }
+
+    public static LogRecord columnInsert(long xid, int fileId, byte[] data) {
+        return new LogRecord(Type.COLUMN_INSERT, xid, fileId, 0, 0, data);
+    }
+
+    public static LogRecord columnDelete(long xid, int fileId, byte[] data) {
+        return new LogRecord(Type.COLUMN_DELETE, xid, fileId, 0, 0, data);
+    }
+
+    public static LogRecord indexInsert(long xid, int fileId, int pageNo, int position, byte[] entry) {
+        return new LogRecord(Type.INDEX_INSERT, xid, fileId, pageNo, position, entry);
+    }
+
+    public static LogRecord indexDelete(long xid, int fileId, int pageNo, int position) {
+        return new LogRecord(Type.INDEX_DELETE, xid, fileId, pageNo, position, null);
+    }
+
+    public static LogRecord version(long xid, int fileId, int pageNo, int slot, long oldXmax, long xmax) {
+        return new LogRecord(Type.VERSION, xid, fileId, pageNo, slot,
+                ByteBuffer.allocate(16).putLong(oldXmax).putLong(xmax).array());
+    }
+
+    /**
+     * Page content is copied.
+     */
+    public static LogRecord pageImage(long xid, int fileId, int pageNo, ByteBuffer page) {
+        byte[] data = new byte[page.capacity()];
+        ByteBuffer buffer = page.duplicate();
+        buffer.clear();
+        buffer.get(data);
+
+        return new LogRecord(Type.PAGE_IMAGE, xid, fileId, pageNo, 0, data);
+    }
+
+    public static LogRecord commit(long xid) {
+        return new LogRecord(Type.COMMIT, xid, 0, 0, 0, null);
+    }
+
+    public static LogRecord abort(long xid) {
+        return new LogRecord(Type.ABORT, xid, 0, 0, 0, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getXid() {
+        return xid;
+    }
+
+    public int getFileId() {
+        return fileId;
+    }
+
+    public int getPageNo() {
+        return pageNo;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public String getSql() {
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    public long getLsn() {
+        return lsn;
+    }
+
+    void setLsn(long lsn) {
+        this.lsn = lsn;
+    }
+
+    int getSize() {
+        return FIXED_SIZE + data.length;
+    }
+
+    void write(ByteBuffer buffer) {
+        buffer.put((byte) type.ordinal());
+        buffer.putLong(xid);
+        buffer.putInt(fileId);
+        buffer.putInt(pageNo);
+        buffer.putInt(slot);
+        buffer.putInt(data.length);
+        buffer.put(data);
+    }
+
+    static LogRecord read(ByteBuffer buffer) {
+        Type type = Type.values()[buffer.get()];
+        long xid = buffer.getLong();
+        int fileId = buffer.getInt();
+        int pageNo = buffer.getInt();
+        int slot = buffer.getInt();
+        byte[] data = new byte[buffer.getInt()];
+        buffer.get(data);
+
+        return new LogRecord(type, xid, fileId, pageNo, slot, data);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d %s xid=%d file=%d page=%d slot=%d", lsn, type, xid, fileId, pageNo, slot);
+    }
+}
@@ -0,0 +1,659 @@
+package org.mydb.engine.log;
+
+import org.mydb.DbException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log.
+ * <p>
+ * Log is a sequence of segment files, each segment starts with header keeping LSN of its first record,
+ * log sequence number (LSN) of record is its position in the endless log. Records are appended to memory
+ * buffer and written sequentially by {@link #flush(long)}.
+ * <p>
+ * Group commit: only one thread writes and syncs log at a time. Threads which need their records
+ * durable while sync is running wait for it and the next sync writes all their records at once,
+ * so concurrent commits share one <code>fsync</code>. Optional commit delay makes flushing thread
+ * wait for more commits before writing.
+ * <p>
+ * Log is fail-stop: once write or sync fails, appended records can't be made durable in order,
+ * so all following appends and flushes are rejected until log is reopened.
+ */
+public class WriteAheadLog implements Closeable {
+    /** Segment file header: magic (4), version (4), base LSN (8) */
+    private static final int HEADER_SIZE = 16;
+
+    private static final int MAGIC = 0x4D44424C;
+    private static final int VERSION = 1;
+
+    /** Record frame: body length (4), body crc (4) */
+    private static final int FRAME_SIZE = 8;
+
+    /** Segment file extension */
+    private static final String SEGMENT_EXT = ".log";
+
+    /** LSN of the first record of new log, 0 is reserved for "not logged" */
+    private static final long FIRST_LSN = 1;
+
+    /** Default segment size */
+    public static final long DEFAULT_SEGMENT_SIZE = 16L * 1024 * 1024;
+
+    /** Log directory */
+    private final Path directory;
+
+    /** Segment is closed when it grows over this size */
+    private final long segmentSize;
+
+    /** Time to wait for more commits before sync */
+    private final long commitDelayNanos;
+
+    /** Segment files by base LSN */
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+
+    /** Current segment written by flushing thread */
+    private FileChannel channel;
+    private long channelBaseLsn;
+
+    /** Records appended but not written yet, guarded by <code>appendLock</code> */
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+
+    /** LSN of the next appended record, guarded by <code>appendLock</code> */
+    private long endLsn;
+
+    /** LSN of the first record in <code>pending</code>, guarded by <code>appendLock</code> */
+    private long pendingLsn;
+
+    /** All records before this LSN are durable, guarded by <code>flushLock</code> */
+    private long flushedLsn;
+
+    /** Some thread is writing log, guarded by <code>flushLock</code> */
+    private boolean flushing;
+
+    /** First write failure, log is unusable once set */
+    private volatile DbException failure;
+
+    private final Object appendLock = new Object();
+    private final Object flushLock = new Object();
+
+    private final LongAdder flushRequests = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+
+    /**
+     * Open log in directory, torn records at the end of log are discarded.
+     * @param commitDelayMicros time flushing thread waits for concurrent commits
+     */
+    public WriteAheadLog(Path directory, long segmentSize, long commitDelayMicros) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.commitDelayNanos = TimeUnit.MICROSECONDS.toNanos(commitDelayMicros);
+
+        try {
+            Files.createDirectories(directory);
+
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_EXT)) {
+                for (Path file : files) {
+                    segments.put(readBaseLsn(file), file);
+                }
+            }
+        } catch (IOException e) {
+            throw new DbException(String.format("failed to open log %s", directory), e);
+        }
+
+        if (segments.isEmpty()) {
+            createSegment(FIRST_LSN);
+            endLsn = FIRST_LSN;
+        } else {
+            openLastSegment();
+        }
+
+        pendingLsn = endLsn;
+        flushedLsn = endLsn;
+    }
+
+    /**
+     * Append record to log buffer, record is not durable until flushed.
+     * @return record LSN
+     */
+    public long append(LogRecord record) {
+        byte[] body = new byte[record.getSize()];
+        record.write(ByteBuffer.wrap(body));
+
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+
+        synchronized (appendLock) {
+            checkFailure();
+
+            int size = FRAME_SIZE + body.length;
+            if (pending.remaining() < size) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + size));
+                pending.flip();
+                bigger.put(pending);
+                pending = bigger;
+            }
+
+            long lsn = endLsn;
+            pending.putInt(body.length);
+            pending.putInt((int) crc.getValue());
+            pending.put(body);
+            endLsn += size;
+
+            record.setLsn(lsn);
+            return lsn;
+        }
+    }
+
+    /**
+     * Make record with given LSN and all records before it durable.
+     * Waits while another thread syncs log and then syncs records of all waiting threads at once.
+     */
+    public void flush(long lsn) {
+        flushRequests.increment();
+
+        if (!beginFlush(lsn))
+            return;
+
+        long flushed = -1;
+        try {
+            if (commitDelayNanos > 0)
+                LockSupport.parkNanos(commitDelayNanos);
+
+            flushed = writePending();
+        } finally {
+            endFlush(flushed);
+        }
+    }
+
+    /**
+     * Make all appended records durable.
+     */
+    public void flush() {
+        long lsn;
+        synchronized (appendLock) {
+            lsn = endLsn - 1;
+        }
+
+        flush(lsn);
+    }
+
+    /**
+     * Read records starting with given LSN up to the last written record.
+     */
+    public Iterator<LogRecord> read(long fromLsn) {
+        List<Long> bases;
+        synchronized (flushLock) {
+            bases = new ArrayList<>(segments.keySet());
+        }
+
+        return new LogReader(bases, Math.max(fromLsn, getFirstLsn()));
+    }
+
+    /**
+     * @return LSN of the first record kept in log
+     */
+    public long getFirstLsn() {
+        synchronized (flushLock) {
+            return segments.firstKey();
+        }
+    }
+
+    /**
+     * @return LSN of the next record
+     */
+    public long getEndLsn() {
+        synchronized (appendLock) {
+            return endLsn;
+        }
+    }
+
+    public long getFlushedLsn() {
+        synchronized (flushLock) {
+            return flushedLsn;
+        }
+    }
+
+    /**
+     * @return number of flush requests, i.e. commits
+     */
+    public long getFlushRequests() {
+        return flushRequests.sum();
+    }
+
+    /**
+     * @return number of log syncs to disk
+     */
+    public long getSyncs() {
+        return syncs.sum();
+    }
+
+    /**
+     * Remove log segments with records before given LSN only. Current segment is never removed.
+     */
+    public void truncate(long lsn) {
+        synchronized (flushLock) {
+            while (segments.size() > 1) {
+                Long second = segments.higherKey(segments.firstKey());
+                if (second > lsn)
+                    break;
+
+                Path path = segments.remove(segments.firstKey());
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    throw new DbException(String.format("failed to delete log segment %s", path), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Flush log and start new segment, so all previous segments can be truncated.
+     */
+    public void switchSegment() {
+        beginFlush(Long.MAX_VALUE);
+
+        long flushed = -1;
+        try {
+            flushed = writePending();
+
+            synchronized (flushLock) {
+                if (flushed != channelBaseLsn) {
+                    closeChannel();
+                    createSegment(flushed);
+                }
+            }
+        } finally {
+            endFlush(flushed);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if log write failed and log rejects records
+     */
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    @Override
+    public void close() {
+        if (failure != null) {
+            synchronized (flushLock) {
+                closeChannel();
+            }
+            return;
+        }
+
+        beginFlush(Long.MAX_VALUE);
+
+        long flushed = -1;
+        try {
+            flushed = writePending();
+
+            synchronized (flushLock) {
+                closeChannel();
+            }
+        } finally {
+            endFlush(flushed);
+        }
+    }
+
+    // internal ==============================================================================
+    /**
+     * Wait until log is durable up to given LSN or no other thread flushes it.
+     * @return <code>true</code> if current thread should flush log
+     */
+    private boolean beginFlush(long lsn) {
+        synchronized (flushLock) {
+            while (true) {
+                if (flushedLsn > lsn)
+                    return false;
+
+                checkFailure();
+
+                if (!flushing)
+                    break;
+
+                try {
+                    flushLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new DbException("interrupted while waiting for log flush", e);
+                }
+            }
+
+            flushing = true;
+            return true;
+        }
+    }
+
+    /**
+     * Publish flushed LSN and wake up waiting threads.
+     */
+    private void endFlush(long flushed) {
+        synchronized (flushLock) {
+            if (flushed > flushedLsn)
+                flushedLsn = flushed;
+
+            flushing = false;
+            flushLock.notifyAll();
+        }
+    }
+
+    /**
+     * Write and sync pending records, called by one thread at a time.
+     * @return LSN all records before which are durable
+     */
+    private long writePending() {
+        ByteBuffer data;
+        long startLsn;
+
+        synchronized (appendLock) {
+            checkFailure();
+
+            if (pending.position() == 0)
+                return endLsn;
+
+            data = ByteBuffer.allocate(pending.position());
+            pending.flip();
+            data.put(pending);
+            data.flip();
+            pending.clear();
+
+            startLsn = pendingLsn;
+            pendingLsn = endLsn;
+        }
+
+        try {
+            long position = HEADER_SIZE + startLsn - channelBaseLsn;
+            while (data.hasRemaining()) {
+                position += channel.write(data, position);
+            }
+
+            channel.force(false);
+            syncs.increment();
+
+            if (position >= segmentSize) {
+                synchronized (flushLock) {
+                    closeChannel();
+                    createSegment(startLsn + data.limit());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // records taken from pending buffer are lost, later records would follow a hole in log
+            DbException error = new DbException(String.format("failed to write log %s", directory), e);
+            failure = error;
+            throw error;
+        }
+
+        return startLsn + data.limit();
+    }
+
+    private void checkFailure() {
+        DbException error = failure;
+        if (error != null)
+            throw new DbException(String.format("log %s is unusable after write failure", directory), error);
+    }
+
+    private void createSegment(long baseLsn) {
+        Path path = directory.resolve(String.format("%016x%s", baseLsn, SEGMENT_EXT));
+
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(baseLsn);
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        } catch (IOException e) {
+            throw new DbException(String.format("failed to create log segment %s", path), e);
+        }
+
+        channelBaseLsn = baseLsn;
+        segments.put(baseLsn, path);
+    }
+
+    /**
+     * Open last segment for writing and find end of log.
+     */
+    private void openLastSegment() {
+        long baseLsn = segments.lastKey();
+        Path path = segments.get(baseLsn);
+
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channelBaseLsn = baseLsn;
+
+            LogReader reader = new LogReader(new ArrayList<>(segments.tailMap(baseLsn).keySet()), baseLsn);
+            while (reader.hasNext()) {
+                reader.next();
+            }
+            long end = reader.getPosition();
+
+            // discard torn records
+            channel.truncate(HEADER_SIZE + end - baseLsn);
+            channel.force(true);
+
+            endLsn = end;
+        } catch (IOException e) {
+            throw new DbException(String.format("failed to open log segment %s", path), e);
+        }
+    }
+
+    private void closeChannel() {
+        try {
+            if (channel != null)
+                channel.close();
+        } catch (IOException e) {
+            throw new DbException(String.format("failed to close log %s", directory), e);
+        }
+
+        channel = null;
+    }
+
+    private static long readBaseLsn(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) ;
+            header.flip();
+
+            if (header.limit() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new DbException(String.format("not a log segment: %s", file));
+            }
+
+            return header.getLong();
+        }
+    }
+
+    /**
+     * Sequential reader of log records with read buffer.
+     * Stops at the end of log or at first torn record.
+     */
+    private class LogReader implements Iterator<LogRecord> {
+        private final List<Long> bases;
+        private int segmentIndex;
+        private FileChannel segment;
+        private long segmentBase;
+        private long segmentEnd;
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(1024 * 1024);
+
+        /** File offset and length of bytes in read buffer */
+        private long bufferOffset;
+        private int bufferLimit;
+
+        /** LSN of next record */
+        private long position;
+
+        private LogRecord next;
+        private boolean done;
+
+        LogReader(List<Long> bases, long fromLsn) {
+            this.bases = bases;
+            this.position = fromLsn;
+
+            // find segment with fromLsn
+            segmentIndex = 0;
+            while (segmentIndex + 1 < bases.size() && bases.get(segmentIndex + 1) <= fromLsn)
+                segmentIndex++;
+        }
+
+        long getPosition() {
+            return position;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                next = readNext();
+                if (next == null) {
+                    done = true;
+                    closeSegment();
+                }
+            }
+
+            return next != null;
+        }
+
+        @Override
+        public LogRecord next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            LogRecord record = next;
+            next = null;
+            return record;
+        }
+
+        private LogRecord readNext() {
+            while (true) {
+                if (segment == null && !openSegment())
+                    return null;
+
+                if (position >= segmentEnd) {
+                    closeSegment();
+                    segmentIndex++;
+                    continue;
+                }
+
+                ByteBuffer frame = read(position, FRAME_SIZE);
+                if (frame == null)
+                    return null;
+
+                int length = frame.getInt();
+                int checksum = frame.getInt();
+
+                if (length <= 0 || position + FRAME_SIZE + length > segmentEnd)
+                    return null;
+
+                ByteBuffer body = read(position + FRAME_SIZE, length);
+                if (body == null)
+                    return null;
+
+                CRC32 crc = new CRC32();
+                crc.update(body.array(), body.arrayOffset() + body.position(), length);
+                if ((int) crc.getValue() != checksum)
+                    return null;
+
+                LogRecord record = LogRecord.read(body);
+                record.setLsn(position);
+                position += FRAME_SIZE + length;
+
+                return record;
+            }
+        }
+
+        /**
+         * Read bytes at LSN through read buffer.
+         * @return buffer positioned at requested bytes or <code>null</code> at the end of file
+         */
+        private ByteBuffer read(long lsn, int length) {
+            long offset = HEADER_SIZE + lsn - segmentBase;
+
+            try {
+                if (length > buffer.capacity()) {
+                    ByteBuffer large = ByteBuffer.allocate(length);
+                    while (large.hasRemaining()) {
+                        if (segment.read(large, offset + large.position()) < 0)
+                            return null;
+                    }
+                    large.flip();
+                    return large;
+                }
+
+                if (offset < bufferOffset || offset + length > bufferOffset + bufferLimit) {
+                    buffer.clear();
+                    bufferOffset = offset;
+                    while (buffer.position() < length) {
+                        if (segment.read(buffer, offset + buffer.position()) < 0)
+                            return null;
+                    }
+                    bufferLimit = buffer.position();
+                }
+
+                ByteBuffer result = buffer.duplicate();
+                result.limit((int) (offset - bufferOffset) + length);
+                result.position((int) (offset - bufferOffset));
+                return result.slice();
+            } catch (IOException e) {
+                throw new DbException(String.format("failed to read log %s", directory), e);
+            }
+        }
+
+        private boolean openSegment() {
+            if (segmentIndex >= bases.size())
+                return false;
+
+            segmentBase = bases.get(segmentIndex);
+            Path path;
+            synchronized (flushLock) {
+                path = segments.get(segmentBase);
+            }
+
+            if (path == null)
+                return false;
+
+            bufferOffset = 0;
+            bufferLimit = 0;
+
+            try {
+                segment = FileChannel.open(path, StandardOpenOption.READ);
+                segmentEnd = segmentIndex + 1 < bases.size() ? bases.get(segmentIndex + 1)
+                        : segmentBase + segment.size() - HEADER_SIZE;
+            } catch (IOException e) {
+                throw new DbException(String.format("failed to open log segment %s", path), e);
+            }
+
+            if (position < segmentBase)
+                position = segmentBase;
+
+            return true;
+        }
+
+        private void closeSegment() {
+            try {
+                if (segment != null)
+                    segment.close();
+            } catch (IOException ignore) {}
+
+            segment = null;
+        }
+    }
+}
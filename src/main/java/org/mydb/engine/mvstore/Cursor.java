@@ -0,0 +1,100 @@
+package org.mydb.engine.mvstore;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over keys of one map version, values are available by {@link #getValue()}.
+ */
+public class Cursor implements Iterator<byte[]> {
+    /** Nodes on path to current leaf with index of child taken */
+    private final Deque<Position> path = new ArrayDeque<>();
+
+    private Page leaf;
+    private int index;
+
+    private byte[] key;
+    private byte[] value;
+
+    Cursor(Page root, byte[] from) {
+        Page page = root;
+        while (!page.isLeaf()) {
+            int childIndex = page.childIndex(from);
+            path.push(new Position(page, childIndex));
+            page = page.getChild(childIndex);
+        }
+
+        int found = page.binarySearch(from);
+        leaf = page;
+        index = found >= 0 ? found : -found - 1;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (leaf != null && index >= leaf.getKeyCount()) {
+            leaf = nextLeaf();
+            index = 0;
+        }
+
+        return leaf != null;
+    }
+
+    @Override
+    public byte[] next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        key = leaf.getKey(index);
+        value = leaf.getValue(index);
+        index++;
+        return key;
+    }
+
+    /**
+     * @return key returned by last {@link #next()}
+     */
+    public byte[] getKey() {
+        return key;
+    }
+
+    /**
+     * @return value of key returned by last {@link #next()}
+     */
+    public byte[] getValue() {
+        return value;
+    }
+
+    // internal ==============================================================================
+    private Page nextLeaf() {
+        while (!path.isEmpty()) {
+            Position position = path.peek();
+            position.index++;
+
+            if (position.index < position.page.getChildCount()) {
+                Page page = position.page.getChild(position.index);
+                while (!page.isLeaf()) {
+                    path.push(new Position(page, 0));
+                    page = page.getChild(0);
+                }
+
+                return page;
+            }
+
+            path.pop();
+        }
+
+        return null;
+    }
+
+    private static class Position {
+        private final Page page;
+        private int index;
+
+        Position(Page page, int index) {
+            this.page = page;
+            this.index = index;
+        }
+    }
+}
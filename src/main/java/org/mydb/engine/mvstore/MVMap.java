@@ -0,0 +1,169 @@
+package org.mydb.engine.mvstore;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Copy-on-write B-tree map of byte array keys to byte array values, keys are compared as unsigned bytes.
+ * Writers copy changed pages and swap root, readers use root they started with and never wait.
+ * Writes of one map are serialized.
+ */
+public class MVMap {
+    private final MVStore store;
+    private final int id;
+
+    /** Max keys of page, larger page is split */
+    private final int keysPerPage;
+
+    /** Current root */
+    private final AtomicReference<Page> root;
+
+    MVMap(MVStore store, int id, Page root, int keysPerPage) {
+        this.store = store;
+        this.id = id;
+        this.keysPerPage = keysPerPage;
+        this.root = new AtomicReference<>(root);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return value or <code>null</code> if map has no such key
+     */
+    public byte[] get(byte[] key) {
+        Page page = root.get();
+        while (!page.isLeaf())
+            page = page.getChild(page.childIndex(key));
+
+        int index = page.binarySearch(key);
+        return index >= 0 ? page.getValue(index) : null;
+    }
+
+    /**
+     * @return previous value or <code>null</code>
+     */
+    public synchronized byte[] put(byte[] key, byte[] value) {
+        Page oldRoot = root.get();
+        byte[][] previous = new byte[1][];
+        Page newRoot = put(oldRoot, key, value, previous);
+
+        if (newRoot.getKeyCount() > keysPerPage) {
+            int at = newRoot.getKeyCount() / 2;
+            byte[] splitKey = newRoot.getKey(at);
+            newRoot = Page.createNode(store, new byte[][] {splitKey},
+                    new Page[] {newRoot.splitLeft(at), newRoot.splitRight(at)});
+        }
+
+        root.set(newRoot);
+        return previous[0];
+    }
+
+    /**
+     * @return removed value or <code>null</code>
+     */
+    public synchronized byte[] remove(byte[] key) {
+        Page oldRoot = root.get();
+        byte[][] previous = new byte[1][];
+        Page newRoot = remove(oldRoot, key, previous);
+
+        if (newRoot == oldRoot)
+            return null;
+
+        if (newRoot == null) {
+            newRoot = Page.createEmptyLeaf(store);
+        } else {
+            while (!newRoot.isLeaf() && newRoot.getChildCount() == 1)
+                newRoot = newRoot.getChild(0);
+        }
+
+        root.set(newRoot);
+        return previous[0];
+    }
+
+    /**
+     * @return largest key or <code>null</code> if map is empty
+     */
+    public byte[] lastKey() {
+        Page page = root.get();
+        while (!page.isLeaf())
+            page = page.getChild(page.getChildCount() - 1);
+
+        return page.getKeyCount() == 0 ? null : page.getKey(page.getKeyCount() - 1);
+    }
+
+    public boolean isEmpty() {
+        return lastKey() == null;
+    }
+
+    /**
+     * Iterate keys in order starting with given key over current version of map.
+     */
+    public Cursor cursor(byte[] from) {
+        return new Cursor(root.get(), from);
+    }
+
+    /**
+     * Iterate all keys in order.
+     */
+    public Cursor cursor() {
+        return cursor(new byte[0]);
+    }
+
+    Page getRoot() {
+        return root.get();
+    }
+
+    // internal ==============================================================================
+    /**
+     * Put into copy of page, copied page may have more keys than allowed and is split by parent.
+     */
+    private Page put(Page page, byte[] key, byte[] value, byte[][] previous) {
+        if (page.isLeaf()) {
+            int index = page.binarySearch(key);
+            if (index >= 0) {
+                previous[0] = page.getValue(index);
+                return page.setValue(index, value);
+            }
+
+            return page.insertValue(-index - 1, key, value);
+        }
+
+        int index = page.childIndex(key);
+        Page child = put(page.getChild(index), key, value, previous);
+
+        if (child.getKeyCount() > keysPerPage) {
+            int at = child.getKeyCount() / 2;
+            return page.splitChild(index, child.splitLeft(at), child.getKey(at), child.splitRight(at));
+        }
+
+        return page.setChild(index, child);
+    }
+
+    /**
+     * Remove from copy of page.
+     * @return same page if key is not found, <code>null</code> if page becomes empty
+     */
+    private Page remove(Page page, byte[] key, byte[][] previous) {
+        if (page.isLeaf()) {
+            int index = page.binarySearch(key);
+            if (index < 0)
+                return page;
+
+            previous[0] = page.getValue(index);
+            return page.getKeyCount() == 1 ? null : page.removeValue(index);
+        }
+
+        int index = page.childIndex(key);
+        Page child = page.getChild(index);
+        Page newChild = remove(child, key, previous);
+
+        if (newChild == child)
+            return page;
+
+        if (newChild != null)
+            return page.setChild(index, newChild);
+
+        return page.getChildCount() == 1 ? null : page.removeChild(index);
+    }
+}
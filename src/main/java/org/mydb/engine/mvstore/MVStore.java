@@ -0,0 +1,378 @@
+package org.mydb.engine.mvstore;
+
+import org.mydb.DbException;
+import org.mydb.util.cache.LRUCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Log-structured store of copy-on-write B-tree maps, similar to H2 MVStore.
+ * <p>
+ * File is never updated in place: commit appends a chunk with all pages changed since previous commit
+ * and root positions of all maps, so readers and writers are not blocked by commit.
+ * File header points to the last chunk, it is written after chunk is on disk and only speeds up open:
+ * chunks after the one header points to are found by reading forward, torn chunk at the end is dropped.
+ * Chunks follow each other without gaps, so all of them can be found from the start of file.
+ * <p>
+ * File layout:
+ * <pre>
+ * header: two copies of [magic int][format int][version long][last chunk position long][crc int]
+ * chunk:  [magic int][length int][version long][roots offset int] pages
+ *         [map count int] ([map id int][root position long])* [crc int]
+ * page:   [length int][type byte][key count int] keys (values | child positions)
+ * </pre>
+ * Space of replaced pages is never reclaimed: there is no compaction, so file only grows as maps change.
+ */
+public class MVStore implements Closeable {
+    private static final int FILE_MAGIC = 0x4D44424D;
+    private static final int CHUNK_MAGIC = 0x4D44424B;
+    private static final int FORMAT = 1;
+
+    /** Space for two header copies */
+    private static final int HEADER_SIZE = 4096;
+    private static final int HEADER_COPY_SIZE = HEADER_SIZE / 2;
+    private static final int HEADER_DATA_SIZE = 24;
+
+    private static final int CHUNK_HEADER_SIZE = 20;
+
+    /** Default max keys of page */
+    public static final int DEFAULT_KEYS_PER_PAGE = 48;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int keysPerPage;
+
+    /** Pages read from file by position */
+    private final LRUCache<Long, Page> cache;
+
+    /** Open maps by id */
+    private final Map<Integer, MVMap> maps = new ConcurrentHashMap<>();
+
+    /** Root positions of maps in last chunk */
+    private final Map<Integer, Long> storedRoots = new HashMap<>();
+
+    /** Version of last chunk, 0 if store is empty */
+    private long version;
+
+    /** Position of last chunk */
+    private long lastChunkPos;
+
+    /** Position where next chunk is written */
+    private long fileEnd;
+
+    private boolean closed;
+
+    /**
+     * @param cacheSize number of pages kept in cache
+     */
+    public MVStore(Path path, int keysPerPage, int cacheSize) {
+        this.path = path;
+        this.keysPerPage = keysPerPage;
+        this.cache = new LRUCache<>(cacheSize);
+
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+
+            if (channel.size() == 0) {
+                writeHeader();
+                fileEnd = HEADER_SIZE;
+            } else {
+                readChunks();
+            }
+        } catch (IOException e) {
+            throw new DbException(String.format("failed to open store %s", path), e);
+        }
+    }
+
+    /**
+     * Open map, map which was never committed is empty.
+     */
+    public MVMap openMap(int id) {
+        return maps.computeIfAbsent(id, k -> {
+            Long rootPos;
+            synchronized (this) {
+                rootPos = storedRoots.get(id);
+            }
+
+            Page root = rootPos == null ? Page.createEmptyLeaf(this) : readPage(rootPos);
+            return new MVMap(this, id, root, keysPerPage);
+        });
+    }
+
+    /**
+     * Write changes of all maps as new chunk and make it durable.
+     * Changes made while chunk is written go to the next chunk.
+     * @return version of last chunk
+     */
+    public synchronized long commit() {
+        checkOpen();
+
+        Map<Integer, Page> roots = new HashMap<>();
+        boolean changed = false;
+        for (MVMap map : maps.values()) {
+            Page root = map.getRoot();
+            roots.put(map.getId(), root);
+            changed |= root.getPos() == 0 || !Long.valueOf(root.getPos()).equals(storedRoots.get(map.getId()));
+        }
+
+        if (!changed)
+            return version;
+
+        long chunkPos = fileEnd;
+        List<Page.PageReference> references = new ArrayList<>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            out.writeInt(CHUNK_MAGIC);
+            out.writeInt(0);
+            out.writeLong(version + 1);
+            out.writeInt(0);
+
+            for (Page root : roots.values()) {
+                if (root.getPos() == 0)
+                    root.write(out, chunkPos, references);
+            }
+
+            int rootsOffset = out.size();
+            out.writeInt(roots.size());
+            for (Map.Entry<Integer, Page> entry : roots.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeLong(entry.getValue().getPos());
+            }
+
+            out.writeInt(0);
+            out.flush();
+
+            ByteBuffer chunk = ByteBuffer.wrap(bytes.toByteArray());
+            chunk.putInt(4, chunk.capacity());
+            chunk.putInt(16, rootsOffset);
+            chunk.putInt(chunk.capacity() - 4, crc(chunk, 0, chunk.capacity() - 4));
+
+            write(chunk, chunkPos);
+            channel.force(false);
+
+            fileEnd = chunkPos + chunk.capacity();
+        } catch (IOException e) {
+            throw new DbException(String.format("failed to write chunk to %s", path), e);
+        }
+
+        // pages are on disk, drop them from memory
+        for (Page.PageReference reference : references)
+            reference.clear();
+
+        version++;
+        lastChunkPos = chunkPos;
+        for (Map.Entry<Integer, Page> entry : roots.entrySet())
+            storedRoots.put(entry.getKey(), entry.getValue().getPos());
+
+        try {
+            writeHeader();
+        } catch (IOException e) {
+            throw new DbException(String.format("failed to write header of %s", path), e);
+        }
+
+        return version;
+    }
+
+    /**
+     * @return version of last chunk
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return file size in bytes
+     */
+    public synchronized long getFileSize() {
+        return fileEnd;
+    }
+
+    /**
+     * Close without commit, uncommitted changes are lost.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed)
+            return;
+
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new DbException(String.format("failed to close store %s", path), e);
+        }
+    }
+
+    // internal ==============================================================================
+    Page readPage(long pos) {
+        Page page = cache.get(pos);
+        if (page != null)
+            return page;
+
+        try {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            read(length, pos);
+
+            ByteBuffer buffer = ByteBuffer.allocate(length.getInt(0) - 4);
+            read(buffer, pos + 4);
+            buffer.flip();
+
+            page = Page.read(this, pos, buffer);
+        } catch (IOException | RuntimeException e) {
+            throw new DbException(String.format("failed to read page at %d of %s", pos, path), e);
+        }
+
+        cache.put(pos, page);
+        return page;
+    }
+
+    private void checkOpen() {
+        if (closed)
+            throw new DbException(String.format("store %s is closed", path));
+    }
+
+    /**
+     * Find last complete chunk starting with the one file header points to.
+     */
+    private void readChunks() throws IOException {
+        long size = channel.size();
+
+        // chunk header points to is durable unless file was damaged, then all chunks are read
+        long pos = readHeader();
+        if (pos == 0 || readChunk(pos, size) == null)
+            pos = HEADER_SIZE;
+
+        ByteBuffer last = null;
+        long lastPos = 0;
+
+        while (true) {
+            ByteBuffer chunk = readChunk(pos, size);
+            if (chunk == null)
+                break;
+
+            last = chunk;
+            lastPos = pos;
+            pos += chunk.capacity();
+        }
+
+        fileEnd = last == null ? HEADER_SIZE : pos;
+
+        if (last != null) {
+            version = last.getLong(8);
+            lastChunkPos = lastPos;
+
+            last.position(last.getInt(16));
+            int count = last.getInt();
+            for (int i = 0; i < count; i++)
+                storedRoots.put(last.getInt(), last.getLong());
+        }
+
+        // drop torn chunk
+        if (size > fileEnd)
+            channel.truncate(fileEnd);
+    }
+
+    /**
+     * @return chunk or <code>null</code> if there is no complete chunk at position
+     */
+    private ByteBuffer readChunk(long pos, long size) throws IOException {
+        if (pos + CHUNK_HEADER_SIZE > size)
+            return null;
+
+        ByteBuffer header = ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+        read(header, pos);
+
+        int length = header.getInt(4);
+        if (header.getInt(0) != CHUNK_MAGIC || length < CHUNK_HEADER_SIZE + 8 || pos + length > size)
+            return null;
+
+        ByteBuffer chunk = ByteBuffer.allocate(length);
+        read(chunk, pos);
+
+        if (chunk.getInt(length - 4) != crc(chunk, 0, length - 4))
+            return null;
+
+        return chunk;
+    }
+
+    /**
+     * @return last chunk position from valid header copy with highest version
+     */
+    private long readHeader() throws IOException {
+        long bestVersion = -1;
+        long chunkPos = 0;
+
+        for (int copy = 0; copy < 2; copy++) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_DATA_SIZE + 4);
+            read(header, (long) copy * HEADER_COPY_SIZE);
+
+            if (header.getInt(0) != FILE_MAGIC || header.getInt(HEADER_DATA_SIZE) != crc(header, 0, HEADER_DATA_SIZE))
+                continue;
+
+            if (header.getInt(4) != FORMAT) {
+                throw new DbException(String.format("unsupported store format %d of %s", header.getInt(4), path));
+            }
+
+            if (header.getLong(8) > bestVersion) {
+                bestVersion = header.getLong(8);
+                chunkPos = header.getLong(16);
+            }
+        }
+
+        if (bestVersion < 0)
+            throw new DbException(String.format("%s is not a store file", path));
+
+        return chunkPos;
+    }
+
+    /**
+     * Write header copy chosen by version, so one copy is always complete.
+     */
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_DATA_SIZE + 4);
+        header.putInt(0, FILE_MAGIC);
+        header.putInt(4, FORMAT);
+        header.putLong(8, version);
+        header.putLong(16, lastChunkPos);
+        header.putInt(HEADER_DATA_SIZE, crc(header, 0, HEADER_DATA_SIZE));
+
+        write(header, (version % 2) * HEADER_COPY_SIZE);
+
+        if (channel.size() < HEADER_SIZE)
+            write(ByteBuffer.allocate(1), HEADER_SIZE - 1);
+    }
+
+    private void read(ByteBuffer buffer, long pos) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, pos + buffer.position()) < 0)
+                throw new IOException("unexpected end of file");
+        }
+    }
+
+    private void write(ByteBuffer buffer, long pos) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer, pos + buffer.position());
+    }
+
+    private static int crc(ByteBuffer buffer, int from, int to) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), from, to - from);
+        return (int) crc.getValue();
+    }
+}
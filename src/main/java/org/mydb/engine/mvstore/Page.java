@@ -0,0 +1,311 @@
+package org.mydb.engine.mvstore;
+
+import org.mydb.util.Bytes;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable B-tree page: leaf with keys and values or node with keys and children.
+ * Changed page is copied up to the root, so readers of old root never see partial changes.
+ * <p>
+ * Child i of node has keys in range [keys[i - 1], keys[i]).
+ */
+class Page {
+    private static final byte TYPE_LEAF = 0;
+    private static final byte TYPE_NODE = 1;
+
+    private final MVStore store;
+    private final byte[][] keys;
+
+    /** Values of leaf, <code>null</code> for node */
+    private final byte[][] values;
+
+    /** Children of node, <code>null</code> for leaf */
+    private final PageReference[] children;
+
+    /** Position in file, 0 until page is written */
+    private volatile long pos;
+
+    private Page(MVStore store, byte[][] keys, byte[][] values, PageReference[] children) {
+        this.store = store;
+        this.keys = keys;
+        this.values = values;
+        this.children = children;
+    }
+
+    static Page createEmptyLeaf(MVStore store) {
+        return new Page(store, new byte[0][], new byte[0][], null);
+    }
+
+    static Page createNode(MVStore store, byte[][] keys, Page[] children) {
+        PageReference[] references = new PageReference[children.length];
+        for (int i = 0; i < children.length; i++)
+            references[i] = new PageReference(children[i]);
+
+        return new Page(store, keys, null, references);
+    }
+
+    boolean isLeaf() {
+        return children == null;
+    }
+
+    int getKeyCount() {
+        return keys.length;
+    }
+
+    byte[] getKey(int index) {
+        return keys[index];
+    }
+
+    byte[] getValue(int index) {
+        return values[index];
+    }
+
+    int getChildCount() {
+        return children.length;
+    }
+
+    Page getChild(int index) {
+        return children[index].resolve(store);
+    }
+
+    long getPos() {
+        return pos;
+    }
+
+    /**
+     * @return index of key or <code>-(insertion point) - 1</code>
+     */
+    int binarySearch(byte[] key) {
+        int low = 0;
+        int high = keys.length - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int result = Bytes.compare(keys[mid], key);
+
+            if (result < 0)
+                low = mid + 1;
+            else if (result > 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+
+        return -(low + 1);
+    }
+
+    /**
+     * @return index of child which may contain key
+     */
+    int childIndex(byte[] key) {
+        int index = binarySearch(key);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    // copy on write =========================================================================
+    Page setValue(int index, byte[] value) {
+        byte[][] newValues = values.clone();
+        newValues[index] = value;
+        return new Page(store, keys, newValues, null);
+    }
+
+    Page insertValue(int index, byte[] key, byte[] value) {
+        return new Page(store, insert(keys, index, key), insert(values, index, value), null);
+    }
+
+    Page removeValue(int index) {
+        return new Page(store, remove(keys, index), remove(values, index), null);
+    }
+
+    Page setChild(int index, Page child) {
+        PageReference[] newChildren = children.clone();
+        newChildren[index] = new PageReference(child);
+        return new Page(store, keys, null, newChildren);
+    }
+
+    /**
+     * Replace child with two pages split at key.
+     */
+    Page splitChild(int index, Page left, byte[] key, Page right) {
+        PageReference[] newChildren = insert(children, index + 1, new PageReference(right));
+        newChildren[index] = new PageReference(left);
+        return new Page(store, insert(keys, index, key), null, newChildren);
+    }
+
+    /**
+     * Remove empty child and its key.
+     */
+    Page removeChild(int index) {
+        int keyIndex = index == 0 ? 0 : index - 1;
+        return new Page(store, remove(keys, keyIndex), null, remove(children, index));
+    }
+
+    /**
+     * Left half of page, keys before <code>at</code>.
+     */
+    Page splitLeft(int at) {
+        if (isLeaf())
+            return new Page(store, Arrays.copyOf(keys, at), Arrays.copyOf(values, at), null);
+
+        return new Page(store, Arrays.copyOf(keys, at), null, Arrays.copyOf(children, at + 1));
+    }
+
+    /**
+     * Right half of page, node does not keep key at <code>at</code> which moves to parent.
+     */
+    Page splitRight(int at) {
+        if (isLeaf()) {
+            return new Page(store, Arrays.copyOfRange(keys, at, keys.length),
+                    Arrays.copyOfRange(values, at, values.length), null);
+        }
+
+        return new Page(store, Arrays.copyOfRange(keys, at + 1, keys.length), null,
+                Arrays.copyOfRange(children, at + 1, children.length));
+    }
+
+    // serialization =========================================================================
+    /**
+     * Write unsaved children and then this page to chunk.
+     * @param chunkPos file position of chunk
+     * @param references references to written pages, cleared when chunk is on disk
+     */
+    void write(DataOutputStream out, long chunkPos, List<PageReference> references) throws IOException {
+        if (!isLeaf()) {
+            for (PageReference child : children) {
+                Page page = child.page;
+                if (page != null) {
+                    if (page.pos == 0)
+                        page.write(out, chunkPos, references);
+
+                    references.add(child);
+                }
+            }
+        }
+
+        pos = chunkPos + out.size();
+
+        out.writeInt(getLength());
+        out.writeByte(isLeaf() ? TYPE_LEAF : TYPE_NODE);
+        out.writeInt(keys.length);
+        for (byte[] key : keys) {
+            out.writeShort(key.length);
+            out.write(key);
+        }
+
+        if (isLeaf()) {
+            for (byte[] value : values) {
+                out.writeInt(value.length);
+                out.write(value);
+            }
+        } else {
+            for (PageReference child : children)
+                out.writeLong(child.getPos());
+        }
+    }
+
+    /**
+     * @return serialized size in bytes
+     */
+    private int getLength() {
+        int length = 4 + 1 + 4;
+        for (byte[] key : keys)
+            length += 2 + key.length;
+
+        if (isLeaf()) {
+            for (byte[] value : values)
+                length += 4 + value.length;
+        } else {
+            length += 8 * children.length;
+        }
+
+        return length;
+    }
+
+    static Page read(MVStore store, long pos, ByteBuffer buffer) {
+        byte type = buffer.get();
+        int keyCount = buffer.getInt();
+
+        byte[][] keys = new byte[keyCount][];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(keys[i]);
+        }
+
+        Page page;
+        if (type == TYPE_LEAF) {
+            byte[][] values = new byte[keyCount][];
+            for (int i = 0; i < keyCount; i++) {
+                values[i] = new byte[buffer.getInt()];
+                buffer.get(values[i]);
+            }
+
+            page = new Page(store, keys, values, null);
+        } else {
+            PageReference[] children = new PageReference[keyCount + 1];
+            for (int i = 0; i < children.length; i++)
+                children[i] = new PageReference(buffer.getLong());
+
+            page = new Page(store, keys, null, children);
+        }
+
+        page.pos = pos;
+        return page;
+    }
+
+    // internal ==============================================================================
+    private static <T> T[] insert(T[] array, int index, T value) {
+        T[] result = Arrays.copyOf(array, array.length + 1);
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        result[index] = value;
+        return result;
+    }
+
+    private static <T> T[] remove(T[] array, int index) {
+        T[] result = Arrays.copyOf(array, array.length - 1);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    /**
+     * Reference to child page. Written page is dropped from reference and read again through store cache,
+     * so memory holds only changed pages and cached ones.
+     */
+    static class PageReference {
+        private volatile Page page;
+        private volatile long pos;
+
+        PageReference(Page page) {
+            this.page = page;
+        }
+
+        PageReference(long pos) {
+            this.pos = pos;
+        }
+
+        Page resolve(MVStore store) {
+            Page result = page;
+            return result != null ? result : store.readPage(pos);
+        }
+
+        long getPos() {
+            Page result = page;
+            return result != null ? result.pos : pos;
+        }
+
+        /**
+         * Drop written page, position is set first so concurrent readers always find the page.
+         */
+        void clear() {
+            Page result = page;
+            if (result != null && result.pos != 0) {
+                pos = result.pos;
+                page = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.mydb.engine.mvstore;
+
+import org.mydb.engine.tx.Transaction;
+import org.mydb.util.Bytes;
+import org.mydb.util.IdGenerator;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transactions over store maps. Inserts and updates of running transactions are kept in undo map,
+ * which is committed with the data, so changes of transactions not committed before crash
+ * are undone when store is opened again.
+ * <p>
+ * The greatest id of committed transaction is kept in store, so transactions started after store
+ * is opened get greater ids than ids of row versions in store.
+ * <p>
+ * Commit removes undo entries of transaction and commits store, commits of concurrent transactions
+ * share chunk written by the first of them.
+ */
+public class TransactionStore implements Transaction.Participant {
+    /** Map id of undo map */
+    public static final int UNDO_MAP_ID = -1;
+
+    /** Map id of map with the greatest committed transaction id */
+    public static final int XID_MAP_ID = -3;
+
+    /** Undo entry: xid, map id, key length, then key and old value, no old value if key was inserted */
+    private static final int UNDO_ENTRY_HEADER_SIZE = 8 + 4 + 4;
+
+    private static final byte[] XID_KEY = Bytes.fromLong(0);
+
+    private final MVStore store;
+    private final MVMap undoMap;
+    private final MVMap xidMap;
+    private final AtomicLong nextUndoKey;
+
+    /** The greatest id of committed transaction, guarded by xidMap */
+    private long maxXid;
+
+    /** Undo keys by transaction id */
+    private final Map<Long, List<Long>> undoKeys = new HashMap<>();
+
+    public TransactionStore(MVStore store) {
+        this.store = store;
+        this.undoMap = store.openMap(UNDO_MAP_ID);
+        this.xidMap = store.openMap(XID_MAP_ID);
+
+        byte[] lastKey = undoMap.lastKey();
+        this.nextUndoKey = new AtomicLong(lastKey == null ? 0 : Bytes.toLong(lastKey) + 1);
+
+        byte[] xid = xidMap.get(XID_KEY);
+        if (xid != null) {
+            maxXid = Bytes.toLong(xid);
+            IdGenerator.advance(IdGenerator.Type.XID, maxXid);
+        }
+    }
+
+    /**
+     * Remember insert to undo it if transaction does not commit.
+     * Must be called before key is put, so store never has insert without its undo entry.
+     */
+    public void addInsert(Transaction transaction, MVMap map, byte[] key) {
+        addUndo(transaction, map, key, null);
+    }
+
+    /**
+     * Remember old value of key to put it back if transaction does not commit.
+     * Must be called before new value is put.
+     */
+    public void addUpdate(Transaction transaction, MVMap map, byte[] key, byte[] oldValue) {
+        addUndo(transaction, map, key, oldValue);
+    }
+
+    @Override
+    public void commit(Transaction transaction) {
+        removeUndo(transaction);
+
+        synchronized (xidMap) {
+            if (transaction.getXid() > maxXid) {
+                maxXid = transaction.getXid();
+                xidMap.put(XID_KEY, Bytes.fromLong(maxXid));
+            }
+        }
+
+        store.commit();
+    }
+
+    @Override
+    public void rollback(Transaction transaction) {
+        removeUndo(transaction);
+    }
+
+    /**
+     * Undo changes of transactions which did not commit before store was closed, the latest change first.
+     * @return number of changes undone
+     */
+    public int rollbackPending() {
+        List<byte[]> keys = new ArrayList<>();
+        Cursor cursor = undoMap.cursor();
+        while (cursor.hasNext())
+            keys.add(cursor.next());
+
+        for (int i = keys.size() - 1; i >= 0; i--) {
+            byte[] undoKey = keys.get(i);
+            ByteBuffer entry = ByteBuffer.wrap(undoMap.get(undoKey));
+            entry.getLong();
+            MVMap map = store.openMap(entry.getInt());
+
+            byte[] key = new byte[entry.getInt()];
+            entry.get(key);
+
+            if (entry.hasRemaining()) {
+                byte[] oldValue = new byte[entry.remaining()];
+                entry.get(oldValue);
+                map.put(key, oldValue);
+            } else {
+                map.remove(key);
+            }
+
+            undoMap.remove(undoKey);
+        }
+
+        if (!keys.isEmpty())
+            store.commit();
+
+        return keys.size();
+    }
+
+    // internal ==============================================================================
+    private void addUndo(Transaction transaction, MVMap map, byte[] key, byte[] oldValue) {
+        long undoKey = nextUndoKey.getAndIncrement();
+
+        int size = UNDO_ENTRY_HEADER_SIZE + key.length + (oldValue == null ? 0 : oldValue.length);
+        ByteBuffer entry = ByteBuffer.allocate(size);
+        entry.putLong(transaction.getXid()).putInt(map.getId()).putInt(key.length).put(key);
+        if (oldValue != null)
+            entry.put(oldValue);
+
+        undoMap.put(Bytes.fromLong(undoKey), entry.array());
+
+        synchronized (undoKeys) {
+            undoKeys.computeIfAbsent(transaction.getXid(), k -> new ArrayList<>()).add(undoKey);
+        }
+
+        transaction.enlist(this);
+    }
+
+    private void removeUndo(Transaction transaction) {
+        List<Long> keys;
+        synchronized (undoKeys) {
+            keys = undoKeys.remove(transaction.getXid());
+        }
+
+        if (keys == null)
+            return;
+
+        for (Long undoKey : keys)
+            undoMap.remove(Bytes.fromLong(undoKey));
+    }
+}
@@ -0,0 +1,487 @@
+package org.mydb.engine.page;
+
+import org.mydb.DbException;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Bounded cache of file pages shared by all page files of database.
+ * <p>
+ * Page is pinned while in use and can't be evicted until unpinned. Modified pages are marked dirty
+ * and written back to file when evicted or flushed.
+ * <p>
+ * Eviction uses clock sweep (generalized clock): each frame has usage count incremented on access
+ * and decremented when clock hand passes it, frame with zero usage count is evicted. Sequential
+ * scans read pages through a small ring of frames: page read by scan replaces the page the same scan
+ * read a ring ago, so a large scan recycles its own frames instead of sweeping out frequently used pages.
+ * <p>
+ * Lookups use concurrent map and atomic pin counts, there is no global lock on the hit path.
+ * <p>
+ * Write-ahead rule: before dirty page is written, log is flushed up to page LSN.
+ */
+public class BufferPool {
+    /** Max usage count, frame survives that many clock sweeps without access */
+    private static final int MAX_USAGE_COUNT = 5;
+
+    /** Max number of frames in scan ring */
+    private static final int MAX_RING_SIZE = 32;
+
+    /** Pin count of frame claimed for eviction or load */
+    private static final int CLAIMED = -1;
+
+    /** Page size in bytes */
+    private final int pageSize;
+
+    /** Cache frames */
+    private final Frame[] frames;
+
+    /** Frames by page key */
+    private final ConcurrentHashMap<Long, Frame> pageTable = new ConcurrentHashMap<>();
+
+    /** Clock hand, next frame to check for eviction */
+    private final AtomicInteger clockHand = new AtomicInteger();
+
+    /** Flushes log up to given LSN, <code>null</code> if pages are not logged */
+    private volatile LongConsumer logFlusher;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+
+    /**
+     * @param pageSize page size of files cached
+     * @param numPages max number of pages in cache
+     */
+    public BufferPool(int pageSize, int numPages) {
+        if (numPages < 1)
+            throw new IllegalArgumentException("buffer pool size should be > 0");
+
+        this.pageSize = pageSize;
+        this.frames = new Frame[numPages];
+
+        for (int i = 0; i < numPages; i++)
+            frames[i] = new Frame();
+    }
+
+    /**
+     * Create pool of given size in megabytes.
+     */
+    public static BufferPool ofMegabytes(int pageSize, int sizeMb) {
+        long numPages = (long) sizeMb * 1024 * 1024 / pageSize;
+        return new BufferPool(pageSize, (int) Math.max(numPages, 16));
+    }
+
+    /**
+     * Pin page for random access.
+     */
+    public Frame pin(PageFile file, int pageNo) {
+        return pin(file, pageNo, null, true);
+    }
+
+    /**
+     * Pin page read by sequential scan. Page does not gain usage count above one,
+     * page not in cache is loaded into frame of scan ring.
+     */
+    public Frame pinForScan(PageFile file, int pageNo, ScanRing ring) {
+        return pin(file, pageNo, ring, true);
+    }
+
+    /**
+     * Pin newly allocated page without reading it, page content is zeroed.
+     */
+    public Frame pinNew(PageFile file, int pageNo) {
+        return pin(file, pageNo, null, false);
+    }
+
+    /**
+     * Create frame ring for one sequential scan.
+     */
+    public ScanRing newScanRing() {
+        return new ScanRing(Math.max(1, Math.min(MAX_RING_SIZE, frames.length / 8)));
+    }
+
+    /**
+     * Release page pinned before.
+     */
+    public void unpin(Frame frame) {
+        if (frame.pinCount.decrementAndGet() < 0) {
+            throw new IllegalStateException("frame is not pinned");
+        }
+    }
+
+    /**
+     * Write dirty pages of all files.
+     */
+    public void flush() {
+        flush(null);
+    }
+
+    /**
+     * Write dirty pages of file. Pages are written one by one, so other threads can use pool meanwhile.
+     * @param file file or <code>null</code> for all files
+     */
+    public void flush(PageFile file) {
+        for (Frame frame : frames) {
+            if (!frame.dirty || (file != null && frame.file != file))
+                continue;
+
+            // claimed frame is being evicted or loaded, wait so page is on disk when method returns
+            while (!tryPin(frame))
+                Thread.yield();
+
+            try {
+                if (frame.dirty && (file == null || frame.file == file))
+                    writeFrame(frame);
+            } finally {
+                unpin(frame);
+            }
+        }
+    }
+
+    /**
+     * Drop pages of file from cache without writing them, i.e. when file is closed or deleted.
+     */
+    public void invalidate(PageFile file) {
+        for (Frame frame : frames) {
+            if (frame.file != file)
+                continue;
+
+            if (!frame.pinCount.compareAndSet(0, CLAIMED)) {
+                throw new DbException(String.format("page %d of %s is in use", frame.pageNo, file.getPath()));
+            }
+
+            pageTable.remove(frame.key, frame);
+            frame.reset();
+            frame.pinCount.set(0);
+        }
+    }
+
+    /**
+     * Set log flusher called before dirty page is written.
+     */
+    public void setLogFlusher(LongConsumer logFlusher) {
+        this.logFlusher = logFlusher;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getCapacity() {
+        return frames.length;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return number of dirty pages written back
+     */
+    public long getWrites() {
+        return writes.sum();
+    }
+
+    public int getDirtyCount() {
+        int count = 0;
+        for (Frame frame : frames) {
+            if (frame.dirty)
+                count++;
+        }
+
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BufferPool[pages=%d, hits=%d, misses=%d, evictions=%d, writes=%d]",
+                frames.length, getHits(), getMisses(), getEvictions(), getWrites());
+    }
+
+    // internal ==============================================================================
+    private static long pageKey(PageFile file, int pageNo) {
+        return ((long) file.getId() << 32) | (pageNo & 0xFFFFFFFFL);
+    }
+
+    private Frame pin(PageFile file, int pageNo, ScanRing ring, boolean read) {
+        if (file.getPageSize() != pageSize) {
+            throw new IllegalArgumentException(String.format("page size %d does not match pool page size %d",
+                    file.getPageSize(), pageSize));
+        }
+
+        long key = pageKey(file, pageNo);
+
+        while (true) {
+            Frame frame = pageTable.get(key);
+
+            if (frame != null) {
+                if (tryPin(frame)) {
+                    // frame could be reused for another page before it was pinned
+                    if (frame.key == key) {
+                        frame.touch(ring != null);
+                        hits.increment();
+                        return frame;
+                    }
+
+                    unpin(frame);
+                }
+
+                continue;
+            }
+
+            Frame victim = ring == null ? null : ring.claim();
+            if (victim == null)
+                victim = claimVictim();
+
+            if (read) {
+                try {
+                    file.readPage(pageNo, victim.buffer);
+                } catch (RuntimeException e) {
+                    // return claimed frame to pool, otherwise each failed read loses a frame
+                    victim.reset();
+                    victim.pinCount.set(0);
+                    throw e;
+                }
+            } else {
+                victim.clear();
+            }
+
+            victim.file = file;
+            victim.pageNo = pageNo;
+            victim.key = key;
+            victim.usageCount = 0;
+            victim.touch(ring != null);
+
+            // claimed frame becomes pinned once
+            victim.pinCount.set(1);
+
+            Frame existing = pageTable.putIfAbsent(key, victim);
+            if (existing == null) {
+                misses.increment();
+
+                if (ring != null)
+                    ring.add(victim);
+
+                return victim;
+            }
+
+            // page was loaded concurrently, release claimed frame and use loaded one
+            victim.reset();
+            unpin(victim);
+        }
+    }
+
+    private boolean tryPin(Frame frame) {
+        while (true) {
+            int pinCount = frame.pinCount.get();
+            if (pinCount == CLAIMED)
+                return false;
+
+            if (frame.pinCount.compareAndSet(pinCount, pinCount + 1))
+                return true;
+        }
+    }
+
+    /**
+     * Find frame to reuse with clock sweep, write it back if dirty and remove it from page table.
+     * @return frame claimed by current thread
+     */
+    private Frame claimVictim() {
+        // each sweep decrements usage count, frames with max usage count need that many sweeps
+        int maxSteps = frames.length * (MAX_USAGE_COUNT + 2);
+
+        for (int step = 0; step < maxSteps; step++) {
+            Frame frame = frames[Math.floorMod(clockHand.getAndIncrement(), frames.length)];
+
+            if (frame.pinCount.get() != 0)
+                continue;
+
+            if (frame.usageCount > 0) {
+                frame.usageCount--;
+                continue;
+            }
+
+            if (!frame.pinCount.compareAndSet(0, CLAIMED))
+                continue;
+
+            evict(frame);
+            return frame;
+        }
+
+        throw new DbException(String.format("buffer pool exhausted: all %d pages are in use", frames.length));
+    }
+
+    /**
+     * Write back and remove page of claimed frame.
+     * If write back fails, claim is released and page stays cached as dirty.
+     */
+    private void evict(Frame frame) {
+        if (frame.key != Frame.NO_PAGE) {
+            if (frame.dirty) {
+                try {
+                    writeFrame(frame);
+                } catch (RuntimeException e) {
+                    frame.pinCount.set(0);
+                    throw e;
+                }
+            }
+
+            pageTable.remove(frame.key, frame);
+            evictions.increment();
+        }
+
+        frame.reset();
+    }
+
+    private void writeFrame(Frame frame) {
+        frame.latch.readLock().lock();
+        try {
+            long lsn = Page.getLsn(frame.buffer);
+            LongConsumer flusher = logFlusher;
+            if (flusher != null && lsn > 0)
+                flusher.accept(lsn);
+
+            frame.dirty = false;
+            try {
+                frame.file.writePage(frame.pageNo, frame.buffer);
+            } catch (RuntimeException e) {
+                frame.dirty = true;
+                throw e;
+            }
+            writes.increment();
+        } finally {
+            frame.latch.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cache frame holding one page.
+     * Page content is protected by latch: read lock to read page, write lock to modify it.
+     */
+    public class Frame {
+        static final long NO_PAGE = -1;
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(pageSize);
+        private final ReadWriteLock latch = new ReentrantReadWriteLock();
+        private final AtomicInteger pinCount = new AtomicInteger();
+
+        private volatile long key = NO_PAGE;
+        private volatile PageFile file;
+        private volatile int pageNo;
+        private volatile boolean dirty;
+        private volatile int usageCount;
+
+        public ByteBuffer getBuffer() {
+            return buffer;
+        }
+
+        public int getPageNo() {
+            return pageNo;
+        }
+
+        public PageFile getFile() {
+            return file;
+        }
+
+        public boolean isDirty() {
+            return dirty;
+        }
+
+        /**
+         * Mark page modified, should be called while holding write latch.
+         */
+        public void markDirty() {
+            dirty = true;
+        }
+
+        public void readLock() {
+            latch.readLock().lock();
+        }
+
+        public void readUnlock() {
+            latch.readLock().unlock();
+        }
+
+        public void writeLock() {
+            latch.writeLock().lock();
+        }
+
+        public void writeUnlock() {
+            latch.writeLock().unlock();
+        }
+
+        private void touch(boolean scan) {
+            if (scan) {
+                if (usageCount == 0)
+                    usageCount = 1;
+            } else if (usageCount < MAX_USAGE_COUNT) {
+                usageCount++;
+            }
+        }
+
+        private void clear() {
+            for (int i = 0; i < buffer.capacity(); i++)
+                buffer.put(i, (byte) 0);
+        }
+
+        private void reset() {
+            key = NO_PAGE;
+            file = null;
+            dirty = false;
+            usageCount = 0;
+        }
+    }
+
+    /**
+     * Frames used by one sequential scan, not thread safe.
+     */
+    public class ScanRing {
+        private final Frame[] ring;
+        private int position;
+
+        private ScanRing(int size) {
+            this.ring = new Frame[size];
+        }
+
+        /**
+         * Claim frame loaded by this scan a ring ago, unless it is in use or became hot meanwhile.
+         * @return claimed frame or <code>null</code>
+         */
+        private Frame claim() {
+            Frame frame = ring[position];
+            if (frame == null || frame.usageCount > 1)
+                return null;
+
+            if (!frame.pinCount.compareAndSet(0, CLAIMED))
+                return null;
+
+            if (frame.usageCount > 1) {
+                frame.pinCount.set(0);
+                return null;
+            }
+
+            evict(frame);
+            return frame;
+        }
+
+        private void add(Frame frame) {
+            ring[position] = frame;
+            position = (position + 1) % ring.length;
+        }
+    }
+}
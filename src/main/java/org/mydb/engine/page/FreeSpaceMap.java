@@ -0,0 +1,94 @@
+package org.mydb.engine.page;
+
+import java.util.Arrays;
+
+/**
+ * Free space of pages of one file kept in memory, used to find page with room for new record.
+ * <p>
+ * Free space of page is kept as one byte category: free bytes in units of 1/256 of page rounded down,
+ * so page found always has room for requested size. Max category of each block of pages is kept too,
+ * search skips blocks without page with enough room.
+ * <p>
+ * Map is a hint: pages not recorded yet are treated as full, caller checks page it gets and records
+ * its actual free space.
+ */
+public class FreeSpaceMap {
+    /** Pages per block */
+    private static final int BLOCK_SIZE = 256;
+
+    /** Max category */
+    private static final int MAX_CATEGORY = 255;
+
+    /** Bytes of free space per category */
+    private final int unit;
+
+    /** Category by page number */
+    private byte[] categories = new byte[BLOCK_SIZE];
+
+    /** Max category by block number */
+    private byte[] blockMax = new byte[1];
+
+    public FreeSpaceMap(int pageSize) {
+        this.unit = Math.max(1, (pageSize + MAX_CATEGORY) / (MAX_CATEGORY + 1));
+    }
+
+    /**
+     * Record free space of page.
+     * @param freeSpace max size of record page can take
+     */
+    public synchronized void update(int pageNo, int freeSpace) {
+        ensureCapacity(pageNo + 1);
+
+        int category = Math.min(MAX_CATEGORY, freeSpace / unit);
+        int old = categories[pageNo] & 0xFF;
+        if (category == old)
+            return;
+
+        categories[pageNo] = (byte) category;
+
+        int block = pageNo / BLOCK_SIZE;
+        int max = blockMax[block] & 0xFF;
+        if (category > max) {
+            blockMax[block] = (byte) category;
+        } else if (old == max) {
+            max = 0;
+            for (int i = block * BLOCK_SIZE; i < (block + 1) * BLOCK_SIZE; i++)
+                max = Math.max(max, categories[i] & 0xFF);
+
+            blockMax[block] = (byte) max;
+        }
+    }
+
+    /**
+     * Find the first page with room for record of given size.
+     * @return page number or -1 if no recorded page has room
+     */
+    public synchronized int find(int size) {
+        // round up, page of category has at least category * unit bytes
+        int category = Math.max(1, (size + unit - 1) / unit);
+        if (category > MAX_CATEGORY)
+            return -1;
+
+        for (int block = 0; block < blockMax.length; block++) {
+            if ((blockMax[block] & 0xFF) < category)
+                continue;
+
+            for (int pageNo = block * BLOCK_SIZE; pageNo < (block + 1) * BLOCK_SIZE; pageNo++) {
+                if ((categories[pageNo] & 0xFF) >= category)
+                    return pageNo;
+            }
+        }
+
+        return -1;
+    }
+
+    // internal ==============================================================================
+    private void ensureCapacity(int pageCount) {
+        if (pageCount <= categories.length)
+            return;
+
+        int blocks = Math.max(blockMax.length * 2, (pageCount + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        categories = Arrays.copyOf(categories, blocks * BLOCK_SIZE);
+        blockMax = Arrays.copyOf(blockMax, blocks);
+    }
+}
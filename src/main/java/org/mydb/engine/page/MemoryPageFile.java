@@ -0,0 +1,114 @@
+package org.mydb.engine.page;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Page file kept in memory outside of Java heap: pages are stored in direct buffer slabs of
+ * {@value #SLAB_SIZE} bytes, allocated when the first page of slab is written. Pages are cached
+ * by buffer pool like pages of disk file, so only pool frames are on heap however large file grows.
+ */
+public class MemoryPageFile extends PageFile {
+    /** Slab size in bytes, rounded down to whole pages */
+    private static final int SLAB_SIZE = 1024 * 1024;
+
+    private final int pagesPerSlab;
+
+    /** Slabs in page order, <code>null</code> if no page of slab was written, guarded by this */
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+
+    /**
+     * @param path path used in messages only, file is not created
+     */
+    public MemoryPageFile(int id, Path path, int pageSize) {
+        super(id, path, pageSize, null);
+        this.pagesPerSlab = Math.max(1, SLAB_SIZE / pageSize);
+    }
+
+    /**
+     * Read page into buffer. Pages never written are read as zeros.
+     * Buffer position is not changed.
+     */
+    @Override
+    public void readPage(int pageNo, ByteBuffer pageBuffer) {
+        checkBuffer(pageBuffer);
+        ByteBuffer buffer = pageBuffer.duplicate();
+        buffer.clear();
+
+        ByteBuffer page = getPage(pageNo, false);
+        if (page == null) {
+            while (buffer.hasRemaining())
+                buffer.put((byte) 0);
+        } else {
+            buffer.put(page);
+        }
+    }
+
+    /**
+     * Copy whole buffer to page. Buffer position is not changed.
+     */
+    @Override
+    public void writePage(int pageNo, ByteBuffer pageBuffer) {
+        checkBuffer(pageBuffer);
+        ByteBuffer buffer = pageBuffer.duplicate();
+        buffer.clear();
+
+        getPage(pageNo, true).put(buffer);
+        ensurePageCount(pageNo + 1);
+    }
+
+    /**
+     * Nothing to sync, pages are lost when file is closed.
+     */
+    @Override
+    public void sync() {
+    }
+
+    /**
+     * Release slabs, direct memory is freed when they are collected.
+     */
+    @Override
+    public synchronized void close() {
+        slabs.clear();
+    }
+
+    /**
+     * @return memory allocated for pages in bytes
+     */
+    public synchronized long getAllocatedSize() {
+        return slabs.stream().filter(slab -> slab != null).mapToLong(ByteBuffer::capacity).sum();
+    }
+
+    // internal ==============================================================================
+    /**
+     * @param create allocate slab if page was never written
+     * @return view of page in its slab, <code>null</code> if page was never written and not created
+     */
+    private ByteBuffer getPage(int pageNo, boolean create) {
+        int index = pageNo / pagesPerSlab;
+        ByteBuffer slab;
+
+        synchronized (this) {
+            while (create && slabs.size() <= index)
+                slabs.add(null);
+
+            slab = index < slabs.size() ? slabs.get(index) : null;
+            if (slab == null && create) {
+                slab = ByteBuffer.allocateDirect(pagesPerSlab * getPageSize());
+                slabs.set(index, slab);
+            }
+        }
+
+        if (slab == null)
+            return null;
+
+        // views of slab have own position, so pages are copied concurrently
+        ByteBuffer page = slab.duplicate();
+        int offset = (pageNo % pagesPerSlab) * getPageSize();
+        page.position(offset);
+        page.limit(offset + getPageSize());
+        return page;
+    }
+}
@@ -0,0 +1,36 @@
+package org.mydb.engine.page;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Common page header fields.
+ * Every page starts with type byte and keeps log sequence number of its last logged change at the same offset,
+ * so buffer pool can follow write-ahead rule without knowing page layout.
+ */
+public final class Page {
+    /** Page type offset, zero type means page was never initialized */
+    public static final int TYPE_OFFSET = 0;
+
+    /** Page LSN offset */
+    public static final int LSN_OFFSET = 8;
+
+    /** Size of common header */
+    public static final int HEADER_SIZE = 16;
+
+    private Page() {}
+
+    public static byte getType(ByteBuffer buffer) {
+        return buffer.get(TYPE_OFFSET);
+    }
+
+    /**
+     * @return LSN of last logged change, 0 if page change was never logged
+     */
+    public static long getLsn(ByteBuffer buffer) {
+        return buffer.getLong(LSN_OFFSET);
+    }
+
+    public static void setLsn(ByteBuffer buffer, long lsn) {
+        buffer.putLong(LSN_OFFSET, lsn);
+    }
+}
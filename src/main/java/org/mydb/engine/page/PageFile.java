@@ -0,0 +1,164 @@
+package org.mydb.engine.page;
+
+import org.mydb.DbException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * File of fixed size pages.
+ * Pages are read and written as a whole, page number is the position in file divided by page size.
+ */
+public class PageFile implements Closeable {
+    /** Default page size in bytes */
+    public static final int DEFAULT_PAGE_SIZE = 4096;
+
+    /** File id, unique within database */
+    private final int id;
+
+    /** File path */
+    private final Path path;
+
+    /** Page size in bytes */
+    private final int pageSize;
+
+    /** File channel, <code>null</code> if subclass keeps pages */
+    private final FileChannel channel;
+
+    /** Number of pages in file, including allocated but not yet written pages */
+    private int pageCount;
+
+    public PageFile(int id, Path path, int pageSize) {
+        this.id = id;
+        this.path = path;
+        this.pageSize = pageSize;
+
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.pageCount = (int) (channel.size() / pageSize);
+        } catch (IOException e) {
+            throw new DbException(String.format("failed to open page file %s", path), e);
+        }
+    }
+
+    /**
+     * Empty file without channel, subclass keeps pages.
+     * @param path path used in messages only
+     */
+    protected PageFile(int id, Path path, int pageSize, FileChannel channel) {
+        this.id = id;
+        this.path = path;
+        this.pageSize = pageSize;
+        this.channel = channel;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public synchronized int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Reserve new page at the end of file.
+     * @return page number
+     */
+    public synchronized int allocatePage() {
+        return pageCount++;
+    }
+
+    /**
+     * Make sure page count covers pages written before crash, i.e. when log is replayed.
+     */
+    public synchronized void ensurePageCount(int count) {
+        if (pageCount < count)
+            pageCount = count;
+    }
+
+    /**
+     * Read page into buffer. Pages allocated but never written are read as zeros.
+     * Buffer position is not changed.
+     */
+    public void readPage(int pageNo, ByteBuffer pageBuffer) {
+        checkBuffer(pageBuffer);
+        ByteBuffer buffer = pageBuffer.duplicate();
+        buffer.clear();
+
+        try {
+            long position = (long) pageNo * pageSize;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    while (buffer.hasRemaining())
+                        buffer.put((byte) 0);
+                }
+            }
+        } catch (IOException e) {
+            throw new DbException(String.format("failed to read page %d of %s", pageNo, path), e);
+        }
+    }
+
+    /**
+     * Write whole buffer as page. Buffer position is not changed.
+     */
+    public void writePage(int pageNo, ByteBuffer pageBuffer) {
+        checkBuffer(pageBuffer);
+        ByteBuffer buffer = pageBuffer.duplicate();
+        buffer.clear();
+
+        try {
+            long position = (long) pageNo * pageSize;
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+        } catch (IOException e) {
+            throw new DbException(String.format("failed to write page %d of %s", pageNo, path), e);
+        }
+
+        synchronized (this) {
+            if (pageNo >= pageCount)
+                pageCount = pageNo + 1;
+        }
+    }
+
+    /**
+     * Force written pages to disk.
+     */
+    public void sync() {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new DbException(String.format("failed to sync %s", path), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new DbException(String.format("failed to close %s", path), e);
+        }
+    }
+
+    protected void checkBuffer(ByteBuffer buffer) {
+        if (buffer.capacity() != pageSize) {
+            throw new IllegalArgumentException(String.format("buffer size %d does not match page size %d",
+                    buffer.capacity(), pageSize));
+        }
+    }
+}
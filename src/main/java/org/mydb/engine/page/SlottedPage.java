@@ -0,0 +1,249 @@
+package org.mydb.engine.page;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Slotted page view over page buffer.
+ * <pre>
+ * | header | slot 0 | slot 1 | ... free space ... | record 1 | record 0 |
+ * </pre>
+ * Slot directory grows from header to the end of page, records grow from the end of page to header.
+ * Each slot keeps record offset and length, record is addressed by its slot number which never changes
+ * while record exists.
+ * <p>
+ * Space of deleted records is counted as dead bytes and reclaimed by compaction, which moves records
+ * to the end of page when new record does not fit into free space between slots and records.
+ */
+public class SlottedPage {
+    /** Page type marker of initialized slotted page */
+    public static final byte TYPE = 1;
+
+    /** Header: type (1), reserved (1), slot count (2), free space end (2), dead bytes (2), page LSN (8) */
+    public static final int HEADER_SIZE = Page.HEADER_SIZE;
+
+    /** Slot: record offset (2), record length (2) */
+    public static final int SLOT_SIZE = 4;
+
+    private static final int TYPE_OFFSET = Page.TYPE_OFFSET;
+    private static final int SLOT_COUNT_OFFSET = 2;
+    private static final int FREE_END_OFFSET = 4;
+    private static final int DEAD_BYTES_OFFSET = 6;
+
+    /** Page buffer */
+    private final ByteBuffer buffer;
+
+    public SlottedPage(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Max record size which fits into empty page of given size.
+     */
+    public static int maxRecordSize(int pageSize) {
+        return pageSize - HEADER_SIZE - SLOT_SIZE;
+    }
+
+    public void init() {
+        for (int i = 0; i < buffer.capacity(); i++)
+            buffer.put(i, (byte) 0);
+
+        buffer.put(TYPE_OFFSET, TYPE);
+        setSlotCount(0);
+        setFreeEnd(buffer.capacity());
+    }
+
+    public boolean isInitialized() {
+        return buffer.get(TYPE_OFFSET) == TYPE;
+    }
+
+    public int getSlotCount() {
+        return buffer.getChar(SLOT_COUNT_OFFSET);
+    }
+
+    /**
+     * Free bytes available for new record including its slot.
+     */
+    public int getFreeSpace() {
+        return getFreeEnd() - HEADER_SIZE - getSlotCount() * SLOT_SIZE;
+    }
+
+    public boolean canInsert(int length) {
+        return getFreeSpace() >= length + SLOT_SIZE;
+    }
+
+    /**
+     * Max size of record which fits into page after compaction, new slot is always counted.
+     */
+    public int getUsableSpace() {
+        return Math.max(0, getFreeSpace() + getDeadBytes() - SLOT_SIZE);
+    }
+
+    /**
+     * Insert record into new slot.
+     * @return slot number or -1 if record does not fit
+     */
+    public int insert(byte[] record) {
+        int slot = getSlotCount();
+        return insert(slot, record) ? slot : -1;
+    }
+
+    /**
+     * Insert record into the first slot of deleted record or into new slot if there is none.
+     * @return slot number or -1 if record does not fit
+     */
+    public int insertIntoFreeSlot(byte[] record) {
+        int slotCount = getSlotCount();
+
+        int slot = 0;
+        while (slot < slotCount && !isDeleted(slot))
+            slot++;
+
+        return insert(slot, record) ? slot : -1;
+    }
+
+    /**
+     * Insert record into given slot, slot should be deleted or next new slot, i.e. to repeat logged insert.
+     * @return <code>false</code> if record does not fit
+     */
+    public boolean insert(int slot, byte[] record) {
+        int slotCount = getSlotCount();
+        if (slot > slotCount || (slot < slotCount && !isDeleted(slot)))
+            throw new IllegalArgumentException(String.format("slot %d is in use", slot));
+
+        int slotSpace = slot == slotCount ? SLOT_SIZE : 0;
+        if (getFreeSpace() < record.length + slotSpace) {
+            if (getFreeSpace() + getDeadBytes() < record.length + slotSpace)
+                return false;
+
+            compact();
+        }
+
+        int offset = getFreeEnd() - record.length;
+
+        for (int i = 0; i < record.length; i++)
+            buffer.put(offset + i, record[i]);
+
+        setSlot(slot, offset, record.length);
+        if (slot == slotCount)
+            setSlotCount(slotCount + 1);
+        setFreeEnd(offset);
+
+        return true;
+    }
+
+    /**
+     * Mark record as deleted, its space is reclaimed by compaction and slot can be reused by new record.
+     */
+    public void delete(int slot) {
+        if (isDeleted(slot))
+            return;
+
+        setDeadBytes(getDeadBytes() + getRecordLength(slot));
+        setSlot(slot, 0, 0);
+    }
+
+    public boolean isDeleted(int slot) {
+        checkSlot(slot);
+        return getRecordOffset(slot) == 0;
+    }
+
+    /**
+     * Read record from slot.
+     * @return record bytes or <code>null</code> if deleted
+     */
+    public byte[] get(int slot) {
+        if (isDeleted(slot))
+            return null;
+
+        int offset = getRecordOffset(slot);
+        byte[] record = new byte[getRecordLength(slot)];
+
+        for (int i = 0; i < record.length; i++)
+            record[i] = buffer.get(offset + i);
+
+        return record;
+    }
+
+    /**
+     * Read long at position of record.
+     */
+    public long getLong(int slot, int position) {
+        return buffer.getLong(getRecordOffset(slot) + position);
+    }
+
+    /**
+     * Overwrite long at position of record in place, record length does not change.
+     */
+    public void putLong(int slot, int position, long value) {
+        buffer.putLong(getRecordOffset(slot) + position, value);
+    }
+
+    public int getRecordOffset(int slot) {
+        return buffer.getChar(HEADER_SIZE + slot * SLOT_SIZE);
+    }
+
+    public int getRecordLength(int slot) {
+        return buffer.getChar(HEADER_SIZE + slot * SLOT_SIZE + 2);
+    }
+
+    // internal ==============================================================================
+    /**
+     * Move records to the end of page so free space of deleted records is contiguous.
+     * Slots keep their numbers, only record offsets change.
+     */
+    private void compact() {
+        int slotCount = getSlotCount();
+        int freeEnd = buffer.capacity();
+
+        byte[][] records = new byte[slotCount][];
+        for (int slot = 0; slot < slotCount; slot++)
+            records[slot] = get(slot);
+
+        for (int slot = 0; slot < slotCount; slot++) {
+            byte[] record = records[slot];
+            if (record == null)
+                continue;
+
+            freeEnd -= record.length;
+            for (int i = 0; i < record.length; i++)
+                buffer.put(freeEnd + i, record[i]);
+
+            setSlot(slot, freeEnd, record.length);
+        }
+
+        setFreeEnd(freeEnd);
+        setDeadBytes(0);
+    }
+
+    private int getDeadBytes() {
+        return buffer.getChar(DEAD_BYTES_OFFSET);
+    }
+
+    private void setDeadBytes(int deadBytes) {
+        buffer.putChar(DEAD_BYTES_OFFSET, (char) deadBytes);
+    }
+
+    private int getFreeEnd() {
+        int freeEnd = buffer.getChar(FREE_END_OFFSET);
+        // page of 64k keeps free end 0 when empty
+        return freeEnd == 0 ? buffer.capacity() : freeEnd;
+    }
+
+    private void setFreeEnd(int freeEnd) {
+        buffer.putChar(FREE_END_OFFSET, (char) freeEnd);
+    }
+
+    private void setSlotCount(int slotCount) {
+        buffer.putChar(SLOT_COUNT_OFFSET, (char) slotCount);
+    }
+
+    private void setSlot(int slot, int offset, int length) {
+        buffer.putChar(HEADER_SIZE + slot * SLOT_SIZE, (char) offset);
+        buffer.putChar(HEADER_SIZE + slot * SLOT_SIZE + 2, (char) length);
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= getSlotCount())
+            throw new IllegalArgumentException(String.format("slot %d out of range", slot));
+    }
+}
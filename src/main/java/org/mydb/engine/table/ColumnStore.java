@@ -0,0 +1,931 @@
+package org.mydb.engine.table;
+
+import org.mydb.DbException;
+import org.mydb.engine.log.LogRecord;
+import org.mydb.engine.page.BufferPool;
+import org.mydb.engine.page.Page;
+import org.mydb.engine.page.PageFile;
+import org.mydb.engine.page.SlottedPage;
+import org.mydb.engine.table.datatype.Varchar;
+import org.mydb.engine.tx.Transaction;
+import org.mydb.util.Bytes;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Table records stored by column: every page keeps values of one column for consecutive rows,
+ * so scan of some columns reads pages of these columns only.
+ * <p>
+ * Pages are slotted pages. Slot 0 keeps column index, the first row of page and dictionary page, next slots
+ * keep values of rows in order. Value is 0 for NULL, 1 followed by value encoded by {@link RowCodec}
+ * or 2 followed by dictionary code. Record id is row number.
+ * <p>
+ * VARCHAR values are dictionary encoded: dictionary page keeps distinct values in slots, code is the slot.
+ * Consecutive pages of column share dictionary page until it is full, so dictionary is per segment of rows.
+ * Equality is checked against codes, dictionary values are compared once per segment. Column with
+ * few repeated values stops dictionary encoding when its dictionary gets full.
+ * <p>
+ * Pages of columns are found by first rows kept in memory, they are read from slot 0 of every page
+ * when store is opened. Row insert is logged as one record with page, slot and record of every
+ * slotted page insert, including page headers and dictionary values, so recovery never finds part of row.
+ * Row delete is logged with page and slot of every column value.
+ * <p>
+ * Row versions are not stored, rows are only inserted and rolled back. Inserting transactions of rows are kept
+ * in memory until every transaction sees them, rows found when store is opened are visible to every transaction.
+ */
+public class ColumnStore implements TableStore {
+    /** Page header record: column index (2), first row (8), dictionary page (4) */
+    private static final int HEADER_RECORD_SIZE = 14;
+    private static final int HEADER_DICTIONARY_OFFSET = 10;
+
+    /** First row in header of dictionary page */
+    private static final long DICTIONARY_PAGE = -1;
+
+    /** Column value position in log record: page number (4), slot (2) */
+    private static final int POSITION_SIZE = 6;
+
+    private static final byte NULL_VALUE = 0;
+    private static final byte PLAIN_VALUE = 1;
+    private static final byte CODED_VALUE = 2;
+
+    private final PageFile file;
+    private final BufferPool pool;
+    private final List<Column> columns;
+    private final RowCodec codec;
+
+    /** Max size of value kept in dictionary, longer values are not likely repeated */
+    private final int maxDictionaryValueSize;
+
+    /** Pages of every column in row order, guarded by this */
+    private final List<List<Integer>> pages = new ArrayList<>();
+
+    /** First row of every page in {@link #pages} */
+    private final List<List<Long>> firstRows = new ArrayList<>();
+
+    /** Dictionary page of the last page of every column, -1 if values of last page are not coded */
+    private final int[] dictionaries;
+
+    /** Codes of values in current dictionary of every column */
+    private final List<Map<byte[], Integer>> codes = new ArrayList<>();
+
+    /** Values coded by existing code since current dictionary was started */
+    private final int[] hits;
+
+    /** Current dictionary has no space for new values */
+    private final boolean[] full;
+
+    /** Dictionary encoding is stopped for column since values are rarely repeated */
+    private final boolean[] plain;
+
+    /** Number of the next row inserted, guarded by this */
+    private long nextRow;
+
+    /**
+     * Inserting transaction of rows by the first row of every run of rows inserted by one transaction,
+     * 0 if rows are visible to every transaction. Run ends where the next one starts.
+     */
+    private final NavigableMap<Long, Long> xmins = new ConcurrentSkipListMap<>();
+
+    public ColumnStore(PageFile file, BufferPool pool, List<Column> columns) {
+        this.file = file;
+        this.pool = pool;
+        this.columns = columns;
+        this.codec = new RowCodec(columns);
+        this.maxDictionaryValueSize = SlottedPage.maxRecordSize(file.getPageSize()) / 8;
+        this.dictionaries = new int[columns.size()];
+        this.hits = new int[columns.size()];
+        this.full = new boolean[columns.size()];
+        this.plain = new boolean[columns.size()];
+
+        for (int i = 0; i < columns.size(); i++) {
+            pages.add(new ArrayList<>());
+            firstRows.add(new ArrayList<>());
+            codes.add(new TreeMap<>(Bytes::compare));
+            dictionaries[i] = -1;
+        }
+
+        for (int pageNo = 0; pageNo < file.getPageCount(); pageNo++) {
+            BufferPool.Frame frame = pool.pin(file, pageNo);
+            try {
+                SlottedPage page = new SlottedPage(frame.getBuffer());
+                if (page.isInitialized())
+                    addPage(pageNo, page);
+            } finally {
+                pool.unpin(frame);
+            }
+        }
+
+        for (int column = 0; column < columns.size(); column++)
+            loadDictionary(column);
+    }
+
+    /**
+     * @return row inserted by logged insert
+     */
+    public static long getRow(LogRecord insert) {
+        return ByteBuffer.wrap(insert.getData()).getLong(0);
+    }
+
+    /**
+     * Append value of every column to the last page of column. Inserts are serialized.
+     * @param tx transaction logging insert, <code>null</code> if not logged
+     * @return row number
+     */
+    @Override
+    public synchronized long insert(Transaction tx, byte[] record) {
+        byte[][] values = codec.split(record);
+
+        int maxSize = SlottedPage.maxRecordSize(file.getPageSize()) - HEADER_RECORD_SIZE - SlottedPage.SLOT_SIZE;
+        for (byte[] value : values) {
+            if (value != null && value.length + 1 > maxSize) {
+                throw new TableException(String.format("column value too large: %d bytes", value.length));
+            }
+        }
+
+        long row = nextRow;
+        PageChanges changes = new PageChanges(row);
+
+        try {
+            for (int column = 0; column < values.length; column++) {
+                int slot = -1;
+
+                List<Integer> columnPages = pages.get(column);
+                if (!columnPages.isEmpty()) {
+                    int pageNo = columnPages.get(columnPages.size() - 1);
+                    changes.pin(pageNo);
+                    slot = changes.insert(pageNo, encode(column, values[column], changes));
+                }
+
+                if (slot < 0) {
+                    int dictionary = nextDictionary(column, changes);
+
+                    int pageNo = file.allocatePage();
+                    changes.pinNew(pageNo);
+                    changes.insert(pageNo, header(column, row, dictionary));
+                    addPage(pageNo, changes.getPage(pageNo));
+
+                    changes.insert(pageNo, encode(column, values[column], changes));
+                }
+            }
+
+            changes.log(tx);
+        } finally {
+            changes.release();
+        }
+
+        long xmin = Record.getXmin(record);
+        Map.Entry<Long, Long> run = xmins.lastEntry();
+        if (run == null ? xmin != 0 : run.getValue() != xmin)
+            xmins.put(row, xmin);
+
+        nextRow = row + 1;
+        return row;
+    }
+
+    /**
+     * Delete value of every column.
+     * @param tx transaction logging delete, <code>null</code> if not logged
+     */
+    @Override
+    public synchronized void delete(Transaction tx, long recordId) {
+        int[][] positions = find(recordId);
+        if (positions == null)
+            return;
+
+        ByteBuffer data = ByteBuffer.allocate(8 + positions.length * POSITION_SIZE);
+        data.putLong(recordId);
+
+        List<BufferPool.Frame> frames = new ArrayList<>();
+        try {
+            for (int[] position : positions) {
+                BufferPool.Frame frame = pool.pin(file, position[0]);
+                frame.writeLock();
+                frames.add(frame);
+            }
+
+            // values of row are deleted together
+            if (new SlottedPage(frames.get(0).getBuffer()).isDeleted(positions[0][1]))
+                return;
+
+            for (int i = 0; i < positions.length; i++) {
+                new SlottedPage(frames.get(i).getBuffer()).delete(positions[i][1]);
+                data.putInt(positions[i][0]).putChar((char) positions[i][1]);
+            }
+
+            long lsn = tx == null ? 0 : tx.log(LogRecord.columnDelete(tx.getXid(), file.getId(), data.array()));
+            for (BufferPool.Frame frame : frames)
+                setLsn(frame, lsn);
+        } finally {
+            for (BufferPool.Frame frame : frames) {
+                frame.writeUnlock();
+                pool.unpin(frame);
+            }
+        }
+    }
+
+    /**
+     * Rows are not versioned, so they can not be deleted by transaction.
+     */
+    @Override
+    public boolean compareAndSetXmax(Transaction tx, long recordId, long expected, long xmax) {
+        throw new TableException("rows of columnar table can not be updated or deleted");
+    }
+
+    /**
+     * Mark runs of transactions below horizon visible and merge runs with equal transaction.
+     */
+    @Override
+    public synchronized void freeze(long horizon) {
+        long previous = 0;
+        Iterator<Map.Entry<Long, Long>> runs = xmins.entrySet().iterator();
+        while (runs.hasNext()) {
+            Map.Entry<Long, Long> run = runs.next();
+            long xmin = run.getValue() < horizon ? 0 : run.getValue();
+
+            if (xmin == previous)
+                runs.remove();
+            else if (xmin != run.getValue())
+                xmins.put(run.getKey(), xmin);
+
+            previous = xmin;
+        }
+    }
+
+    /**
+     * Repeat logged inserts on every page which does not have them yet.
+     */
+    public synchronized void redoInsert(LogRecord record) {
+        ByteBuffer data = ByteBuffer.wrap(record.getData());
+        long row = data.getLong();
+
+        Map<Integer, BufferPool.Frame> frames = new LinkedHashMap<>();
+        BitSet changedColumns = new BitSet();
+
+        try {
+            while (data.hasRemaining()) {
+                int pageNo = data.getInt();
+                int slot = data.getChar();
+                byte[] value = new byte[data.getChar()];
+                data.get(value);
+
+                // page LSN is checked once, page gets LSN of record after the first change
+                if (!frames.containsKey(pageNo))
+                    frames.put(pageNo, pinForRedo(record, pageNo));
+
+                BufferPool.Frame frame = frames.get(pageNo);
+                if (frame == null)
+                    continue;
+
+                SlottedPage page = new SlottedPage(frame.getBuffer());
+                if (!page.isInitialized())
+                    page.init();
+
+                if (page.getSlotCount() != slot || page.insert(value) != slot) {
+                    throw new DbException(String.format("page %d of %s does not match log record %s",
+                            pageNo, file.getPath(), record));
+                }
+
+                ByteBuffer header = ByteBuffer.wrap(page.get(0));
+                int column = header.getChar();
+                boolean dictionaryPage = header.getLong() == DICTIONARY_PAGE;
+
+                if (slot == 0 && !dictionaryPage) {
+                    addPage(pageNo, page);
+                    changedColumns.set(column);
+                } else if (slot > 0 && dictionaryPage && dictionaries[column] == pageNo) {
+                    codes.get(column).put(value, slot);
+                }
+            }
+        } finally {
+            for (BufferPool.Frame frame : frames.values()) {
+                if (frame == null)
+                    continue;
+
+                Page.setLsn(frame.getBuffer(), record.getLsn());
+                frame.markDirty();
+                frame.writeUnlock();
+                pool.unpin(frame);
+            }
+        }
+
+        for (int column = changedColumns.nextSetBit(0); column >= 0; column = changedColumns.nextSetBit(column + 1))
+            loadDictionary(column);
+
+        nextRow = Math.max(nextRow, row + 1);
+    }
+
+    /**
+     * Repeat logged delete on every page which does not have it yet.
+     */
+    public void redoDelete(LogRecord record) {
+        ByteBuffer data = ByteBuffer.wrap(record.getData());
+        data.getLong();
+
+        while (data.hasRemaining()) {
+            int pageNo = data.getInt();
+            int slot = data.getChar();
+
+            BufferPool.Frame frame = pinForRedo(record, pageNo);
+            if (frame == null)
+                continue;
+
+            try {
+                new SlottedPage(frame.getBuffer()).delete(slot);
+                Page.setLsn(frame.getBuffer(), record.getLsn());
+                frame.markDirty();
+            } finally {
+                frame.writeUnlock();
+                pool.unpin(frame);
+            }
+        }
+    }
+
+    /**
+     * Read row values from pages of all columns.
+     * @return record or <code>null</code> if row does not exist
+     */
+    @Override
+    public byte[] read(long recordId) {
+        int[][] positions;
+        synchronized (this) {
+            positions = find(recordId);
+        }
+
+        if (positions == null)
+            return null;
+
+        byte[][] values = new byte[positions.length][];
+        for (int column = 0; column < positions.length; column++) {
+            int dictionary;
+
+            BufferPool.Frame frame = pool.pin(file, positions[column][0]);
+            frame.readLock();
+            try {
+                SlottedPage page = new SlottedPage(frame.getBuffer());
+                values[column] = page.get(positions[column][1]);
+                if (values[column] == null)
+                    return null;
+
+                dictionary = ByteBuffer.wrap(page.get(0)).getInt(HEADER_DICTIONARY_OFFSET);
+            } finally {
+                frame.readUnlock();
+                pool.unpin(frame);
+            }
+
+            // dictionary values never change, so page is read after value page is released
+            if (values[column][0] == CODED_VALUE)
+                values[column] = readDictionaryValue(dictionary, getCode(values[column]));
+        }
+
+        return join(values, recordId);
+    }
+
+    @Override
+    public Iterator<Record> scan() {
+        BitSet all = new BitSet();
+        all.set(0, columns.size());
+        return scan(all);
+    }
+
+    /**
+     * Read pages of given columns only, other columns are NULL in records read.
+     * Rows inserted after scan starts are not read.
+     */
+    @Override
+    public Iterator<Record> scan(BitSet columnSet) {
+        return scanRows(columnSet, -1, null);
+    }
+
+    /**
+     * Read pages of given columns of rows which value of column is one of values.
+     * Values are compared as encoded bytes, coded values are compared by code.
+     */
+    @Override
+    public Iterator<Record> scan(BitSet columnSet, int column, List<byte[]> values) {
+        return scanRows(columnSet, column, values);
+    }
+
+    public PageFile getFile() {
+        return file;
+    }
+
+    /**
+     * Write cached pages and close file.
+     */
+    @Override
+    public void close() {
+        pool.flush(file);
+        pool.invalidate(file);
+        file.sync();
+        file.close();
+    }
+
+    // internal ==============================================================================
+    /**
+     * @param filterColumn column compared with filter values, -1 if rows are not filtered
+     */
+    private Iterator<Record> scanRows(BitSet columnSet, int filterColumn, List<byte[]> filterValues) {
+        // first column is read to find rows when no column is needed
+        BitSet read = (BitSet) columnSet.clone();
+        if (read.isEmpty())
+            read.set(0);
+
+        if (filterColumn >= 0)
+            read.set(filterColumn);
+
+        long rowCount;
+        List<ColumnCursor> cursors = new ArrayList<>();
+        synchronized (this) {
+            rowCount = nextRow;
+            for (int column = 0; column < columns.size(); column++) {
+                cursors.add(read.get(column) ? new ColumnCursor(new ArrayList<>(pages.get(column)),
+                        column == filterColumn ? filterValues : null) : null);
+            }
+        }
+
+        ColumnCursor filter = filterColumn < 0 ? null : cursors.get(filterColumn);
+
+        return new Iterator<Record>() {
+            private long row;
+            private Record next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && row < rowCount) {
+                    next = readRow(row++);
+                }
+
+                return next != null;
+            }
+
+            @Override
+            public Record next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                Record record = next;
+                next = null;
+                return record;
+            }
+
+            private Record readRow(long row) {
+                // other columns of rows filtered out are not read
+                if (filter != null) {
+                    byte[] value = filter.get(row);
+                    if (value == null || !filter.matches(value))
+                        return null;
+                }
+
+                byte[][] values = new byte[cursors.size()][];
+                for (int column = 0; column < cursors.size(); column++) {
+                    ColumnCursor cursor = cursors.get(column);
+                    if (cursor == null)
+                        continue;
+
+                    values[column] = cursor.get(row);
+                    if (values[column] == null)
+                        return null;
+
+                    values[column] = columnSet.get(column) ? cursor.resolve(values[column]) : null;
+                }
+
+                return new Record(row, join(values, row));
+            }
+        };
+    }
+
+    /**
+     * Values of columns read page by page in row order.
+     */
+    private class ColumnCursor {
+        private final List<Integer> pageNos;
+        private final BufferPool.ScanRing ring = pool.newScanRing();
+        private int pageIndex = -1;
+        private long firstRow;
+        private final List<byte[]> values = new ArrayList<>();
+
+        /** Values matched by {@link #matches(byte[])}, <code>null</code> if not filtered */
+        private final List<byte[]> filterValues;
+
+        /** Dictionary of current page, values by code */
+        private int dictionary = -1;
+        private final List<byte[]> dictionaryValues = new ArrayList<>();
+        private final BitSet matchingCodes = new BitSet();
+
+        ColumnCursor(List<Integer> pageNos, List<byte[]> filterValues) {
+            this.pageNos = pageNos;
+            this.filterValues = filterValues;
+        }
+
+        /**
+         * @param row not less than row read before
+         * @return value as stored or <code>null</code> if row is deleted
+         */
+        byte[] get(long row) {
+            while (row >= firstRow + values.size()) {
+                if (pageIndex + 1 >= pageNos.size())
+                    return null;
+
+                readPage(pageNos.get(++pageIndex));
+            }
+
+            return row < firstRow ? null : values.get((int) (row - firstRow));
+        }
+
+        /**
+         * @return value of current page with code replaced by dictionary value
+         */
+        byte[] resolve(byte[] value) {
+            return value[0] == CODED_VALUE ? dictionaryValues.get(getCode(value)) : value;
+        }
+
+        /**
+         * @return <code>true</code> if value of current page is one of filter values
+         */
+        boolean matches(byte[] value) {
+            if (value[0] == CODED_VALUE)
+                return matchingCodes.get(getCode(value));
+
+            return value[0] != NULL_VALUE && isFilterValue(value);
+        }
+
+        private boolean isFilterValue(byte[] value) {
+            for (byte[] filterValue : filterValues) {
+                if (equalsValue(value, filterValue))
+                    return true;
+            }
+
+            return false;
+        }
+
+        private void readPage(int pageNo) {
+            values.clear();
+            int pageDictionary;
+
+            BufferPool.Frame frame = pool.pinForScan(file, pageNo, ring);
+            frame.readLock();
+            try {
+                SlottedPage page = new SlottedPage(frame.getBuffer());
+                ByteBuffer header = ByteBuffer.wrap(page.get(0));
+                firstRow = header.getLong(2);
+                pageDictionary = header.getInt(HEADER_DICTIONARY_OFFSET);
+
+                for (int slot = 1; slot < page.getSlotCount(); slot++)
+                    values.add(page.get(slot));
+            } finally {
+                frame.readUnlock();
+                pool.unpin(frame);
+            }
+
+            if (pageDictionary != dictionary)
+                readDictionary(pageDictionary);
+        }
+
+        private void readDictionary(int pageNo) {
+            dictionary = pageNo;
+            dictionaryValues.clear();
+            matchingCodes.clear();
+
+            if (pageNo < 0)
+                return;
+
+            BufferPool.Frame frame = pool.pinForScan(file, pageNo, ring);
+            frame.readLock();
+            try {
+                SlottedPage page = new SlottedPage(frame.getBuffer());
+                dictionaryValues.add(null);
+
+                for (int slot = 1; slot < page.getSlotCount(); slot++) {
+                    byte[] value = plainValue(page.get(slot));
+                    dictionaryValues.add(value);
+
+                    if (filterValues != null && isFilterValue(value))
+                        matchingCodes.set(slot);
+                }
+            } finally {
+                frame.readUnlock();
+                pool.unpin(frame);
+            }
+        }
+    }
+
+    /**
+     * Value of column to store: dictionary code if column has dictionary, value is added to it if new.
+     * @param value encoded value, <code>null</code> for NULL
+     */
+    private byte[] encode(int column, byte[] value, PageChanges changes) {
+        if (value == null)
+            return new byte[] {NULL_VALUE};
+
+        int dictionary = dictionaries[column];
+        if (dictionary >= 0 && value.length <= maxDictionaryValueSize) {
+            Map<byte[], Integer> columnCodes = codes.get(column);
+            Integer code = columnCodes.get(value);
+
+            if (code != null) {
+                hits[column]++;
+            } else if (!full[column]) {
+                changes.pin(dictionary);
+                int slot = changes.insert(dictionary, value);
+
+                if (slot < 0) {
+                    full[column] = true;
+                } else {
+                    code = slot;
+                    columnCodes.put(value, code);
+                }
+            }
+
+            if (code != null)
+                return new byte[] {CODED_VALUE, (byte) (code >> 8), (byte) (int) code};
+        }
+
+        return plainValue(value);
+    }
+
+    /**
+     * Dictionary of new page of column: current dictionary, or new one if it is full and values repeat.
+     * @return dictionary page, -1 if values of page are not coded
+     */
+    private int nextDictionary(int column, PageChanges changes) {
+        if (!(columns.get(column).getDataType() instanceof Varchar) || plain[column])
+            return -1;
+
+        if (dictionaries[column] >= 0 && !full[column])
+            return dictionaries[column];
+
+        if (dictionaries[column] >= 0 && hits[column] <= codes.get(column).size()) {
+            plain[column] = true;
+            dictionaries[column] = -1;
+            codes.get(column).clear();
+            return -1;
+        }
+
+        int pageNo = file.allocatePage();
+        changes.pinNew(pageNo);
+        changes.insert(pageNo, header(column, DICTIONARY_PAGE, -1));
+
+        dictionaries[column] = pageNo;
+        codes.get(column).clear();
+        hits[column] = 0;
+        full[column] = false;
+        return pageNo;
+    }
+
+    /**
+     * Load dictionary of the last page of column.
+     */
+    private void loadDictionary(int column) {
+        List<Integer> columnPages = pages.get(column);
+        int dictionary = -1;
+
+        if (!columnPages.isEmpty()) {
+            BufferPool.Frame frame = pool.pin(file, columnPages.get(columnPages.size() - 1));
+            frame.readLock();
+            try {
+                dictionary = ByteBuffer.wrap(new SlottedPage(frame.getBuffer()).get(0)).getInt(HEADER_DICTIONARY_OFFSET);
+            } finally {
+                frame.readUnlock();
+                pool.unpin(frame);
+            }
+        }
+
+        if (dictionary == dictionaries[column])
+            return;
+
+        dictionaries[column] = dictionary;
+        codes.get(column).clear();
+        full[column] = false;
+
+        if (dictionary >= 0) {
+            BufferPool.Frame frame = pool.pin(file, dictionary);
+            frame.readLock();
+            try {
+                SlottedPage page = new SlottedPage(frame.getBuffer());
+                for (int slot = 1; slot < page.getSlotCount(); slot++)
+                    codes.get(column).put(page.get(slot), slot);
+            } finally {
+                frame.readUnlock();
+                pool.unpin(frame);
+            }
+        }
+
+        // values of opened dictionary are assumed repeated
+        hits[column] = codes.get(column).size() + 1;
+    }
+
+    private byte[] readDictionaryValue(int dictionary, int code) {
+        BufferPool.Frame frame = pool.pin(file, dictionary);
+        frame.readLock();
+        try {
+            return plainValue(new SlottedPage(frame.getBuffer()).get(code));
+        } finally {
+            frame.readUnlock();
+            pool.unpin(frame);
+        }
+    }
+
+    private static int getCode(byte[] value) {
+        return ((value[1] & 0xFF) << 8) | (value[2] & 0xFF);
+    }
+
+    private static byte[] plainValue(byte[] value) {
+        byte[] result = new byte[value.length + 1];
+        result[0] = PLAIN_VALUE;
+        System.arraycopy(value, 0, result, 1, value.length);
+        return result;
+    }
+
+    /**
+     * @return <code>true</code> if plain value is equal to encoded value
+     */
+    private static boolean equalsValue(byte[] value, byte[] encoded) {
+        if (value.length != encoded.length + 1)
+            return false;
+
+        for (int i = 0; i < encoded.length; i++) {
+            if (value[i + 1] != encoded[i])
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Join plain values of columns into record with version of row.
+     * @param values values in column order, <code>null</code> for NULL
+     */
+    private byte[] join(byte[][] values, long row) {
+        byte[][] encoded = new byte[values.length][];
+
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null && values[i][0] != NULL_VALUE) {
+                encoded[i] = new byte[values[i].length - 1];
+                System.arraycopy(values[i], 1, encoded[i], 0, encoded[i].length);
+            }
+        }
+
+        byte[] record = codec.join(encoded, Record.VERSION_SIZE);
+
+        Map.Entry<Long, Long> run = xmins.floorEntry(row);
+        if (run != null)
+            Record.setVersion(record, run.getValue(), 0);
+
+        return record;
+    }
+
+    private static byte[] header(int column, long firstRow, int dictionary) {
+        return ByteBuffer.allocate(HEADER_RECORD_SIZE).putChar((char) column).putLong(firstRow).putInt(dictionary)
+                .array();
+    }
+
+    /**
+     * Find page and slot of every column value.
+     * @return positions or <code>null</code> if row does not exist
+     */
+    private int[][] find(long row) {
+        if (row < 0 || row >= nextRow)
+            return null;
+
+        int[][] positions = new int[columns.size()][];
+        for (int column = 0; column < positions.length; column++) {
+            List<Long> columnFirstRows = firstRows.get(column);
+            int index = Collections.binarySearch(columnFirstRows, row);
+            if (index < 0)
+                index = -index - 2;
+
+            if (index < 0)
+                return null;
+
+            positions[column] = new int[] {pages.get(column).get(index), (int) (row - columnFirstRows.get(index)) + 1};
+        }
+
+        return positions;
+    }
+
+    /**
+     * Register value page in column pages by its first row, dictionary pages are not registered.
+     */
+    private void addPage(int pageNo, SlottedPage page) {
+        ByteBuffer header = ByteBuffer.wrap(page.get(0));
+        int column = header.getChar();
+        long firstRow = header.getLong();
+
+        if (firstRow == DICTIONARY_PAGE)
+            return;
+
+        List<Long> columnFirstRows = firstRows.get(column);
+        int index = -Collections.binarySearch(columnFirstRows, firstRow) - 1;
+        if (index < 0)
+            return;
+
+        columnFirstRows.add(index, firstRow);
+        pages.get(column).add(index, pageNo);
+
+        nextRow = Math.max(nextRow, firstRow + page.getSlotCount() - 1);
+    }
+
+    /**
+     * Pin and latch page changed by log record.
+     * @return frame or <code>null</code> if page already has the change
+     */
+    private BufferPool.Frame pinForRedo(LogRecord record, int pageNo) {
+        file.ensurePageCount(pageNo + 1);
+
+        BufferPool.Frame frame = pool.pin(file, pageNo);
+        frame.writeLock();
+
+        if (Page.getLsn(frame.getBuffer()) >= record.getLsn()) {
+            frame.writeUnlock();
+            pool.unpin(frame);
+            return null;
+        }
+
+        return frame;
+    }
+
+    private static void setLsn(BufferPool.Frame frame, long lsn) {
+        if (lsn != 0)
+            Page.setLsn(frame.getBuffer(), lsn);
+
+        frame.markDirty();
+    }
+
+    /**
+     * Slotted page inserts of one row, pages stay latched until row is logged.
+     */
+    private class PageChanges {
+        private final Map<Integer, BufferPool.Frame> frames = new LinkedHashMap<>();
+
+        /** Log record data: row (8), then page (4), slot (2), length (2) and record of every insert */
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+        PageChanges(long row) {
+            data.write(ByteBuffer.allocate(8).putLong(row).array(), 0, 8);
+        }
+
+        void pin(int pageNo) {
+            if (frames.containsKey(pageNo))
+                return;
+
+            BufferPool.Frame frame = pool.pin(file, pageNo);
+            frames.put(pageNo, frame);
+            frame.writeLock();
+        }
+
+        /**
+         * Pin new page and initialize it, page is initialized by the first insert on recovery.
+         */
+        void pinNew(int pageNo) {
+            BufferPool.Frame frame = pool.pinNew(file, pageNo);
+            frames.put(pageNo, frame);
+            frame.writeLock();
+            new SlottedPage(frame.getBuffer()).init();
+        }
+
+        SlottedPage getPage(int pageNo) {
+            return new SlottedPage(frames.get(pageNo).getBuffer());
+        }
+
+        /**
+         * @return slot or -1 if page has no space
+         */
+        int insert(int pageNo, byte[] record) {
+            int slot = getPage(pageNo).insert(record);
+            if (slot < 0)
+                return slot;
+
+            ByteBuffer position = ByteBuffer.allocate(POSITION_SIZE + 2);
+            position.putInt(pageNo).putChar((char) slot).putChar((char) record.length);
+            data.write(position.array(), 0, position.capacity());
+            data.write(record, 0, record.length);
+            return slot;
+        }
+
+        void log(Transaction tx) {
+            long lsn = tx == null ? 0 : tx.log(LogRecord.columnInsert(tx.getXid(), file.getId(), data.toByteArray()));
+
+            for (BufferPool.Frame frame : frames.values())
+                setLsn(frame, lsn);
+        }
+
+        void release() {
+            for (BufferPool.Frame frame : frames.values()) {
+                frame.writeUnlock();
+                pool.unpin(frame);
+            }
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package org.mydb.engine.table;
+
+import org.mydb.DbException;
+import org.mydb.engine.log.LogRecord;
+import org.mydb.engine.page.BufferPool;
+import org.mydb.engine.page.FreeSpaceMap;
+import org.mydb.engine.page.Page;
+import org.mydb.engine.page.PageFile;
+import org.mydb.engine.page.SlottedPage;
+import org.mydb.engine.tx.Transaction;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Heap file of table records stored in slotted pages, record id is page number and slot.
+ * Pages are accessed through buffer pool.
+ * <p>
+ * New record goes to the first page with room found by free space map, then to the last page, then to new page.
+ * Free space map is kept in memory and learns free space of pages as they are changed or scanned,
+ * space and slots of purged records are reused by later inserts.
+ * <p>
+ * Changes are logged by transaction while page is latched, so page LSN order matches log order.
+ * Row delete changes deleting transaction of record in place, record is removed later by purge.
+ */
+public class HeapFile implements TableStore {
+    /** Bits of record id used by slot number */
+    private static final int SLOT_BITS = 16;
+
+    /** Page file */
+    private final PageFile file;
+
+    /** Page cache */
+    private final BufferPool pool;
+
+    /** Free space of pages, hint for inserts */
+    private final FreeSpaceMap freeSpace;
+
+    public HeapFile(PageFile file, BufferPool pool) {
+        this.file = file;
+        this.pool = pool;
+        this.freeSpace = new FreeSpaceMap(file.getPageSize());
+    }
+
+    public static long recordId(int pageNo, int slot) {
+        return ((long) pageNo << SLOT_BITS) | slot;
+    }
+
+    public static int pageNo(long recordId) {
+        return (int) (recordId >>> SLOT_BITS);
+    }
+
+    public static int slot(long recordId) {
+        return (int) (recordId & ((1 << SLOT_BITS) - 1));
+    }
+
+    /**
+     * Insert record. Inserts are serialized to pick page with free space.
+     * @param tx transaction logging insert, <code>null</code> if not logged
+     * @return record id
+     */
+    @Override
+    public synchronized long insert(Transaction tx, byte[] record) {
+        if (record.length > SlottedPage.maxRecordSize(file.getPageSize())) {
+            throw new TableException(String.format("record too large: %d bytes", record.length));
+        }
+
+        // failed attempt records actual free space of page, so the same page is not found again
+        int pageNo = freeSpace.find(record.length);
+        int lastTried = -1;
+        while (pageNo >= 0 && pageNo != lastTried) {
+            int slot = insert(tx, pool.pin(file, pageNo), record);
+            if (slot >= 0)
+                return recordId(pageNo, slot);
+
+            lastTried = pageNo;
+            pageNo = freeSpace.find(record.length);
+        }
+
+        pageNo = file.getPageCount() - 1;
+
+        if (pageNo >= 0 && pageNo != lastTried) {
+            int slot = insert(tx, pool.pin(file, pageNo), record);
+            if (slot >= 0)
+                return recordId(pageNo, slot);
+        }
+
+        pageNo = file.allocatePage();
+        int slot = insert(tx, pool.pinNew(file, pageNo), record);
+
+        return recordId(pageNo, slot);
+    }
+
+    /**
+     * Delete record, i.e. to undo insert or to purge deleted row.
+     * @param tx transaction logging delete, <code>null</code> if not logged
+     */
+    @Override
+    public void delete(Transaction tx, long recordId) {
+        int pageNo = pageNo(recordId);
+        int slot = slot(recordId);
+
+        BufferPool.Frame frame = pool.pin(file, pageNo);
+        frame.writeLock();
+        try {
+            SlottedPage page = new SlottedPage(frame.getBuffer());
+            if (page.isDeleted(slot))
+                return;
+
+            page.delete(slot);
+            freeSpace.update(pageNo, page.getUsableSpace());
+
+            if (tx != null) {
+                long lsn = tx.log(LogRecord.delete(tx.getXid(), file.getId(), pageNo, slot));
+                Page.setLsn(frame.getBuffer(), lsn);
+            }
+
+            frame.markDirty();
+        } finally {
+            frame.writeUnlock();
+            pool.unpin(frame);
+        }
+    }
+
+    /**
+     * Change deleting transaction of record in place.
+     * @param tx transaction logging change, <code>null</code> if not logged
+     */
+    @Override
+    public boolean compareAndSetXmax(Transaction tx, long recordId, long expected, long xmax) {
+        int pageNo = pageNo(recordId);
+        int slot = slot(recordId);
+
+        if (pageNo >= file.getPageCount())
+            return false;
+
+        BufferPool.Frame frame = pool.pin(file, pageNo);
+        frame.writeLock();
+        try {
+            SlottedPage page = new SlottedPage(frame.getBuffer());
+            if (!page.isInitialized() || slot >= page.getSlotCount() || page.isDeleted(slot))
+                return false;
+
+            int position = Record.getXmaxPosition(page.getRecordLength(slot));
+            if (page.getLong(slot, position) != expected)
+                return false;
+
+            page.putLong(slot, position, xmax);
+
+            if (tx != null) {
+                long lsn = tx.log(LogRecord.version(tx.getXid(), file.getId(), pageNo, slot, expected, xmax));
+                Page.setLsn(frame.getBuffer(), lsn);
+            }
+
+            frame.markDirty();
+            return true;
+        } finally {
+            frame.writeUnlock();
+            pool.unpin(frame);
+        }
+    }
+
+    /**
+     * Repeat logged insert unless page already has it.
+     */
+    public void redoInsert(LogRecord record) {
+        file.ensurePageCount(record.getPageNo() + 1);
+
+        BufferPool.Frame frame = pool.pin(file, record.getPageNo());
+        frame.writeLock();
+        try {
+            if (Page.getLsn(frame.getBuffer()) >= record.getLsn())
+                return;
+
+            SlottedPage page = new SlottedPage(frame.getBuffer());
+            if (!page.isInitialized())
+                page.init();
+
+            int slot = record.getSlot();
+            if (slot > page.getSlotCount() || (slot < page.getSlotCount() && !page.isDeleted(slot))
+                    || !page.insert(slot, record.getData())) {
+                throw new DbException(String.format("page %d of %s does not match log record %s",
+                        record.getPageNo(), file.getPath(), record));
+            }
+            freeSpace.update(record.getPageNo(), page.getUsableSpace());
+
+            Page.setLsn(frame.getBuffer(), record.getLsn());
+            frame.markDirty();
+        } finally {
+            frame.writeUnlock();
+            pool.unpin(frame);
+        }
+    }
+
+    /**
+     * Repeat logged delete unless page already has it.
+     */
+    public void redoDelete(LogRecord record) {
+        BufferPool.Frame frame = pool.pin(file, record.getPageNo());
+        frame.writeLock();
+        try {
+            if (Page.getLsn(frame.getBuffer()) >= record.getLsn())
+                return;
+
+            SlottedPage page = new SlottedPage(frame.getBuffer());
+            page.delete(record.getSlot());
+            freeSpace.update(record.getPageNo(), page.getUsableSpace());
+
+            Page.setLsn(frame.getBuffer(), record.getLsn());
+            frame.markDirty();
+        } finally {
+            frame.writeUnlock();
+            pool.unpin(frame);
+        }
+    }
+
+    /**
+     * Repeat logged change of deleting transaction unless page already has it.
+     */
+    public void redoVersion(LogRecord record) {
+        BufferPool.Frame frame = pool.pin(file, record.getPageNo());
+        frame.writeLock();
+        try {
+            if (Page.getLsn(frame.getBuffer()) >= record.getLsn())
+                return;
+
+            SlottedPage page = new SlottedPage(frame.getBuffer());
+            int position = Record.getXmaxPosition(page.getRecordLength(record.getSlot()));
+            page.putLong(record.getSlot(), position, ByteBuffer.wrap(record.getData()).getLong(8));
+
+            Page.setLsn(frame.getBuffer(), record.getLsn());
+            frame.markDirty();
+        } finally {
+            frame.writeUnlock();
+            pool.unpin(frame);
+        }
+    }
+
+    /**
+     * Read record by id.
+     * @return record or <code>null</code> if it does not exist
+     */
+    @Override
+    public byte[] read(long recordId) {
+        int pageNo = pageNo(recordId);
+        int slot = slot(recordId);
+
+        if (pageNo >= file.getPageCount())
+            return null;
+
+        BufferPool.Frame frame = pool.pin(file, pageNo);
+        frame.readLock();
+        try {
+            SlottedPage page = new SlottedPage(frame.getBuffer());
+
+            if (!page.isInitialized() || slot >= page.getSlotCount())
+                return null;
+
+            return page.get(slot);
+        } finally {
+            frame.readUnlock();
+            pool.unpin(frame);
+        }
+    }
+
+    /**
+     * Scan records page by page. Records of one page are copied at once,
+     * so concurrent inserts are visible only on pages not read yet.
+     */
+    @Override
+    public Iterator<Record> scan() {
+        return scan(0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int getPageCount() {
+        return file.getPageCount();
+    }
+
+    /**
+     * Scan records of range of pages, see {@link #scan()}.
+     */
+    @Override
+    public Iterator<Record> scan(BitSet columns, int fromPage, int toPage) {
+        return scan(fromPage, toPage);
+    }
+
+    public PageFile getFile() {
+        return file;
+    }
+
+    /**
+     * Write cached pages and close file.
+     */
+    @Override
+    public void close() {
+        pool.flush(file);
+        pool.invalidate(file);
+        file.sync();
+        file.close();
+    }
+
+    // internal ==============================================================================
+    /**
+     * @param toPage page after the last page read, pages added while scan runs are read up to it
+     */
+    private Iterator<Record> scan(int fromPage, int toPage) {
+        return new Iterator<Record>() {
+            private int pageNo = fromPage;
+            private final BufferPool.ScanRing ring = pool.newScanRing();
+            private final List<Record> pageRecords = new ArrayList<>();
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                while (position >= pageRecords.size()) {
+                    if (pageNo >= Math.min(toPage, file.getPageCount()))
+                        return false;
+
+                    pageRecords.clear();
+                    position = 0;
+                    readRecords(pageNo++, ring, pageRecords);
+                }
+
+                return true;
+            }
+
+            @Override
+            public Record next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                return pageRecords.get(position++);
+            }
+        };
+    }
+
+    /**
+     * Insert record into pinned page, log insert and unpin page.
+     * @return slot or -1 if record does not fit
+     */
+    private int insert(Transaction tx, BufferPool.Frame frame, byte[] record) {
+        frame.writeLock();
+        try {
+            SlottedPage page = new SlottedPage(frame.getBuffer());
+
+            if (!page.isInitialized())
+                page.init();
+
+            int slot = page.insertIntoFreeSlot(record);
+            freeSpace.update(frame.getPageNo(), page.getUsableSpace());
+            if (slot < 0)
+                return slot;
+
+            if (tx != null) {
+                int pageNo = frame.getPageNo();
+                long lsn = tx.log(LogRecord.insert(tx.getXid(), file.getId(), pageNo, slot, record));
+                Page.setLsn(frame.getBuffer(), lsn);
+            }
+
+            frame.markDirty();
+            return slot;
+        } finally {
+            frame.writeUnlock();
+            pool.unpin(frame);
+        }
+    }
+
+    private void readRecords(int pageNo, BufferPool.ScanRing ring, List<Record> records) {
+        BufferPool.Frame frame = pool.pinForScan(file, pageNo, ring);
+        frame.readLock();
+        try {
+            SlottedPage page = new SlottedPage(frame.getBuffer());
+
+            if (!page.isInitialized())
+                return;
+
+            freeSpace.update(pageNo, page.getUsableSpace());
+
+            for (int slot = 0; slot < page.getSlotCount(); slot++) {
+                byte[] data = page.get(slot);
+                if (data != null) {
+                    records.add(new Record(recordId(pageNo, slot), data));
+                }
+            }
+        } finally {
+            frame.readUnlock();
+            pool.unpin(frame);
+        }
+    }
+}
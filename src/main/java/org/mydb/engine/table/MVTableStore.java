@@ -0,0 +1,98 @@
+package org.mydb.engine.table;
+
+import org.mydb.engine.mvstore.Cursor;
+import org.mydb.engine.mvstore.MVMap;
+import org.mydb.engine.mvstore.TransactionStore;
+import org.mydb.engine.tx.Transaction;
+import org.mydb.util.Bytes;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Table records in store map keyed by record id.
+ * Scan reads map version current when scan starts and does not block or see concurrent inserts.
+ * Deleting transaction is changed by putting new copy of record, old record is kept for undo.
+ */
+public class MVTableStore implements TableStore {
+    private final MVMap map;
+    private final TransactionStore transactionStore;
+
+    /** Next record id */
+    private final AtomicLong nextId;
+
+    public MVTableStore(MVMap map, TransactionStore transactionStore) {
+        this.map = map;
+        this.transactionStore = transactionStore;
+
+        byte[] lastKey = map.lastKey();
+        this.nextId = new AtomicLong(lastKey == null ? 0 : Bytes.toLong(lastKey) + 1);
+    }
+
+    @Override
+    public long insert(Transaction tx, byte[] record) {
+        long id = nextId.getAndIncrement();
+        byte[] key = Bytes.fromLong(id);
+
+        if (tx != null)
+            transactionStore.addInsert(tx, map, key);
+
+        map.put(key, record);
+        return id;
+    }
+
+    @Override
+    public void delete(Transaction tx, long recordId) {
+        map.remove(Bytes.fromLong(recordId));
+    }
+
+    /**
+     * Changes of deleting transaction are serialized, map has no compare and set.
+     */
+    @Override
+    public synchronized boolean compareAndSetXmax(Transaction tx, long recordId, long expected, long xmax) {
+        byte[] key = Bytes.fromLong(recordId);
+        byte[] record = map.get(key);
+        if (record == null || Record.getXmax(record) != expected)
+            return false;
+
+        byte[] changed = record.clone();
+        Record.setVersion(changed, Record.getXmin(record), xmax);
+
+        if (tx != null)
+            transactionStore.addUpdate(tx, map, key, record);
+
+        map.put(key, changed);
+        return true;
+    }
+
+    @Override
+    public byte[] read(long recordId) {
+        return map.get(Bytes.fromLong(recordId));
+    }
+
+    @Override
+    public Iterator<Record> scan() {
+        Cursor cursor = map.cursor();
+
+        return new Iterator<Record>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public Record next() {
+                long id = Bytes.toLong(cursor.next());
+                return new Record(id, cursor.getValue());
+            }
+        };
+    }
+
+    /**
+     * Map is closed with store.
+     */
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,71 @@
+package org.mydb.engine.table;
+
+/**
+ * Stored record with its id.
+ * <p>
+ * Table records end with row version: id of transaction which inserted row (8) and id of transaction
+ * which deleted it (8), 0 if row is not deleted. Version is read and changed in place without decoding
+ * row, see {@link org.mydb.engine.tx.Snapshot} for rows visible to transaction.
+ */
+public class Record {
+    /** Size of row version at the end of record */
+    public static final int VERSION_SIZE = 16;
+
+    private final long id;
+    private final byte[] data;
+
+    public Record(long id, byte[] data) {
+        this.id = id;
+        this.data = data;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * @return id of transaction which inserted row, 0 if row is visible to every transaction
+     */
+    public static long getXmin(byte[] data) {
+        return getLong(data, data.length - VERSION_SIZE);
+    }
+
+    /**
+     * @return id of transaction which deleted row, 0 if row is not deleted
+     */
+    public static long getXmax(byte[] data) {
+        return getLong(data, getXmaxPosition(data.length));
+    }
+
+    /**
+     * @return position of deleting transaction id in record of given length
+     */
+    public static int getXmaxPosition(int length) {
+        return length - VERSION_SIZE + 8;
+    }
+
+    public static void setVersion(byte[] data, long xmin, long xmax) {
+        putLong(data, data.length - VERSION_SIZE, xmin);
+        putLong(data, getXmaxPosition(data.length), xmax);
+    }
+
+    // internal ==============================================================================
+    private static long getLong(byte[] data, int position) {
+        long value = 0;
+        for (int i = 0; i < 8; i++)
+            value = value << 8 | (data[position + i] & 0xFF);
+
+        return value;
+    }
+
+    private static void putLong(byte[] data, int position, long value) {
+        for (int i = 7; i >= 0; i--) {
+            data[position + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+}
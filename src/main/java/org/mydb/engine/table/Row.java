@@ -0,0 +1,107 @@
+package org.mydb.engine.table;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Table row.
+ */
+public class Row {
+    /** Row id, position of row in table storage */
+    private final long key;
+
+    /** Column values in table column order, null value is sql NULL */
+    private final Object[] values;
+
+    /** Record values are decoded from when first read, <code>null</code> if all values are set */
+    private final byte[] record;
+    private final RowCodec codec;
+    private BitSet decoded;
+
+    public Row(long key, Object[] values) {
+        this.key = key;
+        this.values = values;
+        this.record = null;
+        this.codec = null;
+    }
+
+    /**
+     * Row which decodes values from record when they are read, so values never read are never decoded.
+     */
+    Row(long key, byte[] record, RowCodec codec, int columnCount) {
+        this.key = key;
+        this.values = new Object[columnCount];
+        this.record = record;
+        this.codec = codec;
+        this.decoded = new BitSet(columnCount);
+    }
+
+    public long getKey() {
+        return key;
+    }
+
+    public Object[] getValues() {
+        for (int i = 0; record != null && i < values.length; i++)
+            getValue(i);
+
+        return values;
+    }
+
+    public Object getValue(int index) {
+        if (record != null && !decoded.get(index)) {
+            values[index] = codec.decode(record, index);
+            decoded.set(index);
+        }
+
+        return values[index];
+    }
+
+    /**
+     * @return <code>true</code> if column value is NULL
+     */
+    public boolean isNull(int index) {
+        if (record != null && !decoded.get(index))
+            return codec.isNull(record, index);
+
+        return values[index] == null;
+    }
+
+    /**
+     * Read not null value of NUMBER or DATE column as long: unscaled value of column scale or epoch day.
+     * Record value is not decoded to object.
+     */
+    public long getLong(int index) {
+        if (record != null && !decoded.get(index))
+            return codec.decodeLong(record, index);
+
+        if (values[index] instanceof LocalDate)
+            return ((LocalDate) values[index]).toEpochDay();
+
+        return ((BigDecimal) values[index]).unscaledValue().longValue();
+    }
+
+    /**
+     * @return estimated heap size of row in bytes, operators holding rows keep it within memory of query
+     */
+    public long getMemory() {
+        long memory = 64 + 8L * values.length;
+        if (record != null)
+            return memory + 2L * record.length;
+
+        for (Object value : values) {
+            if (value instanceof String)
+                memory += 40 + 2L * ((String) value).length();
+            else if (value != null)
+                memory += 40;
+        }
+
+        return memory;
+    }
+
+    @Override
+    public String toString() {
+        return key + ": " + Arrays.toString(getValues());
+    }
+}
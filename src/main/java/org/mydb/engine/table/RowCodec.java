@@ -0,0 +1,252 @@
+package org.mydb.engine.table;
+
+import org.mydb.engine.table.datatype.DataType;
+import org.mydb.engine.table.datatype.WithLongValue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary row record format of table columns.
+ * <p>
+ * Record is null bitmap with one bit per column, then slots of fixed size columns in column order,
+ * then end offsets of variable size values, then variable size values in column order.
+ * Slot sizes are chosen by data types from column precision and scale, slots of NULL values are zero.
+ * Value ends are relative to the first variable size value, a value starts where the previous one ends.
+ * So one column value is read from record without reading other values.
+ */
+public class RowCodec {
+    /** Size of variable size value end offset */
+    private static final int OFFSET_SIZE = 2;
+
+    /** Max size of variable size values of row */
+    private static final int MAX_DATA_SIZE = 0xFFFF;
+
+    private final List<Column> columns;
+
+    /** Value size of fixed size columns, -1 for variable size columns */
+    private final int[] sizes;
+
+    /** Slot offset of fixed size columns, end offset position of variable size columns */
+    private final int[] offsets;
+
+    /** Position of the first end offset */
+    private final int offsetStart;
+
+    /** Position of the first variable size value */
+    private final int dataStart;
+
+    public RowCodec(List<Column> columns) {
+        this.columns = new ArrayList<>(columns);
+        this.sizes = new int[columns.size()];
+        this.offsets = new int[columns.size()];
+
+        int offset = (columns.size() + 7) / 8;
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            sizes[i] = column.getDataType().getSize(column);
+
+            if (sizes[i] >= 0) {
+                offsets[i] = offset;
+                offset += sizes[i];
+            }
+        }
+
+        offsetStart = offset;
+        for (int i = 0; i < columns.size(); i++) {
+            if (sizes[i] < 0) {
+                offsets[i] = offset;
+                offset += OFFSET_SIZE;
+            }
+        }
+
+        dataStart = offset;
+    }
+
+    /**
+     * @param values converted values in column order
+     */
+    public byte[] encode(Object[] values) {
+        return encode(values, 0);
+    }
+
+    /**
+     * @param values converted values in column order
+     * @param reserved number of zero bytes after record, i.e. for row version
+     */
+    public byte[] encode(Object[] values, int reserved) {
+        int size = dataStart;
+        for (int i = 0; i < columns.size(); i++) {
+            if (sizes[i] < 0 && values[i] != null)
+                size += columns.get(i).getDataType().getSize(values[i], columns.get(i));
+        }
+
+        checkDataSize(size);
+
+        ByteBuffer buffer = ByteBuffer.allocate(size + reserved);
+        int end = dataStart;
+
+        for (int i = 0; i < columns.size(); i++) {
+            if (values[i] == null) {
+                setNull(buffer, i);
+            } else {
+                Column column = columns.get(i);
+                DataType dataType = column.getDataType();
+
+                buffer.position(sizes[i] < 0 ? end : offsets[i]);
+                dataType.write(buffer, values[i], column);
+
+                if (sizes[i] < 0)
+                    end = buffer.position();
+            }
+
+            if (sizes[i] < 0)
+                buffer.putChar(offsets[i], (char) (end - dataStart));
+        }
+
+        return buffer.array();
+    }
+
+    /**
+     * Encode not null value of column like in record.
+     */
+    public byte[] encodeValue(int column, Object value) {
+        Column columnType = columns.get(column);
+        int size = sizes[column] < 0 ? columnType.getDataType().getSize(value, columnType) : sizes[column];
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        columnType.getDataType().write(buffer, value, columnType);
+        return buffer.array();
+    }
+
+    /**
+     * @return values in column order
+     */
+    public Object[] decode(byte[] record) {
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = decode(record, i);
+
+        return values;
+    }
+
+    /**
+     * Read value of one column.
+     * @return value or <code>null</code> for NULL
+     */
+    public Object decode(byte[] record, int column) {
+        if (isNull(record, column))
+            return null;
+
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        int start = getStart(buffer, column);
+        int size = getEnd(buffer, column) - start;
+
+        buffer.position(start);
+        return columns.get(column).getDataType().read(buffer, size, columns.get(column));
+    }
+
+    /**
+     * @return <code>true</code> if value of column is NULL
+     */
+    public boolean isNull(byte[] record, int column) {
+        return (record[column >> 3] & (1 << (column & 7))) != 0;
+    }
+
+    /**
+     * Read not null value of column of {@link WithLongValue} type as long, no object is created.
+     */
+    public long decodeLong(byte[] record, int column) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.position(offsets[column]);
+        return ((WithLongValue) columns.get(column).getDataType()).readLong(buffer, sizes[column]);
+    }
+
+    /**
+     * Split record into encoded values of columns.
+     * @return values in column order, <code>null</code> for NULL
+     */
+    public byte[][] split(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        byte[][] values = new byte[columns.size()][];
+
+        for (int i = 0; i < values.length; i++) {
+            if (!isNull(record, i)) {
+                int start = getStart(buffer, i);
+                values[i] = new byte[getEnd(buffer, i) - start];
+                System.arraycopy(record, start, values[i], 0, values[i].length);
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Join encoded values of columns into record.
+     * @param values values in column order, <code>null</code> for NULL
+     */
+    public byte[] join(byte[][] values) {
+        return join(values, 0);
+    }
+
+    /**
+     * Join encoded values of columns into record.
+     * @param values values in column order, <code>null</code> for NULL
+     * @param reserved number of zero bytes after record, i.e. for row version
+     */
+    public byte[] join(byte[][] values, int reserved) {
+        int size = dataStart;
+        for (int i = 0; i < columns.size(); i++) {
+            if (sizes[i] < 0 && values[i] != null)
+                size += values[i].length;
+        }
+
+        checkDataSize(size);
+
+        ByteBuffer buffer = ByteBuffer.allocate(size + reserved);
+        int end = dataStart;
+
+        for (int i = 0; i < columns.size(); i++) {
+            if (values[i] == null) {
+                setNull(buffer, i);
+            } else {
+                buffer.position(sizes[i] < 0 ? end : offsets[i]);
+                buffer.put(values[i]);
+
+                if (sizes[i] < 0)
+                    end = buffer.position();
+            }
+
+            if (sizes[i] < 0)
+                buffer.putChar(offsets[i], (char) (end - dataStart));
+        }
+
+        return buffer.array();
+    }
+
+    // internal ==============================================================================
+    private void checkDataSize(int size) {
+        if (size - dataStart > MAX_DATA_SIZE) {
+            throw new TableException(String.format("row too large: %d bytes", size));
+        }
+    }
+
+    private static void setNull(ByteBuffer buffer, int column) {
+        buffer.put(column >> 3, (byte) (buffer.get(column >> 3) | (1 << (column & 7))));
+    }
+
+    private int getStart(ByteBuffer buffer, int column) {
+        if (sizes[column] >= 0)
+            return offsets[column];
+
+        return offsets[column] == offsetStart ? dataStart : dataStart + buffer.getChar(offsets[column] - OFFSET_SIZE);
+    }
+
+    private int getEnd(ByteBuffer buffer, int column) {
+        if (sizes[column] >= 0)
+            return offsets[column] + sizes[column];
+
+        return dataStart + buffer.getChar(offsets[column]);
+    }
+}
@@ -1,17 +1,63 @@
 package org.mydb.engine.table;
 
+import org.mydb.engine.index.Index;
+import org.mydb.engine.tx.Snapshot;
+import org.mydb.engine.tx.Transaction;
+import org.mydb.util.Bytes;
+
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Table.
+ * <p>
+ * Rows are versioned: delete marks row version with deleting transaction and update inserts new version,
+ * so readers do not lock and see rows of their snapshot. Writers lock rows they delete, so writer of the same
+ * row waits until transaction holding it ends, see {@link org.mydb.engine.tx.LockManager}.
+ * Index has entries of every version, deleted versions are purged when no transaction sees them.
  */
 public class Table {
+    private int id;
     private String name;
     private List<Column> columns = new ArrayList<>();
 
+    /** Row record format of columns, created when first used */
+    private RowCodec codec;
+
+    /** Row storage, set when table is added to database */
+    private TableStore store;
+
+    /** Primary key column index, -1 if table has no primary key */
+    private int primaryKey = -1;
+
+    /** Columns are stored separately, see {@link ColumnStore} */
+    private boolean columnar;
+
+    /** Indexes, primary key index first. Copied on change, so inserts read it without lock */
+    private volatile List<TableIndex> indexes = Collections.emptyList();
+
+    /** Statistics collected by ANALYZE, <code>null</code> if table is not analyzed. Kept in memory only */
+    private volatile TableStatistics statistics;
+
+    /** Read lock is held by row changes, write lock by index build */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
     public String getName() {
         return name;
     }
@@ -32,5 +78,577 @@ public class Table {
         }
 
         columns.add(column);
+        codec = null;
+    }
+
+    /**
+     * @return column index or -1 if table has no such column
+     */
+    public int getColumnIndex(String columnName) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (Objects.equals(columns.get(i).getName(), columnName))
+                return i;
+        }
+
+        return -1;
+    }
+
+    public RowCodec getCodec() {
+        if (codec == null)
+            codec = new RowCodec(columns);
+
+        return codec;
+    }
+
+    public boolean isColumnar() {
+        return columnar;
+    }
+
+    public void setColumnar(boolean columnar) {
+        this.columnar = columnar;
+    }
+
+    public TableStore getStore() {
+        return store;
+    }
+
+    public void setStore(TableStore store) {
+        this.store = store;
+    }
+
+    public TableStatistics getStatistics() {
+        return statistics;
+    }
+
+    public void setStatistics(TableStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return primary key column index, -1 if table has no primary key
+     */
+    public int getPrimaryKey() {
+        return primaryKey;
+    }
+
+    public void setPrimaryKey(String columnName) {
+        int index = getColumnIndex(columnName);
+        if (index < 0) {
+            throw new TableException(String.format("primary key column not found %s", columnName));
+        }
+
+        if (primaryKey >= 0) {
+            throw new TableException(String.format("table %s has primary key already", name));
+        }
+
+        primaryKey = index;
+    }
+
+    /**
+     * @return primary key index, <code>null</code> if table has no primary key
+     */
+    public TableIndex getPrimaryIndex() {
+        for (TableIndex index : indexes) {
+            if (index.isPrimaryKey())
+                return index;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return indexes, primary key index first
+     */
+    public List<TableIndex> getIndexes() {
+        return Collections.unmodifiableList(indexes);
+    }
+
+    /**
+     * Add index of table opened with database.
+     */
+    public void addIndex(TableIndex index) {
+        lock.writeLock().lock();
+        try {
+            List<TableIndex> list = new ArrayList<>(indexes);
+            list.add(index.isPrimaryKey() ? 0 : list.size(), index);
+            indexes = list;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Fill new empty index with keys of all row versions and add it. Keys are sorted and loaded at once,
+     * inserts wait until index is added. Versions not deleted are checked for duplicates of unique index.
+     * @throws TableException if unique index gets duplicate key, index is not added then
+     */
+    public void buildIndex(TableIndex index) {
+        lock.writeLock().lock();
+        try {
+            List<byte[]> keys = new ArrayList<>();
+            List<byte[]> uniqueKeys = new ArrayList<>();
+            List<Long> ids = new ArrayList<>();
+            List<long[]> entries = new ArrayList<>();
+
+            Iterator<Record> records = store.scan();
+            while (records.hasNext()) {
+                Record record = records.next();
+                Object[] values = decode(record.getData());
+
+                entries.add(new long[] {keys.size(), record.getId()});
+                keys.add(index.getKey(values, record.getId()));
+                uniqueKeys.add(Record.getXmax(record.getData()) == 0 ? index.getUniqueKey(values) : null);
+            }
+
+            entries.sort((a, b) -> Bytes.compare(keys.get((int) a[0]), keys.get((int) b[0])));
+
+            // versions with the same values are next to each other
+            List<byte[]> sortedKeys = new ArrayList<>(entries.size());
+            byte[] lastUniqueKey = null;
+            for (long[] entry : entries) {
+                byte[] uniqueKey = uniqueKeys.get((int) entry[0]);
+
+                if (uniqueKey != null && lastUniqueKey != null && Arrays.equals(uniqueKey, lastUniqueKey)) {
+                    throw new TableException(String.format("duplicate key in unique index %s of table %s",
+                            index.getName(), name));
+                }
+
+                if (uniqueKey != null)
+                    lastUniqueKey = uniqueKey;
+
+                sortedKeys.add(keys.get((int) entry[0]));
+                ids.add(entry[1]);
+            }
+
+            index.getIndex().load(sortedKeys, ids);
+
+            List<TableIndex> list = new ArrayList<>(indexes);
+            list.add(index);
+            indexes = list;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Insert row version and its index keys.
+     * @param tx transaction inserting row, <code>null</code> if insert is not logged and visible at once
+     * @param values converted values in column order
+     * @return inserted row
+     * @throws TableException if unique index has live row with the same values or row deleted
+     * by concurrent transaction which committed
+     * @throws org.mydb.engine.tx.LockException if transaction deleting row with the same values does not end in time
+     */
+    public Row insert(Transaction tx, Object[] values) {
+        if (primaryKey >= 0 && values[primaryKey] == null) {
+            throw new TableException(String.format("NULL not allowed for primary key column %s",
+                    columns.get(primaryKey).getName()));
+        }
+
+        byte[] record = getCodec().encode(values, Record.VERSION_SIZE);
+        Record.setVersion(record, tx == null ? 0 : tx.getXid(), 0);
+
+        lock.readLock().lock();
+        try {
+            long id = store.insert(tx, record);
+            if (tx != null)
+                tx.addInsert(this, id);
+
+            for (TableIndex index : indexes) {
+                byte[] uniqueKey = index.getUniqueKey(values);
+                if (uniqueKey == null) {
+                    index.getIndex().add(tx, index.getKey(values, id), id);
+                    continue;
+                }
+
+                // check and add of key with the same values are serialized, wait for row lock is not
+                while (true) {
+                    long deleted;
+                    synchronized (index) {
+                        deleted = checkUnique(tx, index, uniqueKey, values);
+                        if (deleted < 0) {
+                            index.getIndex().add(tx, index.getKey(values, id), id);
+                            break;
+                        }
+                    }
+
+                    boolean locked;
+                    lock.readLock().unlock();
+                    try {
+                        locked = tx.lock(this, deleted);
+                    } finally {
+                        lock.readLock().lock();
+                    }
+
+                    // transaction which does not lock rows can not wait
+                    if (!locked) {
+                        throw new TableException(String.format(
+                                "row of table %s is changed by concurrent transaction", name));
+                    }
+                }
+            }
+
+            return new Row(id, values);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lock row and mark its version deleted by transaction. Version stays visible to snapshots which do not see
+     * the transaction, it is removed with its index entries by {@link #purge(Transaction, long, long)}.
+     * @param tx transaction deleting row
+     * @return <code>false</code> if transaction deleted row already
+     * @throws TableException if row is deleted by other transaction which committed while row was locked
+     * @throws org.mydb.engine.tx.LockException if other transaction holding row does not end in time
+     */
+    public boolean delete(Transaction tx, long recordId) {
+        boolean locked = tx.lock(this, recordId);
+
+        lock.readLock().lock();
+        try {
+            byte[] data = store.read(recordId);
+            if (data != null && Record.getXmax(data) == tx.getXid())
+                return false;
+
+            if (data == null || !store.compareAndSetXmax(tx, recordId, 0, tx.getXid())) {
+                if (locked)
+                    tx.unlock(this, recordId);
+
+                throw new TableException(String.format(
+                        "row of table %s is changed by concurrent transaction", name));
+            }
+
+            tx.addDelete(this, recordId);
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replace row version with new one: old version is deleted, new version is inserted.
+     * @param tx transaction updating row
+     * @param values converted values of new version in column order
+     * @return new row version
+     * @throws TableException if row is changed by concurrent transaction or new values are duplicate key
+     */
+    public Row update(Transaction tx, long recordId, Object[] values) {
+        delete(tx, recordId);
+        return insert(tx, values);
+    }
+
+    /**
+     * Remove inserted row and its index entries, called by transaction rollback.
+     */
+    public void undoInsert(Transaction tx, long recordId) {
+        lock.readLock().lock();
+        try {
+            remove(tx, recordId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Clear deleting transaction of row deleted by transaction, called by transaction rollback.
+     */
+    public void undoDelete(Transaction tx, long recordId) {
+        store.compareAndSetXmax(tx, recordId, tx.getXid(), 0);
+    }
+
+    /**
+     * Remove row version and its index entries when no transaction sees it anymore.
+     * @param xmax committed transaction which deleted row version
+     */
+    public void purge(Transaction tx, long recordId, long xmax) {
+        lock.readLock().lock();
+        try {
+            byte[] data = store.read(recordId);
+            if (data != null && Record.getXmax(data) == xmax)
+                remove(tx, recordId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Let store forget versions which are visible to every transaction, see {@link TableStore#freeze(long)}.
+     */
+    public void freeze(long horizon) {
+        store.freeze(horizon);
+    }
+
+    /**
+     * @return row version which is not deleted or <code>null</code> if it does not exist
+     */
+    public Row read(long recordId) {
+        return read(null, recordId);
+    }
+
+    /**
+     * @param snapshot snapshot of reader, <code>null</code> to read row version which is not deleted
+     * @return row or <code>null</code> if it does not exist or is not visible
+     */
+    public Row read(Snapshot snapshot, long recordId) {
+        byte[] data = store.read(recordId);
+        return data == null || !isVisible(snapshot, data) ? null : new Row(recordId, data, getCodec(), columns.size());
+    }
+
+    /**
+     * Read row versions which are not deleted by index in key order.
+     * @param from first key, <code>null</code> for no lower bound
+     * @param to last key or its prefix, <code>null</code> for no upper bound
+     */
+    public Iterator<Row> find(Index index, byte[] from, byte[] to) {
+        return find(null, index, from, to);
+    }
+
+    /**
+     * Read rows visible to snapshot by index in key order.
+     * @param snapshot snapshot of reader, <code>null</code> to read row versions which are not deleted
+     * @param from first key, <code>null</code> for no lower bound
+     * @param to last key or its prefix, <code>null</code> for no upper bound
+     */
+    public Iterator<Row> find(Snapshot snapshot, Index index, byte[] from, byte[] to) {
+        return toRows(findRecords(snapshot, index, from, to));
+    }
+
+    /**
+     * Read records of rows visible to snapshot by index in key order, see {@link #find(Snapshot, Index, byte[], byte[])}.
+     */
+    public Iterator<Record> findRecords(Snapshot snapshot, Index index, byte[] from, byte[] to) {
+        Iterator<Long> ids = index.find(from, to);
+
+        return new Iterator<Record>() {
+            private Record next;
+
+            @Override
+            public boolean hasNext() {
+                // rows inserted by transactions rolled back meanwhile and versions not visible are skipped
+                while (next == null && ids.hasNext()) {
+                    long id = ids.next();
+                    byte[] data = store.read(id);
+                    if (data != null && isVisible(snapshot, data))
+                        next = new Record(id, data);
+                }
+
+                return next != null;
+            }
+
+            @Override
+            public Record next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                Record record = next;
+                next = null;
+                return record;
+            }
+        };
+    }
+
+    /**
+     * Full table scan of row versions which are not deleted.
+     */
+    public Iterator<Row> scan() {
+        return scan((Snapshot) null);
+    }
+
+    /**
+     * Full table scan.
+     * @param snapshot snapshot of reader, <code>null</code> to read row versions which are not deleted
+     */
+    public Iterator<Row> scan(Snapshot snapshot) {
+        return toRows(visible(snapshot, store.scan()));
+    }
+
+    /**
+     * Full table scan which needs some columns only, other columns may be NULL in rows read.
+     * @param columns indexes of columns needed
+     */
+    public Iterator<Row> scan(BitSet columns) {
+        return scan(null, columns);
+    }
+
+    /**
+     * Full table scan which needs some columns only, other columns may be NULL in rows read.
+     * @param snapshot snapshot of reader, <code>null</code> to read row versions which are not deleted
+     * @param columns indexes of columns needed
+     */
+    public Iterator<Row> scan(Snapshot snapshot, BitSet columns) {
+        return toRows(scanRecords(snapshot, columns));
+    }
+
+    /**
+     * Full table scan of records of rows visible to snapshot, see {@link #scan(Snapshot, BitSet)}.
+     * Records are decoded by {@link #getCodec()}, so readers can take values without creating rows.
+     */
+    public Iterator<Record> scanRecords(Snapshot snapshot, BitSet columns) {
+        return visible(snapshot, store.scan(columns));
+    }
+
+    /**
+     * Full table scan for rows which value of column is one of given values, store may skip other rows.
+     * Rows read may have other values too, so condition still has to be checked.
+     * @param columns indexes of columns needed
+     * @param column index of column compared
+     * @param values not null values converted to column type
+     */
+    public Iterator<Row> scan(BitSet columns, int column, List<Object> values) {
+        return scan(null, columns, column, values);
+    }
+
+    /**
+     * Full table scan for rows which value of column is one of given values, see {@link #scan(BitSet, int, List)}.
+     * @param snapshot snapshot of reader, <code>null</code> to read row versions which are not deleted
+     */
+    public Iterator<Row> scan(Snapshot snapshot, BitSet columns, int column, List<Object> values) {
+        return toRows(scanRecords(snapshot, columns, column, values));
+    }
+
+    /**
+     * Full table scan of records, see {@link #scan(Snapshot, BitSet, int, List)}.
+     */
+    public Iterator<Record> scanRecords(Snapshot snapshot, BitSet columns, int column, List<Object> values) {
+        List<byte[]> encoded = new ArrayList<>();
+        for (Object value : values)
+            encoded.add(getCodec().encodeValue(column, value));
+
+        return visible(snapshot, store.scan(columns, column, encoded));
+    }
+
+    /**
+     * @return number of pages of table, 0 if table can not be scanned by range of pages
+     */
+    public int getPageCount() {
+        return store.getPageCount();
+    }
+
+    /**
+     * Scan of range of pages, see {@link TableStore#scan(BitSet, int, int)}.
+     * @param snapshot snapshot of reader, <code>null</code> to read row versions which are not deleted
+     * @param columns indexes of columns needed
+     * @param fromPage first page read
+     * @param toPage page after the last page read
+     */
+    public Iterator<Row> scan(Snapshot snapshot, BitSet columns, int fromPage, int toPage) {
+        return toRows(scanRecords(snapshot, columns, fromPage, toPage));
+    }
+
+    /**
+     * Scan of records of range of pages, see {@link #scan(Snapshot, BitSet, int, int)}.
+     */
+    public Iterator<Record> scanRecords(Snapshot snapshot, BitSet columns, int fromPage, int toPage) {
+        return visible(snapshot, store.scan(columns, fromPage, toPage));
+    }
+
+    /**
+     * Rows of records of table, values are decoded when read.
+     */
+    public Iterator<Row> toRows(Iterator<Record> records) {
+        RowCodec codec = getCodec();
+
+        return new Iterator<Row>() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public Row next() {
+                Record record = records.next();
+                return new Row(record.getId(), record.getData(), codec, columns.size());
+            }
+        };
+    }
+
+    // internal ==============================================================================
+    /**
+     * Skip records of row versions not visible to snapshot.
+     */
+    private static Iterator<Record> visible(Snapshot snapshot, Iterator<Record> records) {
+        return new Iterator<Record>() {
+            private Record next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && records.hasNext()) {
+                    Record record = records.next();
+                    if (isVisible(snapshot, record.getData()))
+                        next = record;
+                }
+
+                return next != null;
+            }
+
+            @Override
+            public Record next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                Record record = next;
+                next = null;
+                return record;
+            }
+        };
+    }
+
+    private static boolean isVisible(Snapshot snapshot, byte[] data) {
+        long xmax = Record.getXmax(data);
+        return snapshot == null ? xmax == 0 : snapshot.isVisible(Record.getXmin(data), xmax);
+    }
+
+    /**
+     * Check that no other live row has values of unique key. Row deleted by the transaction itself
+     * or by transaction committed before its snapshot is not live, row deleted by other transaction
+     * is live again if that transaction rolls back: its lock is waited for, then row is checked again.
+     * @return id of row deleted by other transaction which may still roll back, -1 if key is free
+     */
+    private long checkUnique(Transaction tx, TableIndex index, byte[] uniqueKey, Object[] values) {
+        Iterator<Long> ids = index.getIndex().find(uniqueKey, uniqueKey);
+        while (ids.hasNext()) {
+            long id = ids.next();
+            byte[] data = store.read(id);
+
+            // key prefix may match longer values
+            if (data == null || !Arrays.equals(uniqueKey, index.getUniqueKey(decode(data))))
+                continue;
+
+            long xmax = Record.getXmax(data);
+            if (xmax == 0) {
+                if (index.isPrimaryKey()) {
+                    throw new TableException(String.format("duplicate primary key %s in table %s",
+                            values[primaryKey], name));
+                }
+
+                throw new TableException(String.format("duplicate key in unique index %s of table %s",
+                        index.getName(), name));
+            }
+
+            // transaction holding lock of row deleted it, so deleting transaction ended
+            boolean deleted = tx == null || xmax == tx.getXid()
+                    || tx.getSnapshot() != null && tx.getSnapshot().isVisible(xmax) || tx.isLocked(this, id);
+            if (!deleted)
+                return id;
+        }
+
+        return -1;
+    }
+
+    private void remove(Transaction tx, long recordId) {
+        byte[] data = store.read(recordId);
+        if (data == null)
+            return;
+
+        Object[] values = decode(data);
+        for (TableIndex index : indexes)
+            index.getIndex().remove(tx, index.getKey(values, recordId));
+
+        store.delete(tx, recordId);
+    }
+
+    private Object[] decode(byte[] data) {
+        return getCodec().decode(data);
     }
 }
@@ -0,0 +1,116 @@
+package org.mydb.engine.table;
+
+import org.mydb.engine.index.Index;
+import org.mydb.engine.index.IndexKey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Index of table: index columns and index storage.
+ * Key is made of column values followed by record id, so index has entry of every row version.
+ * Table checks that unique index has one live row with the same values at most.
+ */
+public class TableIndex {
+    /** Index name, <code>null</code> for primary key */
+    private final String name;
+
+    /** Indexes of table columns in index order */
+    private final int[] columnIndexes;
+
+    /** Index columns */
+    private final List<Column> columns = new ArrayList<>();
+
+    private final boolean unique;
+    private final boolean primaryKey;
+
+    /** Hash index, used for equality lookups only */
+    private final boolean hash;
+
+    /** Index storage */
+    private final Index index;
+
+    public TableIndex(String name, Table table, int[] columnIndexes, boolean unique, boolean primaryKey,
+                      boolean hash, Index index) {
+        this.name = name;
+        this.columnIndexes = columnIndexes;
+        this.unique = unique;
+        this.primaryKey = primaryKey;
+        this.hash = hash;
+        this.index = index;
+
+        for (int columnIndex : columnIndexes)
+            columns.add(table.getColumns().get(columnIndex));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int[] getColumnIndexes() {
+        return columnIndexes.clone();
+    }
+
+    public List<Column> getColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    public boolean isUnique() {
+        return unique;
+    }
+
+    public boolean isPrimaryKey() {
+        return primaryKey;
+    }
+
+    public boolean isHash() {
+        return hash;
+    }
+
+    public Index getIndex() {
+        return index;
+    }
+
+    /**
+     * @param values row values in table column order
+     * @return index key of row
+     */
+    public byte[] getKey(Object[] values, long recordId) {
+        return IndexKey.withRecordId(getValuesKey(values), recordId);
+    }
+
+    /**
+     * Key of index values which live rows of unique index do not share, NULL is distinct from any value.
+     * @param values row values in table column order
+     * @return key without record id, <code>null</code> if index is not unique or some value is NULL
+     */
+    public byte[] getUniqueKey(Object[] values) {
+        if (!unique)
+            return null;
+
+        for (int columnIndex : columnIndexes) {
+            if (values[columnIndex] == null)
+                return null;
+        }
+
+        return getValuesKey(values);
+    }
+
+    /**
+     * Key prefix to find rows by values of the first index columns.
+     * @param values values converted to column types, not more than index has columns
+     */
+    public byte[] getPrefix(Object... values) {
+        return IndexKey.encode(columns.subList(0, values.length), values);
+    }
+
+    // internal ==============================================================================
+    private byte[] getValuesKey(Object[] values) {
+        Object[] keyValues = new Object[columnIndexes.length];
+        for (int i = 0; i < columnIndexes.length; i++)
+            keyValues[i] = values[columnIndexes[i]];
+
+        return IndexKey.encode(columns, keyValues);
+    }
+}
@@ -0,0 +1,179 @@
+package org.mydb.engine.table;
+
+import org.mydb.engine.table.datatype.WithLongValue;
+import org.mydb.engine.tx.Snapshot;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Row count and column value statistics of table collected by ANALYZE, planner estimates rows read
+ * and joined by them. Statistics are not updated by row changes, they are kept until table is analyzed again.
+ * <p>
+ * Number of distinct values is estimated from the smallest hashes of values (K minimum values):
+ * hashes are spread evenly, so the larger the K-th smallest hash, the fewer values there are.
+ * Min and max are kept for columns which values have long order, see {@link WithLongValue},
+ * so fraction of values in range is interpolated between them.
+ */
+public class TableStatistics {
+    /** Hashes kept by column, number of distinct values is exact up to it */
+    private static final int DISTINCT_HASHES = 1024;
+
+    /** Bits of hash kept, so hash is an exact fraction of double */
+    private static final int HASH_BITS = 53;
+
+    private final long rowCount;
+    private final long[] nullCounts;
+    private final long[] distinctCounts;
+
+    /** Min and max long of column values, see {@link WithLongValue} */
+    private final long[] minValues;
+    private final long[] maxValues;
+
+    /** Columns which values have min and max, i.e. have long order and not all values are NULL */
+    private final boolean[] ranged;
+
+    private TableStatistics(long rowCount, long[] nullCounts, long[] distinctCounts, long[] minValues,
+                            long[] maxValues, boolean[] ranged) {
+        this.rowCount = rowCount;
+        this.nullCounts = nullCounts;
+        this.distinctCounts = distinctCounts;
+        this.minValues = minValues;
+        this.maxValues = maxValues;
+        this.ranged = ranged;
+    }
+
+    /**
+     * Read all rows of table to collect statistics.
+     * @param snapshot snapshot of rows read
+     */
+    public static TableStatistics collect(Table table, Snapshot snapshot) {
+        List<Column> columns = table.getColumns();
+        int columnCount = columns.size();
+
+        long rowCount = 0;
+        long[] nullCounts = new long[columnCount];
+        long[] minValues = new long[columnCount];
+        long[] maxValues = new long[columnCount];
+        boolean[] ranged = new boolean[columnCount];
+
+        List<TreeSet<Long>> hashes = new ArrayList<>();
+        for (int i = 0; i < columnCount; i++)
+            hashes.add(new TreeSet<>());
+
+        Iterator<Row> rows = table.scan(snapshot);
+        while (rows.hasNext()) {
+            Row row = rows.next();
+            rowCount++;
+
+            for (int i = 0; i < columnCount; i++) {
+                Object value = row.getValue(i);
+                if (value == null) {
+                    nullCounts[i]++;
+                    continue;
+                }
+
+                Column column = columns.get(i);
+                Long longValue = column.getDataType() instanceof WithLongValue
+                        ? ((WithLongValue) column.getDataType()).toLong(value, column) : null;
+
+                if (longValue != null) {
+                    minValues[i] = ranged[i] ? Math.min(minValues[i], longValue) : longValue;
+                    maxValues[i] = ranged[i] ? Math.max(maxValues[i], longValue) : longValue;
+                    ranged[i] = true;
+                }
+
+                addHash(hashes.get(i), hash(longValue != null ? longValue : value.hashCode()));
+            }
+        }
+
+        long[] distinctCounts = new long[columnCount];
+        for (int i = 0; i < columnCount; i++)
+            distinctCounts[i] = Math.min(getDistinctCount(hashes.get(i)), rowCount - nullCounts[i]);
+
+        return new TableStatistics(rowCount, nullCounts, distinctCounts, minValues, maxValues, ranged);
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getNullCount(int column) {
+        return nullCounts[column];
+    }
+
+    /**
+     * @return estimated number of distinct values of column except NULL
+     */
+    public long getDistinctCount(int column) {
+        return distinctCounts[column];
+    }
+
+    /**
+     * @return estimated fraction of rows which column is equal to a value of column
+     */
+    public double getEqualsFraction(int column) {
+        if (rowCount == 0 || distinctCounts[column] == 0)
+            return 0;
+
+        return (double) (rowCount - nullCounts[column]) / rowCount / distinctCounts[column];
+    }
+
+    /**
+     * Fraction of rows in range is interpolated between min and max value of column.
+     * @param low inclusive lower bound as long of column value, <code>null</code> if not bounded
+     * @param high inclusive upper bound as long of column value, <code>null</code> if not bounded
+     * @return estimated fraction of rows which column is in range, -1 if column has no min and max
+     */
+    public double getRangeFraction(int column, Long low, Long high) {
+        if (!ranged[column])
+            return rowCount == 0 ? 0 : -1;
+
+        double from = Math.max(low == null ? minValues[column] : low, minValues[column]);
+        double to = Math.min(high == null ? maxValues[column] : high, maxValues[column]);
+        if (from > to)
+            return 0;
+
+        // one value of integer column is one unit of range
+        double fraction = (to - from + 1) / ((double) maxValues[column] - minValues[column] + 1);
+        return fraction * (rowCount - nullCounts[column]) / rowCount;
+    }
+
+    // internal ==============================================================================
+    /**
+     * Keep hash if it is one of the smallest hashes of column.
+     */
+    private static void addHash(TreeSet<Long> hashes, long hash) {
+        if (hashes.size() < DISTINCT_HASHES) {
+            hashes.add(hash);
+        } else if (hash < hashes.last() && hashes.add(hash)) {
+            hashes.pollLast();
+        }
+    }
+
+    /**
+     * @return number of distinct values estimated from the K-th smallest hash, exact if there are fewer hashes
+     */
+    private static long getDistinctCount(TreeSet<Long> hashes) {
+        if (hashes.size() < DISTINCT_HASHES)
+            return hashes.size();
+
+        double largest = (double) hashes.last() / (1L << HASH_BITS);
+        return Math.round((DISTINCT_HASHES - 1) / largest);
+    }
+
+    /**
+     * @return the highest bits of mixed value (murmur3 finalizer), so hashes are spread evenly
+     */
+    private static long hash(long value) {
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb3fa1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash >>> (Long.SIZE - HASH_BITS);
+    }
+}
@@ -0,0 +1,95 @@
+package org.mydb.engine.table;
+
+import org.mydb.engine.tx.Transaction;
+
+import java.io.Closeable;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Storage of table records. Store assigns record ids and logs changes of transaction,
+ * table registers them for undo.
+ * <p>
+ * Records end with row version, see {@link Record}. Store changes deleting transaction of record in place,
+ * record is removed when no transaction sees it anymore.
+ */
+public interface TableStore extends Closeable {
+    /**
+     * Add record.
+     * @param tx transaction of insert, <code>null</code> if insert can not be undone
+     * @return record id
+     */
+    long insert(Transaction tx, byte[] record);
+
+    /**
+     * Remove record, removing deleted record is ignored.
+     */
+    void delete(Transaction tx, long recordId);
+
+    /**
+     * Set deleting transaction of record if it is the expected one, atomically.
+     * @param tx transaction logging change, <code>null</code> if change can not be undone
+     * @return <code>false</code> if record does not exist or has other deleting transaction
+     */
+    boolean compareAndSetXmax(Transaction tx, long recordId, long expected, long xmax);
+
+    /**
+     * Forget inserting transactions which are visible to every transaction now, called for store which
+     * keeps them in memory only. Versions of other stores are on disk already.
+     * @param horizon transactions with lower id are committed or rolled back before all running transactions started
+     */
+    default void freeze(long horizon) {
+    }
+
+    /**
+     * @return record or <code>null</code> if it does not exist
+     */
+    byte[] read(long recordId);
+
+    /**
+     * Iterate over all records.
+     */
+    Iterator<Record> scan();
+
+    /**
+     * Iterate over all records, store may leave columns not in given set NULL.
+     * @param columns indexes of columns read
+     */
+    default Iterator<Record> scan(BitSet columns) {
+        return scan();
+    }
+
+    /**
+     * Iterate over records which value of column may be one of given values, store may skip other records
+     * without reading them. Records are not filtered by default.
+     * @param columns indexes of columns read
+     * @param column index of column compared
+     * @param values not null values encoded by {@link RowCodec#encodeValue(int, Object)}
+     */
+    default Iterator<Record> scan(BitSet columns, int column, List<byte[]> values) {
+        return scan(columns);
+    }
+
+    /**
+     * @return number of pages records are stored in, 0 if store can not scan range of pages,
+     * see {@link #scan(BitSet, int, int)}
+     */
+    default int getPageCount() {
+        return 0;
+    }
+
+    /**
+     * Iterate over records of range of pages, so ranges of one table are read in parallel.
+     * Records of all ranges are the records of full scan in the same order.
+     * @param columns indexes of columns read
+     * @param fromPage first page read
+     * @param toPage page after the last page read
+     */
+    default Iterator<Record> scan(BitSet columns, int fromPage, int toPage) {
+        throw new UnsupportedOperationException("scan of page range");
+    }
+
+    @Override
+    void close();
+}
@@ -1,5 +1,10 @@
 package org.mydb.engine.table.datatype;
 
+import org.mydb.engine.table.Column;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -18,5 +23,46 @@ public abstract class DataType {
     public static DataType getDataType(String value) {
         return dataTypes.get(value.toLowerCase());
     }
-}
 
+    /**
+     * Convert value to internal representation of this data type.
+     * @param value not null value
+     * @param column column value is assigned to, used to validate precision, scale etc
+     * @return converted value
+     */
+    public abstract Object convert(Object value, Column column);
+
+    /**
+     * @return size of values of column in row record, -1 if size depends on value
+     */
+    public abstract int getSize(Column column);
+
+    /**
+     * @return size of not null value in row record
+     */
+    public int getSize(Object value, Column column) {
+        return getSize(column);
+    }
+
+    /**
+     * Write not null value in row record at buffer position, column precision and scale select encoding.
+     */
+    public abstract void write(ByteBuffer buffer, Object value, Column column);
+
+    /**
+     * Read not null value written by {@link #write(ByteBuffer, Object, Column)} from buffer position.
+     * @param size value size in bytes
+     */
+    public abstract Object read(ByteBuffer buffer, int size, Column column);
+
+    /**
+     * Write not null value as index key: keys of values are compared as unsigned bytes in value order.
+     * Value is converted to column type first.
+     */
+    public abstract void writeKey(DataOutput out, Object value) throws IOException;
+
+    /**
+     * @return sql type from {@link java.sql.Types}
+     */
+    public abstract int getSqlType();
+}
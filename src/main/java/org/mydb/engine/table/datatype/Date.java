@@ -1,7 +1,92 @@
 package org.mydb.engine.table.datatype;
 
+import org.mydb.engine.table.Column;
+import org.mydb.engine.table.TableException;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.Types;
+import java.time.LocalDate;
+
 /**
- * Date data type
+ * Date data type. Values are {@link LocalDate}, kept in rows and index keys as epoch day int,
+ * so dates are compared as ints.
  */
-public class Date extends DataType {
+public class Date extends DataType implements WithLongValue {
+    @Override
+    public Object convert(Object value, Column column) {
+        LocalDate date = toLocalDate(value);
+        if (date == null) {
+            throw new TableException(String.format("invalid date: %s", value));
+        }
+
+        if (date.toEpochDay() != (int) date.toEpochDay()) {
+            throw new TableException(String.format("date out of range: %s", value));
+        }
+
+        return date;
+    }
+
+    /**
+     * Convert date, its string or JDBC date to date.
+     * @return date or <code>null</code> if value is not a date
+     */
+    public static LocalDate toLocalDate(Object value) {
+        if (value instanceof LocalDate)
+            return (LocalDate) value;
+
+        if (value instanceof java.sql.Date)
+            return ((java.sql.Date) value).toLocalDate();
+
+        if (value instanceof java.util.Date)
+            return new java.sql.Date(((java.util.Date) value).getTime()).toLocalDate();
+
+        try {
+            return java.sql.Date.valueOf(value.toString().trim()).toLocalDate();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public int getSize(Column column) {
+        return 4;
+    }
+
+    @Override
+    public void write(ByteBuffer buffer, Object value, Column column) {
+        buffer.putInt((int) ((LocalDate) value).toEpochDay());
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer, int size, Column column) {
+        return LocalDate.ofEpochDay(buffer.getInt());
+    }
+
+    @Override
+    public long readLong(ByteBuffer buffer, int size) {
+        return buffer.getInt();
+    }
+
+    @Override
+    public Long toLong(Object value, Column column) {
+        LocalDate date = toLocalDate(value);
+        return date == null ? null : date.toEpochDay();
+    }
+
+    @Override
+    public Object fromLong(long value, Column column) {
+        return LocalDate.ofEpochDay(value);
+    }
+
+    @Override
+    public void writeKey(DataOutput out, Object value) throws IOException {
+        out.writeInt((int) ((LocalDate) value).toEpochDay() ^ Integer.MIN_VALUE);
+    }
+
+    @Override
+    public int getSqlType() {
+        return Types.DATE;
+    }
 }
@@ -1,9 +1,19 @@
 package org.mydb.engine.table.datatype;
 
+import org.mydb.engine.table.Column;
+import org.mydb.engine.table.TableException;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.math.RoundingMode;
+import java.sql.Types;
+
 /**
  * Number data type.
  */
-public class Number extends DataType implements WithPrecision, WithScale {
+public class Number extends DataType implements WithPrecision, WithScale, WithLongValue {
     @Override
     public int maxPrecision() {
         return 10;
@@ -18,4 +28,147 @@ public class Number extends DataType implements WithPrecision, WithScale {
     public int defaultScale() {
         return 0;
     }
+
+    @Override
+    public Object convert(Object value, Column column) {
+        BigDecimal number;
+
+        if (value instanceof BigDecimal) {
+            number = (BigDecimal) value;
+        } else if (value instanceof Integer || value instanceof Long) {
+            number = BigDecimal.valueOf(((java.lang.Number) value).longValue());
+        } else if (value instanceof java.lang.Number) {
+            number = BigDecimal.valueOf(((java.lang.Number) value).doubleValue());
+        } else {
+            try {
+                number = new BigDecimal(value.toString().trim());
+            } catch (NumberFormatException e) {
+                throw new TableException(String.format("invalid number: %s", value), e);
+            }
+        }
+
+        number = number.setScale(column.getScale(), RoundingMode.HALF_UP);
+
+        if (number.precision() - number.scale() > column.getPrecision() - column.getScale()) {
+            throw new TableException(String.format("value %s too large for column %s", number, column.getName()));
+        }
+
+        return number;
+    }
+
+    /**
+     * Unscaled value has at most precision digits, it is kept in the smallest integer which fits them.
+     */
+    @Override
+    public int getSize(Column column) {
+        int precision = column.getPrecision();
+
+        if (precision <= 2)
+            return 1;
+        if (precision <= 4)
+            return 2;
+        if (precision <= 9)
+            return 4;
+
+        return 8;
+    }
+
+    /**
+     * Values of column have column scale, so only unscaled value is written.
+     */
+    @Override
+    public void write(ByteBuffer buffer, Object value, Column column) {
+        long unscaled = ((BigDecimal) value).unscaledValue().longValue();
+
+        switch (getSize(column)) {
+            case 1:
+                buffer.put((byte) unscaled);
+                break;
+            case 2:
+                buffer.putShort((short) unscaled);
+                break;
+            case 4:
+                buffer.putInt((int) unscaled);
+                break;
+            default:
+                buffer.putLong(unscaled);
+        }
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer, int size, Column column) {
+        return BigDecimal.valueOf(readLong(buffer, size), column.getScale());
+    }
+
+    /**
+     * Read unscaled value of column scale.
+     */
+    @Override
+    public long readLong(ByteBuffer buffer, int size) {
+        switch (size) {
+            case 1:
+                return buffer.get();
+            case 2:
+                return buffer.getShort();
+            case 4:
+                return buffer.getInt();
+            default:
+                return buffer.getLong();
+        }
+    }
+
+    /**
+     * @return unscaled long of value of column scale
+     */
+    @Override
+    public Long toLong(Object value, Column column) {
+        return toUnscaled(value, column.getScale());
+    }
+
+    @Override
+    public Object fromLong(long value, Column column) {
+        return BigDecimal.valueOf(value, column.getScale());
+    }
+
+    /**
+     * Convert number to unscaled long of given scale, so it is compared with column values as long.
+     * @return unscaled value or <code>null</code> if value is not a number or has no exact unscaled long
+     */
+    public static Long toUnscaled(Object value, int scale) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            long unscaled = ((java.lang.Number) value).longValue();
+
+            for (int i = 0; i < scale; i++) {
+                if (Math.abs(unscaled) > Long.MAX_VALUE / 10)
+                    return null;
+
+                unscaled *= 10;
+            }
+
+            return unscaled;
+        }
+
+        if (!(value instanceof BigDecimal))
+            return null;
+
+        BigDecimal number = (BigDecimal) value;
+        if (number.scale() > scale && number.stripTrailingZeros().scale() > scale)
+            return null;
+
+        BigDecimal scaled = number.setScale(scale);
+        return scaled.unscaledValue().bitLength() < 64 ? scaled.unscaledValue().longValue() : null;
+    }
+
+    /**
+     * Values of column have the same scale, so unscaled values keep order.
+     */
+    @Override
+    public void writeKey(DataOutput out, Object value) throws IOException {
+        out.writeLong(((BigDecimal) value).unscaledValue().longValue() ^ Long.MIN_VALUE);
+    }
+
+    @Override
+    public int getSqlType() {
+        return Types.NUMERIC;
+    }
 }
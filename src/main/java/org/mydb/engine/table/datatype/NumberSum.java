@@ -0,0 +1,112 @@
+package org.mydb.engine.table.datatype;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Sum and average of NUMBER values of one scale. Values are added as unscaled longs while the sum
+ * fits in long, the sum is kept as BigDecimal after overflow only.
+ */
+public class NumberSum {
+    /** Digits average has in addition to value scale, i.e. scale of AVG */
+    public static final int AVERAGE_SCALE = 4;
+
+    private final int scale;
+    private long count;
+    private long sum;
+
+    /** Sum after long overflow, <code>null</code> before */
+    private BigDecimal overflow;
+
+    public NumberSum(int scale) {
+        this.scale = scale;
+    }
+
+    /**
+     * Add unscaled value of sum scale.
+     */
+    public void add(long unscaled) {
+        add(unscaled, 1);
+    }
+
+    /**
+     * Add sum of values of sum scale, i.e. sum of other group.
+     * @param unscaled sum of unscaled values
+     * @param valueCount number of values summed
+     */
+    public void add(long unscaled, long valueCount) {
+        count += valueCount;
+
+        if (overflow == null) {
+            long result = sum + unscaled;
+
+            // overflow if both values have sign other than result
+            if (((sum ^ result) & (unscaled ^ result)) >= 0) {
+                sum = result;
+                return;
+            }
+
+            overflow = BigDecimal.valueOf(sum, scale);
+        }
+
+        overflow = overflow.add(BigDecimal.valueOf(unscaled, scale));
+    }
+
+    /**
+     * Add value of any scale.
+     */
+    public void add(BigDecimal value) {
+        Long unscaled = overflow == null ? Number.toUnscaled(value, scale) : null;
+
+        if (unscaled != null) {
+            add(unscaled.longValue());
+            return;
+        }
+
+        count++;
+        overflow = (overflow == null ? BigDecimal.valueOf(sum, scale) : overflow).add(value);
+    }
+
+    /**
+     * Add values added to other sum of the same scale.
+     */
+    public void add(NumberSum other) {
+        if (other.overflow == null) {
+            add(other.sum, other.count);
+            return;
+        }
+
+        count += other.count;
+        overflow = (overflow == null ? BigDecimal.valueOf(sum, scale) : overflow).add(other.overflow);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return sum or <code>null</code> if no value was added
+     */
+    public BigDecimal getSum() {
+        if (count == 0)
+            return null;
+
+        return overflow == null ? BigDecimal.valueOf(sum, scale) : overflow;
+    }
+
+    /**
+     * @return average rounded to {@value #AVERAGE_SCALE} digits more than value scale,
+     * <code>null</code> if no value was added
+     */
+    public BigDecimal getAverage() {
+        BigDecimal total = getSum();
+        return total == null ? null : average(total, count);
+    }
+
+    /**
+     * @return average of values of given sum rounded to {@value #AVERAGE_SCALE} digits more than sum scale
+     */
+    public static BigDecimal average(BigDecimal sum, long count) {
+        return sum.divide(BigDecimal.valueOf(count), sum.scale() + AVERAGE_SCALE, RoundingMode.HALF_UP);
+    }
+}
@@ -1,5 +1,13 @@
 package org.mydb.engine.table.datatype;
 
+import org.mydb.engine.table.Column;
+import org.mydb.engine.table.TableException;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.Types;
+
 /**
  * Varchar data type
  */
@@ -13,4 +21,112 @@ public class Varchar extends DataType implements WithPrecision {
     public int defaultPrecision() {
         return Integer.MAX_VALUE;
     }
+
+    @Override
+    public Object convert(Object value, Column column) {
+        String string = value.toString();
+
+        if (string.length() > column.getPrecision()) {
+            throw new TableException(String.format("value too long for column %s: %d > %d",
+                    column.getName(), string.length(), column.getPrecision()));
+        }
+
+        return string;
+    }
+
+    @Override
+    public int getSize(Column column) {
+        return -1;
+    }
+
+    /**
+     * Chars are written in one to three bytes like in UTF-8, surrogates are written separately.
+     */
+    @Override
+    public int getSize(Object value, Column column) {
+        String string = (String) value;
+        int size = string.length();
+
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c > 0x7FF)
+                size += 2;
+            else if (c > 0x7F)
+                size++;
+        }
+
+        return size;
+    }
+
+    @Override
+    public void write(ByteBuffer buffer, Object value, Column column) {
+        String string = (String) value;
+
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+
+            if (c <= 0x7F) {
+                buffer.put((byte) c);
+            } else if (c <= 0x7FF) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer, int size, Column column) {
+        char[] chars = new char[size];
+        int length = 0;
+
+        for (int end = buffer.position() + size; buffer.position() < end; ) {
+            int b = buffer.get() & 0xFF;
+
+            if (b < 0x80) {
+                chars[length++] = (char) b;
+            } else if (b < 0xE0) {
+                chars[length++] = (char) (((b & 0x1F) << 6) | (buffer.get() & 0x3F));
+            } else {
+                int b2 = buffer.get() & 0x3F;
+                chars[length++] = (char) (((b & 0x0F) << 12) | (b2 << 6) | (buffer.get() & 0x3F));
+            }
+        }
+
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * Chars are written in modified UTF-8 which has no zero bytes and keeps char order (except char 0),
+     * zero byte terminates string so shorter string is less.
+     */
+    @Override
+    public void writeKey(DataOutput out, Object value) throws IOException {
+        String string = (String) value;
+
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+
+            if (c >= 0x01 && c <= 0x7F) {
+                out.writeByte(c);
+            } else if (c <= 0x7FF) {
+                out.writeByte(0xC0 | (c >> 6));
+                out.writeByte(0x80 | (c & 0x3F));
+            } else {
+                out.writeByte(0xE0 | (c >> 12));
+                out.writeByte(0x80 | ((c >> 6) & 0x3F));
+                out.writeByte(0x80 | (c & 0x3F));
+            }
+        }
+
+        out.writeByte(0);
+    }
+
+    @Override
+    public int getSqlType() {
+        return Types.VARCHAR;
+    }
 }
@@ -0,0 +1,25 @@
+package org.mydb.engine.table.datatype;
+
+import org.mydb.engine.table.Column;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Data type which values are kept in row record as longs in value order, so they are compared as longs.
+ */
+public interface WithLongValue {
+    /**
+     * Read not null value written in row record as long.
+     */
+    long readLong(ByteBuffer buffer, int size);
+
+    /**
+     * @return long of value comparable with values of column, <code>null</code> if value has no exact long
+     */
+    Long toLong(Object value, Column column);
+
+    /**
+     * @return value of long read from row record
+     */
+    Object fromLong(long value, Column column);
+}
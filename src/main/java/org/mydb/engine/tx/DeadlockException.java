@@ -0,0 +1,10 @@
+package org.mydb.engine.tx;
+
+/**
+ * Transaction is picked as deadlock victim, it has to be rolled back to release its locks.
+ */
+public class DeadlockException extends LockException {
+    public DeadlockException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package org.mydb.engine.tx;
+
+/**
+ * Transaction isolation level: when transaction takes snapshot of rows it reads.
+ */
+public enum IsolationLevel {
+    /** Every statement reads rows committed before it started */
+    READ_COMMITTED,
+    /** Every statement reads rows committed before the first statement of transaction started */
+    REPEATABLE_READ
+}
@@ -0,0 +1,16 @@
+package org.mydb.engine.tx;
+
+import org.mydb.DbException;
+
+/**
+ * Row lock is not acquired, statement fails and transaction keeps running.
+ */
+public class LockException extends DbException {
+    public LockException(String message) {
+        super(message);
+    }
+
+    public LockException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,205 @@
+package org.mydb.engine.tx;
+
+import org.mydb.engine.table.Table;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row lock table of database. Locks are exclusive, transaction holds its locks until it ends.
+ * <p>
+ * Table is split into stripes by hash of row, every stripe has its own monitor, so transactions locking
+ * different rows rarely wait for the same monitor. Transaction waits for lock until owner releases it
+ * or timeout. Waiting transactions form wait-for graph: wait which would close cycle is deadlock,
+ * transaction starting it is the victim and fails with {@link DeadlockException} instead of waiting.
+ */
+public class LockManager {
+    /** Number of stripes, power of 2 */
+    private static final int STRIPES = 64;
+
+    /** Time transaction waits for lock, milliseconds */
+    private final long timeout;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /** Lock every waiting transaction waits for, edges of wait-for graph */
+    private final Map<Transaction, Lock> waits = new HashMap<>();
+
+    public LockManager(long timeout) {
+        this.timeout = timeout;
+
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new Stripe();
+    }
+
+    /**
+     * @return time transaction waits for lock, milliseconds
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Lock row for transaction, wait until other transaction releases it.
+     * @return <code>false</code> if transaction holds lock already
+     * @throws LockException if lock is not released in time
+     * @throws DeadlockException if owner of lock waits for transaction
+     */
+    public boolean lock(Transaction tx, Table table, long recordId) {
+        Key key = new Key(table.getId(), recordId);
+        Stripe stripe = getStripe(key);
+        long start = 0;
+
+        synchronized (stripe) {
+            try {
+                while (true) {
+                    Lock lock = stripe.locks.get(key);
+                    if (lock == null) {
+                        stripe.locks.put(key, new Lock(tx));
+                        tx.addLock(key);
+                        return true;
+                    }
+
+                    if (lock.owner == tx)
+                        return false;
+
+                    if (start == 0)
+                        start = System.nanoTime();
+
+                    long remaining = timeout - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    if (remaining <= 0) {
+                        throw new LockException(String.format(
+                                "timeout waiting for lock on row of table %s held by transaction %d",
+                                table.getName(), lock.owner.getXid()));
+                    }
+
+                    addWait(tx, lock, table);
+                    lock.waiters++;
+                    try {
+                        stripe.wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new LockException(String.format("interrupted waiting for lock on row of table %s",
+                                table.getName()), e);
+                    } finally {
+                        lock.waiters--;
+                        removeWait(tx);
+                    }
+                }
+            } finally {
+                if (start != 0)
+                    tx.addLockWaitTime(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Release lock of row held by transaction before it ends.
+     */
+    public void unlock(Transaction tx, Table table, long recordId) {
+        Key key = new Key(table.getId(), recordId);
+        if (tx.removeLock(key))
+            release(key);
+    }
+
+    // internal ==============================================================================
+    /**
+     * Release lock, called when owner ends.
+     */
+    void release(Key key) {
+        Stripe stripe = getStripe(key);
+
+        synchronized (stripe) {
+            Lock lock = stripe.locks.remove(key);
+            lock.released = true;
+
+            if (lock.waiters > 0)
+                stripe.notifyAll();
+        }
+    }
+
+    private Stripe getStripe(Key key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * Add edge of wait-for graph unless path from owner of lock leads back to transaction.
+     * Edges of locks released meanwhile are not followed, their waiters are about to wake up.
+     */
+    private void addWait(Transaction tx, Lock lock, Table table) {
+        synchronized (waits) {
+            Lock next = lock;
+            for (int i = 0; next != null && !next.released && i <= waits.size(); i++) {
+                if (next.owner == tx) {
+                    throw new DeadlockException(String.format(
+                            "deadlock waiting for lock on row of table %s held by transaction %d, "
+                                    + "transaction %d is rolled back", table.getName(), lock.owner.getXid(),
+                            tx.getXid()));
+                }
+
+                next = waits.get(next.owner);
+            }
+
+            waits.put(tx, lock);
+        }
+    }
+
+    private void removeWait(Transaction tx) {
+        synchronized (waits) {
+            waits.remove(tx);
+        }
+    }
+
+    /**
+     * Locked row.
+     */
+    static final class Key {
+        private final int tableId;
+        private final long recordId;
+
+        Key(int tableId, long recordId) {
+            this.tableId = tableId;
+            this.recordId = recordId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+
+            if (!(o instanceof Key))
+                return false;
+
+            Key key = (Key) o;
+            return tableId == key.tableId && recordId == key.recordId;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * tableId + Long.hashCode(recordId);
+        }
+    }
+
+    /**
+     * Lock held by transaction. Guarded by monitor of its stripe, but released flag and owner are read by
+     * deadlock check too.
+     */
+    private static final class Lock {
+        private final Transaction owner;
+
+        /** Number of transactions waiting for lock */
+        private int waiters;
+
+        private volatile boolean released;
+
+        Lock(Transaction owner) {
+            this.owner = owner;
+        }
+    }
+
+    private static final class Stripe {
+        private final Map<Key, Lock> locks = new HashMap<>();
+    }
+}
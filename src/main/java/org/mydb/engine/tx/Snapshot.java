@@ -0,0 +1,65 @@
+package org.mydb.engine.tx;
+
+import java.util.Arrays;
+
+/**
+ * Transactions visible to reader: its own transaction and transactions committed before snapshot was taken.
+ * Row version is visible if its inserting transaction is visible and its deleting transaction is not.
+ * <p>
+ * Transaction is committed before snapshot if its id is below the next id when snapshot was taken
+ * and it was not running then. Transactions rolled back are not visible either, their rows are removed
+ * and their deletes are undone before they end.
+ */
+public class Snapshot {
+    /** Transaction which took snapshot, 0 if none */
+    private final long xid;
+
+    /** Transactions with this or greater id started after snapshot was taken */
+    private final long nextXid;
+
+    /** Other transactions running when snapshot was taken, sorted */
+    private final long[] running;
+
+    /**
+     * @param running ids of other running transactions in any order
+     */
+    public Snapshot(long xid, long nextXid, long[] running) {
+        this.xid = xid;
+        this.nextXid = nextXid;
+        this.running = running.clone();
+        Arrays.sort(this.running);
+    }
+
+    public long getXid() {
+        return xid;
+    }
+
+    /**
+     * @return the lowest transaction id this snapshot may not see
+     */
+    public long getXmin() {
+        return running.length == 0 ? nextXid : Math.min(running[0], nextXid);
+    }
+
+    /**
+     * @return <code>true</code> if changes of transaction are visible, transaction 0 is always visible
+     */
+    public boolean isVisible(long xid) {
+        if (xid == this.xid || xid == 0)
+            return true;
+
+        if (xid >= nextXid)
+            return false;
+
+        return running.length == 0 || xid < running[0] || Arrays.binarySearch(running, xid) < 0;
+    }
+
+    /**
+     * @param xmin inserting transaction of row version
+     * @param xmax deleting transaction of row version, 0 if version is not deleted
+     * @return <code>true</code> if version is visible
+     */
+    public boolean isVisible(long xmin, long xmax) {
+        return isVisible(xmin) && (xmax == 0 || !isVisible(xmax));
+    }
+}
@@ -0,0 +1,323 @@
+package org.mydb.engine.tx;
+
+import org.mydb.engine.log.LogRecord;
+import org.mydb.engine.log.WriteAheadLog;
+import org.mydb.engine.table.Table;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Transaction of session.
+ * Keeps records inserted and deleted by transaction to undo them on rollback.
+ * Reads see rows of snapshot set by session, see {@link Snapshot}.
+ * Rows changed by transaction are locked until it ends, see {@link LockManager}.
+ * <p>
+ * Transaction which fails to commit is rolled back, its commit record may not be durable. If its changes
+ * can't be undone either, i.e. log failed, transaction is failed: its locks are released, but it is never
+ * ended, so its changes stay invisible to other transactions, see {@link #isFailed()}.
+ */
+public class Transaction {
+    /**
+     * Resource completed together with transaction, i.e. store which persists changes on commit.
+     */
+    public interface Participant {
+        /**
+         * Make changes of transaction durable. Called after changes are logged.
+         */
+        void commit(Transaction transaction);
+
+        /**
+         * Forget transaction, called after its changes are undone.
+         */
+        void rollback(Transaction transaction);
+    }
+
+    /** Transaction id */
+    private final long xid;
+
+    /** Log, <code>null</code> if changes are not logged */
+    private final WriteAheadLog log;
+
+    /** LSN of first and last log record of transaction, 0 if nothing logged */
+    private long firstLsn;
+    private long lastLsn;
+
+    /** Changes in order they were made, undone on rollback, kept after commit for purge of deleted rows */
+    private final List<Change> changes = new ArrayList<>();
+
+    /** Snapshot read by current statement, <code>null</code> before the first statement */
+    private volatile Snapshot snapshot;
+
+    /** Resources to complete with transaction */
+    private final List<Participant> participants = new ArrayList<>();
+
+    /** Row locks of database, <code>null</code> if transaction does not lock rows */
+    private final LockManager lockManager;
+
+    /** Row locks held */
+    private final Set<LockManager.Key> locks = new HashSet<>();
+
+    /** Time spent waiting for row locks, nanoseconds */
+    private volatile long lockWaitTime;
+
+    /** Changes are neither committed nor undone */
+    private volatile boolean failed;
+
+    public Transaction(long xid, WriteAheadLog log) {
+        this(xid, log, null);
+    }
+
+    public Transaction(long xid, WriteAheadLog log, LockManager lockManager) {
+        this.xid = xid;
+        this.log = log;
+        this.lockManager = lockManager;
+    }
+
+    public long getXid() {
+        return xid;
+    }
+
+    public WriteAheadLog getLog() {
+        return log;
+    }
+
+    /**
+     * Synchronized with {@link #log}, so checkpoint never misses LSN of record being appended.
+     */
+    public synchronized long getFirstLsn() {
+        return firstLsn;
+    }
+
+    public long getLastLsn() {
+        return lastLsn;
+    }
+
+    /**
+     * Append log record of this transaction.
+     * @return record LSN or 0 if transaction is not logged
+     */
+    public synchronized long log(LogRecord record) {
+        if (log == null)
+            return 0;
+
+        long lsn = log.append(record);
+        if (firstLsn == 0)
+            firstLsn = lsn;
+
+        lastLsn = lsn;
+        return lsn;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(Snapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Lock row until transaction ends, wait while other transaction holds it.
+     * @return <code>false</code> if transaction holds lock already or does not lock rows
+     * @throws LockException if lock is not acquired in time or waiting for it is deadlock
+     */
+    public boolean lock(Table table, long recordId) {
+        return lockManager != null && lockManager.lock(this, table, recordId);
+    }
+
+    /**
+     * Release row lock before transaction ends, i.e. lock of row which turned out to be deleted.
+     */
+    public void unlock(Table table, long recordId) {
+        if (lockManager != null)
+            lockManager.unlock(this, table, recordId);
+    }
+
+    /**
+     * @return <code>true</code> if transaction holds lock of row
+     */
+    public boolean isLocked(Table table, long recordId) {
+        return locks.contains(new LockManager.Key(table.getId(), recordId));
+    }
+
+    /**
+     * @return time spent waiting for row locks, nanoseconds
+     */
+    public long getLockWaitTime() {
+        return lockWaitTime;
+    }
+
+    /**
+     * Remember inserted record to delete it and its index entries on rollback.
+     */
+    public void addInsert(Table table, long recordId) {
+        changes.add(new Change(table, recordId, false));
+    }
+
+    /**
+     * Remember deleted record to clear its deleting transaction on rollback.
+     */
+    public void addDelete(Table table, long recordId) {
+        changes.add(new Change(table, recordId, true));
+    }
+
+    /**
+     * @return number of changes to undo, savepoint for {@link #rollbackTo(int)}
+     */
+    public int getUndoSize() {
+        return changes.size();
+    }
+
+    /**
+     * Undo changes made after savepoint, i.e. changes of failed statement. Transaction keeps running.
+     */
+    public void rollbackTo(int savepoint) {
+        for (int i = changes.size() - 1; i >= savepoint; i--) {
+            Change change = changes.remove(i);
+            if (change.isDelete())
+                change.getTable().undoDelete(this, change.getRecordId());
+            else
+                change.getTable().undoInsert(this, change.getRecordId());
+        }
+    }
+
+    /**
+     * @return changes of transaction in order they were made, empty after rollback
+     */
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Add resource to commit or roll back with transaction, adding it again is ignored.
+     */
+    public void enlist(Participant participant) {
+        for (Participant p : participants) {
+            if (p == participant)
+                return;
+        }
+
+        participants.add(participant);
+    }
+
+    /**
+     * Commit: write commit record and wait until it is durable.
+     */
+    public void commit() {
+        commit(true);
+    }
+
+    /**
+     * Commit: write commit record. Changes are kept for purge of deleted rows.
+     * @param durable wait until commit record is durable, changes which never need undo, i.e. purge,
+     *                do not: transaction without commit record is rolled back on recovery anyway
+     */
+    public void commit(boolean durable) {
+        if (lastLsn != 0) {
+            try {
+                long lsn = log.append(LogRecord.commit(xid));
+                if (durable)
+                    log.flush(lsn);
+            } catch (RuntimeException e) {
+                try {
+                    rollback();
+                } catch (RuntimeException undo) {
+                    e.addSuppressed(undo);
+                }
+
+                throw e;
+            }
+        }
+
+        for (Participant participant : participants)
+            participant.commit(this);
+
+        participants.clear();
+        releaseLocks();
+    }
+
+    /**
+     * Rollback: undo changes in reverse order. Undo is logged, abort record does not need to be durable,
+     * transaction without commit record is rolled back on recovery anyway. Locks are released
+     * even if undo fails, transaction is failed then.
+     */
+    public void rollback() {
+        try {
+            rollbackTo(0);
+        } catch (RuntimeException e) {
+            failed = true;
+            participants.clear();
+            releaseLocks();
+            throw e;
+        }
+
+        try {
+            if (lastLsn != 0)
+                log(LogRecord.abort(xid));
+        } finally {
+            for (Participant participant : participants)
+                participant.rollback(this);
+
+            participants.clear();
+            releaseLocks();
+        }
+    }
+
+    /**
+     * @return <code>true</code> if transaction failed to commit or roll back and its changes were not undone,
+     * it is kept running then, so no snapshot sees them
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    // internal ==============================================================================
+    void addLock(LockManager.Key key) {
+        locks.add(key);
+    }
+
+    boolean removeLock(LockManager.Key key) {
+        return locks.remove(key);
+    }
+
+    void addLockWaitTime(long time) {
+        lockWaitTime += time;
+    }
+
+    private void releaseLocks() {
+        for (LockManager.Key key : locks)
+            lockManager.release(key);
+
+        locks.clear();
+    }
+
+    /**
+     * Record inserted or deleted by transaction.
+     */
+    public static class Change {
+        private final Table table;
+        private final long recordId;
+        private final boolean delete;
+
+        Change(Table table, long recordId, boolean delete) {
+            this.table = table;
+            this.recordId = recordId;
+            this.delete = delete;
+        }
+
+        public Table getTable() {
+            return table;
+        }
+
+        public long getRecordId() {
+            return recordId;
+        }
+
+        public boolean isDelete() {
+            return delete;
+        }
+    }
+}
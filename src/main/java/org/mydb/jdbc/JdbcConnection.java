@@ -1,9 +1,11 @@
 package org.mydb.jdbc;
 
 import org.mydb.DbException;
+import org.mydb.engine.ConnectionInfo;
 import org.mydb.engine.Engine;
 import org.mydb.engine.Session;
 import org.mydb.engine.SessionFactory;
+import org.mydb.engine.tx.IsolationLevel;
 import org.mydb.util.IdGenerator;
 
 import java.sql.*;
@@ -17,7 +19,7 @@ public class JdbcConnection implements Connection {
 
     public JdbcConnection(String url, Properties info) {
         SessionFactory engine = Engine.getInstance();
-        this.session = engine.createSession();
+        this.session = engine.createSession(new ConnectionInfo(url, info));
         this.id = IdGenerator.generate(IdGenerator.Type.CONNECTION);
     }
 
@@ -32,7 +34,11 @@ public class JdbcConnection implements Connection {
 
     @Override
     public PreparedStatement prepareStatement(String sql) throws SQLException {
-        return null;
+        if (session.isClosed()) {
+            throw new DbException("connection is closed");
+        }
+
+        return new JdbcPreparedStatement(this, sql);
     }
 
     @Override
@@ -47,32 +53,32 @@ public class JdbcConnection implements Connection {
 
     @Override
     public void setAutoCommit(boolean autoCommit) throws SQLException {
-
+        session.setAutoCommit(autoCommit);
     }
 
     @Override
     public boolean getAutoCommit() throws SQLException {
-        return false;
+        return session.isAutoCommit();
     }
 
     @Override
     public void commit() throws SQLException {
-
+        session.commit();
     }
 
     @Override
     public void rollback() throws SQLException {
-
+        session.rollback();
     }
 
     @Override
     public void close() throws SQLException {
-
+        session.close();
     }
 
     @Override
     public boolean isClosed() throws SQLException {
-        return false;
+        return session.isClosed();
     }
 
     @Override
@@ -100,14 +106,29 @@ public class JdbcConnection implements Connection {
         return null;
     }
 
+    /**
+     * READ UNCOMMITTED is upgraded to READ COMMITTED, rows of running transactions are never read.
+     * SERIALIZABLE is not supported.
+     */
     @Override
     public void setTransactionIsolation(int level) throws SQLException {
-
+        switch (level) {
+            case TRANSACTION_READ_UNCOMMITTED:
+            case TRANSACTION_READ_COMMITTED:
+                session.setIsolationLevel(IsolationLevel.READ_COMMITTED);
+                break;
+            case TRANSACTION_REPEATABLE_READ:
+                session.setIsolationLevel(IsolationLevel.REPEATABLE_READ);
+                break;
+            default:
+                throw new SQLException(String.format("unsupported transaction isolation level: %d", level));
+        }
     }
 
     @Override
     public int getTransactionIsolation() throws SQLException {
-        return 0;
+        return session.getIsolationLevel() == IsolationLevel.REPEATABLE_READ ? TRANSACTION_REPEATABLE_READ
+                : TRANSACTION_READ_COMMITTED;
     }
 
     @Override
@@ -1,72 +1,106 @@
 package org.mydb.jdbc;
 
+import org.mydb.command.result.Result;
+
 import java.io.InputStream;
 import java.io.Reader;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.net.URL;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.Calendar;
 import java.util.Map;
 
 public class JdbcResultSet implements ResultSet {
+    private final JdbcStatement statement;
+    private final Result result;
+    private Object[] currentRow;
+    private boolean wasNull;
+    private boolean closed;
+
+    public JdbcResultSet(JdbcStatement statement, Result result) {
+        this.statement = statement;
+        this.result = result;
+    }
+
     @Override
     public boolean next() throws SQLException {
-        return false;
+        checkClosed();
+
+        try {
+            // rows are read from table when result set moves to them
+            currentRow = result.next() ? result.currentRow() : null;
+        } catch (RuntimeException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+
+        return currentRow != null;
     }
 
     @Override
     public void close() throws SQLException {
+        if (closed)
+            return;
 
+        closed = true;
+        result.close();
     }
 
     @Override
     public boolean wasNull() throws SQLException {
-        return false;
+        return wasNull;
     }
 
     @Override
     public String getString(int columnIndex) throws SQLException {
-        return null;
+        Object value = getValue(columnIndex);
+        return value == null ? null : value.toString();
     }
 
     @Override
     public boolean getBoolean(int columnIndex) throws SQLException {
-        return false;
+        Object value = getValue(columnIndex);
+        if (value instanceof Number)
+            return ((Number) value).intValue() != 0;
+
+        return value != null && Boolean.parseBoolean(value.toString());
     }
 
     @Override
     public byte getByte(int columnIndex) throws SQLException {
-        return 0;
+        return (byte) getNumber(columnIndex).longValue();
     }
 
     @Override
     public short getShort(int columnIndex) throws SQLException {
-        return 0;
+        return (short) getNumber(columnIndex).longValue();
     }
 
     @Override
     public int getInt(int columnIndex) throws SQLException {
-        return 0;
+        return getNumber(columnIndex).intValue();
     }
 
     @Override
     public long getLong(int columnIndex) throws SQLException {
-        return 0;
+        return getNumber(columnIndex).longValue();
     }
 
     @Override
     public float getFloat(int columnIndex) throws SQLException {
-        return 0;
+        return getNumber(columnIndex).floatValue();
     }
 
     @Override
     public double getDouble(int columnIndex) throws SQLException {
-        return 0;
+        return getNumber(columnIndex).doubleValue();
     }
 
     @Override
     public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
-        return null;
+        BigDecimal value = getBigDecimal(columnIndex);
+        return value == null ? null : value.setScale(scale, RoundingMode.HALF_UP);
     }
 
     @Override
@@ -76,7 +110,15 @@ public class JdbcResultSet implements ResultSet {
 
     @Override
     public Date getDate(int columnIndex) throws SQLException {
-        return null;
+        Object value = getValue(columnIndex);
+        if (value == null || value instanceof Date)
+            return (Date) value;
+
+        try {
+            return Date.valueOf(value.toString());
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(String.format("not a date: %s", value), e);
+        }
     }
 
     @Override
@@ -106,47 +148,47 @@ public class JdbcResultSet implements ResultSet {
 
     @Override
     public String getString(String columnLabel) throws SQLException {
-        return null;
+        return getString(findColumn(columnLabel));
     }
 
     @Override
     public boolean getBoolean(String columnLabel) throws SQLException {
-        return false;
+        return getBoolean(findColumn(columnLabel));
     }
 
     @Override
     public byte getByte(String columnLabel) throws SQLException {
-        return 0;
+        return getByte(findColumn(columnLabel));
     }
 
     @Override
     public short getShort(String columnLabel) throws SQLException {
-        return 0;
+        return getShort(findColumn(columnLabel));
     }
 
     @Override
     public int getInt(String columnLabel) throws SQLException {
-        return 0;
+        return getInt(findColumn(columnLabel));
     }
 
     @Override
     public long getLong(String columnLabel) throws SQLException {
-        return 0;
+        return getLong(findColumn(columnLabel));
     }
 
     @Override
     public float getFloat(String columnLabel) throws SQLException {
-        return 0;
+        return getFloat(findColumn(columnLabel));
     }
 
     @Override
     public double getDouble(String columnLabel) throws SQLException {
-        return 0;
+        return getDouble(findColumn(columnLabel));
     }
 
     @Override
     public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException {
-        return null;
+        return getBigDecimal(findColumn(columnLabel), scale);
     }
 
     @Override
@@ -156,7 +198,7 @@ public class JdbcResultSet implements ResultSet {
 
     @Override
     public Date getDate(String columnLabel) throws SQLException {
-        return null;
+        return getDate(findColumn(columnLabel));
     }
 
     @Override
@@ -206,17 +248,22 @@ public class JdbcResultSet implements ResultSet {
 
     @Override
     public Object getObject(int columnIndex) throws SQLException {
-        return null;
+        return getValue(columnIndex);
     }
 
     @Override
     public Object getObject(String columnLabel) throws SQLException {
-        return null;
+        return getObject(findColumn(columnLabel));
     }
 
     @Override
     public int findColumn(String columnLabel) throws SQLException {
-        return 0;
+        for (int i = 0; i < result.getColumnCount(); i++) {
+            if (result.getColumnName(i).equalsIgnoreCase(columnLabel))
+                return i + 1;
+        }
+
+        throw new SQLException(String.format("column not found: %s", columnLabel));
     }
 
     @Override
@@ -231,12 +278,23 @@ public class JdbcResultSet implements ResultSet {
 
     @Override
     public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
-        return null;
+        Object value = getValue(columnIndex);
+        if (value == null || value instanceof BigDecimal)
+            return (BigDecimal) value;
+
+        if (value instanceof Integer || value instanceof Long)
+            return BigDecimal.valueOf(((Number) value).longValue());
+
+        try {
+            return new BigDecimal(value.toString());
+        } catch (NumberFormatException e) {
+            throw new SQLException(String.format("not a number: %s", value), e);
+        }
     }
 
     @Override
     public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
-        return null;
+        return getBigDecimal(findColumn(columnLabel));
     }
 
     @Override
@@ -571,7 +629,7 @@ public class JdbcResultSet implements ResultSet {
 
     @Override
     public Statement getStatement() throws SQLException {
-        return null;
+        return statement;
     }
 
     @Override
@@ -731,7 +789,7 @@ public class JdbcResultSet implements ResultSet {
 
     @Override
     public boolean isClosed() throws SQLException {
-        return false;
+        return closed;
     }
 
     @Override
@@ -963,4 +1021,44 @@ public class JdbcResultSet implements ResultSet {
     public boolean isWrapperFor(Class<?> iface) throws SQLException {
         return false;
     }
+
+    // Internal =============================================================================
+    private Object getValue(int columnIndex) throws SQLException {
+        checkClosed();
+
+        if (currentRow == null) {
+            throw new SQLException("no current row");
+        }
+
+        if (columnIndex < 1 || columnIndex > currentRow.length) {
+            throw new SQLException(String.format("column index out of range: %d", columnIndex));
+        }
+
+        Object value = currentRow[columnIndex - 1];
+        wasNull = value == null;
+
+        // dates are kept as LocalDate by engine
+        return value instanceof LocalDate ? Date.valueOf((LocalDate) value) : value;
+    }
+
+    private Number getNumber(int columnIndex) throws SQLException {
+        Object value = getValue(columnIndex);
+        if (value == null)
+            return 0;
+
+        if (value instanceof Number)
+            return (Number) value;
+
+        try {
+            return new BigDecimal(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new SQLException(String.format("not a number: %s", value), e);
+        }
+    }
+
+    private void checkClosed() throws SQLException {
+        if (closed) {
+            throw new SQLException("result set is closed");
+        }
+    }
 }
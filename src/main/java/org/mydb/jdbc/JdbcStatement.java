@@ -3,6 +3,7 @@ package org.mydb.jdbc;
 import org.mydb.command.Command;
 import org.mydb.command.ParserException;
 import org.mydb.command.ParserFactory;
+import org.mydb.command.result.Result;
 import org.mydb.util.IdGenerator;
 import org.mydb.util.cache.Cache;
 import org.mydb.util.cache.LRUCache;
@@ -18,6 +19,12 @@ public class JdbcStatement implements Statement {
     private final JdbcConnection connection;
     private Cache<String, Command> commandCache = new LRUCache<>(100);
     private ParserFactory parserFactory;
+    private JdbcResultSet resultSet;
+    private int updateCount = -1;
+    private boolean closed;
+
+    /** Max number of rows of result set, 0 for no limit */
+    private int maxRows;
 
     public JdbcStatement(JdbcConnection connection) {
         this.id = IdGenerator.generate(IdGenerator.Type.STATEMENT);
@@ -27,25 +34,32 @@ public class JdbcStatement implements Statement {
 
     @Override
     public ResultSet executeQuery(String sql) throws SQLException {
-        parserFactory.setSql(sql);
+        Command command = prepare(sql);
 
-        try {
-            Command command = commandCache.putIfAbsent(sql, () -> parserFactory.getObject().command());
-        } catch (ParserException e) {
-            throw new SQLException(e);
+        if (!command.isQuery()) {
+            throw new SQLException(String.format("not a query: %s", sql));
         }
 
-        return null;
+        execute(command);
+        return resultSet;
     }
 
     @Override
     public int executeUpdate(String sql) throws SQLException {
-        return 0;
+        Command command = prepare(sql);
+
+        if (command.isQuery()) {
+            throw new SQLException(String.format("query is not allowed: %s", sql));
+        }
+
+        execute(command);
+        return updateCount;
     }
 
     @Override
     public void close() throws SQLException {
-
+        closeResultSet();
+        closed = true;
     }
 
     @Override
@@ -60,12 +74,16 @@ public class JdbcStatement implements Statement {
 
     @Override
     public int getMaxRows() throws SQLException {
-        return 0;
+        return maxRows;
     }
 
     @Override
     public void setMaxRows(int max) throws SQLException {
+        if (max < 0) {
+            throw new SQLException(String.format("invalid max rows: %d", max));
+        }
 
+        maxRows = max;
     }
 
     @Override
@@ -105,17 +123,17 @@ public class JdbcStatement implements Statement {
 
     @Override
     public boolean execute(String sql) throws SQLException {
-        return false;
+        return execute(prepare(sql));
     }
 
     @Override
     public ResultSet getResultSet() throws SQLException {
-        return null;
+        return resultSet;
     }
 
     @Override
     public int getUpdateCount() throws SQLException {
-        return 0;
+        return updateCount;
     }
 
     @Override
@@ -170,7 +188,7 @@ public class JdbcStatement implements Statement {
 
     @Override
     public Connection getConnection() throws SQLException {
-        return null;
+        return connection;
     }
 
     @Override
@@ -220,7 +238,7 @@ public class JdbcStatement implements Statement {
 
     @Override
     public boolean isClosed() throws SQLException {
-        return false;
+        return closed;
     }
 
     @Override
@@ -252,4 +270,46 @@ public class JdbcStatement implements Statement {
     public boolean isWrapperFor(Class<?> iface) throws SQLException {
         return false;
     }
+
+    // Internal =============================================================================
+    Command prepare(String sql) throws SQLException {
+        if (closed) {
+            throw new SQLException("statement is closed");
+        }
+
+        parserFactory.setSql(sql);
+
+        try {
+            return commandCache.putIfAbsent(sql, () -> parserFactory.getObject().command());
+        } catch (ParserException e) {
+            throw new SQLException(e);
+        } catch (RuntimeException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    boolean execute(Command command) throws SQLException {
+        closeResultSet();
+
+        try {
+            if (command.isQuery()) {
+                Result result = command.executeQuery(maxRows);
+                resultSet = new JdbcResultSet(this, result);
+                updateCount = -1;
+                return true;
+            }
+
+            updateCount = command.executeUpdate();
+            return false;
+        } catch (RuntimeException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    private void closeResultSet() throws SQLException {
+        if (resultSet != null) {
+            resultSet.close();
+            resultSet = null;
+        }
+    }
 }
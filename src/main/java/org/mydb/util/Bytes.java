@@ -0,0 +1,68 @@
+package org.mydb.util;
+
+/**
+ * Byte array utilities for keys compared as unsigned bytes.
+ */
+public final class Bytes {
+    private Bytes() {}
+
+    /**
+     * Compare arrays as unsigned bytes, shorter array is less if it is prefix of longer one.
+     */
+    public static int compare(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int result = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (result != 0)
+                return result;
+        }
+
+        return a.length - b.length;
+    }
+
+    /**
+     * Compare arrays, array starting with bound is equal to it.
+     */
+    public static int compareToBound(byte[] key, byte[] bound) {
+        int length = Math.min(key.length, bound.length);
+        for (int i = 0; i < length; i++) {
+            int result = (key[i] & 0xFF) - (bound[i] & 0xFF);
+            if (result != 0)
+                return result;
+        }
+
+        return key.length < bound.length ? -1 : 0;
+    }
+
+    /**
+     * Encode long so unsigned byte order matches numeric order.
+     */
+    public static byte[] fromLong(long value) {
+        byte[] result = new byte[8];
+        writeLong(result, 0, value);
+        return result;
+    }
+
+    public static long toLong(byte[] key) {
+        return readLong(key, 0);
+    }
+
+    /**
+     * Write long with flipped sign bit, so unsigned byte order matches numeric order.
+     */
+    public static void writeLong(byte[] array, int offset, long value) {
+        long flipped = value ^ Long.MIN_VALUE;
+        for (int i = 7; i >= 0; i--) {
+            array[offset + i] = (byte) flipped;
+            flipped >>>= 8;
+        }
+    }
+
+    public static long readLong(byte[] array, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++)
+            value = (value << 8) | (array[offset + i] & 0xFF);
+
+        return value ^ Long.MIN_VALUE;
+    }
+}
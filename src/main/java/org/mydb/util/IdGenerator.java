@@ -19,4 +19,18 @@ public final class IdGenerator {
     public static long generate(Type type) {
         return generator.getAndIncrement(type.ordinal());
     }
+
+    /**
+     * @return id generated next, ids generated before are lower
+     */
+    public static long peek(Type type) {
+        return generator.get(type.ordinal());
+    }
+
+    /**
+     * Make sure ids generated later are greater than given one, i.e. ids restored from disk.
+     */
+    public static void advance(Type type, long id) {
+        generator.accumulateAndGet(type.ordinal(), id + 1, Math::max);
+    }
 }
@@ -76,16 +76,20 @@ public class LRUCache<K, V> implements Cache<K,V> {
         if (cache.size() <= maxNumItems)
             return;
 
-        // remove from cache and release pool object for reuse
-        cache.remove(tail.key);
-        cacheNodePool.release(tail, node -> node.clear());
-
-        CacheNode<K, V> prev = tail.prev;
+        CacheNode<K, V> removed = tail;
+        CacheNode<K, V> prev = removed.prev;
 
         if (prev != null)
             prev.next = null;
 
         tail = prev;
+
+        if (head == removed)
+            head = null;
+
+        // remove from cache and release pool object for reuse
+        cache.remove(removed.key);
+        cacheNodePool.release(removed, node -> node.clear());
     }
 
     private void moveToHead(CacheNode<K, V> node) {
@@ -101,6 +105,9 @@ public class LRUCache<K, V> implements Cache<K,V> {
         if (next != null)
             next.prev = prev;
 
+        if (tail == node && prev != null)
+            tail = prev;
+
         node.prev = null;
         node.next = head;
 
@@ -2,14 +2,21 @@ package org.mydb.command;
 
 import org.junit.Test;
 import org.mydb.command.ddl.CreateTableCommand;
+import org.mydb.command.dml.DeleteOperation;
+import org.mydb.engine.ConnectionInfo;
+import org.mydb.engine.Database;
 import org.mydb.engine.SessionImpl;
 import org.mydb.engine.table.Column;
 import org.mydb.engine.table.Table;
 import org.mydb.engine.table.datatype.Number;
 import org.mydb.engine.table.datatype.Varchar;
 
+import java.util.Properties;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class ParserTest {
 
@@ -41,4 +48,44 @@ public class ParserTest {
         assertEquals(Varchar.class, column2.getDataType().getClass());
         assertEquals(20, column2.getPrecision());
     }
+
+    @Test
+    public void parse_create_table_primaryKey() {
+        Parser parser = new Parser(new SessionImpl(), new Lexer("CREATE TABLE T (NAME VARCHAR, ID NUMBER PRIMARY KEY)"));
+        Table table = ((CreateTableCommand) parser.parse()).getTable();
+
+        assertEquals(1, table.getPrimaryKey());
+
+        parser = new Parser(new SessionImpl(), new Lexer("CREATE TABLE T (NAME VARCHAR, ID NUMBER, PRIMARY KEY (NAME))"));
+        table = ((CreateTableCommand) parser.parse()).getTable();
+
+        assertEquals(0, table.getPrimaryKey());
+    }
+
+    @Test
+    public void parse_trailingTokens() {
+        Database database = new Database(new ConnectionInfo("jdbc:mdb:mem:parse_trailingTokens", new Properties()));
+        try {
+            SessionImpl session = new SessionImpl(database);
+            new Parser(session, new Lexer("CREATE TABLE T (ID NUMBER, PRICE NUMBER)")).command().executeUpdate();
+
+            assertTrue(new Parser(session, new Lexer("DELETE FROM T WHERE ID = 1;")).parse() instanceof DeleteOperation);
+
+            assertRejected(session, "DELETE FROM T WHRE ID = 1");
+            assertRejected(session, "UPDATE T SET PRICE = PRICE + 1 WHERE ID = 1");
+            assertRejected(session, "SELECT ID FROM T WHERE ID = 1 ORDR BY ID");
+            assertRejected(session, "SELECT ID FROM T; SELECT PRICE FROM T");
+        } finally {
+            database.close();
+        }
+    }
+
+    private static void assertRejected(SessionImpl session, String sql) {
+        try {
+            new Parser(session, new Lexer(sql)).parse();
+            fail("trailing tokens should be rejected: " + sql);
+        } catch (ParserException e) {
+            // expected
+        }
+    }
 }
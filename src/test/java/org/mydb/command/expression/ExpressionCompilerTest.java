@@ -0,0 +1,188 @@
+package org.mydb.command.expression;
+
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mydb.engine.table.Column;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.Table;
+import org.mydb.engine.table.datatype.DataType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ExpressionCompilerTest {
+    private final Table table = newTable();
+    private final List<Row> rows = newRows();
+
+    @Test
+    public void compile_sameResult() {
+        Expression[] conditions = {
+                comparison(ComparisonExpression.Type.MORE, column("PRICE"), value("10")),
+                comparison(ComparisonExpression.Type.MORE, value(10), column("PRICE")),
+                comparison(ComparisonExpression.Type.NOT_EQUALS, column("PRICE"), value(3)),
+                and(new BetweenExpression(column("PRICE"), value(5), value("6.5")),
+                        comparison(ComparisonExpression.Type.EQUALS, column("NAME"), value("n3"))),
+                or(comparison(ComparisonExpression.Type.EQUALS, column("PRICE"), value("20.05")),
+                        comparison(ComparisonExpression.Type.LESS_EQUALS, column("ID"), value(5))),
+                or(comparison(ComparisonExpression.Type.MORE_EQUALS, column("PRICE"), value(null)),
+                        comparison(ComparisonExpression.Type.LESS, column("ID"), value(3))),
+                // no exact long, compared by value
+                comparison(ComparisonExpression.Type.EQUALS, column("PRICE"), value("1.234"))};
+
+        for (Expression condition : conditions) {
+            condition.bind(table);
+            CompiledCondition compiled = new CompiledCondition(condition);
+
+            Assert.assertTrue(condition.getName(), compiled.compile());
+            for (Row row : rows)
+                Assert.assertThat(condition.getName(), compiled.getValue(row), Matchers.equalTo(condition.getValue(row)));
+        }
+    }
+
+    @Test
+    public void compile_parameter() {
+        ParameterExpression parameter = new ParameterExpression(1);
+        Expression condition = comparison(ComparisonExpression.Type.LESS, column("PRICE"), parameter);
+        condition.bind(table);
+
+        CompiledCondition compiled = new CompiledCondition(condition);
+        Assert.assertTrue(compiled.compile());
+
+        for (Object value : new Object[] {10, "2.5", null, new BigDecimal("0.001")}) {
+            parameter.setValue(value);
+            for (Row row : rows)
+                Assert.assertThat(String.valueOf(value), compiled.getValue(row), Matchers.equalTo(condition.getValue(row)));
+        }
+    }
+
+    @Test
+    public void compile_notCompiled() {
+        Expression condition = comparison(ComparisonExpression.Type.EQUALS, column("NAME"), value("n1"));
+        condition.bind(table);
+
+        CompiledCondition compiled = new CompiledCondition(condition);
+        Assert.assertFalse(compiled.compile());
+        Assert.assertThat(compiled.getValue(rows.get(1)), Matchers.equalTo(true));
+    }
+
+    @Test
+    public void getValue_compiledWhenHot() throws InterruptedException {
+        Expression condition = or(comparison(ComparisonExpression.Type.LESS_EQUALS, column("ID"), value(-1)),
+                comparison(ComparisonExpression.Type.EQUALS, column("NAME"), value("hot")));
+        condition.bind(table);
+
+        CompiledCondition compiled = new CompiledCondition(condition);
+        for (int i = 0; i < CompiledCondition.COMPILE_THRESHOLD - 1; i++)
+            compiled.getValue(rows.get(i % rows.size()));
+
+        Assert.assertFalse(compiled.isCompiled());
+
+        // compiled by background thread, rows are interpreted meanwhile
+        long deadline = System.currentTimeMillis() + 30000;
+        while (!compiled.isCompiled() && System.currentTimeMillis() < deadline) {
+            Assert.assertThat(compiled.getValue(rows.get(0)), Matchers.equalTo(false));
+            Thread.sleep(10);
+        }
+
+        Assert.assertTrue(compiled.isCompiled());
+    }
+
+    @Test
+    public void getValue_sameShapeShared() {
+        Expression first = comparison(ComparisonExpression.Type.MORE_EQUALS, column("PRICE"), value(7));
+        first.bind(table);
+        Assert.assertTrue(new CompiledCondition(first).compile());
+
+        // other constant, class of the first condition is taken on the first row
+        Expression second = comparison(ComparisonExpression.Type.MORE_EQUALS, column("PRICE"), value("2.5"));
+        second.bind(table);
+
+        CompiledCondition compiled = new CompiledCondition(second);
+        for (Row row : rows)
+            Assert.assertThat(compiled.getValue(row), Matchers.equalTo(second.getValue(row)));
+
+        Assert.assertTrue(compiled.isCompiled());
+    }
+
+    @Test
+    public void getValue_threads() throws Exception {
+        Expression condition = and(new BetweenExpression(column("PRICE"), value(2), value("20.5")),
+                comparison(ComparisonExpression.Type.NOT_EQUALS, column("ID"), value(77)));
+        condition.bind(table);
+
+        List<Object> expected = new ArrayList<>();
+        for (Row row : rows)
+            expected.add(condition.getValue(row));
+
+        // threads of morsels share condition while it is counted, compiled and evaluated
+        CompiledCondition compiled = new CompiledCondition(condition);
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                results.add(threads.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        for (int j = 0; j < rows.size(); j++)
+                            Assert.assertThat(compiled.getValue(rows.get(j)), Matchers.equalTo(expected.get(j)));
+                    }
+                }));
+            }
+
+            for (Future<?> result : results)
+                result.get();
+        } finally {
+            threads.shutdown();
+        }
+
+        Assert.assertTrue(compiled.compile());
+        Assert.assertThat(compiled.getValue(rows.get(30)), Matchers.equalTo(expected.get(30)));
+    }
+
+    // internal ==============================================================================
+    private static Table newTable() {
+        Table table = new Table();
+        table.setName("T");
+        table.addColumn(new Column("ID", DataType.getDataType("number")));
+        table.addColumn(new Column.ColumnBuilder().setName("PRICE").setDataType(DataType.getDataType("number"))
+                .setPrecision(6).setScale(2).build());
+        table.addColumn(new Column("NAME", DataType.getDataType("varchar")));
+        return table;
+    }
+
+    private List<Row> newRows() {
+        List<Row> rows = new ArrayList<>();
+        Column price = table.getColumns().get(1);
+
+        for (int i = 0; i < 300; i++) {
+            Object priceValue = i % 7 == 0 ? null : price.getDataType().convert(BigDecimal.valueOf(i, 1), price);
+            rows.add(new Row(i, new Object[] {new BigDecimal(i), priceValue, "n" + i % 10}));
+        }
+
+        return rows;
+    }
+
+    private static Expression column(String name) {
+        return new ColumnExpression(name);
+    }
+
+    private static Expression value(Object value) {
+        return new ValueExpression(value);
+    }
+
+    private static Expression comparison(ComparisonExpression.Type type, Expression left, Expression right) {
+        return new ComparisonExpression(type, left, right);
+    }
+
+    private static Expression and(Expression left, Expression right) {
+        return new LogicalExpression(LogicalExpression.Type.AND, left, right);
+    }
+
+    private static Expression or(Expression left, Expression right) {
+        return new LogicalExpression(LogicalExpression.Type.OR, left, right);
+    }
+}
@@ -0,0 +1,212 @@
+package org.mydb.command.operator;
+
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mydb.command.expression.AggregateExpression;
+import org.mydb.engine.table.Record;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.Table;
+import org.mydb.engine.table.datatype.NumberSum;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.mydb.command.operator.OperatorFixtures.countSpillFiles;
+import static org.mydb.command.operator.OperatorFixtures.newRows;
+import static org.mydb.command.operator.OperatorFixtures.newTable;
+import static org.mydb.command.operator.OperatorFixtures.readSorted;
+
+public class HashAggregateOperatorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Table table = newTable();
+    private final List<Row> rows = newRows(5000, 1000, 7);
+
+    private final List<AggregateExpression> aggregates = Arrays.asList(
+            aggregate(AggregateExpression.Type.COUNT, null),
+            aggregate(AggregateExpression.Type.COUNT, "PRICE"),
+            aggregate(AggregateExpression.Type.SUM, "PRICE"),
+            aggregate(AggregateExpression.Type.MIN, "PRICE"),
+            aggregate(AggregateExpression.Type.MAX, "NAME"),
+            aggregate(AggregateExpression.Type.AVG, "PRICE"));
+
+    @Test
+    public void next_inMemory() {
+        QueryMemory memory = new QueryMemory(1L << 24);
+
+        Assert.assertThat(aggregate(new int[] {0}, memory), Matchers.equalTo(expected(0)));
+        Assert.assertThat(aggregate(new int[] {1, 0}, memory), Matchers.equalTo(expected(1, 0)));
+        Assert.assertThat(memory.getUsed(), Matchers.equalTo(0L));
+        Assert.assertThat(memory.getPeak(), Matchers.greaterThan(0L));
+    }
+
+    @Test
+    public void next_spill() {
+        QueryMemory memory = new QueryMemory(4096, folder.getRoot());
+
+        // groups do not fit into memory, rows of other groups are written to files and aggregated later
+        Assert.assertThat(aggregate(new int[] {1, 0}, memory), Matchers.equalTo(expected(1, 0)));
+        Assert.assertThat(aggregate(new int[] {2}, memory), Matchers.equalTo(expected(2)));
+        Assert.assertThat(countSpillFiles(folder.getRoot()), Matchers.equalTo(0));
+        Assert.assertThat(memory.getUsed(), Matchers.equalTo(0L));
+    }
+
+    @Test
+    public void next_batches() {
+        QueryMemory memory = new QueryMemory(1L << 24);
+
+        Assert.assertThat(aggregateBatches(new int[] {0}, memory), Matchers.equalTo(expected(0)));
+        Assert.assertThat(aggregateBatches(new int[] {1, 0}, memory), Matchers.equalTo(expected(1, 0)));
+        Assert.assertThat(aggregateBatches(new int[0], memory), Matchers.equalTo(expected()));
+
+        // rows of groups which do not fit into memory are written to files from batches
+        Assert.assertThat(aggregateBatches(new int[] {1, 0}, new QueryMemory(4096, folder.getRoot())),
+                Matchers.equalTo(expected(1, 0)));
+        Assert.assertThat(memory.getUsed(), Matchers.equalTo(0L));
+    }
+
+    @Test
+    public void next_sumOverflow() {
+        // sums of groups exceed long, they are summed as BigDecimal then
+        List<Row> large = new ArrayList<>();
+        for (int i = 0; i < 300; i++)
+            large.add(new Row(i, new Object[] {BigDecimal.valueOf(Long.MAX_VALUE - i), "name" + i % 3, null}));
+
+        List<AggregateExpression> sums = Arrays.asList(aggregate(AggregateExpression.Type.SUM, "KEY"),
+                aggregate(AggregateExpression.Type.AVG, "KEY"));
+
+        List<String> expected = new ArrayList<>();
+        for (int group = 0; group < 3; group++) {
+            BigDecimal sum = BigDecimal.ZERO;
+            for (int i = group; i < 300; i += 3)
+                sum = sum.add(BigDecimal.valueOf(Long.MAX_VALUE - i));
+
+            expected.add(Arrays.toString(new Object[] {null, "name" + group, null, sum,
+                    sum.divide(BigDecimal.valueOf(100), NumberSum.AVERAGE_SCALE, RoundingMode.HALF_UP)}));
+        }
+
+        int[] groupColumns = {1};
+        QueryMemory memory = new QueryMemory(1L << 24);
+
+        Assert.assertThat(readSorted(new HashAggregateOperator(new ScanOperator(large::iterator), table.getColumns(),
+                groupColumns, sums, memory)), Matchers.equalTo(expected));
+
+        // threads sum halves of rows, partial sums are merged
+        Assert.assertThat(readSorted(new ParallelAggregateOperator(2,
+                morsel -> new ScanOperator(large.subList(morsel * 150, morsel * 150 + 150)::iterator),
+                ForkJoinPool.commonPool(), 2, table.getColumns(), groupColumns, sums, memory)),
+                Matchers.equalTo(expected));
+    }
+
+    @Test
+    public void next_noGroup() {
+        List<String> expected = Collections.singletonList("[0, 0, null, null, null, null]");
+
+        try (Operator operator = new HashAggregateOperator(new ScanOperator(Collections::emptyIterator),
+                table.getColumns(), new int[0], aggregates, new QueryMemory(1024, folder.getRoot()))) {
+            operator.open();
+
+            List<String> aggregated = new ArrayList<>();
+            Row row;
+            while ((row = operator.next()) != null)
+                aggregated.add(Arrays.toString(Arrays.copyOfRange(row.getValues(), 3, row.getValues().length)));
+
+            Assert.assertThat(aggregated, Matchers.equalTo(expected));
+        }
+
+        Assert.assertThat(aggregate(new int[0], new QueryMemory(1024, folder.getRoot())), Matchers.equalTo(expected()));
+    }
+
+    // internal ==============================================================================
+    private AggregateExpression aggregate(AggregateExpression.Type type, String column) {
+        return OperatorFixtures.aggregate(table, type, column);
+    }
+
+    /**
+     * @return aggregated rows sorted by group
+     */
+    private List<String> aggregate(int[] groupColumns, QueryMemory memory) {
+        return readSorted(new HashAggregateOperator(new ScanOperator(rows::iterator), table.getColumns(), groupColumns,
+                aggregates, memory));
+    }
+
+    /**
+     * @return rows aggregated from batches of records, sorted by group
+     */
+    private List<String> aggregateBatches(int[] groupColumns, QueryMemory memory) {
+        List<Record> records = new ArrayList<>();
+        for (Row row : rows)
+            records.add(new Record(row.getKey(), table.getCodec().encode(row.getValues())));
+
+        BitSet read = new BitSet();
+        read.set(0, table.getColumns().size());
+
+        return readSorted(new HashAggregateOperator(new BatchScanOperator(records::iterator, table.getCodec(),
+                table.getColumns(), read), table.getColumns(), groupColumns, aggregates, memory));
+    }
+
+    /**
+     * @return rows aggregated in map by group values, sorted by group
+     */
+    private List<String> expected(int... groupColumns) {
+        Map<String, List<Row>> groups = new TreeMap<>();
+        for (Row row : rows) {
+            Object[] values = new Object[3];
+            for (int column : groupColumns)
+                values[column] = row.getValue(column);
+
+            groups.computeIfAbsent(Arrays.toString(values), key -> new ArrayList<>()).add(row);
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (List<Row> group : groups.values()) {
+            Object[] values = new Object[3 + aggregates.size()];
+            for (int column : groupColumns)
+                values[column] = group.get(0).getValue(column);
+
+            BigDecimal sum = null;
+            BigDecimal min = null;
+            String max = null;
+            long count = 0;
+
+            for (Row row : group) {
+                BigDecimal price = (BigDecimal) row.getValue(2);
+                String name = (String) row.getValue(1);
+
+                if (price != null) {
+                    count++;
+                    sum = sum == null ? price : sum.add(price);
+                    min = min == null || price.compareTo(min) < 0 ? price : min;
+                }
+
+                if (name != null && (max == null || name.compareTo(max) > 0))
+                    max = name;
+            }
+
+            values[3] = new BigDecimal(group.size());
+            values[4] = new BigDecimal(count);
+            values[5] = sum;
+            values[6] = min;
+            values[7] = max;
+            values[8] = sum == null ? null : sum.divide(new BigDecimal(count), 2 + NumberSum.AVERAGE_SCALE,
+                    RoundingMode.HALF_UP);
+
+            expected.add(Arrays.toString(values));
+        }
+
+        Collections.sort(expected);
+        return expected;
+    }
+}
@@ -0,0 +1,85 @@
+package org.mydb.command.operator;
+
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.Table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mydb.command.operator.OperatorFixtures.countSpillFiles;
+import static org.mydb.command.operator.OperatorFixtures.newRows;
+import static org.mydb.command.operator.OperatorFixtures.newTable;
+import static org.mydb.command.operator.OperatorFixtures.readSorted;
+
+public class HashJoinOperatorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Table table = newTable();
+
+    @Test
+    public void next_inMemory() {
+        List<Row> left = newRows(100, 10, 10);
+        List<Row> right = newRows(30, 3, 3);
+
+        Assert.assertThat(join(left, 0, right, 0, 1L << 20), Matchers.equalTo(nestedLoopJoin(left, 0, right, 0)));
+        Assert.assertThat(join(left, 1, right, 1, 1L << 20), Matchers.equalTo(nestedLoopJoin(left, 1, right, 1)));
+    }
+
+    @Test
+    public void next_spill() {
+        List<Row> left = newRows(3000, 1000, 1000);
+        List<Row> right = newRows(2000, 700, 700);
+
+        List<String> expected = nestedLoopJoin(left, 0, right, 0);
+        Assert.assertThat(expected.size(), Matchers.greaterThan(2000));
+
+        // both inputs exceed memory, partitions are written to files and partitioned again
+        Assert.assertThat(join(left, 0, right, 0, 4096), Matchers.equalTo(expected));
+        Assert.assertThat(countSpillFiles(folder.getRoot()), Matchers.equalTo(0));
+        Assert.assertThat(join(right, 0, left, 0, 4096), Matchers.equalTo(nestedLoopJoin(right, 0, left, 0)));
+        Assert.assertThat(join(left, 1, right, 1, 4096), Matchers.equalTo(nestedLoopJoin(left, 1, right, 1)));
+    }
+
+    @Test
+    public void next_sameKey() {
+        List<Row> left = newRows(500, 1, 1);
+        List<Row> right = newRows(400, 1, 1);
+
+        // rows with one key do not fit into memory, they are joined in memory at the last partitioning level
+        Assert.assertThat(join(left, 0, right, 0, 1024).size(), Matchers.equalTo(461 * 369));
+    }
+
+    // internal ==============================================================================
+    private List<String> join(List<Row> left, int leftKey, List<Row> right, int rightKey, long memory) {
+        return readSorted(new HashJoinOperator(new ScanOperator(left::iterator), table.getColumns(), leftKey,
+                new ScanOperator(right::iterator), table.getColumns(), rightKey,
+                new QueryMemory(memory, folder.getRoot())));
+    }
+
+    private static List<String> nestedLoopJoin(List<Row> left, int leftKey, List<Row> right, int rightKey) {
+        List<String> joined = new ArrayList<>();
+
+        for (Row leftRow : left) {
+            for (Row rightRow : right) {
+                Object leftValue = leftRow.getValue(leftKey);
+                if (leftValue != null && leftValue.equals(rightRow.getValue(rightKey))) {
+                    Object[] values = new Object[6];
+                    System.arraycopy(leftRow.getValues(), 0, values, 0, 3);
+                    System.arraycopy(rightRow.getValues(), 0, values, 3, 3);
+                    joined.add(Arrays.toString(values));
+                }
+            }
+        }
+
+        Collections.sort(joined);
+        return joined;
+    }
+}
@@ -0,0 +1,85 @@
+package org.mydb.command.operator;
+
+import org.mydb.command.expression.AggregateExpression;
+import org.mydb.command.expression.ColumnExpression;
+import org.mydb.engine.table.Column;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.Table;
+import org.mydb.engine.table.datatype.DataType;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Table, rows and helpers shared by operator tests.
+ */
+final class OperatorFixtures {
+    private OperatorFixtures() {
+    }
+
+    /**
+     * @return table with columns KEY, NAME and PRICE
+     */
+    static Table newTable() {
+        Table table = new Table();
+        table.setName("T");
+        table.addColumn(new Column("KEY", DataType.getDataType("number")));
+        table.addColumn(new Column("NAME", DataType.getDataType("varchar")));
+        table.addColumn(new Column.ColumnBuilder().setName("PRICE").setDataType(DataType.getDataType("number"))
+                .setPrecision(8).setScale(2).build());
+        return table;
+    }
+
+    /**
+     * @return rows of {@link #newTable()} with given number of keys and names and prices,
+     *         NULL for every 13th key, every 11th name and every 5th price
+     */
+    static List<Row> newRows(int count, int keys, int names) {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Object key = i % 13 == 0 ? null : new BigDecimal((i * 37) % keys);
+            Object name = i % 11 == 0 ? null : "name" + i % names;
+            Object price = i % 5 == 0 ? null : BigDecimal.valueOf((i * 7919) % 10000 - 5000, 2);
+            rows.add(new Row(i, new Object[] {key, name, price}));
+        }
+
+        return rows;
+    }
+
+    static AggregateExpression aggregate(Table table, AggregateExpression.Type type, String column) {
+        AggregateExpression aggregate = new AggregateExpression(type, column == null ? null : new ColumnExpression(column));
+        aggregate.bind(table);
+        return aggregate;
+    }
+
+    /**
+     * Read all rows of operator and close it.
+     * @return values of rows, sorted
+     */
+    static List<String> readSorted(Operator operator) {
+        List<String> read = new ArrayList<>();
+
+        try (Operator input = operator) {
+            input.open();
+
+            Row row;
+            while ((row = input.next()) != null)
+                read.add(Arrays.toString(row.getValues()));
+        }
+
+        Collections.sort(read);
+        return read;
+    }
+
+    /**
+     * @return number of temporary files of operators in directory
+     */
+    static int countSpillFiles(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".spill"));
+        return files == null ? 0 : files.length;
+    }
+}
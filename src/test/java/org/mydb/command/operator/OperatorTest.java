@@ -0,0 +1,102 @@
+package org.mydb.command.operator;
+
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mydb.command.expression.ComparisonExpression;
+import org.mydb.command.expression.Expression;
+import org.mydb.command.expression.ValueExpression;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.datatype.DataType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public class OperatorTest {
+    @Test
+    public void next_pipeline() {
+        CountingRows rows = new CountingRows(1000);
+        Expression condition = new ComparisonExpression(ComparisonExpression.Type.MORE_EQUALS,
+                new FirstValue(), new ValueExpression(new BigDecimal(10)));
+
+        Operator operator = new LimitOperator(new ProjectOperator(new FilterOperator(new ScanOperator(() -> rows),
+                condition), Arrays.asList(new FirstValue(), new ValueExpression("a"))), 3);
+
+        Assert.assertThat(rows.read, Matchers.equalTo(0));
+        operator.open();
+
+        List<Object> values = new ArrayList<>();
+        Row row;
+        while ((row = operator.next()) != null) {
+            values.add(row.getValue(0));
+            Assert.assertThat(row.getValue(1), Matchers.equalTo("a"));
+        }
+
+        operator.close();
+
+        Assert.assertThat(values, Matchers.contains(new BigDecimal(10), new BigDecimal(11), new BigDecimal(12)));
+        // rows after the last one passed are not read
+        Assert.assertThat(rows.read, Matchers.equalTo(13));
+    }
+
+    @Test
+    public void next_offset() {
+        CountingRows rows = new CountingRows(1000);
+        Operator operator = new LimitOperator(new ScanOperator(() -> rows), 5, 2);
+        operator.open();
+
+        List<Object> values = new ArrayList<>();
+        Row row;
+        while ((row = operator.next()) != null)
+            values.add(row.getValue(0));
+
+        operator.close();
+
+        Assert.assertThat(values, Matchers.contains(new BigDecimal(5), new BigDecimal(6)));
+        Assert.assertThat(rows.read, Matchers.equalTo(7));
+    }
+
+    // internal ==============================================================================
+    private static class CountingRows implements Iterator<Row> {
+        private final int count;
+        private int read;
+
+        CountingRows(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return read < count;
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            return new Row(read, new Object[] {new BigDecimal(read++)});
+        }
+    }
+
+    private static class FirstValue extends Expression {
+        @Override
+        public Object getValue(Row row) {
+            return row.getValue(0);
+        }
+
+        @Override
+        public DataType getDataType() {
+            return null;
+        }
+
+        @Override
+        public String getName() {
+            return "V";
+        }
+    }
+}
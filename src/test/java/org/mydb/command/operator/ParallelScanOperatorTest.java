@@ -0,0 +1,101 @@
+package org.mydb.command.operator;
+
+import org.hamcrest.Matchers;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mydb.command.expression.AggregateExpression;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.Table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.mydb.command.operator.OperatorFixtures.countSpillFiles;
+import static org.mydb.command.operator.OperatorFixtures.newRows;
+import static org.mydb.command.operator.OperatorFixtures.newTable;
+import static org.mydb.command.operator.OperatorFixtures.readSorted;
+
+public class ParallelScanOperatorTest {
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    /** Rows of one morsel */
+    private static final int MORSEL_ROWS = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Table table = newTable();
+    private final List<Row> rows = newRows(5050, 500, 9);
+    private final int morselCount = (rows.size() + MORSEL_ROWS - 1) / MORSEL_ROWS;
+
+    @AfterClass
+    public static void shutdown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void next_morselOrder() {
+        for (int parallelism : new int[] {1, 2, 4}) {
+            List<Row> read = new ArrayList<>();
+
+            try (Operator operator = new ParallelScanOperator(morselCount, this::newMorsel, POOL, parallelism)) {
+                operator.open();
+
+                Row row;
+                while ((row = operator.next()) != null)
+                    read.add(row);
+            }
+
+            Assert.assertThat(read, Matchers.equalTo(rows));
+        }
+
+        // morsels read ahead are dropped
+        try (Operator operator = new ParallelScanOperator(morselCount, this::newMorsel, POOL, 4)) {
+            operator.open();
+            Assert.assertThat(operator.next(), Matchers.sameInstance(rows.get(0)));
+        }
+    }
+
+    @Test
+    public void next_aggregate() {
+        List<AggregateExpression> aggregates = Arrays.asList(
+                aggregate(AggregateExpression.Type.COUNT, null),
+                aggregate(AggregateExpression.Type.SUM, "PRICE"),
+                aggregate(AggregateExpression.Type.MIN, "NAME"),
+                aggregate(AggregateExpression.Type.MAX, "PRICE"),
+                aggregate(AggregateExpression.Type.AVG, "PRICE"));
+
+        for (int[] groupColumns : new int[][] {{}, {1}, {0}, {1, 0}}) {
+            List<String> expected = readSorted(new HashAggregateOperator(new ScanOperator(rows::iterator),
+                    table.getColumns(), groupColumns, aggregates, new QueryMemory(1L << 24)));
+
+            // with little memory, every thread writes rows of groups to files
+            for (long memory : new long[] {1L << 24, 4096}) {
+                QueryMemory queryMemory = new QueryMemory(memory, folder.getRoot());
+                Assert.assertThat(readSorted(new ParallelAggregateOperator(morselCount, this::newMorsel, POOL, 4,
+                        table.getColumns(), groupColumns, aggregates, queryMemory)), Matchers.equalTo(expected));
+                Assert.assertThat(queryMemory.getUsed(), Matchers.equalTo(0L));
+            }
+        }
+
+        Assert.assertThat(countSpillFiles(folder.getRoot()), Matchers.equalTo(0));
+    }
+
+    // internal ==============================================================================
+    /**
+     * @return scan of rows of morsel
+     */
+    private Operator newMorsel(int morsel) {
+        int from = morsel * MORSEL_ROWS;
+        return new ScanOperator(() -> rows.subList(from, Math.min(from + MORSEL_ROWS, rows.size())).iterator());
+    }
+
+    private AggregateExpression aggregate(AggregateExpression.Type type, String column) {
+        return OperatorFixtures.aggregate(table, type, column);
+    }
+}
@@ -0,0 +1,135 @@
+package org.mydb.command.operator;
+
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mydb.command.expression.ColumnExpression;
+import org.mydb.command.expression.Expression;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.Table;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.mydb.command.operator.OperatorFixtures.countSpillFiles;
+import static org.mydb.command.operator.OperatorFixtures.newRows;
+import static org.mydb.command.operator.OperatorFixtures.newTable;
+
+public class SortOperatorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Table table = newTable();
+
+    /** Keys and names have many equal values */
+    private final List<Row> rows = newRows(2000, 100, 500);
+
+    /** NULL first, then by value */
+    private static final Comparator<Row> NAME = Comparator.comparing(row -> (String) row.getValue(1),
+            Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private static final Comparator<Row> KEY = Comparator.comparing(row -> (BigDecimal) row.getValue(0),
+            Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    @Test
+    public void next_inMemory() {
+        Assert.assertThat(sort(order("NAME", false), 1L << 24), Matchers.equalTo(expected(NAME)));
+        Assert.assertThat(sort(order("NAME", true), 1L << 24), Matchers.equalTo(expected(NAME.reversed())));
+        Assert.assertThat(sort(order("NAME", true, "KEY", false), 1L << 24),
+                Matchers.equalTo(expected(NAME.reversed().thenComparing(KEY))));
+    }
+
+    @Test
+    public void next_spill() {
+        // few rows fit into memory, so runs are merged in more passes
+        for (long memory : new long[] {1L << 16, 2048}) {
+            Assert.assertThat(sort(order("NAME", false), memory), Matchers.equalTo(expected(NAME)));
+            Assert.assertThat(sort(order("KEY", true, "NAME", false), memory),
+                    Matchers.equalTo(expected(KEY.reversed().thenComparing(NAME))));
+        }
+
+        Assert.assertThat(countSpillFiles(folder.getRoot()), Matchers.equalTo(0));
+    }
+
+    @Test
+    public void next_topN() {
+        // keys have many equal values, rows with equal keys keep input order
+        for (int count : new int[] {0, 1, 50, 1999, 3000}) {
+            List<String> expected = expected(KEY);
+            Assert.assertThat(topN(order("KEY", false), count),
+                    Matchers.equalTo(expected.subList(0, Math.min(count, expected.size()))));
+
+            expected = expected(NAME.reversed().thenComparing(KEY.reversed()));
+            Assert.assertThat(topN(order("NAME", true, "KEY", true), count),
+                    Matchers.equalTo(expected.subList(0, Math.min(count, expected.size()))));
+        }
+    }
+
+    // internal ==============================================================================
+    /**
+     * @param columns column name and <code>true</code> for descending order, for every sort expression
+     */
+    private SortOrder order(Object... columns) {
+        List<Expression> expressions = new ArrayList<>();
+        List<Boolean> descending = new ArrayList<>();
+
+        for (int i = 0; i < columns.length; i += 2) {
+            ColumnExpression column = new ColumnExpression((String) columns[i]);
+            column.bind(table);
+            expressions.add(column);
+            descending.add((Boolean) columns[i + 1]);
+        }
+
+        return new SortOrder(expressions, descending);
+    }
+
+    private List<String> sort(SortOrder order, long memory) {
+        List<Row> sorted = new ArrayList<>();
+
+        try (Operator operator = new SortOperator(new ScanOperator(rows::iterator), table.getColumns(), order,
+                new QueryMemory(memory, folder.getRoot()))) {
+            operator.open();
+
+            Row row;
+            while ((row = operator.next()) != null)
+                sorted.add(row);
+        }
+
+        return toStrings(sorted);
+    }
+
+    private List<String> topN(SortOrder order, int count) {
+        List<Row> sorted = new ArrayList<>();
+        QueryMemory memory = new QueryMemory(1L << 20);
+
+        try (Operator operator = new TopNOperator(new ScanOperator(rows::iterator), order, count, memory)) {
+            operator.open();
+
+            Row row;
+            while ((row = operator.next()) != null)
+                sorted.add(row);
+        }
+
+        Assert.assertThat(memory.getUsed(), Matchers.equalTo(0L));
+        return toStrings(sorted);
+    }
+
+    private List<String> expected(Comparator<Row> comparator) {
+        List<Row> sorted = new ArrayList<>(rows);
+        sorted.sort(comparator);
+        return toStrings(sorted);
+    }
+
+    /**
+     * @return values of rows, sort is stable, so rows with equal keys are in the same order as expected
+     */
+    private static List<String> toStrings(List<Row> rows) {
+        return rows.stream().map(row -> Arrays.toString(row.getValues())).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,1619 @@
+package org.mydb.engine;
+
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mydb.DbException;
+import org.mydb.command.ParserFactory;
+import org.mydb.command.dml.Join;
+import org.mydb.command.dml.SelectOperation;
+import org.mydb.command.result.Result;
+import org.mydb.engine.table.Row;
+import org.mydb.engine.table.TableStatistics;
+import org.mydb.jdbc.JdbcConnection;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class DatabaseTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void insert_select() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath();
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER(5), NAME VARCHAR(10), BORN DATE)");
+
+            int count = statement.executeUpdate("INSERT INTO T VALUES (1, 'one', '2000-01-01'), (2, 'two', NULL)");
+            Assert.assertThat(count, Matchers.equalTo(2));
+
+            statement.executeUpdate("INSERT INTO T (NAME, ID) VALUES ('three', 3)");
+
+            ResultSet resultSet = statement.executeQuery("SELECT * FROM T");
+
+            Assert.assertTrue(resultSet.next());
+            Assert.assertThat(resultSet.getInt("ID"), Matchers.equalTo(1));
+            Assert.assertThat(resultSet.getString("NAME"), Matchers.equalTo("one"));
+            Assert.assertThat(resultSet.getDate(3), Matchers.equalTo(java.sql.Date.valueOf("2000-01-01")));
+
+            Assert.assertTrue(resultSet.next());
+            Assert.assertThat(resultSet.getDate(3), Matchers.nullValue());
+            Assert.assertTrue(resultSet.wasNull());
+
+            Assert.assertTrue(resultSet.next());
+            Assert.assertThat(resultSet.getBigDecimal(1), Matchers.equalTo(new BigDecimal(3)));
+            Assert.assertFalse(resultSet.next());
+        }
+    }
+
+    @Test
+    public void select_numberScale() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath();
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER(3), PRICE NUMBER(6, 2))");
+            statement.executeUpdate("INSERT INTO T VALUES (1, 1.5), (2, 2.25), (3, NULL), (4, -10), (5, 2)");
+
+            Assert.assertThat(selectIds(statement, "PRICE >= 2"), Matchers.contains(2, 5));
+            Assert.assertThat(selectIds(statement, "2 > PRICE"), Matchers.contains(1, 4));
+            Assert.assertThat(selectIds(statement, "PRICE = 2.250"), Matchers.contains(2));
+            Assert.assertThat(selectIds(statement, "PRICE < 1.505"), Matchers.contains(1, 4));
+            Assert.assertThat(selectIds(statement, "PRICE BETWEEN -10 AND 1.5"), Matchers.contains(1, 4));
+            Assert.assertThat(selectIds(statement, "PRICE != ID"), Matchers.contains(1, 2, 4, 5));
+
+            try (PreparedStatement select = connection.prepareStatement("SELECT ID FROM T WHERE PRICE > ?")) {
+                select.setInt(1, 2);
+                Assert.assertThat(selectIds(select), Matchers.contains(2));
+
+                select.setBigDecimal(1, new BigDecimal("1.4"));
+                Assert.assertThat(selectIds(select), Matchers.contains(1, 2, 5));
+            }
+        }
+    }
+
+    @Test
+    public void select_dateRange() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath();
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER, BORN DATE)");
+            statement.executeUpdate("INSERT INTO T VALUES (1, '1969-12-31'), (2, '2000-02-29'), (3, NULL), (4, '2024-01-01')");
+
+            Assert.assertThat(selectIds(statement, "BORN >= '2000-01-01'"), Matchers.contains(2, 4));
+            Assert.assertThat(selectIds(statement, "BORN BETWEEN '1900-01-01' AND '2000-02-29'"), Matchers.contains(1, 2));
+
+            try (PreparedStatement select = connection.prepareStatement("SELECT ID FROM T WHERE BORN < ?")) {
+                select.setDate(1, java.sql.Date.valueOf("2000-02-29"));
+                Assert.assertThat(selectIds(select), Matchers.contains(1));
+            }
+
+            statement.executeUpdate("CREATE INDEX T_BORN ON T (BORN)");
+            Assert.assertThat(selectIds(statement, "BORN > '1970-01-01'"), Matchers.contains(2, 4));
+
+            ResultSet resultSet = statement.executeQuery("SELECT BORN FROM T WHERE ID = 1");
+            Assert.assertTrue(resultSet.next());
+            Assert.assertThat(resultSet.getObject(1), Matchers.equalTo(java.sql.Date.valueOf("1969-12-31")));
+            Assert.assertThat(resultSet.getString(1), Matchers.equalTo("1969-12-31"));
+        }
+    }
+
+    @Test
+    public void memory_sharedUntilClosed() throws SQLException {
+        String url = "jdbc:mdb:mem:memory_sharedUntilClosed;PAGE_SIZE=512";
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER PRIMARY KEY, NAME VARCHAR)");
+            statement.executeUpdate("CREATE INDEX T_NAME ON T (NAME)");
+
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO T VALUES (?, ?)")) {
+                for (int i = 0; i < 200; i++) {
+                    insert.setInt(1, i);
+                    insert.setString(2, "name" + i);
+                    insert.executeUpdate();
+                }
+            }
+
+            try (Connection other = new JdbcConnection(url, new Properties());
+                 Statement otherStatement = other.createStatement()) {
+                Assert.assertThat(selectIds(otherStatement, "NAME = 'name150'"), Matchers.contains(150));
+                Assert.assertThat(selectIds(otherStatement, "ID BETWEEN 10 AND 12"), Matchers.contains(10, 11, 12));
+            }
+
+            Assert.assertThat(selectIds(statement).size(), Matchers.equalTo(200));
+        }
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER)");
+            Assert.assertThat(selectIds(statement), Matchers.empty());
+        }
+    }
+
+    @Test
+    public void reopen() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath();
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER, NAME VARCHAR)");
+
+            for (int i = 0; i < 1000; i++)
+                statement.executeUpdate("INSERT INTO T VALUES (" + i + ", 'name" + i + "')");
+        }
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT NAME, ID FROM T");
+
+            int count = 0;
+            while (resultSet.next()) {
+                Assert.assertThat(resultSet.getString(1), Matchers.equalTo("name" + resultSet.getInt(2)));
+                count++;
+            }
+
+            Assert.assertThat(count, Matchers.equalTo(1000));
+        }
+    }
+
+    @Test
+    public void rollback() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath();
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER)");
+            statement.executeUpdate("INSERT INTO T VALUES (1)");
+
+            connection.setAutoCommit(false);
+            statement.executeUpdate("INSERT INTO T VALUES (2), (3)");
+            connection.rollback();
+
+            statement.executeUpdate("INSERT INTO T VALUES (4)");
+            connection.commit();
+
+            Assert.assertThat(selectIds(statement), Matchers.contains(1, 4));
+        }
+    }
+
+    @Test
+    public void recover_afterCrash() throws SQLException, IOException {
+        Path path = folder.newFolder().toPath();
+        Path copy = folder.getRoot().toPath().resolve("copy");
+        String url = "jdbc:mdb:" + path;
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Connection other = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement();
+             Statement otherStatement = other.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER)");
+            for (int i = 0; i < 100; i++)
+                statement.executeUpdate("INSERT INTO T VALUES (" + i + ")");
+
+            other.setAutoCommit(false);
+            otherStatement.executeUpdate("INSERT INTO T VALUES (-1)");
+
+            // commit writes log of uncommitted transaction too
+            statement.executeUpdate("INSERT INTO T VALUES (100)");
+
+            // pages are not written yet, copy is what disk has after crash
+            copyDirectory(path, copy);
+        }
+
+        for (int i = 0; i < 2; i++) {
+            try (Connection connection = new JdbcConnection("jdbc:mdb:" + copy, new Properties());
+                 Statement statement = connection.createStatement()) {
+                List<Integer> ids = selectIds(statement);
+
+                Assert.assertThat(ids.size(), Matchers.equalTo(101 + i));
+                Assert.assertThat(ids, Matchers.not(Matchers.hasItem(-1)));
+
+                statement.executeUpdate("INSERT INTO T VALUES (" + (101 + i) + ")");
+                Assert.assertThat(selectIds(statement).size(), Matchers.equalTo(102 + i));
+            }
+        }
+    }
+
+    @Test
+    public void recover_afterCheckpoint() throws SQLException, IOException {
+        Path path = folder.newFolder().toPath();
+        Path copy = folder.getRoot().toPath().resolve("copy");
+        String url = "jdbc:mdb:" + path + ";CHECKPOINT_INTERVAL=0";
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Connection other = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement();
+             Statement otherStatement = other.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER)");
+            for (int i = 0; i < 1000; i++)
+                statement.executeUpdate("INSERT INTO T VALUES (" + i + ")");
+
+            other.setAutoCommit(false);
+            otherStatement.executeUpdate("INSERT INTO T VALUES (-1)");
+
+            statement.executeUpdate("CHECKPOINT");
+
+            otherStatement.executeUpdate("INSERT INTO T VALUES (-2)");
+            for (int i = 1000; i < 1005; i++)
+                statement.executeUpdate("INSERT INTO T VALUES (" + i + ")");
+
+            copyDirectory(path, copy);
+        }
+
+        Session session = Engine.getInstance().createSession(new ConnectionInfo("jdbc:mdb:" + copy, new Properties()));
+        try {
+            Database database = session.getDatabase();
+
+            // inserts and commits after checkpoint
+            Assert.assertThat(database.getRecoveredRecords(), Matchers.equalTo(11));
+            Assert.assertThat(database.getRecoveryTime(), Matchers.greaterThanOrEqualTo(0L));
+
+            List<Integer> ids = new ArrayList<>();
+            Iterator<Row> rows = database.getTable("T").scan();
+            while (rows.hasNext())
+                ids.add(((Number) rows.next().getValue(0)).intValue());
+
+            Assert.assertThat(ids.size(), Matchers.equalTo(1005));
+            Assert.assertThat(ids, Matchers.not(Matchers.hasItem(-1)));
+            Assert.assertThat(ids, Matchers.not(Matchers.hasItem(-2)));
+        } finally {
+            session.close();
+        }
+    }
+
+    @Test
+    public void mvStore_recover() throws SQLException, IOException {
+        Path path = folder.newFolder().toPath();
+        Path copy = folder.getRoot().toPath().resolve("copy");
+        String url = "jdbc:mdb:" + path + ";MV_STORE=TRUE";
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Connection other = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement();
+             Statement otherStatement = other.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER)");
+            for (int i = 0; i < 100; i++)
+                statement.executeUpdate("INSERT INTO T VALUES (" + i + ")");
+
+            connection.setAutoCommit(false);
+            statement.executeUpdate("INSERT INTO T VALUES (-1)");
+            connection.rollback();
+            connection.setAutoCommit(true);
+
+            other.setAutoCommit(false);
+            otherStatement.executeUpdate("INSERT INTO T VALUES (-2)");
+
+            // commit writes uncommitted insert too
+            statement.executeUpdate("INSERT INTO T VALUES (100)");
+
+            copyDirectory(path, copy);
+        }
+
+        Assert.assertFalse(Files.exists(copy.resolve("catalog")));
+
+        try (Connection connection = new JdbcConnection("jdbc:mdb:" + copy, new Properties());
+             Statement statement = connection.createStatement()) {
+            List<Integer> ids = selectIds(statement);
+
+            Assert.assertThat(ids.size(), Matchers.equalTo(101));
+            Assert.assertThat(ids, Matchers.not(Matchers.hasItem(-1)));
+            Assert.assertThat(ids, Matchers.not(Matchers.hasItem(-2)));
+
+            statement.executeUpdate("INSERT INTO T VALUES (101)");
+        }
+
+        try (Connection connection = new JdbcConnection("jdbc:mdb:" + copy, new Properties());
+             Statement statement = connection.createStatement()) {
+            Assert.assertThat(selectIds(statement).size(), Matchers.equalTo(102));
+        }
+    }
+
+    @Test
+    public void primaryKey_select() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath();
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER PRIMARY KEY, NAME VARCHAR)");
+
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO T VALUES (?, ?)")) {
+                for (int i = 999; i >= 0; i--) {
+                    insert.setInt(1, i);
+                    insert.setString(2, "name" + i);
+                    Assert.assertThat(insert.executeUpdate(), Matchers.equalTo(1));
+                }
+            }
+
+            try (PreparedStatement select = connection.prepareStatement("SELECT NAME FROM T WHERE ID = ?")) {
+                select.setInt(1, 500);
+                ResultSet resultSet = select.executeQuery();
+                Assert.assertTrue(resultSet.next());
+                Assert.assertThat(resultSet.getString(1), Matchers.equalTo("name500"));
+                Assert.assertFalse(resultSet.next());
+
+                select.setString(1, "1000");
+                Assert.assertFalse(select.executeQuery().next());
+            }
+
+            ResultSet resultSet = statement.executeQuery("SELECT ID FROM T WHERE ID BETWEEN 10 AND 12 AND NAME != 'name11'");
+            Assert.assertTrue(resultSet.next());
+            Assert.assertThat(resultSet.getInt(1), Matchers.equalTo(10));
+            Assert.assertTrue(resultSet.next());
+            Assert.assertThat(resultSet.getInt(1), Matchers.equalTo(12));
+            Assert.assertFalse(resultSet.next());
+
+            resultSet = statement.executeQuery("SELECT ID FROM T WHERE ID > 997 OR ID < 1");
+            List<Integer> ids = new ArrayList<>();
+            while (resultSet.next())
+                ids.add(resultSet.getInt(1));
+
+            Assert.assertThat(ids, Matchers.containsInAnyOrder(0, 998, 999));
+        }
+    }
+
+    @Test
+    public void primaryKey_duplicate() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath();
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER, NAME VARCHAR, PRIMARY KEY (ID))");
+            statement.executeUpdate("INSERT INTO T VALUES (1, 'one')");
+
+            try {
+                statement.executeUpdate("INSERT INTO T VALUES (2, 'two'), (1, 'one')");
+                Assert.fail("duplicate key inserted");
+            } catch (SQLException e) {
+                Assert.assertThat(e.getMessage(), Matchers.containsString("duplicate primary key"));
+            }
+
+            connection.setAutoCommit(false);
+            statement.executeUpdate("INSERT INTO T VALUES (3, 'three')");
+
+            try {
+                statement.executeUpdate("INSERT INTO T VALUES (4, 'four'), (3, 'three')");
+                Assert.fail("duplicate key inserted");
+            } catch (SQLException ignore) {}
+
+            // failed statement is undone, transaction keeps running
+            statement.executeUpdate("INSERT INTO T VALUES (4, 'four')");
+            connection.commit();
+
+            Assert.assertThat(selectIds(statement), Matchers.contains(1, 3, 4));
+        }
+    }
+
+    @Test
+    public void primaryKey_recover() throws SQLException, IOException {
+        Path path = folder.newFolder().toPath();
+        Path copy = folder.getRoot().toPath().resolve("copy");
+        String url = "jdbc:mdb:" + path + ";PAGE_SIZE=512";
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Connection other = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement();
+             Statement otherStatement = other.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER PRIMARY KEY)");
+            for (int i = 0; i < 500; i++)
+                statement.executeUpdate("INSERT INTO T VALUES (" + i + ")");
+
+            other.setAutoCommit(false);
+            otherStatement.executeUpdate("INSERT INTO T VALUES (-1)");
+
+            statement.executeUpdate("INSERT INTO T VALUES (500)");
+
+            copyDirectory(path, copy);
+        }
+
+        try (Connection connection = new JdbcConnection("jdbc:mdb:" + copy, new Properties());
+             Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT ID FROM T WHERE ID BETWEEN -1 AND 1000");
+            int count = 0;
+            while (resultSet.next())
+                Assert.assertThat(resultSet.getInt(1), Matchers.equalTo(count++));
+
+            Assert.assertThat(count, Matchers.equalTo(501));
+
+            // key of rolled back insert is removed from index
+            statement.executeUpdate("INSERT INTO T VALUES (-1)");
+            Assert.assertTrue(statement.executeQuery("SELECT ID FROM T WHERE ID = -1").next());
+        }
+    }
+
+    @Test
+    public void primaryKey_mvStore() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath() + ";MV_STORE=TRUE";
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER PRIMARY KEY)");
+            statement.executeUpdate("INSERT INTO T VALUES (2), (1)");
+
+            connection.setAutoCommit(false);
+            statement.executeUpdate("INSERT INTO T VALUES (3)");
+            connection.rollback();
+            connection.setAutoCommit(true);
+
+            statement.executeUpdate("INSERT INTO T VALUES (3)");
+        }
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT ID FROM T WHERE ID >= 2");
+            Assert.assertTrue(resultSet.next());
+            Assert.assertThat(resultSet.getInt(1), Matchers.equalTo(2));
+            Assert.assertTrue(resultSet.next());
+            Assert.assertThat(resultSet.getInt(1), Matchers.equalTo(3));
+            Assert.assertFalse(resultSet.next());
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void createIndex_keyTooLarge() throws SQLException, IOException {
+        try (Connection connection = new JdbcConnection("jdbc:mdb:" + folder.newFolder().getPath(), new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER PRIMARY KEY, NAME VARCHAR)");
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO T VALUES (?, ?)")) {
+                for (int i = 0; i < 3; i++) {
+                    insert.setInt(1, i);
+                    insert.setString(2, String.join("", Collections.nCopies(4000, String.valueOf(i))));
+                    insert.executeUpdate();
+                }
+            }
+
+            // index is not created, instead of holding keys it can not take again or growing without end
+            try {
+                statement.executeUpdate("CREATE INDEX T_NAME ON T (NAME)");
+                Assert.fail("index with too large keys created");
+            } catch (SQLException e) {
+                Assert.assertThat(e.getMessage(), Matchers.containsString("index key too large"));
+            }
+
+            statement.executeUpdate("CREATE INDEX T_NAME ON T (ID)");
+            Assert.assertThat(selectRows(statement, "SELECT COUNT(*) FROM T", 1), Matchers.contains("3;"));
+        }
+    }
+
+    @Test
+    public void createIndex_select() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath() + ";PAGE_SIZE=512";
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER PRIMARY KEY, NAME VARCHAR)");
+
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO T VALUES (?, ?)")) {
+                for (int i = 0; i < 1000; i++) {
+                    insert.setInt(1, i);
+                    insert.setString(2, "name" + i % 100);
+                    insert.executeUpdate();
+                }
+            }
+
+            statement.executeUpdate("CREATE INDEX T_NAME ON T (NAME)");
+            statement.executeUpdate("INSERT INTO T VALUES (1000, 'name7'), (1001, NULL)");
+
+            ResultSet resultSet = statement.executeQuery("SELECT ID FROM T WHERE NAME = 'name7'");
+            List<Integer> ids = new ArrayList<>();
+            while (resultSet.next())
+                ids.add(resultSet.getInt(1));
+
+            Assert.assertThat(ids.size(), Matchers.equalTo(11));
+            Assert.assertThat(ids, Matchers.hasItems(7, 507, 1000));
+
+            try {
+                statement.executeUpdate("CREATE INDEX T_NAME ON T (ID)");
+                Assert.fail("index with the same name created");
+            } catch (SQLException e) {
+                Assert.assertThat(e.getMessage(), Matchers.containsString("index already exists"));
+            }
+        }
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO T VALUES (1002, 'name7')");
+
+            ResultSet resultSet = statement.executeQuery("SELECT ID FROM T WHERE NAME BETWEEN 'name7' AND 'name7'");
+            int count = 0;
+            while (resultSet.next())
+                count++;
+
+            Assert.assertThat(count, Matchers.equalTo(12));
+        }
+    }
+
+    @Test
+    public void createIndex_unique() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath();
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER, CODE VARCHAR)");
+            statement.executeUpdate("INSERT INTO T VALUES (1, 'a'), (2, 'b'), (3, 'a')");
+
+            try {
+                statement.executeUpdate("CREATE UNIQUE INDEX T_CODE ON T (CODE)");
+                Assert.fail("unique index built over duplicates");
+            } catch (SQLException e) {
+                Assert.assertThat(e.getMessage(), Matchers.containsString("duplicate key"));
+            }
+
+            statement.executeUpdate("CREATE UNIQUE INDEX T_ID ON T (ID)");
+            statement.executeUpdate("INSERT INTO T VALUES (NULL, 'c'), (NULL, 'd')");
+
+            try {
+                statement.executeUpdate("INSERT INTO T VALUES (2, 'e')");
+                Assert.fail("duplicate key inserted");
+            } catch (SQLException e) {
+                Assert.assertThat(e.getMessage(), Matchers.containsString("duplicate key"));
+            }
+
+            // name of failed index is free
+            statement.executeUpdate("CREATE INDEX T_CODE ON T (CODE, ID)");
+
+            ResultSet resultSet = statement.executeQuery("SELECT ID FROM T WHERE CODE = 'a'");
+            List<Integer> ids = new ArrayList<>();
+            while (resultSet.next())
+                ids.add(resultSet.getInt(1));
+
+            Assert.assertThat(ids, Matchers.contains(1, 3));
+        }
+    }
+
+    @Test
+    public void createIndex_recover() throws SQLException, IOException {
+        Path path = folder.newFolder().toPath();
+        Path copy = folder.getRoot().toPath().resolve("copy");
+        String url = "jdbc:mdb:" + path + ";PAGE_SIZE=512";
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER, NAME VARCHAR)");
+            for (int i = 0; i < 300; i++)
+                statement.executeUpdate("INSERT INTO T VALUES (" + i + ", 'name" + i + "')");
+
+            statement.executeUpdate("CREATE UNIQUE INDEX T_NAME ON T (NAME)");
+            statement.executeUpdate("INSERT INTO T VALUES (300, 'name300')");
+
+            copyDirectory(path, copy);
+        }
+
+        try (Connection connection = new JdbcConnection("jdbc:mdb:" + copy + ";PAGE_SIZE=512", new Properties());
+             Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT ID FROM T WHERE NAME = 'name300'");
+            Assert.assertTrue(resultSet.next());
+            Assert.assertThat(resultSet.getInt(1), Matchers.equalTo(300));
+            Assert.assertFalse(resultSet.next());
+
+            try {
+                statement.executeUpdate("INSERT INTO T VALUES (301, 'name42')");
+                Assert.fail("duplicate key inserted");
+            } catch (SQLException ignore) {}
+        }
+    }
+
+    @Test
+    public void createIndex_mvStore() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath() + ";MV_STORE=TRUE";
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER, NAME VARCHAR)");
+            statement.executeUpdate("INSERT INTO T VALUES (1, 'b'), (2, 'a'), (3, 'b')");
+            statement.executeUpdate("CREATE INDEX T_NAME ON T (NAME)");
+
+            connection.setAutoCommit(false);
+            statement.executeUpdate("INSERT INTO T VALUES (4, 'b')");
+            connection.rollback();
+        }
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT ID FROM T WHERE NAME = 'b'");
+            List<Integer> ids = new ArrayList<>();
+            while (resultSet.next())
+                ids.add(resultSet.getInt(1));
+
+            Assert.assertThat(ids, Matchers.contains(1, 3));
+        }
+    }
+
+    @Test
+    public void hashIndex_select() throws SQLException, IOException {
+        Path path = folder.newFolder().toPath();
+        Path copy = folder.getRoot().toPath().resolve("copy");
+        String url = "jdbc:mdb:" + path + ";PAGE_SIZE=512";
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER, TOKEN VARCHAR)");
+            statement.executeUpdate("INSERT INTO T VALUES (1, 'a'), (2, 'b')");
+            statement.executeUpdate("CREATE UNIQUE INDEX T_TOKEN ON T (TOKEN) USING HASH");
+
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO T VALUES (?, ?)")) {
+                for (int i = 3; i < 1000; i++) {
+                    insert.setInt(1, i);
+                    insert.setString(2, "token" + i);
+                    insert.executeUpdate();
+                }
+            }
+
+            try {
+                statement.executeUpdate("INSERT INTO T VALUES (0, 'token7')");
+                Assert.fail("duplicate key inserted");
+            } catch (SQLException e) {
+                Assert.assertThat(e.getMessage(), Matchers.containsString("duplicate key"));
+            }
+
+            copyDirectory(path, copy);
+        }
+
+        try (Connection connection = new JdbcConnection("jdbc:mdb:" + copy + ";PAGE_SIZE=512", new Properties());
+             Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT ID FROM T WHERE TOKEN = 'token500'");
+            Assert.assertTrue(resultSet.next());
+            Assert.assertThat(resultSet.getInt(1), Matchers.equalTo(500));
+            Assert.assertFalse(resultSet.next());
+
+            resultSet = statement.executeQuery("SELECT ID FROM T WHERE TOKEN IN ('b', 'token999', 'b', 'x', NULL)");
+            List<Integer> ids = new ArrayList<>();
+            while (resultSet.next())
+                ids.add(resultSet.getInt(1));
+
+            Assert.assertThat(ids, Matchers.containsInAnyOrder(2, 999));
+
+            // range condition is checked by scan
+            resultSet = statement.executeQuery("SELECT ID FROM T WHERE TOKEN < 'b'");
+            Assert.assertTrue(resultSet.next());
+            Assert.assertThat(resultSet.getInt(1), Matchers.equalTo(1));
+            Assert.assertFalse(resultSet.next());
+        }
+    }
+
+    @Test
+    public void columnar_recover() throws SQLException, IOException {
+        Path path = folder.newFolder().toPath();
+        Path copy = folder.getRoot().toPath().resolve("copy");
+        String url = "jdbc:mdb:" + path + ";PAGE_SIZE=512";
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Connection other = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement();
+             Statement otherStatement = other.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER PRIMARY KEY, NAME VARCHAR, AMOUNT NUMBER, "
+                    + "STATUS VARCHAR) STORAGE COLUMNAR");
+
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO T VALUES (?, ?, ?, ?)")) {
+                for (int i = 0; i < 500; i++) {
+                    insert.setInt(1, i);
+                    insert.setString(2, "name" + i);
+                    insert.setInt(3, i % 10);
+                    insert.setString(4, i % 3 == 0 ? "open" : "closed");
+                    insert.executeUpdate();
+                }
+            }
+
+            other.setAutoCommit(false);
+            otherStatement.executeUpdate("INSERT INTO T VALUES (-1, 'lost', 100, 'lost')");
+
+            copyDirectory(path, copy);
+        }
+
+        try (Connection connection = new JdbcConnection("jdbc:mdb:" + copy + ";PAGE_SIZE=512", new Properties());
+             Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT ID, AMOUNT FROM T WHERE AMOUNT >= 9");
+            List<Integer> ids = new ArrayList<>();
+            while (resultSet.next())
+                ids.add(resultSet.getInt(1));
+
+            Assert.assertThat(ids.size(), Matchers.equalTo(50));
+            Assert.assertThat(ids, Matchers.not(Matchers.hasItem(-1)));
+
+            resultSet = statement.executeQuery("SELECT NAME FROM T WHERE ID = 123");
+            Assert.assertTrue(resultSet.next());
+            Assert.assertThat(resultSet.getString(1), Matchers.equalTo("name123"));
+
+            Assert.assertThat(selectIds(statement, "STATUS = 'open'").size(), Matchers.equalTo(167));
+            Assert.assertThat(selectIds(statement, "STATUS IN ('lost', 'open') AND ID < 10"),
+                    Matchers.contains(0, 3, 6, 9));
+
+            statement.executeUpdate("INSERT INTO T VALUES (-1, 'again', 0, 'lost')");
+            Assert.assertThat(selectIds(statement).size(), Matchers.equalTo(501));
+            Assert.assertThat(selectIds(statement, "STATUS = 'lost'"), Matchers.contains(-1));
+        }
+    }
+
+    @Test
+    public void update_delete() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath();
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER PRIMARY KEY, NAME VARCHAR)");
+            statement.executeUpdate("CREATE UNIQUE INDEX T_NAME ON T (NAME)");
+            statement.executeUpdate("INSERT INTO T VALUES (1, 'one'), (2, 'two'), (3, 'three'), (4, 'four')");
+
+            Assert.assertThat(statement.executeUpdate("UPDATE T SET NAME = 'first' WHERE ID = 1"), Matchers.equalTo(1));
+            Assert.assertThat(statement.executeUpdate("DELETE FROM T WHERE ID > 2 AND NAME != 'four'"),
+                    Matchers.equalTo(1));
+
+            Assert.assertThat(selectIds(statement), Matchers.containsInAnyOrder(1, 2, 4));
+            Assert.assertThat(selectIds(statement, "NAME = 'first'"), Matchers.contains(1));
+            Assert.assertThat(selectIds(statement, "NAME = 'one'"), Matchers.empty());
+
+            // keys of deleted and updated rows are free
+            statement.executeUpdate("INSERT INTO T VALUES (3, 'one')");
+            Assert.assertThat(statement.executeUpdate("UPDATE T SET ID = 5, NAME = NAME WHERE ID = 4"),
+                    Matchers.equalTo(1));
+            Assert.assertThat(selectIds(statement, "ID >= 3"), Matchers.containsInAnyOrder(3, 5));
+
+            try {
+                statement.executeUpdate("UPDATE T SET NAME = 'two' WHERE ID = 1");
+                Assert.fail("duplicate key updated");
+            } catch (SQLException e) {
+                Assert.assertThat(e.getMessage(), Matchers.containsString("duplicate key in unique index T_NAME"));
+            }
+
+            Assert.assertThat(selectIds(statement, "NAME = 'first'"), Matchers.contains(1));
+            Assert.assertThat(statement.executeUpdate("DELETE FROM T"), Matchers.equalTo(4));
+            Assert.assertThat(selectIds(statement), Matchers.empty());
+        }
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            Assert.assertThat(selectIds(statement), Matchers.empty());
+            statement.executeUpdate("INSERT INTO T VALUES (1, 'one')");
+            Assert.assertThat(selectIds(statement, "NAME = 'one'"), Matchers.contains(1));
+        }
+    }
+
+    @Test
+    public void snapshot_isolation() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath();
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Connection repeatable = new JdbcConnection(url, new Properties());
+             Connection committed = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement();
+             Statement repeatableStatement = repeatable.createStatement();
+             Statement committedStatement = committed.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER PRIMARY KEY, NAME VARCHAR)");
+            statement.executeUpdate("INSERT INTO T VALUES (1, 'one'), (2, 'two')");
+
+            repeatable.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            Assert.assertThat(repeatable.getTransactionIsolation(),
+                    Matchers.equalTo(Connection.TRANSACTION_REPEATABLE_READ));
+            Assert.assertThat(committed.getTransactionIsolation(),
+                    Matchers.equalTo(Connection.TRANSACTION_READ_COMMITTED));
+
+            repeatable.setAutoCommit(false);
+            committed.setAutoCommit(false);
+            Assert.assertThat(selectIds(repeatableStatement), Matchers.contains(1, 2));
+            Assert.assertThat(selectIds(committedStatement), Matchers.contains(1, 2));
+
+            // changes of running transaction are not visible
+            connection.setAutoCommit(false);
+            statement.executeUpdate("UPDATE T SET ID = 3 WHERE ID = 1");
+            statement.executeUpdate("DELETE FROM T WHERE ID = 2");
+            statement.executeUpdate("INSERT INTO T VALUES (4, 'four')");
+            Assert.assertThat(selectIds(statement), Matchers.contains(3, 4));
+            Assert.assertThat(selectIds(committedStatement), Matchers.contains(1, 2));
+
+            connection.commit();
+
+            Assert.assertThat(selectIds(repeatableStatement), Matchers.contains(1, 2));
+            Assert.assertThat(selectIds(repeatableStatement, "ID = 1"), Matchers.contains(1));
+            Assert.assertThat(selectIds(committedStatement), Matchers.contains(3, 4));
+            Assert.assertThat(selectIds(committedStatement, "ID = 1"), Matchers.empty());
+
+            repeatable.commit();
+            Assert.assertThat(selectIds(repeatableStatement), Matchers.contains(3, 4));
+        }
+    }
+
+    @Test
+    public void update_conflict() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath() + ";LOCK_TIMEOUT=50";
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Connection other = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement();
+             Statement otherStatement = other.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER PRIMARY KEY, NAME VARCHAR)");
+            statement.executeUpdate("INSERT INTO T VALUES (1, 'one'), (2, 'two')");
+
+            connection.setAutoCommit(false);
+            other.setAutoCommit(false);
+            statement.executeUpdate("UPDATE T SET NAME = 'first' WHERE ID = 1");
+
+            // other rows are not locked
+            otherStatement.executeUpdate("UPDATE T SET NAME = 'second' WHERE ID = 2");
+
+            try {
+                otherStatement.executeUpdate("DELETE FROM T WHERE ID = 1");
+                Assert.fail("row locked by concurrent transaction changed");
+            } catch (SQLException e) {
+                Assert.assertThat(e.getMessage(), Matchers.containsString("timeout waiting for lock"));
+            }
+
+            try {
+                otherStatement.executeUpdate("INSERT INTO T VALUES (1, 'new')");
+                Assert.fail("key of row changed by concurrent transaction inserted");
+            } catch (SQLException e) {
+                Assert.assertThat(e.getMessage(), Matchers.containsString("timeout waiting for lock"));
+            }
+
+            connection.rollback();
+            other.commit();
+
+            ResultSet resultSet = statement.executeQuery("SELECT NAME FROM T");
+            Assert.assertTrue(resultSet.next());
+            Assert.assertThat(resultSet.getString(1), Matchers.equalTo("one"));
+            Assert.assertTrue(resultSet.next());
+            Assert.assertThat(resultSet.getString(1), Matchers.equalTo("second"));
+            Assert.assertFalse(resultSet.next());
+        }
+    }
+
+    @Test
+    public void commit_logFailure() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath() + ";LOCK_TIMEOUT=60000";
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Connection other = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement();
+             Statement otherStatement = other.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER PRIMARY KEY, NAME VARCHAR)");
+            statement.executeUpdate("INSERT INTO T VALUES (1, 'one'), (2, 'two')");
+
+            connection.setAutoCommit(false);
+            statement.executeUpdate("UPDATE T SET NAME = 'first' WHERE ID = 1");
+            statement.executeUpdate("INSERT INTO T VALUES (3, 'three')");
+
+            // interrupted thread closes log channel on write, commit record is not durable
+            Thread.currentThread().interrupt();
+            try {
+                connection.commit();
+                Assert.fail("commit should fail");
+            } catch (DbException e) {
+                // expected
+            } finally {
+                Thread.interrupted();
+            }
+
+            // changes are not visible, locks are released: change fails at once on failed log
+            Assert.assertThat(selectRows(otherStatement, "SELECT ID, NAME FROM T", 2),
+                    Matchers.contains("1;one;", "2;two;"));
+
+            long start = System.currentTimeMillis();
+            try {
+                otherStatement.executeUpdate("UPDATE T SET NAME = 'second' WHERE ID = 1");
+                Assert.fail("update should fail on failed log");
+            } catch (SQLException e) {
+                Assert.assertThat(e.getMessage(), Matchers.not(Matchers.containsString("timeout")));
+            }
+
+            Assert.assertThat(System.currentTimeMillis() - start, Matchers.lessThan(10000L));
+        }
+
+        // pages are not written after log failure, database is recovered from durable log
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            Assert.assertThat(selectRows(statement, "SELECT ID, NAME FROM T", 2), Matchers.contains("1;one;", "2;two;"));
+
+            statement.executeUpdate("UPDATE T SET NAME = 'first' WHERE ID = 1");
+            Assert.assertThat(selectRows(statement, "SELECT NAME FROM T WHERE ID = 1", 1), Matchers.contains("first;"));
+        }
+    }
+
+    @Test
+    public void update_lockWait() throws Exception {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Connection other = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement();
+             Statement otherStatement = other.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER PRIMARY KEY, NAME VARCHAR)");
+            statement.executeUpdate("INSERT INTO T VALUES (1, 'one'), (2, 'two')");
+
+            connection.setAutoCommit(false);
+            other.setAutoCommit(false);
+
+            // writer waits until row is released, rolled back change leaves row to it
+            statement.executeUpdate("UPDATE T SET NAME = 'first' WHERE ID = 1");
+            Future<Integer> updated = executor.submit(() ->
+                    otherStatement.executeUpdate("UPDATE T SET NAME = 'other' WHERE ID = 1"));
+            Thread.sleep(50);
+            Assert.assertFalse(updated.isDone());
+
+            connection.rollback();
+            Assert.assertThat(updated.get(5, TimeUnit.SECONDS), Matchers.equalTo(1));
+            other.commit();
+
+            // row changed by transaction which committed while writer waited is a conflict
+            statement.executeUpdate("DELETE FROM T WHERE ID = 2");
+            Future<Integer> deleted = executor.submit(() ->
+                    otherStatement.executeUpdate("DELETE FROM T WHERE ID = 2"));
+            Thread.sleep(50);
+
+            connection.commit();
+            try {
+                deleted.get(5, TimeUnit.SECONDS);
+                Assert.fail("row deleted by concurrent transaction deleted");
+            } catch (ExecutionException e) {
+                Assert.assertThat(e.getCause().getMessage(), Matchers.containsString("concurrent transaction"));
+            }
+
+            // deadlock victim is rolled back, so the other transaction goes on
+            statement.executeUpdate("INSERT INTO T VALUES (2, 'two')");
+            connection.commit();
+            statement.executeUpdate("UPDATE T SET NAME = 'a' WHERE ID = 1");
+            otherStatement.executeUpdate("UPDATE T SET NAME = 'b' WHERE ID = 2");
+            Future<Integer> waiting = executor.submit(() ->
+                    otherStatement.executeUpdate("UPDATE T SET NAME = 'b' WHERE ID = 1"));
+            Thread.sleep(200);
+
+            try {
+                statement.executeUpdate("UPDATE T SET NAME = 'a' WHERE ID = 2");
+                Assert.fail("deadlock not detected");
+            } catch (SQLException e) {
+                Assert.assertThat(e.getMessage(), Matchers.containsString("deadlock"));
+            }
+
+            Assert.assertThat(waiting.get(5, TimeUnit.SECONDS), Matchers.equalTo(1));
+            other.commit();
+
+            Assert.assertThat(selectIds(statement, "NAME = 'b'"), Matchers.containsInAnyOrder(1, 2));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void delete_recover() throws SQLException, IOException {
+        Path path = folder.newFolder().toPath();
+        Path copy = folder.getRoot().toPath().resolve("copy");
+        String url = "jdbc:mdb:" + path + ";PAGE_SIZE=512";
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Connection other = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement();
+             Statement otherStatement = other.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER PRIMARY KEY, NAME VARCHAR)");
+            for (int i = 0; i < 100; i++)
+                statement.executeUpdate("INSERT INTO T VALUES (" + i + ", 'name" + i + "')");
+
+            statement.executeUpdate("DELETE FROM T WHERE ID < 10");
+            statement.executeUpdate("UPDATE T SET NAME = 'new' WHERE ID = 10");
+
+            other.setAutoCommit(false);
+            otherStatement.executeUpdate("DELETE FROM T WHERE ID >= 90");
+            otherStatement.executeUpdate("UPDATE T SET ID = -1 WHERE ID = 50");
+
+            statement.executeUpdate("CHECKPOINT");
+            copyDirectory(path, copy);
+        }
+
+        try (Connection connection = new JdbcConnection("jdbc:mdb:" + copy + ";PAGE_SIZE=512", new Properties());
+             Statement statement = connection.createStatement()) {
+            List<Integer> ids = selectIds(statement);
+
+            Assert.assertThat(ids.size(), Matchers.equalTo(90));
+            Assert.assertThat(ids, Matchers.not(Matchers.hasItem(-1)));
+            Assert.assertThat(selectIds(statement, "ID = 50"), Matchers.contains(50));
+            Assert.assertThat(selectIds(statement, "ID BETWEEN 90 AND 95"), Matchers.contains(90, 91, 92, 93, 94, 95));
+            Assert.assertThat(selectIds(statement, "NAME = 'new'"), Matchers.contains(10));
+
+            statement.executeUpdate("DELETE FROM T WHERE ID >= 50");
+            statement.executeUpdate("INSERT INTO T VALUES (1, 'one')");
+            Assert.assertThat(selectIds(statement).size(), Matchers.equalTo(41));
+        }
+    }
+
+    @Test
+    public void select_maxRows() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath();
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Connection other = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement();
+             Statement otherStatement = other.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER PRIMARY KEY, NAME VARCHAR)");
+            for (int i = 0; i < 100; i++)
+                statement.executeUpdate("INSERT INTO T VALUES (" + i + ", 'name" + i + "')");
+
+            statement.setMaxRows(5);
+            Assert.assertThat(selectIds(statement, "ID >= 10"), Matchers.contains(10, 11, 12, 13, 14));
+
+            // rows are read lazily from snapshot of query
+            statement.setMaxRows(0);
+            ResultSet resultSet = statement.executeQuery("SELECT ID FROM T");
+            Assert.assertTrue(resultSet.next());
+
+            otherStatement.executeUpdate("DELETE FROM T WHERE ID >= 50");
+            otherStatement.executeUpdate("INSERT INTO T VALUES (100, 'new')");
+
+            int count = 1;
+            while (resultSet.next())
+                count++;
+
+            Assert.assertThat(count, Matchers.equalTo(100));
+            Assert.assertThat(selectIds(statement).size(), Matchers.equalTo(51));
+        }
+    }
+
+    @Test
+    public void select_vectorized() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath();
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Connection vectorized = new JdbcConnection(url + ";VECTORIZED=TRUE", new Properties());
+             Statement statement = connection.createStatement();
+             Statement vectorStatement = vectorized.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER PRIMARY KEY, PRICE NUMBER(6, 2), BORN DATE, NAME VARCHAR)");
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO T VALUES (?, ?, ?, ?)")) {
+                for (int i = 0; i < 3000; i++) {
+                    insert.setInt(1, i);
+                    insert.setBigDecimal(2, i % 7 == 0 ? null : BigDecimal.valueOf(i % 500, 1));
+                    insert.setDate(3, java.sql.Date.valueOf(LocalDate.of(2000, 1, 1).plusDays(i)));
+                    insert.setString(4, "name" + i % 10);
+                    insert.executeUpdate();
+                }
+            }
+
+            String[] conditions = {"PRICE > 10", "PRICE <= 1.5 AND ID >= 1000", "PRICE = 20.05", "PRICE != 3",
+                    "PRICE BETWEEN 5 AND 6", "BORN < '2003-01-01' AND NAME = 'name3'", "10 > PRICE",
+                    "PRICE > 10 OR ID < 5", "ID BETWEEN 100 AND 2000 AND PRICE >= NULL", "NAME = 'none'"};
+
+            for (String condition : conditions) {
+                String sql = "SELECT ID, PRICE, BORN, NAME FROM T WHERE " + condition;
+                List<String> rows = selectRows(statement, sql, 4);
+                Assert.assertThat(condition, selectRows(vectorStatement, sql, 4), Matchers.equalTo(rows));
+            }
+
+            // groups are aggregated from batches
+            String[] aggregates = {"SELECT NAME, COUNT(*), SUM(PRICE), MIN(BORN), AVG(PRICE) FROM T GROUP BY NAME",
+                    "SELECT BORN, COUNT(PRICE), MAX(NAME), MAX(PRICE), SUM(ID) FROM T WHERE ID < 100 GROUP BY BORN",
+                    "SELECT COUNT(*), MAX(PRICE), MIN(NAME), MAX(BORN), COUNT(PRICE) FROM T WHERE PRICE > 40"};
+
+            for (String sql : aggregates) {
+                List<String> rows = selectRows(statement, sql + " ORDER BY 1", 5);
+                Assert.assertThat(sql, selectRows(vectorStatement, sql + " ORDER BY 1", 5), Matchers.equalTo(rows));
+            }
+
+            vectorStatement.setMaxRows(1500);
+            Assert.assertThat(selectRows(vectorStatement, "SELECT ID FROM T WHERE ID >= 10", 1).size(),
+                    Matchers.equalTo(1500));
+        }
+    }
+
+    @Test
+    public void select_compiled() throws SQLException, IOException {
+        try (Connection connection = new JdbcConnection("jdbc:mdb:" + folder.newFolder().getPath(), new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER PRIMARY KEY, PRICE NUMBER(6, 2), BORN DATE)");
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO T VALUES (?, ?, ?)")) {
+                for (int i = 0; i < 3000; i++) {
+                    insert.setInt(1, i);
+                    insert.setBigDecimal(2, i % 7 == 0 ? null : BigDecimal.valueOf(i % 500, 1));
+                    insert.setDate(3, java.sql.Date.valueOf(LocalDate.of(2000, 1, 1).plusDays(i)));
+                    insert.executeUpdate();
+                }
+            }
+
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT ID FROM T WHERE PRICE > ? AND BORN < '2007-01-01' OR PRICE = 1.5")) {
+                select.setBigDecimal(1, new BigDecimal("40.5"));
+                List<Integer> ids = selectIds(select);
+                Assert.assertThat(ids.size(), Matchers.greaterThan(0));
+
+                // condition is compiled during the fourth execution
+                for (int i = 0; i < 4; i++)
+                    Assert.assertThat(selectIds(select), Matchers.equalTo(ids));
+
+                select.setBigDecimal(1, new BigDecimal(45));
+                Assert.assertThat(selectIds(select), Matchers.equalTo(selectIds(statement,
+                        "PRICE > 45 AND BORN < '2007-01-01' OR PRICE = 1.5")));
+            }
+        }
+    }
+
+    @Test
+    public void select_join() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath() + ";QUERY_MEMORY=16";
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE CUSTOMER (ID NUMBER PRIMARY KEY, NAME VARCHAR, CITY VARCHAR)");
+            statement.executeUpdate("CREATE TABLE ORDERS (ID NUMBER PRIMARY KEY, CUSTOMER_ID NUMBER, AMOUNT NUMBER(8, 2))");
+            statement.executeUpdate("CREATE TABLE CITY (NAME VARCHAR, COUNTRY VARCHAR)");
+
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO CUSTOMER VALUES (?, ?, ?)")) {
+                for (int i = 0; i < 200; i++) {
+                    insert.setInt(1, i);
+                    insert.setString(2, "customer" + i);
+                    insert.setString(3, "city" + i % 5);
+                    insert.executeUpdate();
+                }
+            }
+
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO ORDERS VALUES (?, ?, ?)")) {
+                for (int i = 0; i < 1000; i++) {
+                    insert.setInt(1, i);
+                    insert.setBigDecimal(2, i % 10 == 0 ? null : new BigDecimal(i % 250));
+                    insert.setBigDecimal(3, BigDecimal.valueOf(i, 1));
+                    insert.executeUpdate();
+                }
+            }
+
+            statement.executeUpdate("INSERT INTO CITY VALUES ('city0', 'A'), ('city1', 'B'), ('city2', 'A')");
+
+            // orders of customers 0..199 with amount > 50, customer id is NULL for every tenth order
+            long expected = IntStream.range(0, 1000).filter(i -> i % 10 != 0 && i % 250 < 200 && i > 500).count();
+            List<String> rows = selectRows(statement, "SELECT C.NAME, O.AMOUNT, O.CUSTOMER_ID FROM CUSTOMER C "
+                    + "JOIN ORDERS O ON O.CUSTOMER_ID = C.ID WHERE O.AMOUNT > 50", 3);
+
+            Assert.assertThat((long) rows.size(), Matchers.equalTo(expected));
+            Assert.assertThat(rows, Matchers.hasItem("customer1;50.10;1;"));
+
+            rows = selectRows(statement, "SELECT ORDERS.ID, COUNTRY FROM ORDERS INNER JOIN CUSTOMER ON "
+                    + "CUSTOMER.ID = CUSTOMER_ID JOIN CITY ON CITY.NAME = CUSTOMER.CITY "
+                    + "WHERE CUSTOMER.ID < 10 AND COUNTRY = 'A'", 2);
+            Assert.assertThat(rows, Matchers.containsInAnyOrder(IntStream.range(0, 1000)
+                    .filter(i -> i % 10 != 0 && i % 250 < 10 && (i % 250 % 5 == 0 || i % 250 % 5 == 2))
+                    .mapToObj(i -> i + ";A;").toArray()));
+
+            rows = selectRows(statement, "SELECT * FROM CITY A JOIN CITY B ON A.COUNTRY = B.COUNTRY AND A.NAME < B.NAME", 4);
+            Assert.assertThat(rows, Matchers.contains("city0;A;city2;A;"));
+
+            try {
+                statement.executeQuery("SELECT ID FROM CUSTOMER JOIN ORDERS ON CUSTOMER_ID = CUSTOMER.ID");
+                Assert.fail("ambiguous column accepted");
+            } catch (SQLException e) {
+                Assert.assertThat(e.getMessage(), Matchers.containsString("ambiguous column: ID"));
+            }
+
+            try {
+                statement.executeQuery("SELECT * FROM CUSTOMER C JOIN ORDERS O ON O.AMOUNT > C.ID");
+                Assert.fail("join without key accepted");
+            } catch (SQLException e) {
+                Assert.assertThat(e.getMessage(), Matchers.containsString("join condition"));
+            }
+        }
+    }
+
+    @Test
+    public void select_orderBy() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath() + ";QUERY_MEMORY=16";
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER PRIMARY KEY, NAME VARCHAR, PRICE NUMBER(8, 2))");
+            statement.executeUpdate("CREATE TABLE CATEGORY (ID NUMBER, NAME VARCHAR)");
+
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO T VALUES (?, ?, ?)")) {
+                for (int i = 0; i < 2000; i++) {
+                    insert.setInt(1, i);
+                    insert.setString(2, i % 7 == 0 ? null : "name" + (i * 31) % 1000);
+                    insert.setBigDecimal(3, BigDecimal.valueOf((i * 17) % 300 - 100, 1));
+                    insert.executeUpdate();
+                }
+            }
+
+            statement.executeUpdate("INSERT INTO CATEGORY VALUES (0, 'c0'), (1, 'c1'), (2, 'c2')");
+
+            // rows do not fit into memory of query, sorted runs are merged
+            List<String> rows = selectRows(statement, "SELECT ID, PRICE FROM T ORDER BY PRICE DESC, ID", 2);
+            Assert.assertThat(rows, Matchers.contains(IntStream.range(0, 2000).boxed()
+                    .sorted(Comparator.comparing((Integer i) -> (i * 17) % 300).reversed().thenComparing(i -> i))
+                    .map(i -> i + ";" + BigDecimal.valueOf((i * 17) % 300 * 10 - 1000, 2) + ";").toArray()));
+
+            // NULL is the first in ascending order, the last in descending order
+            rows = selectRows(statement, "SELECT NAME FROM T WHERE ID < 20 ORDER BY 1", 1);
+            Assert.assertThat(rows.subList(0, 3), Matchers.contains("null;", "null;", "null;"));
+            Assert.assertThat(rows.get(3), Matchers.equalTo("name124;"));
+
+            rows = selectRows(statement, "SELECT NAME FROM T WHERE ID < 20 ORDER BY NAME DESC", 1);
+            Assert.assertThat(rows.get(0), Matchers.equalTo("name93;"));
+            Assert.assertThat(rows.subList(17, 20), Matchers.contains("null;", "null;", "null;"));
+
+            rows = selectRows(statement, "SELECT T.ID, C.NAME FROM T JOIN CATEGORY C ON C.ID = T.ID "
+                    + "ORDER BY C.NAME DESC", 2);
+            Assert.assertThat(rows, Matchers.contains("2;c2;", "1;c1;", "0;c0;"));
+
+            try {
+                statement.executeQuery("SELECT ID FROM T ORDER BY 2");
+                Assert.fail("wrong position accepted");
+            } catch (SQLException e) {
+                Assert.assertThat(e.getMessage(), Matchers.containsString("ORDER BY position 2"));
+            }
+        }
+    }
+
+    @Test
+    public void select_limit() throws SQLException {
+        try (Connection connection = new JdbcConnection("jdbc:mdb:", new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER PRIMARY KEY, NAME VARCHAR, CREATED NUMBER)");
+            statement.executeUpdate("CREATE INDEX T_CREATED ON T (CREATED)");
+
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO T VALUES (?, ?, ?)")) {
+                for (int i = 0; i < 3000; i++) {
+                    insert.setInt(1, i);
+                    insert.setString(2, "name" + i);
+                    insert.setBigDecimal(3, i % 11 == 0 ? null : new BigDecimal((i * 7) % 5000));
+                    insert.executeUpdate();
+                }
+            }
+
+            List<String> created = IntStream.range(0, 3000).filter(i -> i % 11 != 0).map(i -> (i * 7) % 5000)
+                    .sorted().mapToObj(value -> value + ";").collect(Collectors.toList());
+
+            Assert.assertThat(selectRows(statement, "SELECT ID FROM T ORDER BY ID LIMIT 5", 1),
+                    Matchers.contains("0;", "1;", "2;", "3;", "4;"));
+
+            // rows are read by index in order, NULL is the first
+            Assert.assertThat(selectRows(statement, "SELECT CREATED FROM T ORDER BY CREATED LIMIT 3 OFFSET 272", 1),
+                    Matchers.contains("null;", created.get(0), created.get(1)));
+            Assert.assertThat(selectRows(statement, "SELECT CREATED FROM T WHERE CREATED > 100 ORDER BY CREATED LIMIT 3", 1),
+                    Matchers.contains(IntStream.range(0, 3000).filter(i -> i % 11 != 0).map(i -> (i * 7) % 5000)
+                            .filter(value -> value > 100).sorted().limit(3).mapToObj(value -> value + ";").toArray()));
+
+            // the first rows are kept in heap
+            Assert.assertThat(selectRows(statement, "SELECT CREATED FROM T ORDER BY CREATED DESC LIMIT 3", 1),
+                    Matchers.contains(created.get(created.size() - 1), created.get(created.size() - 2),
+                            created.get(created.size() - 3)));
+            Assert.assertThat(selectRows(statement, "SELECT ID FROM T ORDER BY NAME DESC LIMIT 2 OFFSET 1", 1),
+                    Matchers.contains("998;", "997;"));
+
+            // too many rows for heap, all rows are sorted
+            List<String> rows = selectRows(statement, "SELECT ID FROM T ORDER BY NAME DESC LIMIT 20000", 1);
+            Assert.assertThat(rows.size(), Matchers.equalTo(3000));
+            Assert.assertThat(rows.get(0), Matchers.equalTo("999;"));
+
+            Assert.assertThat(selectRows(statement, "SELECT ID FROM T LIMIT 10", 1).size(), Matchers.equalTo(10));
+            Assert.assertThat(selectRows(statement, "SELECT ID FROM T OFFSET 2990", 1).size(), Matchers.equalTo(10));
+
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT ID FROM T WHERE ID >= ? ORDER BY ID LIMIT ? OFFSET ?")) {
+                select.setInt(1, 100);
+                select.setInt(2, 2);
+                select.setInt(3, 5);
+
+                ResultSet resultSet = select.executeQuery();
+                Assert.assertTrue(resultSet.next());
+                Assert.assertThat(resultSet.getInt(1), Matchers.equalTo(105));
+                Assert.assertTrue(resultSet.next());
+                Assert.assertThat(resultSet.getInt(1), Matchers.equalTo(106));
+                Assert.assertFalse(resultSet.next());
+            }
+
+            try {
+                statement.executeQuery("SELECT ID FROM T LIMIT -1");
+                Assert.fail("negative limit accepted");
+            } catch (SQLException e) {
+                Assert.assertThat(e.getMessage(), Matchers.containsString("LIMIT must be non-negative integer"));
+            }
+        }
+    }
+
+    @Test
+    public void select_groupBy() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath() + ";QUERY_MEMORY=16";
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE SALES (ID NUMBER PRIMARY KEY, REGION VARCHAR, CUSTOMER NUMBER, "
+                    + "AMOUNT NUMBER(8, 2))");
+            statement.executeUpdate("CREATE TABLE REGION (NAME VARCHAR, COUNTRY VARCHAR)");
+
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO SALES VALUES (?, ?, ?, ?)")) {
+                for (int i = 0; i < 2000; i++) {
+                    insert.setInt(1, i);
+                    insert.setString(2, i % 9 == 0 ? null : "r" + i % 4);
+                    insert.setInt(3, (i * i) % 700);
+                    insert.setBigDecimal(4, i % 7 == 0 ? null : BigDecimal.valueOf(i % 100 * 100 + 5, 2));
+                    insert.executeUpdate();
+                }
+            }
+
+            statement.executeUpdate("INSERT INTO REGION VALUES ('r0', 'A'), ('r1', 'B'), ('r2', 'A')");
+
+            List<String> expected = new ArrayList<>();
+            for (String region : new String[] {null, "r0", "r1", "r2", "r3"}) {
+                List<BigDecimal> amounts = IntStream.range(0, 2000)
+                        .filter(i -> Objects.equals(i % 9 == 0 ? null : "r" + i % 4, region)).filter(i -> i % 7 != 0)
+                        .mapToObj(i -> BigDecimal.valueOf(i % 100 * 100 + 5, 2)).collect(Collectors.toList());
+                long count = IntStream.range(0, 2000).filter(i -> Objects.equals(i % 9 == 0 ? null : "r" + i % 4, region)).count();
+
+                BigDecimal sum = amounts.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+                expected.add(region + ";" + count + ";" + sum + ";" + Collections.min(amounts) + ";"
+                        + Collections.max(amounts) + ";" + sum.divide(new BigDecimal(amounts.size()), 6, RoundingMode.HALF_UP) + ";");
+            }
+
+            Assert.assertThat(selectRows(statement, "SELECT REGION, COUNT(*), SUM(AMOUNT), MIN(AMOUNT), MAX(AMOUNT), "
+                    + "AVG(AMOUNT) FROM SALES GROUP BY REGION ORDER BY REGION", 6), Matchers.equalTo(expected));
+
+            Assert.assertThat(selectRows(statement, "SELECT COUNT(*), COUNT(AMOUNT), MAX(REGION) FROM SALES", 3),
+                    Matchers.contains("2000;" + IntStream.range(0, 2000).filter(i -> i % 7 != 0).count() + ";r3;"));
+            Assert.assertThat(selectRows(statement, "SELECT COUNT(*), SUM(AMOUNT) FROM SALES WHERE ID < 0", 2),
+                    Matchers.contains("0;null;"));
+
+            // groups do not fit into memory of query, rows of other groups are aggregated later
+            Map<Integer, Long> counts = IntStream.range(0, 2000).boxed()
+                    .collect(Collectors.groupingBy(i -> (i * i) % 700, Collectors.counting()));
+            Assert.assertThat(selectRows(statement, "SELECT CUSTOMER, COUNT(*) FROM SALES GROUP BY CUSTOMER", 2),
+                    Matchers.containsInAnyOrder(counts.entrySet().stream()
+                            .map(entry -> entry.getKey() + ";" + entry.getValue() + ";").toArray()));
+
+            Assert.assertThat(selectRows(statement, "SELECT CUSTOMER, COUNT(*) FROM SALES GROUP BY CUSTOMER "
+                    + "ORDER BY COUNT(*) DESC, CUSTOMER LIMIT 1", 2), Matchers.contains(counts.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                    .map(entry -> entry.getKey() + ";" + entry.getValue() + ";").findFirst().get()));
+
+            Assert.assertThat(selectRows(statement, "SELECT COUNTRY, COUNT(*) FROM SALES S JOIN REGION R "
+                    + "ON R.NAME = S.REGION GROUP BY COUNTRY ORDER BY COUNTRY", 2), Matchers.contains(
+                    "A;" + IntStream.range(0, 2000).filter(i -> i % 9 != 0 && (i % 4 == 0 || i % 4 == 2)).count() + ";",
+                    "B;" + IntStream.range(0, 2000).filter(i -> i % 9 != 0 && i % 4 == 1).count() + ";"));
+
+            try {
+                statement.executeQuery("SELECT REGION, CUSTOMER, COUNT(*) FROM SALES GROUP BY REGION");
+                Assert.fail("column not grouped accepted");
+            } catch (SQLException e) {
+                Assert.assertThat(e.getMessage(), Matchers.containsString("column CUSTOMER must be in GROUP BY"));
+            }
+
+            try {
+                statement.executeQuery("SELECT ID FROM SALES WHERE COUNT(*) > 1");
+                Assert.fail("aggregate in condition accepted");
+            } catch (SQLException e) {
+                Assert.assertThat(e.getMessage(), Matchers.containsString("aggregate function not expected"));
+            }
+
+            // session keeps memory of the last query
+            Session session = Engine.getInstance().createSession(new ConnectionInfo(url, new Properties()));
+            try {
+                ParserFactory parserFactory = new ParserFactory(session);
+                parserFactory.setSql("SELECT CUSTOMER, COUNT(*) FROM SALES GROUP BY CUSTOMER");
+
+                try (Result result = parserFactory.getObject().command().executeQuery()) {
+                    while (result.next()) {
+                        // read all groups
+                    }
+                }
+
+                Assert.assertThat(session.getLastQueryMemory().getPeak(), Matchers.greaterThan(0L));
+                Assert.assertThat(session.getLastQueryMemory().getUsed(), Matchers.equalTo(0L));
+            } finally {
+                session.close();
+            }
+        }
+    }
+
+    @Test
+    public void select_parallel() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath() + ";PAGE_SIZE=512;QUERY_MEMORY=16;MAX_PARALLELISM=4";
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Connection parallel = new JdbcConnection(url + ";PARALLELISM=4", new Properties());
+             Connection vectorized = new JdbcConnection(url + ";PARALLELISM=3;VECTORIZED=TRUE", new Properties());
+             Statement statement = connection.createStatement();
+             Statement parallelStatement = parallel.createStatement();
+             Statement vectorStatement = vectorized.createStatement()) {
+            statement.executeUpdate("CREATE TABLE T (ID NUMBER PRIMARY KEY, PRICE NUMBER(6, 2), CUSTOMER NUMBER, "
+                    + "NAME VARCHAR)");
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO T VALUES (?, ?, ?, ?)")) {
+                for (int i = 0; i < 3000; i++) {
+                    insert.setInt(1, i);
+                    insert.setBigDecimal(2, i % 7 == 0 ? null : BigDecimal.valueOf(i % 500, 1));
+                    insert.setInt(3, (i * i) % 900);
+                    insert.setString(4, i % 11 == 0 ? null : "name" + i % 10);
+                    insert.executeUpdate();
+                }
+            }
+
+            // rows are passed in order of table pages, groups of threads are merged
+            String[] queries = {"SELECT ID, PRICE, NAME FROM T WHERE PRICE > 10", "SELECT ID, NAME, CUSTOMER FROM T",
+                    "SELECT ID, PRICE, NAME FROM T WHERE ID BETWEEN 100 AND 200",
+                    "SELECT NAME, ID, PRICE FROM T ORDER BY NAME DESC",
+                    "SELECT NAME, COUNT(*), SUM(PRICE), MIN(ID), AVG(PRICE) FROM T GROUP BY NAME ORDER BY NAME",
+                    "SELECT CUSTOMER, COUNT(*), MAX(NAME) FROM T GROUP BY CUSTOMER ORDER BY CUSTOMER",
+                    "SELECT COUNT(*), COUNT(PRICE), MIN(CUSTOMER) FROM T WHERE NAME = 'name3'",
+                    "SELECT COUNT(*), SUM(PRICE), MIN(NAME) FROM T WHERE ID < 0"};
+
+            for (String sql : queries) {
+                List<String> rows = selectRows(statement, sql, 3);
+                Assert.assertThat(sql, selectRows(parallelStatement, sql, 3), Matchers.equalTo(rows));
+                Assert.assertThat(sql, selectRows(vectorStatement, sql, 3), Matchers.equalTo(rows));
+            }
+
+            Assert.assertTrue(Thread.getAllStackTraces().keySet().stream()
+                    .anyMatch(thread -> thread.getName().startsWith("mydb query")));
+        }
+    }
+
+    @Test
+    public void select_analyze() throws SQLException, IOException {
+        String url = "jdbc:mdb:" + folder.newFolder().getPath() + ";QUERY_MEMORY=16";
+
+        try (Connection connection = new JdbcConnection(url, new Properties());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE CUSTOMER (ID NUMBER PRIMARY KEY, NAME VARCHAR, CITY VARCHAR)");
+            statement.executeUpdate("CREATE TABLE ORDERS (ID NUMBER PRIMARY KEY, CUSTOMER_ID NUMBER, AMOUNT NUMBER(8, 2))");
+            statement.executeUpdate("CREATE INDEX ORDERS_CUSTOMER ON ORDERS (CUSTOMER_ID)");
+            statement.executeUpdate("CREATE TABLE CITY (NAME VARCHAR, COUNTRY VARCHAR)");
+
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO CUSTOMER VALUES (?, ?, ?)")) {
+                for (int i = 0; i < 200; i++) {
+                    insert.setInt(1, i);
+                    insert.setString(2, "customer" + i);
+                    insert.setString(3, "city" + i % 5);
+                    insert.executeUpdate();
+                }
+            }
+
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO ORDERS VALUES (?, ?, ?)")) {
+                for (int i = 0; i < 3000; i++) {
+                    insert.setInt(1, i);
+                    insert.setBigDecimal(2, i % 10 == 0 ? null : new BigDecimal(i % 250));
+                    insert.setBigDecimal(3, BigDecimal.valueOf(i, 1));
+                    insert.executeUpdate();
+                }
+            }
+
+            statement.executeUpdate("INSERT INTO CITY VALUES ('city0', 'A'), ('city1', 'B'), ('city2', 'A')");
+
+            String[] queries = {"SELECT C.NAME, O.AMOUNT, CITY.COUNTRY FROM ORDERS O JOIN CUSTOMER C "
+                    + "ON O.CUSTOMER_ID = C.ID JOIN CITY ON CITY.NAME = C.CITY WHERE C.ID < 10",
+                    "SELECT * FROM CITY JOIN CUSTOMER C ON C.CITY = CITY.NAME JOIN ORDERS O ON O.CUSTOMER_ID = C.ID "
+                            + "WHERE O.ID = 17",
+                    "SELECT O.ID, C.ID, O.AMOUNT FROM CUSTOMER C JOIN ORDERS O ON O.CUSTOMER_ID = C.ID "
+                            + "WHERE C.NAME = 'customer7' AND O.AMOUNT BETWEEN 10 AND 200",
+                    "SELECT COUNTRY, COUNT(*), SUM(O.AMOUNT) FROM ORDERS O JOIN CUSTOMER C ON C.ID = O.CUSTOMER_ID "
+                            + "JOIN CITY ON CITY.NAME = C.CITY GROUP BY COUNTRY ORDER BY COUNTRY",
+                    "SELECT ID, CUSTOMER_ID, AMOUNT FROM ORDERS WHERE ID >= 10 AND CUSTOMER_ID IN (1, 2, 3)"};
+
+            // tables are joined in FROM order until they are analyzed
+            List<List<String>> expected = new ArrayList<>();
+            for (String sql : queries) {
+                List<String> rows = selectRows(statement, sql, 3);
+                Collections.sort(rows);
+                Assert.assertThat(sql, rows.isEmpty(), Matchers.is(false));
+                expected.add(rows);
+            }
+
+            statement.executeUpdate("ANALYZE ORDERS");
+            statement.executeUpdate("ANALYZE");
+
+            for (int i = 0; i < queries.length; i++) {
+                List<String> rows = selectRows(statement, queries[i], 3);
+                Collections.sort(rows);
+                Assert.assertThat(queries[i], rows, Matchers.equalTo(expected.get(i)));
+            }
+
+            Session session = Engine.getInstance().createSession(new ConnectionInfo(url, new Properties()));
+            try {
+                TableStatistics statistics = session.getDatabase().getTable("ORDERS").getStatistics();
+                Assert.assertThat(statistics.getRowCount(), Matchers.equalTo(3000L));
+                Assert.assertThat(statistics.getNullCount(1), Matchers.equalTo(300L));
+                Assert.assertThat(statistics.getDistinctCount(1), Matchers.equalTo(225L));
+                Assert.assertThat((double) statistics.getDistinctCount(0), Matchers.closeTo(3000, 300));
+                Assert.assertThat(statistics.getRangeFraction(0, 0L, 299L), Matchers.closeTo(0.1, 0.001));
+
+                // the only order is read by primary key, its customer is looked up by primary key
+                ParserFactory parserFactory = new ParserFactory(session);
+                parserFactory.setSql(queries[1]);
+                List<Join> joins = ((SelectOperation) parserFactory.getObject().parse()).getJoins();
+
+                Assert.assertThat(joins.stream().map(join -> join.getSelect().getTable().getName())
+                        .collect(Collectors.toList()), Matchers.contains("ORDERS", "CUSTOMER", "CITY"));
+                Assert.assertThat(joins.get(1).getLookup().isPrimaryKey(), Matchers.is(true));
+                Assert.assertThat(joins.get(2).getLookup(), Matchers.nullValue());
+
+                // orders of the only customer are looked up by index
+                parserFactory.setSql(queries[2]);
+                joins = ((SelectOperation) parserFactory.getObject().parse()).getJoins();
+                Assert.assertThat(joins.get(0).getSelect().getTable().getName(), Matchers.equalTo("CUSTOMER"));
+                Assert.assertThat(joins.get(1).getLookup().getName(), Matchers.equalTo("ORDERS_CUSTOMER"));
+            } finally {
+                session.close();
+            }
+        }
+    }
+
+    @Test
+    public void select_dual() throws SQLException {
+        try (Connection connection = new JdbcConnection("jdbc:mdb:", new Properties());
+             Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT 1, 'a' FROM DUAL");
+
+            Assert.assertTrue(resultSet.next());
+            Assert.assertThat(resultSet.getInt(1), Matchers.equalTo(1));
+            Assert.assertThat(resultSet.getString(2), Matchers.equalTo("a"));
+        }
+    }
+
+    // internal ==============================================================================
+    private static List<Integer> selectIds(Statement statement, String condition) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        ResultSet resultSet = statement.executeQuery("SELECT ID FROM T WHERE " + condition);
+        while (resultSet.next())
+            ids.add(resultSet.getInt(1));
+
+        return ids;
+    }
+
+    private static List<Integer> selectIds(PreparedStatement statement) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        ResultSet resultSet = statement.executeQuery();
+        while (resultSet.next())
+            ids.add(resultSet.getInt(1));
+
+        return ids;
+    }
+
+    private static List<String> selectRows(Statement statement, String sql, int columnCount) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        ResultSet resultSet = statement.executeQuery(sql);
+        while (resultSet.next()) {
+            StringBuilder row = new StringBuilder();
+            for (int i = 1; i <= columnCount; i++)
+                row.append(resultSet.getString(i)).append(';');
+
+            rows.add(row.toString());
+        }
+
+        return rows;
+    }
+
+    private static List<Integer> selectIds(Statement statement) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        ResultSet resultSet = statement.executeQuery("SELECT ID FROM T");
+        while (resultSet.next())
+            ids.add(resultSet.getInt(1));
+
+        return ids;
+    }
+
+    private static void copyDirectory(Path source, Path target) throws IOException {
+        try (Stream<Path> files = Files.walk(source)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.copy(file, target.resolve(source.relativize(file).toString()));
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.mydb.engine.index;
+
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mydb.engine.page.BufferPool;
+import org.mydb.engine.page.PageFile;
+import org.mydb.engine.table.TableException;
+import org.mydb.util.Bytes;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class BTreeIndexTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void add_find() throws IOException {
+        try (BTreeIndex index = new BTreeIndex(new PageFile(1, folder.newFile().toPath(), 512),
+                new BufferPool(512, 8), true)) {
+            Assert.assertTrue(index.add(null, Bytes.fromLong(2), 20));
+            Assert.assertTrue(index.add(null, Bytes.fromLong(1), 10));
+
+            Assert.assertThat(ids(index.find(Bytes.fromLong(1), Bytes.fromLong(1))), Matchers.contains(10L));
+            Assert.assertThat(ids(index.find(null, null)), Matchers.contains(10L, 20L));
+            Assert.assertThat(ids(index.find(Bytes.fromLong(3), null)), Matchers.empty());
+        }
+    }
+
+    @Test
+    public void add_duplicate() throws IOException {
+        try (BTreeIndex index = new BTreeIndex(new PageFile(1, folder.newFile().toPath(), 512),
+                new BufferPool(512, 8), true)) {
+            Assert.assertTrue(index.add(null, Bytes.fromLong(1), 10));
+            Assert.assertFalse(index.add(null, Bytes.fromLong(1), 11));
+
+            Assert.assertThat(ids(index.find(null, null)), Matchers.contains(10L));
+        }
+    }
+
+    @Test
+    public void add_split() throws IOException {
+        try (BTreeIndex index = new BTreeIndex(new PageFile(1, folder.newFile().toPath(), 512),
+                new BufferPool(512, 16), true)) {
+            // keys in mixed order, small pages need several levels
+            for (int i = 0; i < 2000; i++) {
+                long key = (i * 7919L) % 2000;
+                Assert.assertTrue(index.add(null, Bytes.fromLong(key), key * 10));
+            }
+
+            List<Long> all = ids(index.find(null, null));
+            Assert.assertThat(all.size(), Matchers.equalTo(2000));
+            for (int i = 0; i < all.size(); i++)
+                Assert.assertThat(all.get(i), Matchers.equalTo(i * 10L));
+
+            Assert.assertThat(ids(index.find(Bytes.fromLong(500), Bytes.fromLong(502))),
+                    Matchers.contains(5000L, 5010L, 5020L));
+            Assert.assertThat(index.getFile().getPageCount(), Matchers.greaterThan(10));
+        }
+    }
+
+    @Test
+    public void remove() throws IOException {
+        try (BTreeIndex index = new BTreeIndex(new PageFile(1, folder.newFile().toPath(), 512),
+                new BufferPool(512, 16), true)) {
+            for (int i = 0; i < 500; i++)
+                index.add(null, Bytes.fromLong(i), i);
+
+            for (int i = 0; i < 500; i += 2)
+                index.remove(null, Bytes.fromLong(i));
+
+            index.remove(null, Bytes.fromLong(1000));
+
+            List<Long> all = ids(index.find(null, null));
+            Assert.assertThat(all.size(), Matchers.equalTo(250));
+            Assert.assertThat(all.get(0), Matchers.equalTo(1L));
+
+            Assert.assertTrue(index.add(null, Bytes.fromLong(0), 0));
+            Assert.assertThat(ids(index.find(null, Bytes.fromLong(1))), Matchers.contains(0L, 1L));
+        }
+    }
+
+    @Test
+    public void find_prefix() throws IOException {
+        try (BTreeIndex index = new BTreeIndex(new PageFile(1, folder.newFile().toPath(), 512),
+                new BufferPool(512, 8), false)) {
+            byte[] key = new byte[] {1, 2};
+
+            index.add(null, IndexKey.withRecordId(key, 5), 5);
+            index.add(null, IndexKey.withRecordId(key, 3), 3);
+            index.add(null, IndexKey.withRecordId(new byte[] {1, 3}, 4), 4);
+
+            Assert.assertThat(ids(index.find(key, key)), Matchers.contains(3L, 5L));
+        }
+    }
+
+    @Test
+    public void load() throws IOException {
+        Path path = folder.newFile().toPath();
+
+        try (BTreeIndex index = new BTreeIndex(new PageFile(1, path, 512), new BufferPool(512, 8), true)) {
+            List<byte[]> keys = new ArrayList<>();
+            List<Long> recordIds = new ArrayList<>();
+            for (int i = 0; i < 5000; i += 2) {
+                keys.add(Bytes.fromLong(i));
+                recordIds.add((long) i);
+            }
+
+            index.load(keys, recordIds);
+
+            Assert.assertThat(ids(index.find(Bytes.fromLong(100), Bytes.fromLong(104))),
+                    Matchers.contains(100L, 102L, 104L));
+
+            // loaded pages are nearly full, inserts split them
+            for (int i = 1; i < 5000; i += 2)
+                Assert.assertTrue(index.add(null, Bytes.fromLong(i), i));
+
+            Assert.assertFalse(index.add(null, Bytes.fromLong(4998), 0));
+        }
+
+        try (BTreeIndex index = new BTreeIndex(new PageFile(1, path, 512), new BufferPool(512, 8), true)) {
+            List<Long> all = ids(index.find(null, null));
+            Assert.assertThat(all.size(), Matchers.equalTo(5000));
+            for (int i = 0; i < all.size(); i++)
+                Assert.assertThat(all.get(i), Matchers.equalTo((long) i));
+        }
+    }
+
+    @Test
+    public void load_keyTooLarge() throws IOException {
+        try (BTreeIndex index = new BTreeIndex(new PageFile(1, folder.newFile().toPath(), 512),
+                new BufferPool(512, 8), true)) {
+            List<byte[]> keys = new ArrayList<>();
+            List<Long> recordIds = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                keys.add(Bytes.fromLong(i));
+                recordIds.add((long) i);
+            }
+
+            keys.add(new byte[400]);
+            recordIds.add(100L);
+
+            try {
+                index.load(keys, recordIds);
+                Assert.fail("key larger than page entry loaded");
+            } catch (TableException e) {
+                Assert.assertThat(e.getMessage(), Matchers.containsString("index key too large: 400 bytes"));
+            }
+
+            // nothing is written, index is still empty
+            Assert.assertThat(index.getFile().getPageCount(), Matchers.equalTo(1));
+            Assert.assertThat(ids(index.find(null, null)).size(), Matchers.equalTo(0));
+        }
+    }
+
+    @Test
+    public void reopen() throws IOException {
+        Path path = folder.newFile().toPath();
+
+        try (BTreeIndex index = new BTreeIndex(new PageFile(1, path, 512), new BufferPool(512, 8), true)) {
+            for (int i = 0; i < 1000; i++)
+                index.add(null, Bytes.fromLong(i), i);
+        }
+
+        try (BTreeIndex index = new BTreeIndex(new PageFile(1, path, 512), new BufferPool(512, 8), true)) {
+            Assert.assertThat(ids(index.find(null, null)).size(), Matchers.equalTo(1000));
+            Assert.assertFalse(index.add(null, Bytes.fromLong(999), 0));
+        }
+    }
+
+    // internal ==============================================================================
+    private static List<Long> ids(Iterator<Long> iterator) {
+        List<Long> ids = new ArrayList<>();
+        while (iterator.hasNext())
+            ids.add(iterator.next());
+
+        return ids;
+    }
+}
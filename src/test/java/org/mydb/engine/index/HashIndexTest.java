@@ -0,0 +1,122 @@
+package org.mydb.engine.index;
+
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mydb.engine.page.BufferPool;
+import org.mydb.engine.page.PageFile;
+import org.mydb.engine.table.TableException;
+import org.mydb.util.Bytes;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class HashIndexTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void add_find() throws IOException {
+        try (HashIndex index = new HashIndex(new PageFile(1, folder.newFile().toPath(), 512),
+                new BufferPool(512, 8), true)) {
+            Assert.assertTrue(index.add(null, Bytes.fromLong(2), 20));
+            Assert.assertTrue(index.add(null, Bytes.fromLong(1), 10));
+            Assert.assertFalse(index.add(null, Bytes.fromLong(1), 11));
+
+            Assert.assertThat(ids(index.find(Bytes.fromLong(1), Bytes.fromLong(1))), Matchers.contains(10L));
+            Assert.assertThat(ids(index.find(Bytes.fromLong(3), Bytes.fromLong(3))), Matchers.empty());
+        }
+    }
+
+    @Test(expected = TableException.class)
+    public void find_range() throws IOException {
+        try (HashIndex index = new HashIndex(new PageFile(1, folder.newFile().toPath(), 512),
+                new BufferPool(512, 8), true)) {
+            index.find(Bytes.fromLong(1), Bytes.fromLong(2));
+        }
+    }
+
+    @Test
+    public void add_split() throws IOException {
+        try (HashIndex index = new HashIndex(new PageFile(1, folder.newFile().toPath(), 512),
+                new BufferPool(512, 16), true)) {
+            for (int i = 0; i < 5000; i++)
+                Assert.assertTrue(index.add(null, Bytes.fromLong(i), i * 10L));
+
+            for (int i = 0; i < 5000; i++) {
+                Assert.assertThat(ids(index.find(Bytes.fromLong(i), Bytes.fromLong(i))),
+                        Matchers.contains(i * 10L));
+            }
+
+            // buckets are split as keys are added, so most buckets are one page
+            Assert.assertThat(index.getFile().getPageCount(), Matchers.lessThan(400));
+        }
+    }
+
+    @Test
+    public void add_nonUnique() throws IOException {
+        try (HashIndex index = new HashIndex(new PageFile(1, folder.newFile().toPath(), 512),
+                new BufferPool(512, 16), false)) {
+            for (int i = 0; i < 3000; i++)
+                Assert.assertTrue(index.add(null, IndexKey.withRecordId(Bytes.fromLong(i % 100), i), i));
+
+            List<Long> ids = ids(index.find(Bytes.fromLong(42), Bytes.fromLong(42)));
+            Assert.assertThat(ids.size(), Matchers.equalTo(30));
+            for (long id : ids)
+                Assert.assertThat(id % 100, Matchers.equalTo(42L));
+        }
+    }
+
+    @Test
+    public void remove() throws IOException {
+        try (HashIndex index = new HashIndex(new PageFile(1, folder.newFile().toPath(), 512),
+                new BufferPool(512, 16), true)) {
+            for (int i = 0; i < 1000; i++)
+                index.add(null, Bytes.fromLong(i), i);
+
+            for (int i = 0; i < 1000; i += 2)
+                index.remove(null, Bytes.fromLong(i));
+
+            Assert.assertThat(ids(index.find(Bytes.fromLong(500), Bytes.fromLong(500))), Matchers.empty());
+            Assert.assertThat(ids(index.find(Bytes.fromLong(501), Bytes.fromLong(501))), Matchers.contains(501L));
+            Assert.assertTrue(index.add(null, Bytes.fromLong(500), 5));
+        }
+    }
+
+    @Test
+    public void reopen() throws IOException {
+        Path path = folder.newFile().toPath();
+
+        try (HashIndex index = new HashIndex(new PageFile(1, path, 512), new BufferPool(512, 8), true)) {
+            List<byte[]> keys = new ArrayList<>();
+            List<Long> recordIds = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                keys.add(Bytes.fromLong(i));
+                recordIds.add((long) i);
+            }
+
+            index.load(keys, recordIds);
+        }
+
+        try (HashIndex index = new HashIndex(new PageFile(1, path, 512), new BufferPool(512, 8), true)) {
+            for (int i = 0; i < 1000; i++)
+                Assert.assertThat(ids(index.find(Bytes.fromLong(i), Bytes.fromLong(i))), Matchers.contains((long) i));
+
+            Assert.assertFalse(index.add(null, Bytes.fromLong(999), 0));
+        }
+    }
+
+    // internal ==============================================================================
+    private static List<Long> ids(Iterator<Long> iterator) {
+        List<Long> ids = new ArrayList<>();
+        while (iterator.hasNext())
+            ids.add(iterator.next());
+
+        return ids;
+    }
+}
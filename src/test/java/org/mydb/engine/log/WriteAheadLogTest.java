@@ -0,0 +1,203 @@
+package org.mydb.engine.log;
+
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mydb.DbException;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class WriteAheadLogTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void append_read() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(folder.newFolder().toPath(), 1024, 0)) {
+            long lsn1 = log.append(LogRecord.createTable(1, "CREATE TABLE T (ID NUMBER)"));
+            long lsn2 = log.append(LogRecord.insert(5, 1, 0, 0, new byte[] {1, 2, 3}));
+            long lsn3 = log.append(LogRecord.commit(5));
+            log.flush(lsn3);
+
+            Assert.assertThat(log.getFlushedLsn(), Matchers.greaterThan(lsn3));
+
+            List<LogRecord> records = readAll(log, lsn1);
+            Assert.assertThat(records.size(), Matchers.equalTo(3));
+            Assert.assertThat(records.get(0).getSql(), Matchers.equalTo("CREATE TABLE T (ID NUMBER)"));
+            Assert.assertThat(records.get(1).getLsn(), Matchers.equalTo(lsn2));
+            Assert.assertThat(records.get(1).getData(), Matchers.equalTo(new byte[] {1, 2, 3}));
+            Assert.assertThat(records.get(2).getType(), Matchers.equalTo(LogRecord.Type.COMMIT));
+
+            Assert.assertThat(readAll(log, lsn2).size(), Matchers.equalTo(2));
+        }
+    }
+
+    @Test
+    public void writeFailure_failStop() throws IOException {
+        Path directory = folder.newFolder().toPath();
+
+        long lsn1;
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1024, 0)) {
+            lsn1 = log.append(LogRecord.commit(1));
+            log.flush(lsn1);
+
+            // interrupted thread closes log channel on write
+            log.append(LogRecord.commit(2));
+            Thread.currentThread().interrupt();
+            try {
+                log.flush();
+                Assert.fail("flush should fail");
+            } catch (DbException e) {
+                // expected
+            } finally {
+                Thread.interrupted();
+            }
+
+            Assert.assertTrue(log.isFailed());
+
+            try {
+                log.append(LogRecord.commit(3));
+                Assert.fail("append should be rejected");
+            } catch (DbException e) {
+                // expected
+            }
+        }
+
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1024, 0)) {
+            List<LogRecord> records = readAll(log, lsn1);
+            Assert.assertThat(records.size(), Matchers.equalTo(1));
+        }
+    }
+
+    @Test
+    public void reopen_segments() throws IOException {
+        Path directory = folder.newFolder().toPath();
+
+        long endLsn;
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1024, 0)) {
+            for (int i = 0; i < 100; i++)
+                log.flush(log.append(LogRecord.insert(i, 1, i, 0, new byte[50])));
+
+            endLsn = log.getEndLsn();
+        }
+
+        Assert.assertThat(countSegments(directory), Matchers.greaterThan(1));
+
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1024, 0)) {
+            Assert.assertThat(log.getEndLsn(), Matchers.equalTo(endLsn));
+
+            List<LogRecord> records = readAll(log, log.getFirstLsn());
+            Assert.assertThat(records.size(), Matchers.equalTo(100));
+            Assert.assertThat(records.get(99).getXid(), Matchers.equalTo(99L));
+
+            log.switchSegment();
+            log.truncate(log.getEndLsn());
+            Assert.assertThat(readAll(log, log.getFirstLsn()).size(), Matchers.equalTo(0));
+        }
+
+        Assert.assertThat(countSegments(directory), Matchers.equalTo(1));
+    }
+
+    @Test
+    public void reopen_discardsTornRecord() throws IOException {
+        Path directory = folder.newFolder().toPath();
+
+        long lsn;
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1024 * 1024, 0)) {
+            log.append(LogRecord.insert(1, 1, 0, 0, new byte[10]));
+            lsn = log.append(LogRecord.insert(1, 1, 0, 1, new byte[10]));
+        }
+
+        Path segment = lastSegment(directory);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1024 * 1024, 0)) {
+            Assert.assertThat(log.getEndLsn(), Matchers.equalTo(lsn));
+            Assert.assertThat(readAll(log, log.getFirstLsn()).size(), Matchers.equalTo(1));
+
+            long next = log.append(LogRecord.commit(1));
+            log.flush(next);
+            Assert.assertThat(next, Matchers.equalTo(lsn));
+            Assert.assertThat(readAll(log, log.getFirstLsn()).size(), Matchers.equalTo(2));
+        }
+    }
+
+    @Test
+    public void flush_groupCommit() throws Exception {
+        int threads = 8;
+        int commits = 200;
+
+        try (WriteAheadLog log = new WriteAheadLog(folder.newFolder().toPath(), 1024 * 1024, 200)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+
+            for (int t = 0; t < threads; t++) {
+                long xid = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < commits; i++) {
+                        log.append(LogRecord.insert(xid, 1, i, 0, new byte[20]));
+                        long lsn = log.append(LogRecord.commit(xid));
+                        log.flush(lsn);
+                        Assert.assertThat(log.getFlushedLsn(), Matchers.greaterThan(lsn));
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures)
+                future.get();
+
+            executor.shutdown();
+
+            Assert.assertThat(log.getFlushRequests(), Matchers.equalTo((long) threads * commits));
+            Assert.assertThat(log.getSyncs(), Matchers.lessThan(log.getFlushRequests()));
+            Assert.assertThat(readAll(log, log.getFirstLsn()).size(), Matchers.equalTo(threads * commits * 2));
+        }
+    }
+
+    // internal ==============================================================================
+    private static List<LogRecord> readAll(WriteAheadLog log, long fromLsn) {
+        List<LogRecord> records = new ArrayList<>();
+        Iterator<LogRecord> iterator = log.read(fromLsn);
+        while (iterator.hasNext())
+            records.add(iterator.next());
+
+        return records;
+    }
+
+    private static int countSegments(Path directory) throws IOException {
+        int count = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.log")) {
+            for (Path ignored : files)
+                count++;
+        }
+
+        return count;
+    }
+
+    private static Path lastSegment(Path directory) throws IOException {
+        Path last = null;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.log")) {
+            for (Path file : files) {
+                if (last == null || file.getFileName().toString().compareTo(last.getFileName().toString()) > 0)
+                    last = file;
+            }
+        }
+
+        return last;
+    }
+}
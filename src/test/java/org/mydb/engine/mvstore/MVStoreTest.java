@@ -0,0 +1,196 @@
+package org.mydb.engine.mvstore;
+
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mydb.engine.tx.Transaction;
+import org.mydb.util.Bytes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class MVStoreTest {
+    private static final int KEYS_PER_PAGE = 4;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void put_get_remove() throws IOException {
+        try (MVStore store = new MVStore(folder.newFile().toPath(), KEYS_PER_PAGE, 16)) {
+            MVMap map = store.openMap(1);
+            TreeMap<Long, byte[]> expected = new TreeMap<>();
+            Random random = new Random(1);
+
+            for (int i = 0; i < 2000; i++) {
+                long key = random.nextInt(500);
+                if (random.nextInt(3) == 0) {
+                    Assert.assertThat(map.remove(key(key)), Matchers.equalTo(expected.remove(key)));
+                } else {
+                    byte[] value = value(i);
+                    Assert.assertThat(map.put(key(key), value), Matchers.equalTo(expected.put(key, value)));
+                }
+
+                if (i % 100 == 0)
+                    store.commit();
+            }
+
+            Assert.assertThat(keys(map.cursor()), Matchers.equalTo(new ArrayList<>(expected.keySet())));
+            for (Long key : expected.keySet())
+                Assert.assertThat(map.get(key(key)), Matchers.equalTo(expected.get(key)));
+
+            Assert.assertThat(Bytes.toLong(map.lastKey()), Matchers.equalTo(expected.lastKey()));
+
+            for (Long key : new ArrayList<>(expected.keySet()))
+                map.remove(key(key));
+
+            Assert.assertTrue(map.isEmpty());
+        }
+    }
+
+    @Test
+    public void cursor_from() throws IOException {
+        try (MVStore store = new MVStore(folder.newFile().toPath(), KEYS_PER_PAGE, 16)) {
+            MVMap map = store.openMap(1);
+            for (long key = 0; key < 100; key += 2)
+                map.put(key(key), value(key));
+
+            List<Long> keys = keys(map.cursor(key(51)));
+            Assert.assertThat(keys.size(), Matchers.equalTo(24));
+            Assert.assertThat(keys.get(0), Matchers.equalTo(52L));
+
+            Assert.assertThat(keys(map.cursor(key(100))), Matchers.empty());
+        }
+    }
+
+    @Test
+    public void cursor_readsSnapshot() throws IOException {
+        try (MVStore store = new MVStore(folder.newFile().toPath(), KEYS_PER_PAGE, 16)) {
+            MVMap map = store.openMap(1);
+            for (long key = 0; key < 50; key++)
+                map.put(key(key), value(key));
+
+            Cursor cursor = map.cursor();
+            for (long key = 0; key < 50; key++)
+                map.remove(key(key));
+            map.put(key(100), value(100));
+            store.commit();
+
+            Assert.assertThat(keys(cursor).size(), Matchers.equalTo(50));
+            Assert.assertThat(keys(map.cursor()), Matchers.contains(100L));
+        }
+    }
+
+    @Test
+    public void reopen_keepsCommitted() throws IOException {
+        Path path = folder.newFile().toPath();
+
+        try (MVStore store = new MVStore(path, KEYS_PER_PAGE, 16)) {
+            MVMap map = store.openMap(1);
+            for (long key = 0; key < 100; key++)
+                map.put(key(key), value(key));
+            store.commit();
+
+            store.openMap(2).put(key(1), value(1));
+            store.commit();
+
+            map.put(key(1000), value(1000));
+        }
+
+        try (MVStore store = new MVStore(path, KEYS_PER_PAGE, 16)) {
+            MVMap map = store.openMap(1);
+            Assert.assertThat(keys(map.cursor()).size(), Matchers.equalTo(100));
+            Assert.assertThat(map.get(key(42)), Matchers.equalTo(value(42)));
+            Assert.assertThat(map.get(key(1000)), Matchers.nullValue());
+            Assert.assertThat(store.openMap(2).get(key(1)), Matchers.equalTo(value(1)));
+            Assert.assertThat(store.getVersion(), Matchers.equalTo(2L));
+        }
+    }
+
+    @Test
+    public void reopen_dropsTornChunk() throws IOException {
+        Path path = folder.newFile().toPath();
+
+        long size;
+        try (MVStore store = new MVStore(path, KEYS_PER_PAGE, 16)) {
+            store.openMap(1).put(key(1), value(1));
+            store.commit();
+            size = store.getFileSize();
+
+            store.openMap(1).put(key(2), value(2));
+            store.commit();
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        try (MVStore store = new MVStore(path, KEYS_PER_PAGE, 16)) {
+            Assert.assertThat(store.getFileSize(), Matchers.equalTo(size));
+            Assert.assertThat(store.openMap(1).get(key(1)), Matchers.equalTo(value(1)));
+            Assert.assertThat(store.openMap(1).get(key(2)), Matchers.nullValue());
+
+            store.openMap(1).put(key(3), value(3));
+            store.commit();
+        }
+
+        try (MVStore store = new MVStore(path, KEYS_PER_PAGE, 16)) {
+            Assert.assertThat(keys(store.openMap(1).cursor()), Matchers.contains(1L, 3L));
+        }
+    }
+
+    @Test
+    public void transactionStore_rollbackPending() throws IOException {
+        Path path = folder.newFile().toPath();
+
+        try (MVStore store = new MVStore(path, KEYS_PER_PAGE, 16)) {
+            TransactionStore transactionStore = new TransactionStore(store);
+            MVMap map = store.openMap(1);
+
+            Transaction committed = new Transaction(1, null);
+            Transaction running = new Transaction(2, null);
+
+            for (long key = 0; key < 10; key++) {
+                Transaction transaction = key % 2 == 0 ? committed : running;
+                transactionStore.addInsert(transaction, map, key(key));
+                map.put(key(key), value(key));
+            }
+
+            committed.commit();
+        }
+
+        try (MVStore store = new MVStore(path, KEYS_PER_PAGE, 16)) {
+            TransactionStore transactionStore = new TransactionStore(store);
+            Assert.assertThat(transactionStore.rollbackPending(), Matchers.equalTo(5));
+            Assert.assertThat(keys(store.openMap(1).cursor()), Matchers.contains(0L, 2L, 4L, 6L, 8L));
+            Assert.assertThat(transactionStore.rollbackPending(), Matchers.equalTo(0));
+        }
+    }
+
+    // internal ==============================================================================
+    private static byte[] value(long key) {
+        return ByteBuffer.allocate(8).putLong(key).array();
+    }
+
+    private static byte[] key(long key) {
+        return Bytes.fromLong(key);
+    }
+
+    private static List<Long> keys(Cursor cursor) {
+        List<Long> keys = new ArrayList<>();
+        while (cursor.hasNext())
+            keys.add(Bytes.toLong(cursor.next()));
+
+        return keys.isEmpty() ? Collections.<Long>emptyList() : keys;
+    }
+}
@@ -0,0 +1,233 @@
+package org.mydb.engine.page;
+
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mydb.DbException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class BufferPoolTest {
+    private static final int PAGE_SIZE = 128;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PageFile file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = new PageFile(1, folder.newFile().toPath(), PAGE_SIZE);
+
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+        for (int i = 0; i < 100; i++) {
+            buffer.putInt(0, i);
+            file.writePage(i, buffer);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        file.close();
+    }
+
+    @Test
+    public void pin_hit_miss() {
+        BufferPool pool = new BufferPool(PAGE_SIZE, 4);
+
+        BufferPool.Frame frame = pool.pin(file, 5);
+        Assert.assertThat(frame.getBuffer().getInt(0), Matchers.equalTo(5));
+        pool.unpin(frame);
+
+        pool.unpin(pool.pin(file, 5));
+
+        Assert.assertThat(pool.getMisses(), Matchers.equalTo(1L));
+        Assert.assertThat(pool.getHits(), Matchers.equalTo(1L));
+    }
+
+    @Test
+    public void evict_writesDirtyPage() {
+        BufferPool pool = new BufferPool(PAGE_SIZE, 2);
+
+        BufferPool.Frame frame = pool.pin(file, 1);
+        frame.writeLock();
+        frame.getBuffer().putInt(0, 1001);
+        frame.markDirty();
+        frame.writeUnlock();
+        pool.unpin(frame);
+
+        for (int i = 10; i < 20; i++)
+            pool.unpin(pool.pin(file, i));
+
+        Assert.assertThat(pool.getEvictions(), Matchers.greaterThan(0L));
+        Assert.assertThat(pool.getWrites(), Matchers.equalTo(1L));
+
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+        file.readPage(1, buffer);
+        Assert.assertThat(buffer.getInt(0), Matchers.equalTo(1001));
+    }
+
+    @Test
+    public void pinned_notEvicted() {
+        BufferPool pool = new BufferPool(PAGE_SIZE, 2);
+
+        BufferPool.Frame pinned = pool.pin(file, 1);
+
+        for (int i = 10; i < 20; i++)
+            pool.unpin(pool.pin(file, i));
+
+        Assert.assertThat(pinned.getPageNo(), Matchers.equalTo(1));
+        Assert.assertThat(pinned.getBuffer().getInt(0), Matchers.equalTo(1));
+        pool.unpin(pinned);
+    }
+
+    @Test(expected = DbException.class)
+    public void allPinned() {
+        BufferPool pool = new BufferPool(PAGE_SIZE, 2);
+
+        pool.pin(file, 1);
+        pool.pin(file, 2);
+        pool.pin(file, 3);
+    }
+
+    @Test
+    public void readFailure_releasesFrame() throws IOException {
+        FailingPageFile failing = new FailingPageFile(folder.newFile().toPath());
+        BufferPool pool = new BufferPool(PAGE_SIZE, 2);
+
+        failing.failReads = true;
+        for (int i = 0; i < 5; i++) {
+            try {
+                pool.pin(failing, i);
+                Assert.fail("read should fail");
+            } catch (DbException e) {
+                // expected
+            }
+        }
+
+        failing.failReads = false;
+        BufferPool.Frame frame1 = pool.pin(failing, 1);
+        BufferPool.Frame frame2 = pool.pin(failing, 2);
+        pool.unpin(frame1);
+        pool.unpin(frame2);
+        failing.close();
+    }
+
+    @Test
+    public void writeFailure_keepsDirtyPage() throws IOException {
+        FailingPageFile failing = new FailingPageFile(folder.newFile().toPath());
+        BufferPool pool = new BufferPool(PAGE_SIZE, 1);
+
+        BufferPool.Frame frame = pool.pin(failing, 1);
+        frame.writeLock();
+        frame.getBuffer().putInt(0, 1001);
+        frame.markDirty();
+        frame.writeUnlock();
+        pool.unpin(frame);
+
+        failing.failWrites = true;
+        for (int i = 0; i < 5; i++) {
+            try {
+                pool.pin(failing, 10 + i);
+                Assert.fail("write back should fail");
+            } catch (DbException e) {
+                // expected
+            }
+        }
+
+        failing.failWrites = false;
+        pool.unpin(pool.pin(failing, 10));
+
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+        failing.readPage(1, buffer);
+        Assert.assertThat(buffer.getInt(0), Matchers.equalTo(1001));
+        failing.close();
+    }
+
+    @Test
+    public void scan_keepsHotPages() {
+        BufferPool pool = new BufferPool(PAGE_SIZE, 10);
+
+        // hot pages used several times
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 5; i++)
+                pool.unpin(pool.pin(file, i));
+        }
+
+        BufferPool.ScanRing ring = pool.newScanRing();
+        for (int i = 5; i < 100; i++)
+            pool.unpin(pool.pinForScan(file, i, ring));
+
+        long misses = pool.getMisses();
+        for (int i = 0; i < 5; i++)
+            pool.unpin(pool.pin(file, i));
+
+        Assert.assertThat(pool.getMisses(), Matchers.equalTo(misses));
+    }
+
+    @Test
+    public void concurrentPins() throws Exception {
+        BufferPool pool = new BufferPool(PAGE_SIZE, 8);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    int pageNo = (i * 31) % 100;
+                    BufferPool.Frame frame = pool.pin(file, pageNo);
+                    frame.readLock();
+                    try {
+                        Assert.assertThat(frame.getBuffer().getInt(0), Matchers.equalTo(pageNo));
+                    } finally {
+                        frame.readUnlock();
+                        pool.unpin(frame);
+                    }
+                }
+            }));
+        }
+
+        for (Future<?> future : futures)
+            future.get();
+
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+
+        Assert.assertThat(pool.getHits() + pool.getMisses(), Matchers.equalTo(8000L));
+    }
+
+    private static class FailingPageFile extends PageFile {
+        private volatile boolean failReads;
+        private volatile boolean failWrites;
+
+        FailingPageFile(Path path) {
+            super(2, path, PAGE_SIZE);
+        }
+
+        @Override
+        public void readPage(int pageNo, ByteBuffer pageBuffer) {
+            if (failReads)
+                throw new DbException("read failed");
+            super.readPage(pageNo, pageBuffer);
+        }
+
+        @Override
+        public void writePage(int pageNo, ByteBuffer pageBuffer) {
+            if (failWrites)
+                throw new DbException("write failed");
+            super.writePage(pageNo, pageBuffer);
+        }
+    }
+}
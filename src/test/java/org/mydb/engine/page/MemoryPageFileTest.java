@@ -0,0 +1,50 @@
+package org.mydb.engine.page;
+
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+
+public class MemoryPageFileTest {
+    private static final int PAGE_SIZE = 128;
+
+    @Test
+    public void write_read() {
+        try (MemoryPageFile file = new MemoryPageFile(1, Paths.get("1.tbl"), PAGE_SIZE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+            for (int i = 0; i < 20000; i += 7) {
+                buffer.putInt(0, i);
+                buffer.putInt(PAGE_SIZE - 4, -i);
+                file.writePage(i, buffer);
+            }
+
+            Assert.assertThat(file.getPageCount(), Matchers.equalTo(20000));
+
+            ByteBuffer page = ByteBuffer.allocateDirect(PAGE_SIZE);
+            file.readPage(7000, page);
+            Assert.assertThat(page.getInt(0), Matchers.equalTo(7000));
+            Assert.assertThat(page.getInt(PAGE_SIZE - 4), Matchers.equalTo(-7000));
+            Assert.assertThat(page.position(), Matchers.equalTo(0));
+        }
+    }
+
+    @Test
+    public void read_notWritten() {
+        try (MemoryPageFile file = new MemoryPageFile(1, Paths.get("1.tbl"), PAGE_SIZE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+            buffer.putInt(0, 1);
+            file.writePage(1, buffer);
+
+            file.readPage(0, buffer);
+            Assert.assertThat(buffer.getInt(0), Matchers.equalTo(0));
+
+            // page of slab which was never allocated
+            buffer.putInt(0, 1);
+            file.readPage(100000, buffer);
+            Assert.assertThat(buffer.getInt(0), Matchers.equalTo(0));
+            Assert.assertThat(file.getAllocatedSize(), Matchers.equalTo(1024L * 1024L));
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.mydb.engine.table;
+
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mydb.engine.page.BufferPool;
+import org.mydb.engine.page.PageFile;
+import org.mydb.engine.table.datatype.DataType;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+
+public class ColumnStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void insert_read() throws IOException {
+        Table table = newTable();
+        try (ColumnStore store = new ColumnStore(new PageFile(1, folder.newFile().toPath(), 512),
+                new BufferPool(512, 8), table.getColumns())) {
+            table.setStore(store);
+
+            Row row = table.insert(null, new Object[] {BigDecimal.ONE, "one", null});
+            table.insert(null, new Object[] {new BigDecimal(2), null, "b"});
+
+            Assert.assertThat(row.getKey(), Matchers.equalTo(0L));
+            Assert.assertThat(table.read(0).getValues(), Matchers.arrayContaining(BigDecimal.ONE, "one", null));
+            Assert.assertThat(table.read(1).getValues(), Matchers.arrayContaining(new BigDecimal(2), null, "b"));
+            Assert.assertThat(table.read(2), Matchers.nullValue());
+
+            store.delete(null, 0);
+            Assert.assertThat(table.read(0), Matchers.nullValue());
+            Assert.assertThat(table.read(1), Matchers.notNullValue());
+        }
+    }
+
+    @Test
+    public void scan_columns() throws IOException {
+        Path path = folder.newFile().toPath();
+        Table table = newTable();
+
+        try (ColumnStore store = new ColumnStore(new PageFile(1, path, 512), new BufferPool(512, 8),
+                table.getColumns())) {
+            table.setStore(store);
+            for (int i = 0; i < 1000; i++)
+                table.insert(null, new Object[] {new BigDecimal(i), "name" + i, i % 2 == 0 ? null : "x"});
+
+            store.delete(null, 500);
+        }
+
+        try (ColumnStore store = new ColumnStore(new PageFile(1, path, 512), new BufferPool(512, 8),
+                table.getColumns())) {
+            table.setStore(store);
+
+            BitSet columns = new BitSet();
+            columns.set(0);
+
+            Iterator<Row> rows = table.scan(columns);
+            int count = 0;
+            while (rows.hasNext()) {
+                Row row = rows.next();
+                Assert.assertThat(row.getValue(0), Matchers.equalTo(new BigDecimal(row.getKey())));
+                Assert.assertThat(row.getValue(1), Matchers.nullValue());
+                count++;
+            }
+
+            Assert.assertThat(count, Matchers.equalTo(999));
+
+            // new rows continue after rows read from file
+            Assert.assertThat(table.insert(null, new Object[] {BigDecimal.ZERO, "new", null}).getKey(),
+                    Matchers.equalTo(1000L));
+            Assert.assertThat(table.read(999).getValue(1), Matchers.equalTo("name999"));
+
+            rows = table.scan();
+            count = 0;
+            while (rows.hasNext()) {
+                Row row = rows.next();
+                if (row.getKey() < 1000)
+                    Assert.assertThat(row.getValue(1), Matchers.equalTo("name" + row.getKey()));
+                count++;
+            }
+
+            Assert.assertThat(count, Matchers.equalTo(1000));
+        }
+    }
+
+    @Test
+    public void dictionary_scan() throws IOException {
+        Path path = folder.newFile().toPath();
+        Table table = newTable();
+        String[] codes = {"red", "green", "blue", null};
+
+        try (ColumnStore store = new ColumnStore(new PageFile(1, path, 512), new BufferPool(512, 8),
+                table.getColumns())) {
+            table.setStore(store);
+            for (int i = 0; i < 1000; i++)
+                table.insert(null, new Object[] {new BigDecimal(i), "name" + i, codes[i % 4]});
+        }
+
+        try (ColumnStore store = new ColumnStore(new PageFile(1, path, 512), new BufferPool(512, 8),
+                table.getColumns())) {
+            table.setStore(store);
+            for (int i = 1000; i < 2000; i++)
+                table.insert(null, new Object[] {new BigDecimal(i), "name" + i, codes[i % 4]});
+
+            Assert.assertThat(table.read(1001).getValues(),
+                    Matchers.arrayContaining(new BigDecimal(1001), "name1001", "green"));
+
+            BitSet columns = new BitSet();
+            columns.set(0);
+            columns.set(2);
+
+            Iterator<Row> rows = table.scan(columns, 2, Arrays.asList("green", "blue"));
+            int count = 0;
+            while (rows.hasNext()) {
+                Row row = rows.next();
+                Assert.assertThat(row.getValue(2), Matchers.equalTo(codes[(int) row.getKey() % 4]));
+                Assert.assertThat(row.getKey() % 4, Matchers.isOneOf(1L, 2L));
+                count++;
+            }
+
+            Assert.assertThat(count, Matchers.equalTo(1000));
+
+            // unique names are not coded, values are compared as bytes
+            rows = table.scan(columns, 1, Collections.singletonList("name1999"));
+            Assert.assertThat(rows.next().getKey(), Matchers.equalTo(1999L));
+            Assert.assertFalse(rows.hasNext());
+        }
+    }
+
+    @Test
+    public void dictionary_size() throws IOException {
+        Table table = new Table();
+        table.setName("T");
+        table.addColumn(new Column("STATUS", DataType.getDataType("varchar")));
+
+        try (ColumnStore store = new ColumnStore(new PageFile(1, folder.newFile().toPath(), 512),
+                new BufferPool(512, 8), table.getColumns())) {
+            table.setStore(store);
+            for (int i = 0; i < 2000; i++)
+                table.insert(null, new Object[] {i % 3 == 0 ? "status-active" : "status-closed"});
+
+            // plain values take 18 bytes with slot, about 80 pages
+            Assert.assertThat(store.getFile().getPageCount(), Matchers.lessThan(40));
+            Assert.assertThat(table.read(1999).getValue(0), Matchers.equalTo("status-closed"));
+        }
+    }
+
+    // internal ==============================================================================
+    private static Table newTable() {
+        Table table = new Table();
+        table.setName("T");
+        table.addColumn(new Column("ID", DataType.getDataType("number")));
+        table.addColumn(new Column("NAME", DataType.getDataType("varchar")));
+        table.addColumn(new Column("CODE", DataType.getDataType("varchar")));
+        return table;
+    }
+}
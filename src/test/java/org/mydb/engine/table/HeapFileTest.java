@@ -0,0 +1,100 @@
+package org.mydb.engine.table;
+
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mydb.engine.page.BufferPool;
+import org.mydb.engine.page.PageFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class HeapFileTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void insert_read() throws IOException {
+        try (HeapFile heap = new HeapFile(new PageFile(1, folder.newFile().toPath(), 512), new BufferPool(512, 4))) {
+            long id1 = heap.insert(null, new byte[] {1, 2, 3});
+            long id2 = heap.insert(null, new byte[] {4});
+
+            Assert.assertArrayEquals(new byte[] {1, 2, 3}, heap.read(id1));
+            Assert.assertArrayEquals(new byte[] {4}, heap.read(id2));
+            Assert.assertThat(heap.read(HeapFile.recordId(10, 0)), Matchers.nullValue());
+        }
+    }
+
+    @Test
+    public void insert_newPage() throws IOException {
+        try (HeapFile heap = new HeapFile(new PageFile(1, folder.newFile().toPath(), 512), new BufferPool(512, 4))) {
+            long id1 = heap.insert(null, new byte[300]);
+            long id2 = heap.insert(null, new byte[300]);
+
+            Assert.assertThat(HeapFile.pageNo(id1), Matchers.equalTo(0));
+            Assert.assertThat(HeapFile.pageNo(id2), Matchers.equalTo(1));
+            Assert.assertThat(heap.getFile().getPageCount(), Matchers.equalTo(2));
+        }
+    }
+
+    @Test
+    public void delete_spaceReused() throws IOException {
+        try (HeapFile heap = new HeapFile(new PageFile(1, folder.newFile().toPath(), 512), new BufferPool(512, 4))) {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < 40; i++)
+                ids.add(heap.insert(null, new byte[50]));
+
+            int pageCount = heap.getPageCount();
+
+            // records of different size replace deleted ones in every round
+            for (int round = 0; round < 20; round++) {
+                for (int i = 0; i < ids.size(); i++) {
+                    heap.delete(null, ids.get(i));
+                    ids.set(i, heap.insert(null, new byte[40 + (round + i) % 20]));
+                }
+            }
+
+            Assert.assertThat(heap.getPageCount(), Matchers.equalTo(pageCount));
+
+            int count = 0;
+            for (Iterator<Record> records = heap.scan(); records.hasNext(); records.next())
+                count++;
+            Assert.assertThat(count, Matchers.equalTo(40));
+
+            long id = ids.get(7);
+            Assert.assertThat(heap.read(id).length, Matchers.equalTo(40 + (19 + 7) % 20));
+        }
+    }
+
+    @Test(expected = TableException.class)
+    public void insert_tooLarge() throws IOException {
+        try (HeapFile heap = new HeapFile(new PageFile(1, folder.newFile().toPath(), 512), new BufferPool(512, 4))) {
+            heap.insert(null, new byte[512]);
+        }
+    }
+
+    @Test
+    public void scan_reopen() throws IOException {
+        Path path = folder.newFile().toPath();
+
+        try (HeapFile heap = new HeapFile(new PageFile(1, path, 512), new BufferPool(512, 4))) {
+            for (int i = 0; i < 100; i++)
+                heap.insert(null, new byte[] {(byte) i, (byte) i, (byte) i, (byte) i});
+        }
+
+        try (HeapFile heap = new HeapFile(new PageFile(1, path, 512), new BufferPool(512, 4))) {
+            List<Byte> values = new ArrayList<>();
+            Iterator<Record> records = heap.scan();
+            while (records.hasNext())
+                values.add(records.next().getData()[0]);
+
+            Assert.assertThat(values.size(), Matchers.equalTo(100));
+            Assert.assertThat(values.get(99), Matchers.equalTo((byte) 99));
+        }
+    }
+}
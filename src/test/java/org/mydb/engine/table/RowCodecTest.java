@@ -0,0 +1,75 @@
+package org.mydb.engine.table;
+
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mydb.engine.table.datatype.DataType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class RowCodecTest {
+    private final List<Column> columns = Arrays.asList(
+            new Column.ColumnBuilder().setName("A").setDataType(DataType.getDataType("number")).setPrecision(2).build(),
+            new Column("B", DataType.getDataType("varchar")),
+            new Column.ColumnBuilder().setName("C").setDataType(DataType.getDataType("number"))
+                    .setPrecision(6).setScale(2).build(),
+            new Column("D", DataType.getDataType("date")),
+            new Column("E", DataType.getDataType("varchar")));
+
+    private final RowCodec codec = new RowCodec(columns);
+
+    @Test
+    public void encode_decode() {
+        Object[] values = {new BigDecimal(-12), "abc", new BigDecimal("1234.56"), LocalDate.parse("2020-02-29"), "\u00e9\u20ac"};
+        byte[] record = codec.encode(values);
+
+        // bitmap 1, numbers 1 + 4, date 4, offsets 2 * 2, chars 3 + 2 + 3
+        Assert.assertThat(record.length, Matchers.equalTo(22));
+        Assert.assertThat(codec.decode(record), Matchers.equalTo(values));
+    }
+
+    @Test
+    public void encode_null() {
+        Object[] values = {null, null, BigDecimal.ONE.setScale(2), null, ""};
+        byte[] record = codec.encode(values);
+
+        Assert.assertThat(codec.decode(record), Matchers.equalTo(values));
+        Assert.assertThat(codec.decode(codec.encode(new Object[5])), Matchers.equalTo(new Object[5]));
+    }
+
+    @Test
+    public void decode_column() {
+        byte[] record = codec.encode(new Object[] {BigDecimal.ONE, "first", null, null, "second"});
+
+        Assert.assertThat(codec.decode(record, 4), Matchers.equalTo("second"));
+        Assert.assertThat(codec.decode(record, 1), Matchers.equalTo("first"));
+        Assert.assertThat(codec.decode(record, 2), Matchers.nullValue());
+        Assert.assertThat(codec.decode(record, 0), Matchers.equalTo(BigDecimal.ONE));
+    }
+
+    @Test
+    public void split_join() {
+        Object[] values = {new BigDecimal(99), null, new BigDecimal("-0.01"), LocalDate.parse("1969-12-31"), "x"};
+        byte[][] split = codec.split(codec.encode(values));
+
+        Assert.assertThat(split[1], Matchers.nullValue());
+        Assert.assertThat(split[0].length, Matchers.equalTo(1));
+
+        split[4] = null;
+        Assert.assertThat(codec.decode(codec.join(split)),
+                Matchers.equalTo(new Object[] {new BigDecimal(99), null, new BigDecimal("-0.01"), LocalDate.parse("1969-12-31"), null}));
+    }
+
+    @Test(expected = TableException.class)
+    public void encode_tooLarge() {
+        RowCodec codec = new RowCodec(Collections.singletonList(new Column("A", DataType.getDataType("varchar"))));
+        char[] chars = new char[70000];
+        Arrays.fill(chars, 'a');
+
+        codec.encode(new Object[] {new String(chars)});
+    }
+}
@@ -0,0 +1,60 @@
+package org.mydb.engine.table.datatype;
+
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertThat;
+
+public class NumberSumTest {
+
+    @Test
+    public void add_unscaled() {
+        NumberSum sum = new NumberSum(2);
+        sum.add(150);
+        sum.add(-25);
+        sum.add(new BigDecimal("1.5"));
+
+        assertThat(sum.getCount(), Matchers.equalTo(3L));
+        assertThat(sum.getSum(), Matchers.equalTo(new BigDecimal("2.75")));
+        assertThat(sum.getAverage(), Matchers.equalTo(new BigDecimal("0.916667")));
+    }
+
+    @Test
+    public void add_overflow() {
+        NumberSum sum = new NumberSum(0);
+        sum.add(Long.MAX_VALUE);
+        sum.add(Long.MAX_VALUE);
+        sum.add(-1);
+
+        BigDecimal expected = BigDecimal.valueOf(Long.MAX_VALUE).multiply(BigDecimal.valueOf(2)).subtract(BigDecimal.ONE);
+        assertThat(sum.getSum(), Matchers.equalTo(expected));
+    }
+
+    @Test
+    public void add_otherScale() {
+        NumberSum sum = new NumberSum(0);
+        sum.add(1);
+        sum.add(new BigDecimal("0.25"));
+
+        assertThat(sum.getSum(), Matchers.comparesEqualTo(new BigDecimal("1.25")));
+    }
+
+    @Test
+    public void getSum_empty() {
+        NumberSum sum = new NumberSum(0);
+
+        assertThat(sum.getSum(), Matchers.nullValue());
+        assertThat(sum.getAverage(), Matchers.nullValue());
+    }
+
+    @Test
+    public void toUnscaled() {
+        assertThat(Number.toUnscaled(12, 2), Matchers.equalTo(1200L));
+        assertThat(Number.toUnscaled(new BigDecimal("1.50"), 1), Matchers.equalTo(15L));
+        assertThat(Number.toUnscaled(new BigDecimal("1.55"), 1), Matchers.nullValue());
+        assertThat(Number.toUnscaled("1", 0), Matchers.nullValue());
+        assertThat(Number.toUnscaled(Long.MAX_VALUE, 1), Matchers.nullValue());
+    }
+}
@@ -0,0 +1,95 @@
+package org.mydb.engine.tx;
+
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mydb.engine.table.Table;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class LockManagerTest {
+    @Test
+    public void lock_wait() throws Exception {
+        LockManager lockManager = new LockManager(10000);
+        Table table = newTable();
+        Transaction first = new Transaction(1, null, lockManager);
+        Transaction second = new Transaction(2, null, lockManager);
+
+        Assert.assertTrue(first.lock(table, 1));
+        Assert.assertFalse(first.lock(table, 1));
+        Assert.assertTrue(second.lock(table, 2));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> locked = executor.submit(() -> second.lock(table, 1));
+            Thread.sleep(50);
+            Assert.assertFalse(locked.isDone());
+
+            first.commit();
+            Assert.assertTrue(locked.get(5, TimeUnit.SECONDS));
+            Assert.assertTrue(second.isLocked(table, 1));
+            Assert.assertThat(second.getLockWaitTime(), Matchers.greaterThan(0L));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void lock_timeout() {
+        LockManager lockManager = new LockManager(10);
+        Table table = newTable();
+        Transaction first = new Transaction(1, null, lockManager);
+        Transaction second = new Transaction(2, null, lockManager);
+
+        first.lock(table, 1);
+        try {
+            second.lock(table, 1);
+            Assert.fail("lock of other transaction acquired");
+        } catch (LockException e) {
+            Assert.assertThat(e.getMessage(), Matchers.containsString("timeout"));
+        }
+
+        first.unlock(table, 1);
+        Assert.assertTrue(second.lock(table, 1));
+    }
+
+    @Test
+    public void lock_deadlock() throws Exception {
+        LockManager lockManager = new LockManager(10000);
+        Table table = newTable();
+        Transaction first = new Transaction(1, null, lockManager);
+        Transaction second = new Transaction(2, null, lockManager);
+
+        first.lock(table, 1);
+        second.lock(table, 2);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> locked = executor.submit(() -> first.lock(table, 2));
+            Thread.sleep(50);
+
+            try {
+                second.lock(table, 1);
+                Assert.fail("deadlock not detected");
+            } catch (DeadlockException e) {
+                Assert.assertThat(e.getMessage(), Matchers.containsString("transaction 2 is rolled back"));
+            }
+
+            second.rollback();
+            Assert.assertTrue(locked.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // internal ==============================================================================
+    private static Table newTable() {
+        Table table = new Table();
+        table.setId(1);
+        table.setName("T");
+        return table;
+    }
+}
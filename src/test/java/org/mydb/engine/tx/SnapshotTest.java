@@ -0,0 +1,38 @@
+package org.mydb.engine.tx;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SnapshotTest {
+    @Test
+    public void isVisible_transaction() {
+        Snapshot snapshot = new Snapshot(5, 8, new long[] {6, 3});
+
+        Assert.assertTrue(snapshot.isVisible(0));
+        Assert.assertTrue(snapshot.isVisible(1));
+        Assert.assertFalse(snapshot.isVisible(3));
+        Assert.assertTrue(snapshot.isVisible(4));
+        Assert.assertTrue(snapshot.isVisible(5));
+        Assert.assertFalse(snapshot.isVisible(6));
+        Assert.assertTrue(snapshot.isVisible(7));
+        Assert.assertFalse(snapshot.isVisible(8));
+        Assert.assertEquals(3, snapshot.getXmin());
+    }
+
+    @Test
+    public void isVisible_version() {
+        Snapshot snapshot = new Snapshot(5, 8, new long[] {3});
+
+        Assert.assertTrue(snapshot.isVisible(1, 0));
+        Assert.assertTrue(snapshot.isVisible(5, 0));
+        Assert.assertFalse(snapshot.isVisible(3, 0));
+        Assert.assertFalse(snapshot.isVisible(9, 0));
+
+        // deleted by committed, running or later transaction
+        Assert.assertFalse(snapshot.isVisible(1, 2));
+        Assert.assertTrue(snapshot.isVisible(1, 3));
+        Assert.assertTrue(snapshot.isVisible(1, 8));
+        Assert.assertFalse(snapshot.isVisible(1, 5));
+        Assert.assertFalse(snapshot.isVisible(5, 5));
+    }
+}